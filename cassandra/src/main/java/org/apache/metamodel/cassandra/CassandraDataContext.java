@@ -18,15 +18,26 @@
  */
 package org.apache.metamodel.cassandra;
 
+import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.MetaModelHelper;
 import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.FirstRowDataSet;
 import org.apache.metamodel.data.SimpleDataSetHeader;
 import org.apache.metamodel.query.FilterItem;
 import org.apache.metamodel.query.SelectItem;
@@ -37,7 +48,10 @@ import org.apache.metamodel.schema.MutableSchema;
 import org.apache.metamodel.schema.MutableTable;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.ParallelMergeSupplier;
+import org.apache.metamodel.util.SharedExecutorService;
 import org.apache.metamodel.util.SimpleTableDef;
+import org.apache.metamodel.util.SystemProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,10 +60,14 @@ import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.DataType;
 import com.datastax.driver.core.KeyspaceMetadata;
 import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TokenRange;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
 import com.datastax.driver.core.querybuilder.Select.Selection;
@@ -66,12 +84,38 @@ import com.datastax.driver.core.querybuilder.Select.Selection;
  * specification of a schema, through the {@link SimpleTableDef} class.
  *
  */
-public class CassandraDataContext extends QueryPostprocessDataContext implements DataContext {
+public class CassandraDataContext extends QueryPostprocessDataContext implements DataContext, Closeable {
+
+    /**
+     * System property key used for getting the number of rows to fetch per
+     * page of query results. The next page is fetched asynchronously while
+     * the last rows of the current page are being consumed. Defaults to 5000.
+     */
+    public static final String SYSTEM_PROPERTY_FETCH_SIZE = "metamodel.cassandra.fetch.size";
+
+    /**
+     * System property key used for enabling the push down of filters on
+     * regular (non primary key) columns, which requires ALLOW FILTERING and
+     * thereby lets Cassandra scan the table server-side. Defaults to false.
+     */
+    public static final String SYSTEM_PROPERTY_ALLOW_FILTERING = "metamodel.cassandra.allow.filtering";
+
+    /**
+     * System property key used for getting the number of token ranges to scan
+     * (or count) in parallel when a query does not restrict the partition key
+     * and has no row limit. The rows of parallel scans are not returned in
+     * token order. Defaults to 1, i.e. a sequential scan.
+     */
+    public static final String SYSTEM_PROPERTY_SCAN_PARALLELISM = "metamodel.cassandra.scan.parallelism";
+
+    private static final int DEFAULT_FETCH_SIZE = 5000;
 
     private static final Logger logger = LoggerFactory.getLogger(CassandraDataContext.class);
     private final Cluster cassandraCluster;
     private final SimpleTableDef[] tableDefs;
     private final String keySpaceName;
+    private final Map<String, PreparedStatement> preparedStatements;
+    private volatile Session session;
 
     /**
      * Constructs a {@link CassandraDataContext}. This constructor accepts a
@@ -91,6 +135,7 @@ public class CassandraDataContext extends QueryPostprocessDataContext implements
         this.cassandraCluster = cluster;
         this.keySpaceName = keySpace;
         this.tableDefs = tableDefs;
+        this.preparedStatements = new ConcurrentHashMap<>();
     }
 
     /**
@@ -189,18 +234,155 @@ public class CassandraDataContext extends QueryPostprocessDataContext implements
 
     @Override
     protected DataSet materializeMainSchemaTable(Table table, List<Column> columns, int maxRows) {
-        final Select query = QueryBuilder.select().all().from(keySpaceName, table.getName());
-        if (limitMaxRowsIsSet(maxRows)) {
-            query.limit(maxRows);
+        final CassandraSelectBuilder selectBuilder = CassandraSelectBuilder.of(getTableMetadata(table), false);
+        return materializeMainSchemaTable(table, columns, selectBuilder, maxRows);
+    }
+
+    @Override
+    protected DataSet materializeMainSchemaTable(Table table, List<SelectItem> selectItems, List<FilterItem> whereItems,
+            int firstRow, int maxRows) {
+        if (selectItems.stream().anyMatch(selectItem -> selectItem.getColumn() == null)) {
+            return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
+        }
+
+        final CassandraSelectBuilder selectBuilder = CassandraSelectBuilder.of(getTableMetadata(table), Boolean
+                .parseBoolean(System.getProperty(SYSTEM_PROPERTY_ALLOW_FILTERING)));
+        selectBuilder.split(whereItems);
+        final List<FilterItem> postProcessWhereItems = selectBuilder.getPostProcessItems();
+
+        final List<Column> columns = new ArrayList<>();
+        for (SelectItem selectItem : selectItems) {
+            if (!columns.contains(selectItem.getColumn())) {
+                columns.add(selectItem.getColumn());
+            }
+        }
+        for (SelectItem selectItem : MetaModelHelper.getEvaluatedSelectItems(postProcessWhereItems)) {
+            if (selectItem.getColumn() == null) {
+                return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
+            }
+            if (!columns.contains(selectItem.getColumn())) {
+                columns.add(selectItem.getColumn());
+            }
         }
-        final ResultSet resultSet = cassandraCluster.connect().execute(query);
 
-        final Iterator<Row> response = resultSet.iterator();
-        return new CassandraDataSet(response, columns);
+        DataSet dataSet;
+        if (postProcessWhereItems.isEmpty()) {
+            final int rowsToMaterialize = maxRows > 0 ? maxRows + firstRow - 1 : -1;
+            dataSet = materializeMainSchemaTable(table, columns, selectBuilder, rowsToMaterialize);
+            if (firstRow > 1) {
+                dataSet = new FirstRowDataSet(dataSet, firstRow);
+            }
+        } else {
+            dataSet = materializeMainSchemaTable(table, columns, selectBuilder, -1);
+            dataSet = MetaModelHelper.getFiltered(dataSet, postProcessWhereItems);
+            dataSet = MetaModelHelper.getPaged(dataSet, firstRow, maxRows);
+        }
+        return MetaModelHelper.getSelection(selectItems, dataSet);
+    }
+
+    private DataSet materializeMainSchemaTable(Table table, List<Column> columns,
+            CassandraSelectBuilder selectBuilder, int maxRows) {
+        final int fetchSize = getFetchSize();
+        final int prefetchThreshold = fetchSize / 4;
+        final boolean limited = limitMaxRowsIsSet(maxRows);
+
+        final int parallelism = getScanParallelism();
+        if (parallelism > 1 && !limited && !selectBuilder.isPartitionKeyRestricted() && !selectBuilder
+                .getPartitionKey().isEmpty()) {
+            final Session session = getSession();
+            final List<ParallelMergeSupplier.Task<Row>> scans = new ArrayList<>();
+            for (TokenRange tokenRange : getTokenRanges(parallelism)) {
+                final Select select = selectBuilder.toSelect(CassandraSelectBuilder.select(columns), keySpaceName,
+                        table.getName(), tokenRange, false);
+                final Statement statement = selectBuilder.bind(prepare(select), tokenRange, -1).setFetchSize(
+                        fetchSize);
+                scans.add(sink -> {
+                    final ResultSet resultSet = session.execute(statement);
+                    for (Row row = CassandraUtils.nextRow(resultSet, prefetchThreshold); row != null; row =
+                            CassandraUtils.nextRow(resultSet, prefetchThreshold)) {
+                        sink.put(row);
+                    }
+                });
+            }
+            // token ranges are scanned in parallel, so the order of the rows
+            // is not the token order
+            final ParallelMergeSupplier<Row> scanner = new ParallelMergeSupplier<>(scans, parallelism, fetchSize);
+            return new CassandraDataSet(columns, scanner, scanner);
+        }
+
+        final Select select = selectBuilder.toSelect(CassandraSelectBuilder.select(columns), keySpaceName, table
+                .getName(), null, limited);
+        final Statement statement = selectBuilder.bind(prepare(select), null, maxRows);
+        statement.setFetchSize(limited ? Math.min(maxRows, fetchSize) : fetchSize);
+
+        final ResultSet resultSet = getSession().execute(statement);
+        return new CassandraDataSet(columns, () -> CassandraUtils.nextRow(resultSet, prefetchThreshold), null);
     }
 
     private boolean limitMaxRowsIsSet(int maxRows) {
-        return (maxRows != -1);
+        return maxRows > 0;
+    }
+
+    private TableMetadata getTableMetadata(Table table) {
+        final KeyspaceMetadata keyspace = cassandraCluster.getMetadata().getKeyspace(keySpaceName);
+        if (keyspace == null) {
+            return null;
+        }
+        return keyspace.getTable(table.getName());
+    }
+
+    /**
+     * Gets the token ranges of the ring, unwrapped and split evenly if needed
+     * so that there are at least as many ranges as the parallelism.
+     */
+    private List<TokenRange> getTokenRanges(int parallelism) {
+        final Set<TokenRange> ringRanges = cassandraCluster.getMetadata().getTokenRanges();
+        final int splitsPerRange = (parallelism + ringRanges.size() - 1) / Math.max(1, ringRanges.size());
+        final List<TokenRange> result = new ArrayList<>();
+        for (TokenRange ringRange : ringRanges) {
+            final List<TokenRange> splits = splitsPerRange > 1 ? ringRange.splitEvenly(splitsPerRange)
+                    : Collections.singletonList(ringRange);
+            for (TokenRange split : splits) {
+                result.addAll(split.unwrap());
+            }
+        }
+        return result;
+    }
+
+    private static int getScanParallelism() {
+        return Math.max(1, SystemProperties.getInt(SYSTEM_PROPERTY_SCAN_PARALLELISM, 1));
+    }
+
+    private static int getFetchSize() {
+        return Math.max(1, SystemProperties.getInt(SYSTEM_PROPERTY_FETCH_SIZE, DEFAULT_FETCH_SIZE));
+    }
+
+    /**
+     * Gets the {@link Session} that is shared by all queries of this
+     * {@link DataContext}, connecting to the cluster on first use.
+     *
+     * @return
+     */
+    protected Session getSession() {
+        Session session = this.session;
+        if (session == null) {
+            synchronized (this) {
+                session = this.session;
+                if (session == null) {
+                    session = cassandraCluster.connect();
+                    this.session = session;
+                }
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Prepares a statement, or gets it from the cache of prepared statements
+     * if the same query has been prepared before.
+     */
+    private PreparedStatement prepare(RegularStatement statement) {
+        return preparedStatements.computeIfAbsent(statement.getQueryString(), getSession()::prepare);
     }
 
     @Override
@@ -218,27 +400,101 @@ public class CassandraDataContext extends QueryPostprocessDataContext implements
             select = select.column(column.getName());
         }
 
-        final Statement statement = select.from(keySpaceName, table.getName()).where(QueryBuilder.eq(primaryKeyColumn
-                .getName(), keyValue));
+        final Statement statement = prepare(select.from(keySpaceName, table.getName()).where(QueryBuilder.eq(
+                primaryKeyColumn.getName(), QueryBuilder.bindMarker()))).bind(keyValue);
 
-        final Row row = cassandraCluster.connect().execute(statement).one();
+        final Row row = getSession().execute(statement).one();
 
         return CassandraUtils.toRow(row, new SimpleDataSetHeader(selectItems));
     }
 
     @Override
     protected Number executeCountQuery(Table table, List<FilterItem> whereItems, boolean functionApproximationAllowed) {
-        if (!whereItems.isEmpty()) {
+        final CassandraSelectBuilder selectBuilder = CassandraSelectBuilder.of(getTableMetadata(table), Boolean
+                .parseBoolean(System.getProperty(SYSTEM_PROPERTY_ALLOW_FILTERING)));
+        selectBuilder.split(whereItems);
+        if (!selectBuilder.getPostProcessItems().isEmpty()) {
             // not supported - will have to be done by counting client-side
             logger.debug(
                     "Not able to execute count query natively - resorting to query post-processing, which may be expensive");
             return null;
         }
-        final Statement statement = QueryBuilder.select().countAll().from(keySpaceName, table.getName());
-        final Row response = cassandraCluster.connect().execute(statement).one();
+
+        final int parallelism = getScanParallelism();
+        if (parallelism > 1 && !selectBuilder.isPartitionKeyRestricted() && !selectBuilder.getPartitionKey()
+                .isEmpty()) {
+            final Queue<Statement> statements = new ConcurrentLinkedQueue<>();
+            for (TokenRange tokenRange : getTokenRanges(parallelism)) {
+                final Select select = selectBuilder.toSelect(CassandraSelectBuilder.select(null), keySpaceName,
+                        table.getName(), tokenRange, false);
+                statements.add(selectBuilder.bind(prepare(select), tokenRange, -1));
+            }
+            return executeParallelCount(statements, parallelism);
+        }
+
+        final Select select = selectBuilder.toSelect(CassandraSelectBuilder.select(null), keySpaceName, table
+                .getName(), null, false);
+        final Row response = getSession().execute(selectBuilder.bind(prepare(select), null, -1)).one();
         return response.getLong(0);
     }
 
+    /**
+     * Executes a number of count statements (one per token range) using a
+     * number of workers, and sums up the counts.
+     */
+    private long executeParallelCount(Queue<Statement> statements, int parallelism) {
+        final Session session = getSession();
+        final List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, statements.size()); i++) {
+            futures.add(SharedExecutorService.get().submit(() -> {
+                long count = 0;
+                for (Statement statement = statements.poll(); statement != null; statement = statements.poll()) {
+                    count += session.execute(statement).one().getLong(0);
+                }
+                return count;
+            }));
+        }
+
+        long count = 0;
+        try {
+            for (Future<Long> future : futures) {
+                count += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MetaModelException("Interrupted while waiting for parallel count", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new MetaModelException("Failed to execute parallel count", e);
+        } finally {
+            for (Future<Long> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Closes the shared {@link Session} of this {@link DataContext}, if it has
+     * been opened. The {@link Cluster} is not closed, since it is owned by the
+     * caller.
+     */
+    @Override
+    public void close() {
+        final Session session;
+        synchronized (this) {
+            session = this.session;
+            this.session = null;
+            preparedStatements.clear();
+        }
+        if (session != null) {
+            session.close();
+        }
+    }
+
     private static ColumnType getColumnTypeFromMetaDataField(DataType.Name metaDataName) {
         switch (metaDataName) {
         case BIGINT:
@@ -19,8 +19,9 @@
 
 package org.apache.metamodel.cassandra;
 
-import java.util.Iterator;
+import java.io.Closeable;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.metamodel.data.AbstractDataSet;
@@ -28,31 +29,46 @@ import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.ParallelMergeSupplier;
+
+import com.datastax.driver.core.ResultSet;
 
 /**
- * A {@link DataSet} implementation that wraps a iterator of
- * {@link com.datastax.driver.core.Row}.
+ * A {@link DataSet} implementation that wraps a supplier of
+ * {@link com.datastax.driver.core.Row}s, typically a {@link ResultSet} (see
+ * {@link CassandraUtils#nextRow(ResultSet, int)}) or a
+ * {@link ParallelMergeSupplier} of token range scans.
  */
 final class CassandraDataSet extends AbstractDataSet {
 
-    private final Iterator<com.datastax.driver.core.Row> _cursor;
+    private final Supplier<com.datastax.driver.core.Row> _rowSupplier;
+    private final Closeable _closeable;
 
     private volatile com.datastax.driver.core.Row _dbObject;
 
-    public CassandraDataSet(Iterator<com.datastax.driver.core.Row> cursor, List<Column> columns) {
+    /**
+     * Creates a CassandraDataSet.
+     *
+     * @param columns
+     *            the columns of the DataSet
+     * @param rowSupplier
+     *            a supplier of rows, which returns null when there are no more
+     *            rows
+     * @param closeable
+     *            an optional resource to close when the DataSet is closed
+     */
+    public CassandraDataSet(List<Column> columns, Supplier<com.datastax.driver.core.Row> rowSupplier,
+            Closeable closeable) {
         super(columns.stream().map(SelectItem::new).collect(Collectors.toList()));
-        _cursor = cursor;
+        _rowSupplier = rowSupplier;
+        _closeable = closeable;
     }
 
     @Override
     public boolean next() {
-        if (_cursor.hasNext()) {
-            _dbObject = _cursor.next();
-            return true;
-        } else {
-            _dbObject = null;
-            return false;
-        }
+        _dbObject = _rowSupplier.get();
+        return _dbObject != null;
     }
 
     @Override
@@ -60,4 +76,12 @@ final class CassandraDataSet extends AbstractDataSet {
         return CassandraUtils.toRow(_dbObject, getHeader());
     }
 
+    @Override
+    public void close() {
+        super.close();
+        if (_closeable != null) {
+            FileHelper.safeClose(_closeable);
+        }
+    }
+
 }
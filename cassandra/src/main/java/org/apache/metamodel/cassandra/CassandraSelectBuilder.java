@@ -0,0 +1,526 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.cassandra;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.util.CollectionUtils;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TokenRange;
+import com.datastax.driver.core.querybuilder.Clause;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import com.datastax.driver.core.querybuilder.Select.Selection;
+
+/**
+ * Builds CQL SELECT statements with bind markers for a table, pushing down the
+ * WHERE items that CQL is able to evaluate with the exact same semantics as
+ * MetaModel's own evaluation:
+ *
+ * <ul>
+ * <li>Equality and IN restrictions on all of the partition key columns.</li>
+ * <li>Equality restrictions on a prefix of the clustering columns, optionally
+ * followed by a range restriction on the next clustering column (only when
+ * the partition key is restricted).</li>
+ * <li>Equality and lower bound restrictions on regular columns, but only if
+ * ALLOW FILTERING has been enabled (since it may make Cassandra scan the
+ * whole table server-side).</li>
+ * </ul>
+ *
+ * Filter items that do not fit these rules have to be evaluated client-side.
+ */
+final class CassandraSelectBuilder {
+
+    /**
+     * The maximum number of values to push down in a single IN restriction on
+     * a partition key column. Every value is a separate partition that the
+     * coordinator will have to query.
+     */
+    private static final int MAX_IN_VALUES = 100;
+
+    private final List<String> _partitionKey;
+    private final List<String> _clusteringColumns;
+    private final Map<String, DataType> _columnTypes;
+    private final boolean _allowFilteringEnabled;
+
+    private final List<FilterItem> _pushedDownItems;
+    private final List<FilterItem> _postProcessItems;
+    private boolean _allowFiltering;
+    private boolean _partitionKeyRestricted;
+
+    /**
+     * Creates a {@link CassandraSelectBuilder} for a table.
+     *
+     * @param tableMetadata
+     *            the Cassandra metadata of the table, or null if unknown (in
+     *            which case no filter items can be pushed down)
+     * @param allowFilteringEnabled
+     *            whether or not to push down restrictions that require ALLOW
+     *            FILTERING
+     */
+    public static CassandraSelectBuilder of(TableMetadata tableMetadata, boolean allowFilteringEnabled) {
+        if (tableMetadata == null) {
+            return new CassandraSelectBuilder(Collections.emptyList(), Collections.emptyList(), Collections
+                    .emptyMap(), false);
+        }
+        final List<String> partitionKey = new ArrayList<>();
+        for (ColumnMetadata column : tableMetadata.getPartitionKey()) {
+            partitionKey.add(column.getName());
+        }
+        final List<String> clusteringColumns = new ArrayList<>();
+        for (ColumnMetadata column : tableMetadata.getClusteringColumns()) {
+            clusteringColumns.add(column.getName());
+        }
+        final Map<String, DataType> columnTypes = new HashMap<>();
+        for (ColumnMetadata column : tableMetadata.getColumns()) {
+            columnTypes.put(column.getName(), column.getType());
+        }
+        return new CassandraSelectBuilder(partitionKey, clusteringColumns, columnTypes, allowFilteringEnabled);
+    }
+
+    CassandraSelectBuilder(List<String> partitionKey, List<String> clusteringColumns,
+            Map<String, DataType> columnTypes, boolean allowFilteringEnabled) {
+        _partitionKey = partitionKey;
+        _clusteringColumns = clusteringColumns;
+        _columnTypes = columnTypes;
+        _allowFilteringEnabled = allowFilteringEnabled;
+        _pushedDownItems = new ArrayList<>();
+        _postProcessItems = new ArrayList<>();
+    }
+
+    /**
+     * Splits a list of (AND'ed) filter items into the ones that can be pushed
+     * down (see {@link #getPushedDownItems()}) and the ones that have to be
+     * evaluated client-side (see {@link #getPostProcessItems()}).
+     *
+     * @param whereItems
+     */
+    public void split(List<FilterItem> whereItems) {
+        final List<FilterItem> candidates = new ArrayList<>();
+        for (FilterItem whereItem : whereItems) {
+            if (isSupported(whereItem)) {
+                candidates.add(whereItem);
+            } else {
+                _postProcessItems.add(whereItem);
+            }
+        }
+
+        // the partition key must be fully restricted by equality or IN
+        // restrictions for any key restrictions to be allowed
+        final List<FilterItem> partitionKeyItems = new ArrayList<>();
+        for (String columnName : _partitionKey) {
+            final FilterItem item = findItem(candidates, columnName, OperatorType.EQUALS_TO, OperatorType.IN);
+            if (item == null) {
+                partitionKeyItems.clear();
+                break;
+            }
+            partitionKeyItems.add(item);
+        }
+        if (!partitionKeyItems.isEmpty()) {
+            pushDown(candidates, partitionKeyItems);
+            _partitionKeyRestricted = true;
+
+            for (String columnName : _clusteringColumns) {
+                final FilterItem equalsItem = findItem(candidates, columnName, OperatorType.EQUALS_TO);
+                if (equalsItem != null) {
+                    pushDown(candidates, Collections.singletonList(equalsItem));
+                    continue;
+                }
+                final List<FilterItem> rangeItems = new ArrayList<>();
+                final FilterItem lowerBoundItem = findItem(candidates, columnName, OperatorType.GREATER_THAN,
+                        OperatorType.GREATER_THAN_OR_EQUAL);
+                if (lowerBoundItem != null) {
+                    rangeItems.add(lowerBoundItem);
+                }
+                final FilterItem upperBoundItem = findItem(candidates, columnName, OperatorType.LESS_THAN,
+                        OperatorType.LESS_THAN_OR_EQUAL);
+                if (upperBoundItem != null) {
+                    rangeItems.add(upperBoundItem);
+                }
+                pushDown(candidates, rangeItems);
+                break;
+            }
+        }
+
+        if (_allowFilteringEnabled) {
+            for (String columnName : getRegularColumns()) {
+                FilterItem item = findItem(candidates, columnName, OperatorType.EQUALS_TO);
+                if (item == null) {
+                    // only lower bounds, since MetaModel considers null to be
+                    // less than any other value
+                    item = findItem(candidates, columnName, OperatorType.GREATER_THAN,
+                            OperatorType.GREATER_THAN_OR_EQUAL);
+                }
+                if (item != null) {
+                    pushDown(candidates, Collections.singletonList(item));
+                    _allowFiltering = true;
+                }
+            }
+        }
+
+        _postProcessItems.addAll(candidates);
+    }
+
+    private void pushDown(List<FilterItem> candidates, List<FilterItem> items) {
+        for (FilterItem item : items) {
+            candidates.remove(item);
+            _pushedDownItems.add(item);
+        }
+    }
+
+    private List<String> getRegularColumns() {
+        final List<String> result = new ArrayList<>();
+        for (String columnName : _columnTypes.keySet()) {
+            if (!_partitionKey.contains(columnName) && !_clusteringColumns.contains(columnName)) {
+                result.add(columnName);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static FilterItem findItem(List<FilterItem> candidates, String columnName, OperatorType... operators) {
+        for (FilterItem candidate : candidates) {
+            if (candidate.getSelectItem().getColumn().getName().equals(columnName)) {
+                for (OperatorType operator : operators) {
+                    if (candidate.getOperator() == operator) {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    public List<String> getPartitionKey() {
+        return _partitionKey;
+    }
+
+    public List<FilterItem> getPushedDownItems() {
+        return _pushedDownItems;
+    }
+
+    public List<FilterItem> getPostProcessItems() {
+        return _postProcessItems;
+    }
+
+    /**
+     * Determines if the pushed down items require ALLOW FILTERING.
+     *
+     * @return
+     */
+    public boolean isAllowFiltering() {
+        return _allowFiltering;
+    }
+
+    /**
+     * Determines if the pushed down items restrict the partition key, in
+     * which case the query cannot be split into token ranges.
+     *
+     * @return
+     */
+    public boolean isPartitionKeyRestricted() {
+        return _partitionKeyRestricted;
+    }
+
+    /**
+     * Creates the selection of a list of columns, or of the row count if the
+     * list is null.
+     *
+     * @param columns
+     * @return
+     */
+    public static Select.Builder select(List<Column> columns) {
+        if (columns == null) {
+            return QueryBuilder.select().countAll();
+        }
+        Selection selection = QueryBuilder.select();
+        for (Column column : columns) {
+            selection = selection.column(column.getName());
+        }
+        return selection;
+    }
+
+    /**
+     * Builds a SELECT statement with the pushed down items as bind markers.
+     * The values are bound by
+     * {@link #bind(PreparedStatement, TokenRange, int)}.
+     *
+     * @param selection
+     *            the selection, see {@link #select(List)}
+     * @param keyspaceName
+     * @param tableName
+     * @param tokenRange
+     *            an optional (non-wrapping) token range to restrict the
+     *            statement to
+     * @param limited
+     *            whether or not to add a LIMIT bind marker
+     * @return
+     */
+    public Select toSelect(Select.Builder selection, String keyspaceName, String tableName, TokenRange tokenRange,
+            boolean limited) {
+        final Select select = selection.from(keyspaceName, tableName);
+        for (FilterItem item : _pushedDownItems) {
+            select.where(toClause(item));
+        }
+        if (tokenRange != null) {
+            if (isPartitionKeyRestricted() || _partitionKey.isEmpty()) {
+                throw new IllegalStateException("Cannot restrict query to a token range");
+            }
+            final String token = QueryBuilder.token(_partitionKey.toArray(new String[_partitionKey.size()]));
+            select.where(QueryBuilder.gt(token, QueryBuilder.bindMarker()));
+            if (hasUpperBound(tokenRange)) {
+                select.where(QueryBuilder.lte(token, QueryBuilder.bindMarker()));
+            }
+        }
+        if (_allowFiltering) {
+            select.allowFiltering();
+        }
+        if (limited) {
+            select.limit(QueryBuilder.bindMarker());
+        }
+        return select;
+    }
+
+    /**
+     * Binds the values of a statement prepared from
+     * {@link #toSelect(Select.Builder, String, String, TokenRange, boolean)}.
+     *
+     * @param statement
+     * @param tokenRange
+     *            the token range that the statement was built with, or null
+     * @param limit
+     *            the limit to bind, or a number less than 1 if not limited
+     * @return
+     */
+    public BoundStatement bind(PreparedStatement statement, TokenRange tokenRange, int limit) {
+        final List<Object> values = getValues();
+        final BoundStatement boundStatement = statement.bind(values.toArray());
+        int index = values.size();
+        if (tokenRange != null) {
+            boundStatement.setToken(index++, tokenRange.getStart());
+            if (hasUpperBound(tokenRange)) {
+                boundStatement.setToken(index++, tokenRange.getEnd());
+            }
+        }
+        if (limit > 0) {
+            boundStatement.setInt(index, limit);
+        }
+        return boundStatement;
+    }
+
+    /**
+     * Determines if a non-wrapping token range has an upper bound. When
+     * unwrapped, the range that ends at the minimum token is the only range
+     * that ends before it starts, and it has to be queried without an upper
+     * bound, since no token is less than or equal to the minimum token.
+     */
+    private static boolean hasUpperBound(TokenRange tokenRange) {
+        return tokenRange.getEnd().compareTo(tokenRange.getStart()) > 0;
+    }
+
+    private static Clause toClause(FilterItem item) {
+        final String columnName = item.getSelectItem().getColumn().getName();
+        final OperatorType operator = item.getOperator();
+        if (operator == OperatorType.EQUALS_TO) {
+            return QueryBuilder.eq(columnName, QueryBuilder.bindMarker());
+        } else if (operator == OperatorType.IN) {
+            return QueryBuilder.in(columnName, QueryBuilder.bindMarker());
+        } else if (operator == OperatorType.GREATER_THAN) {
+            return QueryBuilder.gt(columnName, QueryBuilder.bindMarker());
+        } else if (operator == OperatorType.GREATER_THAN_OR_EQUAL) {
+            return QueryBuilder.gte(columnName, QueryBuilder.bindMarker());
+        } else if (operator == OperatorType.LESS_THAN) {
+            return QueryBuilder.lt(columnName, QueryBuilder.bindMarker());
+        } else if (operator == OperatorType.LESS_THAN_OR_EQUAL) {
+            return QueryBuilder.lte(columnName, QueryBuilder.bindMarker());
+        }
+        throw new IllegalArgumentException("Unsupported filter item: " + item);
+    }
+
+    /**
+     * Gets the values of the pushed down items, converted to the Java types
+     * that the driver expects for the CQL types of the columns.
+     *
+     * @return
+     */
+    public List<Object> getValues() {
+        final List<Object> values = new ArrayList<>();
+        for (FilterItem item : _pushedDownItems) {
+            final DataType type = _columnTypes.get(item.getSelectItem().getColumn().getName());
+            if (item.getOperator() == OperatorType.IN) {
+                final List<Object> inValues = new ArrayList<>();
+                for (Object inValue : CollectionUtils.toList(item.getOperand())) {
+                    inValues.add(toCqlValue(type, inValue));
+                }
+                values.add(inValues);
+            } else {
+                values.add(toCqlValue(type, item.getOperand()));
+            }
+        }
+        return values;
+    }
+
+    private boolean isSupported(FilterItem filterItem) {
+        if (filterItem.isCompoundFilter() || filterItem.getExpression() != null) {
+            return false;
+        }
+        final SelectItem selectItem = filterItem.getSelectItem();
+        if (selectItem == null || selectItem.getColumn() == null || selectItem.hasFunction() || selectItem
+                .getSubQuerySelectItem() != null) {
+            return false;
+        }
+        final DataType type = _columnTypes.get(selectItem.getColumn().getName());
+        if (type == null) {
+            return false;
+        }
+
+        final OperatorType operator = filterItem.getOperator();
+        final Object operand = filterItem.getOperand();
+        if (operator == OperatorType.IN) {
+            if (operand == null) {
+                return false;
+            }
+            final List<?> inValues = CollectionUtils.toList(operand);
+            if (inValues.isEmpty() || inValues.size() > MAX_IN_VALUES) {
+                return false;
+            }
+            for (Object inValue : inValues) {
+                if (toCqlValue(type, inValue) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (operator == OperatorType.EQUALS_TO) {
+            return toCqlValue(type, operand) != null;
+        }
+        if (operator == OperatorType.GREATER_THAN || operator == OperatorType.GREATER_THAN_OR_EQUAL
+                || operator == OperatorType.LESS_THAN || operator == OperatorType.LESS_THAN_OR_EQUAL) {
+            // CQL compares text as UTF-8 bytes and time UUIDs by time, so
+            // only numbers and timestamps are compared remotely
+            return isOrderedNumerically(type) && toCqlValue(type, operand) != null;
+        }
+        return false;
+    }
+
+    private static boolean isOrderedNumerically(DataType type) {
+        switch (type.getName()) {
+        case TINYINT:
+        case SMALLINT:
+        case INT:
+        case BIGINT:
+        case VARINT:
+        case TIMESTAMP:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Converts a filter operand to the Java type that the driver's default
+     * codecs use for a CQL type, or null if the operand cannot be converted
+     * without changing its meaning.
+     *
+     * @param type
+     * @param value
+     * @return
+     */
+    static Object toCqlValue(DataType type, Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (type.getName()) {
+        case ASCII:
+        case TEXT:
+        case VARCHAR:
+            return value instanceof String ? value : null;
+        case BOOLEAN:
+            return value instanceof Boolean ? value : null;
+        case UUID:
+        case TIMEUUID:
+            if (value instanceof UUID) {
+                return value;
+            }
+            if (value instanceof String) {
+                try {
+                    final UUID uuid = UUID.fromString((String) value);
+                    // only canonical representations, since MetaModel
+                    // compares the string values client-side
+                    return uuid.toString().equals(value) ? uuid : null;
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+            return null;
+        case TIMESTAMP:
+            return value instanceof Date ? value : null;
+        case TINYINT:
+            return toIntegral(value, Byte.MIN_VALUE, Byte.MAX_VALUE) == null ? null : ((Number) value).byteValue();
+        case SMALLINT:
+            return toIntegral(value, Short.MIN_VALUE, Short.MAX_VALUE) == null ? null : ((Number) value)
+                    .shortValue();
+        case INT:
+            return toIntegral(value, Integer.MIN_VALUE, Integer.MAX_VALUE) == null ? null : ((Number) value)
+                    .intValue();
+        case BIGINT:
+            return toIntegral(value, Long.MIN_VALUE, Long.MAX_VALUE) == null ? null : ((Number) value).longValue();
+        case VARINT:
+            return toIntegral(value, null, null);
+        default:
+            return null;
+        }
+    }
+
+    private static BigInteger toIntegral(Object value, Number min, Number max) {
+        final BigInteger integer;
+        if (value instanceof BigInteger) {
+            integer = (BigInteger) value;
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            integer = BigInteger.valueOf(((Number) value).longValue());
+        } else {
+            return null;
+        }
+        if (min != null && integer.compareTo(BigInteger.valueOf(min.longValue())) < 0) {
+            return null;
+        }
+        if (max != null && integer.compareTo(BigInteger.valueOf(max.longValue())) > 0) {
+            return null;
+        }
+        return integer;
+    }
+}
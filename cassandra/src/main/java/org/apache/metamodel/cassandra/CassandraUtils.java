@@ -20,6 +20,7 @@ package org.apache.metamodel.cassandra;
 
 import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ResultSet;
 import org.apache.metamodel.data.DataSetHeader;
 import org.apache.metamodel.data.DefaultRow;
 import org.apache.metamodel.data.Row;
@@ -61,6 +62,24 @@ public class CassandraUtils {
         return new DefaultRow(header, values);
     }
 
+    /**
+     * Gets the next row of a {@link ResultSet}, fetching the next page of the
+     * result set asynchronously when only a few rows of the current page
+     * remain to be consumed.
+     *
+     * @param resultSet
+     * @param prefetchThreshold
+     *            the number of remaining rows at which to fetch the next page
+     * @return the next row, or null if there are no more rows
+     */
+    static com.datastax.driver.core.Row nextRow(ResultSet resultSet, int prefetchThreshold) {
+        if (resultSet.getAvailableWithoutFetching() <= prefetchThreshold && !resultSet.isFullyFetched()) {
+            // returns the ongoing fetch if there is one already
+            resultSet.fetchMoreResults();
+        }
+        return resultSet.one();
+    }
+
     private static Object getColumnValue(String columnName, com.datastax.driver.core.Row row) {
         ColumnDefinitions columns = row.getColumnDefinitions();
         DataType columnType = columns.getType(columnName);
@@ -164,6 +164,20 @@ public class CassandraDataContextTest {
         }
     }
 
+    @Test
+    public void testWherePartitionKeyInValues() throws Exception {
+        DataSet ds = dc.query().from(testTableName).select("title").where("id").in(firstRowId).execute();
+
+        assertEquals(CassandraDataSet.class, ds.getClass());
+        try {
+            assertTrue(ds.next());
+            assertEquals("Row[values=[" + firstRowTitle + "]]", ds.getRow().toString());
+            assertFalse(ds.next());
+        } finally {
+            ds.close();
+        }
+    }
+
     @Test
     public void testMaxRows() throws Exception {
         Table table = dc.getDefaultSchema().getTableByName(testTableName);
@@ -186,6 +200,23 @@ public class CassandraDataContextTest {
         assertEquals("[3]", Arrays.toString(row));
     }
 
+    @Test
+    public void testParallelScanAndCount() throws Exception {
+        System.setProperty(CassandraDataContext.SYSTEM_PROPERTY_SCAN_PARALLELISM, "4");
+        try {
+            List<Object[]> data = dc.query().from(testTableName).select("id").orderBy("id").execute()
+                    .toObjectArrays();
+            assertEquals(3, data.size());
+            assertEquals(firstRowId, data.get(0)[0].toString());
+            assertEquals(thirdRowId, data.get(2)[0].toString());
+
+            data = dc.query().from(testTableName).selectCount().execute().toObjectArrays();
+            assertEquals("[3]", Arrays.toString(data.get(0)));
+        } finally {
+            System.clearProperty(CassandraDataContext.SYSTEM_PROPERTY_SCAN_PARALLELISM);
+        }
+    }
+
     @Test
     public void testQueryForANonExistingTable() throws Exception {
         boolean thrown = false;
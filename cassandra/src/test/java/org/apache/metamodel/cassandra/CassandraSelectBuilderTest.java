@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.cassandra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+import org.junit.Test;
+
+import com.datastax.driver.core.DataType;
+
+public class CassandraSelectBuilderTest {
+
+    private final MutableTable table = new MutableTable("tbl");
+    private final MutableColumn idColumn = new MutableColumn("id", ColumnType.UUID, table, 0, true);
+    private final MutableColumn dayColumn = new MutableColumn("day", ColumnType.INTEGER, table, 1, true);
+    private final MutableColumn seqColumn = new MutableColumn("seq", ColumnType.BIGINT, table, 2, true);
+    private final MutableColumn titleColumn = new MutableColumn("title", ColumnType.STRING, table, 3, true);
+    private final MutableColumn positionColumn = new MutableColumn("position", ColumnType.INTEGER, table, 4, true);
+
+    private final String id = "756716f7-2e54-4715-9f00-91dcbea6cf51";
+
+    @Test
+    public void testPartitionKeyAndClusteringRange() throws Exception {
+        final CassandraSelectBuilder builder = createBuilder(false);
+        builder.split(Arrays.asList(filter(idColumn, OperatorType.IN, Arrays.asList(id)), filter(dayColumn,
+                OperatorType.EQUALS_TO, 3), filter(seqColumn, OperatorType.GREATER_THAN, 10), filter(seqColumn,
+                        OperatorType.LESS_THAN_OR_EQUAL, 20L), filter(titleColumn, OperatorType.EQUALS_TO, "foo")));
+
+        assertEquals(4, builder.getPushedDownItems().size());
+        assertEquals(Arrays.asList(filter(titleColumn, OperatorType.EQUALS_TO, "foo")), builder
+                .getPostProcessItems());
+        assertFalse(builder.isAllowFiltering());
+
+        assertTrue(builder.isPartitionKeyRestricted());
+
+        final List<Object> values = builder.getValues();
+        assertEquals(Arrays.asList(Arrays.asList(UUID.fromString(id)), 3, 10L, 20L), values);
+        assertEquals(Long.class, values.get(2).getClass());
+    }
+
+    @Test
+    public void testClusteringColumnsRequirePrefix() throws Exception {
+        final CassandraSelectBuilder builder = createBuilder(false);
+        builder.split(Arrays.asList(filter(idColumn, OperatorType.EQUALS_TO, id), filter(seqColumn,
+                OperatorType.EQUALS_TO, 5)));
+
+        assertEquals(1, builder.getPushedDownItems().size());
+        assertEquals(1, builder.getPostProcessItems().size());
+    }
+
+    @Test
+    public void testKeyRestrictionsRequireFullPartitionKey() throws Exception {
+        final CassandraSelectBuilder builder = createBuilder(false);
+        builder.split(Arrays.asList(filter(dayColumn, OperatorType.EQUALS_TO, 3), filter(idColumn,
+                OperatorType.DIFFERENT_FROM, id)));
+
+        assertEquals(0, builder.getPushedDownItems().size());
+        assertEquals(2, builder.getPostProcessItems().size());
+        assertFalse(builder.isPartitionKeyRestricted());
+    }
+
+    @Test
+    public void testAllowFiltering() throws Exception {
+        final List<FilterItem> whereItems = Arrays.asList(filter(titleColumn, OperatorType.EQUALS_TO, "foo"),
+                filter(positionColumn, OperatorType.GREATER_THAN, 2), filter(positionColumn, OperatorType.LESS_THAN,
+                        5), filter(titleColumn, OperatorType.IN, Arrays.asList("foo", "bar")));
+
+        final CassandraSelectBuilder disabledBuilder = createBuilder(false);
+        disabledBuilder.split(whereItems);
+        assertEquals(0, disabledBuilder.getPushedDownItems().size());
+        assertFalse(disabledBuilder.isAllowFiltering());
+
+        final CassandraSelectBuilder enabledBuilder = createBuilder(true);
+        enabledBuilder.split(whereItems);
+        assertEquals(Arrays.asList(whereItems.get(1), whereItems.get(0)), enabledBuilder.getPushedDownItems());
+        assertEquals(Arrays.asList(whereItems.get(2), whereItems.get(3)), enabledBuilder.getPostProcessItems());
+        assertTrue(enabledBuilder.isAllowFiltering());
+    }
+
+    @Test
+    public void testUnsupportedFilterItems() throws Exception {
+        final CassandraSelectBuilder builder = createBuilder(true);
+        builder.split(Arrays.asList(filter(titleColumn, OperatorType.EQUALS_TO, null), filter(titleColumn,
+                OperatorType.GREATER_THAN, "foo"), filter(positionColumn, OperatorType.EQUALS_TO, 2.5),
+                filter(positionColumn, OperatorType.EQUALS_TO, Long.MAX_VALUE), filter(titleColumn,
+                        OperatorType.LIKE, "foo%"), new FilterItem(LogicalOperator.OR, filter(titleColumn,
+                                OperatorType.EQUALS_TO, "foo"), filter(titleColumn, OperatorType.EQUALS_TO,
+                                        "bar"))));
+
+        assertEquals(0, builder.getPushedDownItems().size());
+        assertEquals(6, builder.getPostProcessItems().size());
+    }
+
+    @Test
+    public void testToCqlValue() throws Exception {
+        assertEquals(UUID.fromString(id), CassandraSelectBuilder.toCqlValue(DataType.uuid(), id));
+        assertNull(CassandraSelectBuilder.toCqlValue(DataType.uuid(), id.toUpperCase()));
+        assertNull(CassandraSelectBuilder.toCqlValue(DataType.uuid(), "foo"));
+        assertEquals(42L, CassandraSelectBuilder.toCqlValue(DataType.bigint(), 42));
+        assertNull(CassandraSelectBuilder.toCqlValue(DataType.cint(), "42"));
+        assertNull(CassandraSelectBuilder.toCqlValue(DataType.cfloat(), 4.2f));
+    }
+
+    private CassandraSelectBuilder createBuilder(boolean allowFilteringEnabled) {
+        final Map<String, DataType> columnTypes = new HashMap<>();
+        columnTypes.put("id", DataType.uuid());
+        columnTypes.put("day", DataType.cint());
+        columnTypes.put("seq", DataType.bigint());
+        columnTypes.put("title", DataType.text());
+        columnTypes.put("position", DataType.cint());
+        return new CassandraSelectBuilder(Arrays.asList("id"), Arrays.asList("day", "seq"), columnTypes,
+                allowFilteringEnabled);
+    }
+
+    private static FilterItem filter(MutableColumn column, OperatorType operator, Object operand) {
+        return new FilterItem(new SelectItem(column), operator, operand);
+    }
+}
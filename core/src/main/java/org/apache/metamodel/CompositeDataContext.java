@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 
 import org.apache.metamodel.data.DataSet;
@@ -36,6 +37,8 @@ import org.apache.metamodel.schema.CompositeSchema;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.schema.WrappingSchema;
+import org.apache.metamodel.util.SharedExecutorService;
+import org.apache.metamodel.util.SystemProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,9 +49,19 @@ import org.slf4j.LoggerFactory;
  */
 public class CompositeDataContext extends AbstractDataContext {
 
+    /**
+     * System property for the max number of rows that a table of a cross-datastore
+     * join may have for its join keys to be pushed down as an IN filter to the other
+     * side of the join. Set to 0 to disable this semi-join reduction.
+     */
+    public static final String SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS = "metamodel.composite.semijoin.max.keys";
+
+    public static final int DEFAULT_SEMI_JOIN_MAX_KEYS = 1000;
+
     private final static Logger logger = LoggerFactory.getLogger(CompositeDataContext.class);
     private Map<String, CompositeSchema> _compositeSchemas = new HashMap<String, CompositeSchema>();
     private DataContext[] _delegates;
+    private ExecutorService _executorService = SharedExecutorService.get();
 
     public CompositeDataContext(DataContext... delegates) {
         if (delegates == null) {
@@ -95,10 +108,41 @@ public class CompositeDataContext extends AbstractDataContext {
             // we create a datacontext which can materialize tables from
             // separate datacontexts.
             final Function<Table, DataContext> dataContextRetrievalFunction = table -> getDataContext(table);
-            return new CompositeQueryDelegate(dataContextRetrievalFunction).executeQuery(query);
+            final CompositeQueryPlan plan = CompositeQueryPlan.create(query, dataContextRetrievalFunction,
+                    getSemiJoinMaxKeys(), _executorService);
+            return new CompositeQueryDelegate(dataContextRetrievalFunction, plan, _executorService)
+                    .executeQuery(query);
         }
     }
 
+    /**
+     * Gets the {@link ExecutorService} used to query the delegate datacontexts
+     * concurrently when a query spans more than one of them.
+     * 
+     * @return the {@link ExecutorService}, or null if the delegates are queried
+     *         one at a time.
+     */
+    public ExecutorService getExecutorService() {
+        return _executorService;
+    }
+
+    /**
+     * Sets the {@link ExecutorService} used to query the delegate datacontexts
+     * concurrently when a query spans more than one of them. By default the
+     * {@link SharedExecutorService} is used.
+     * 
+     * @param executorService
+     *            the {@link ExecutorService} to use, or null to query the
+     *            delegates one at a time.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        _executorService = executorService;
+    }
+
+    private static int getSemiJoinMaxKeys() {
+        return SystemProperties.getInt(SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS, DEFAULT_SEMI_JOIN_MAX_KEYS);
+    }
+
     private DataContext getDataContext(Table table) {
         DataContext result = null;
         if (table != null) {
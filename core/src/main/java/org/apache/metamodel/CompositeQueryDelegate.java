@@ -18,21 +18,88 @@
  */
 package org.apache.metamodel;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 
 import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.EmptyDataSet;
+import org.apache.metamodel.query.FilterItem;
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 
 final class CompositeQueryDelegate extends QueryPostprocessDelegate {
 
 	private final Function<Table, DataContext> _dataContextRetrievalFunction;
+	private final CompositeQueryPlan _plan;
+	private final ExecutorService _executorService;
 
 	public CompositeQueryDelegate(
 			Function<Table, DataContext> dataContextRetrievalFunction) {
+		this(dataContextRetrievalFunction, null, null);
+	}
+
+	public CompositeQueryDelegate(
+			Function<Table, DataContext> dataContextRetrievalFunction,
+			CompositeQueryPlan plan, ExecutorService executorService) {
 		_dataContextRetrievalFunction = dataContextRetrievalFunction;
+		_plan = plan;
+		_executorService = executorService;
+	}
+
+	@Override
+	protected ExecutorService getFromItemExecutorService() {
+		return _executorService;
+	}
+
+	@Override
+	protected DataSet materializeMainSchemaTable(Table table,
+			List<SelectItem> selectItems, List<FilterItem> whereItems,
+			int firstRow, int maxRows) {
+		if (_plan == null) {
+			return super.materializeMainSchemaTable(table, selectItems,
+					whereItems, firstRow, maxRows);
+		}
+		if (_plan.isEmpty(table)) {
+			return new EmptyDataSet(selectItems);
+		}
+
+		final List<Column> columns = new ArrayList<>();
+		for (SelectItem selectItem : selectItems) {
+			addColumn(columns, selectItem);
+		}
+		for (SelectItem selectItem : MetaModelHelper
+				.getEvaluatedSelectItems(whereItems)) {
+			addColumn(columns, selectItem);
+		}
+
+		DataSet dataSet = _plan.getMaterializedTable(table, columns);
+		if (dataSet == null) {
+			final List<FilterItem> pushedDownItems = _plan
+					.getPushedDownItems(table);
+			if (pushedDownItems.isEmpty()) {
+				return super.materializeMainSchemaTable(table, selectItems,
+						whereItems, firstRow, maxRows);
+			}
+			final DataContext dc = _dataContextRetrievalFunction.apply(table);
+			final Query q = new Query().select(columns).from(table)
+					.where(pushedDownItems);
+			dataSet = dc.executeQuery(q);
+		}
+
+		dataSet = MetaModelHelper.getFiltered(dataSet, whereItems);
+		dataSet = MetaModelHelper.getPaged(dataSet, firstRow, maxRows);
+		return MetaModelHelper.getSelection(selectItems, dataSet);
+	}
+
+	private static void addColumn(List<Column> columns, SelectItem selectItem) {
+		final Column column = selectItem.getColumn();
+		if (column != null && !columns.contains(column)) {
+			columns.add(column);
+		}
 	}
 
 	@Override
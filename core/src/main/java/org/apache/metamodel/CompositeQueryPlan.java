@@ -0,0 +1,506 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.apache.metamodel.data.CachingDataSetHeader;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.InMemoryDataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.FromItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.QueryParameter;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.BooleanComparator;
+import org.apache.metamodel.util.NumberComparator;
+import org.apache.metamodel.util.TimeComparator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Plans the execution of a query which spans the tables of several
+ * {@link DataContext}s of a {@link CompositeDataContext}.
+ *
+ * Where items which only refer to a single table are pushed down into the
+ * query that materializes that table in its own {@link DataContext}. For
+ * equi-joins (expressed as where items like "a.x = b.y") a semi-join reduction
+ * is applied: if one side of the join has no more than a configured number of
+ * rows, those rows are kept in memory and their join keys are pushed down to
+ * the other side as an IN filter.
+ *
+ * All pushed down filters are reductions only - the full where clause of the
+ * original query is still evaluated when the tables are joined.
+ */
+final class CompositeQueryPlan {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompositeQueryPlan.class);
+
+    private static final class MaterializedTable {
+
+        private final DataSetHeader _header;
+        private final List<Row> _rows;
+
+        public MaterializedTable(DataSetHeader header, List<Row> rows) {
+            _header = header;
+            _rows = rows;
+        }
+    }
+
+    private final Map<Table, List<FilterItem>> _pushedDownItems;
+    private final Map<Table, List<Column>> _columns;
+    private final Map<Table, MaterializedTable> _materializedTables;
+    private final Set<Table> _emptyTables;
+
+    private CompositeQueryPlan() {
+        _pushedDownItems = new IdentityHashMap<>();
+        _columns = new IdentityHashMap<>();
+        _materializedTables = new IdentityHashMap<>();
+        _emptyTables = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Creates a plan for a query.
+     *
+     * @param query
+     *            the query to plan
+     * @param dataContextRetrievalFunction
+     *            function that resolves the {@link DataContext} of a table
+     * @param maxSemiJoinKeys
+     *            the max number of rows a table may have for its join keys to
+     *            be pushed down to the other side of a join, or 0 to disable
+     *            semi-join reduction
+     * @param executorService
+     *            the {@link ExecutorService} to probe the sides of joins with,
+     *            or null to probe them one at a time
+     * @return a plan, which is empty if the query is not of a form that can be
+     *         planned
+     */
+    public static CompositeQueryPlan create(Query query, Function<Table, DataContext> dataContextRetrievalFunction,
+            int maxSemiJoinKeys, ExecutorService executorService) {
+        final CompositeQueryPlan plan = new CompositeQueryPlan();
+
+        final List<Table> tables = getPlainTables(query);
+        if (tables == null || !plan.collectColumns(query, tables)) {
+            return plan;
+        }
+
+        final List<FilterItem> joinItems = new ArrayList<>();
+        for (FilterItem whereItem : query.getWhereClause().getItems()) {
+            final Set<Table> referencedTables = Collections.newSetFromMap(new IdentityHashMap<>());
+            if (!collectTables(whereItem, tables, referencedTables)) {
+                continue;
+            }
+            if (referencedTables.size() == 1) {
+                plan.addPushedDownItem(referencedTables.iterator().next(), unbind(whereItem));
+            } else if (isEquiJoin(whereItem)) {
+                joinItems.add(whereItem);
+            }
+        }
+
+        if (!joinItems.isEmpty() && maxSemiJoinKeys > 0) {
+            plan.reduceJoins(joinItems, dataContextRetrievalFunction, maxSemiJoinKeys, executorService);
+        }
+        return plan;
+    }
+
+    /**
+     * Gets the where items to push down into the query of a table.
+     */
+    public List<FilterItem> getPushedDownItems(Table table) {
+        final List<FilterItem> items = _pushedDownItems.get(table);
+        if (items == null) {
+            return Collections.emptyList();
+        }
+        return items;
+    }
+
+    /**
+     * Determines if a table is known not to contribute any rows to the result.
+     */
+    public boolean isEmpty(Table table) {
+        return _emptyTables.contains(table);
+    }
+
+    /**
+     * Gets the rows of a table which was already materialized while planning,
+     * or null if it was not (or if it does not contain all of the columns).
+     */
+    public DataSet getMaterializedTable(Table table, List<Column> columns) {
+        final MaterializedTable materializedTable = _materializedTables.get(table);
+        if (materializedTable == null) {
+            return null;
+        }
+        for (Column column : columns) {
+            if (materializedTable._header.indexOf(column) == -1) {
+                return null;
+            }
+        }
+        return new InMemoryDataSet(materializedTable._header, materializedTable._rows);
+    }
+
+    private void addPushedDownItem(Table table, FilterItem item) {
+        logger.debug("Pushing down where item to {}: {}", table.getName(), item);
+        _pushedDownItems.computeIfAbsent(table, t -> new ArrayList<>()).add(item);
+    }
+
+    private Query createSubQuery(Table table) {
+        final Query query = new Query().select(_columns.get(table)).from(table);
+        query.where(getPushedDownItems(table));
+        return query;
+    }
+
+    private void reduceJoins(List<FilterItem> joinItems, Function<Table, DataContext> dataContextRetrievalFunction,
+            int maxSemiJoinKeys, ExecutorService executorService) {
+        final List<Table> joinedTables = new ArrayList<>();
+        for (FilterItem joinItem : joinItems) {
+            for (Column column : getJoinColumns(joinItem)) {
+                if (!containsTable(joinedTables, column.getTable())) {
+                    joinedTables.add(column.getTable());
+                }
+            }
+        }
+
+        final List<Callable<MaterializedTable>> probes = new ArrayList<>(joinedTables.size());
+        for (Table table : joinedTables) {
+            final Query query = createSubQuery(table).setMaxRows(maxSemiJoinKeys + 1);
+            final DataContext dataContext = dataContextRetrievalFunction.apply(table);
+            probes.add(() -> probe(dataContext, query, maxSemiJoinKeys));
+        }
+
+        final List<MaterializedTable> results = execute(probes, executorService);
+        for (int i = 0; i < joinedTables.size(); i++) {
+            final MaterializedTable result = results.get(i);
+            if (result != null) {
+                logger.debug("Materialized {} rows of {} for semi-join reduction", result._rows.size(),
+                        joinedTables.get(i).getName());
+                _materializedTables.put(joinedTables.get(i), result);
+            }
+        }
+
+        for (FilterItem joinItem : joinItems) {
+            final Column[] columns = getJoinColumns(joinItem);
+            reduceJoin(columns[0], columns[1]);
+            reduceJoin(columns[1], columns[0]);
+        }
+    }
+
+    private static List<MaterializedTable> execute(List<Callable<MaterializedTable>> probes,
+            ExecutorService executorService) {
+        final List<MaterializedTable> results = new ArrayList<>(probes.size());
+        try {
+            if (executorService == null || probes.size() < 2) {
+                for (Callable<MaterializedTable> probe : probes) {
+                    results.add(probe.call());
+                }
+            } else {
+                for (Future<MaterializedTable> future : executorService.invokeAll(probes)) {
+                    results.add(future.get());
+                }
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MetaModelException("Interrupted while probing joined tables", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new MetaModelException("Failed to probe joined tables", e);
+        } catch (Exception e) {
+            throw new MetaModelException("Failed to probe joined tables", e);
+        }
+        return results;
+    }
+
+    /**
+     * Executes a probe query and returns its rows, or null if it returned more
+     * rows than the semi-join threshold.
+     */
+    private static MaterializedTable probe(DataContext dataContext, Query query, int maxSemiJoinKeys) {
+        final List<Row> rows = new ArrayList<>();
+        final DataSetHeader header;
+        try (DataSet dataSet = dataContext.executeQuery(query)) {
+            header = new CachingDataSetHeader(dataSet.getSelectItems());
+            while (dataSet.next()) {
+                rows.add(dataSet.getRow());
+            }
+        }
+        if (rows.size() > maxSemiJoinKeys) {
+            return null;
+        }
+        return new MaterializedTable(header, rows);
+    }
+
+    private void reduceJoin(Column smallColumn, Column largeColumn) {
+        final Table smallTable = smallColumn.getTable();
+        final Table largeTable = largeColumn.getTable();
+        final MaterializedTable smallSide = _materializedTables.get(smallTable);
+        if (smallSide == null || _materializedTables.containsKey(largeTable)) {
+            return;
+        }
+
+        if (smallSide._rows.isEmpty()) {
+            logger.debug("No join keys for {}, it will not be queried", largeTable.getName());
+            _emptyTables.add(largeTable);
+            return;
+        }
+
+        final int index = smallSide._header.indexOf(smallColumn);
+        final Set<Object> keys = new LinkedHashSet<>();
+        boolean nullKey = false;
+        for (Row row : smallSide._rows) {
+            final Object value = row.getValue(index);
+            if (value == null) {
+                nullKey = true;
+            } else {
+                final Object key = convert(value, largeColumn.getType());
+                if (key == null) {
+                    // the keys cannot be safely compared to the other side
+                    return;
+                }
+                keys.add(key);
+            }
+        }
+
+        // null keys are joined with null keys of the other side, since
+        // FilterItem evaluates null = null as true
+        final SelectItem largeSelectItem = new SelectItem(largeColumn);
+        final FilterItem isNullItem = new FilterItem(largeSelectItem, OperatorType.EQUALS_TO, null);
+        if (keys.isEmpty()) {
+            addPushedDownItem(largeTable, isNullItem);
+            return;
+        }
+        final FilterItem inItem = new FilterItem(largeSelectItem, OperatorType.IN, new ArrayList<>(keys));
+        if (nullKey) {
+            addPushedDownItem(largeTable, new FilterItem(LogicalOperator.OR, inItem, isNullItem));
+        } else {
+            addPushedDownItem(largeTable, inItem);
+        }
+    }
+
+    private static Object convert(Object value, ColumnType type) {
+        if (type == null) {
+            return null;
+        }
+        if (type.isNumber()) {
+            return NumberComparator.toNumber(value);
+        }
+        if (type.isTimeBased()) {
+            return TimeComparator.toDate(value);
+        }
+        if (type.isBoolean()) {
+            return BooleanComparator.toBoolean(value);
+        }
+        if (type.isLiteral()) {
+            return value.toString();
+        }
+        return null;
+    }
+
+    private static Column[] getJoinColumns(FilterItem joinItem) {
+        return new Column[] { joinItem.getSelectItem().getColumn(),
+                ((SelectItem) joinItem.getOperand()).getColumn() };
+    }
+
+    private static boolean isEquiJoin(FilterItem item) {
+        return !item.isCompoundFilter() && item.getOperator() == OperatorType.EQUALS_TO
+                && item.getOperand() instanceof SelectItem;
+    }
+
+    /**
+     * Gets the tables of the query if it only consists of plain tables, or
+     * null if the query contains joins, sub-queries or expressions that cannot
+     * be planned.
+     */
+    private static List<Table> getPlainTables(Query query) {
+        final List<FromItem> fromItems = query.getFromClause().getItems();
+        if (fromItems.size() < 2) {
+            return null;
+        }
+        final List<Table> tables = new ArrayList<>(fromItems.size());
+        for (FromItem fromItem : fromItems) {
+            final Table table = fromItem.getTable();
+            if (table == null || fromItem.getJoin() != null || fromItem.getSubQuery() != null) {
+                return null;
+            }
+            if (containsTable(tables, table)) {
+                // self-joins are not planned
+                return null;
+            }
+            tables.add(table);
+        }
+        return tables;
+    }
+
+    /**
+     * Collects the columns that the query needs of each table. Returns false
+     * if a select item was encountered which is not based on a column.
+     */
+    private boolean collectColumns(Query query, List<Table> tables) {
+        final List<SelectItem> selectItems = new ArrayList<>(query.getSelectClause().getItems());
+        query.getGroupByClause().getItems().forEach(item -> selectItems.add(item.getSelectItem()));
+        for (OrderByItem item : query.getOrderByClause().getItems()) {
+            selectItems.add(item.getSelectItem());
+        }
+        final List<FilterItem> filterItems = new ArrayList<>(query.getWhereClause().getItems());
+        filterItems.addAll(query.getHavingClause().getItems());
+        for (FilterItem filterItem : filterItems) {
+            if (!collectSelectItems(filterItem, selectItems)) {
+                return false;
+            }
+        }
+
+        for (Table table : tables) {
+            _columns.put(table, new ArrayList<>());
+        }
+        for (SelectItem selectItem : selectItems) {
+            final Column column = selectItem.getColumn();
+            if (selectItem.getExpression() != null || selectItem.getSubQuerySelectItem() != null) {
+                return false;
+            }
+            if (column != null) {
+                final List<Column> columns = _columns.get(column.getTable());
+                if (columns == null) {
+                    return false;
+                }
+                if (!columns.contains(column)) {
+                    columns.add(column);
+                }
+            }
+        }
+
+        for (Table table : tables) {
+            final List<Column> columns = _columns.get(table);
+            if (columns.isEmpty()) {
+                if (table.getColumnCount() == 0) {
+                    return false;
+                }
+                columns.add(table.getColumns().get(0));
+            }
+        }
+        return true;
+    }
+
+    private static boolean collectSelectItems(FilterItem item, List<SelectItem> selectItems) {
+        if (item.isCompoundFilter()) {
+            for (FilterItem childItem : item.getChildItems()) {
+                if (!collectSelectItems(childItem, selectItems)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (item.getExpression() != null) {
+            return false;
+        }
+        selectItems.add(item.getSelectItem());
+        if (item.getOperand() instanceof SelectItem) {
+            selectItems.add((SelectItem) item.getOperand());
+        }
+        return true;
+    }
+
+    /**
+     * Collects the tables that a where item refers to. Returns false if the
+     * item cannot be evaluated by the {@link DataContext} of those tables.
+     */
+    private static boolean collectTables(FilterItem item, List<Table> tables, Set<Table> result) {
+        if (item.isCompoundFilter()) {
+            for (FilterItem childItem : item.getChildItems()) {
+                if (!collectTables(childItem, tables, result)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (item.getExpression() != null || !isPlainColumn(item.getSelectItem(), tables)) {
+            return false;
+        }
+        result.add(item.getSelectItem().getColumn().getTable());
+
+        final Object operand = item.getOperand();
+        if (operand instanceof QueryParameter) {
+            return false;
+        }
+        if (operand instanceof SelectItem) {
+            if (!isPlainColumn((SelectItem) operand, tables)) {
+                return false;
+            }
+            result.add(((SelectItem) operand).getColumn().getTable());
+        }
+        return true;
+    }
+
+    private static boolean isPlainColumn(SelectItem selectItem, List<Table> tables) {
+        if (selectItem == null || selectItem.getColumn() == null || selectItem.getAggregateFunction() != null
+                || selectItem.getScalarFunction() != null) {
+            return false;
+        }
+        return containsTable(tables, selectItem.getColumn().getTable());
+    }
+
+    private static boolean containsTable(List<Table> tables, Table table) {
+        for (Table candidate : tables) {
+            if (candidate == table) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a copy of a where item that is not bound to the from items of
+     * the original query, so that it can be used in a query of its own.
+     */
+    private static FilterItem unbind(FilterItem item) {
+        if (item.isCompoundFilter()) {
+            final List<FilterItem> childItems = new ArrayList<>();
+            for (FilterItem childItem : item.getChildItems()) {
+                childItems.add(unbind(childItem));
+            }
+            return new FilterItem(item.getLogicalOperator(), childItems);
+        }
+        Object operand = item.getOperand();
+        if (operand instanceof SelectItem) {
+            operand = new SelectItem(((SelectItem) operand).getColumn());
+        }
+        return new FilterItem(new SelectItem(item.getSelectItem().getColumn()), item.getOperator(), operand);
+    }
+}
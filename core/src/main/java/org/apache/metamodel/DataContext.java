@@ -19,6 +19,7 @@
 package org.apache.metamodel;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.metamodel.annotations.InterfaceStability;
 import org.apache.metamodel.data.DataSet;
@@ -29,6 +30,7 @@ import org.apache.metamodel.query.builder.InitFromBuilder;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.SharedExecutorService;
 
 /**
  * A DataContext represents the central entry point for interactions with
@@ -126,6 +128,30 @@ public interface DataContext {
      */
     public DataSet executeQuery(Query query) throws MetaModelException;
 
+    /**
+     * Executes a query against the DataContext without blocking the calling
+     * thread. The returned future completes with the {@link DataSet} once the
+     * query has been executed, or exceptionally if it could not be executed.
+     * 
+     * Reading the {@link DataSet} may still block on fetching rows, which can
+     * be avoided by streaming the rows with a
+     * {@link org.apache.metamodel.data.DataSetPublisher}.
+     * 
+     * The default implementation executes the query with
+     * {@link #executeQuery(Query)} on the shared executor for blocking tasks.
+     * If the future is cancelled, the {@link DataSet} is closed once the query
+     * has been executed. Implementations with a non-blocking driver can
+     * override it.
+     * 
+     * @param query
+     *            the query object to execute
+     * @return a future of the {@link DataSet} produced from executing the
+     *         query
+     */
+    public default CompletableFuture<DataSet> executeQueryAsync(Query query) {
+        return MetaModelHelper.executeQueryAsync(this, query, SharedExecutorService.getBlockingTaskExecutor());
+    }
+
     /**
      * Compiles a query, preparing it for reuse. Often times compiled queries
      * have a performance improvement when executed, but at the cost of a
@@ -30,6 +30,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -692,6 +694,31 @@ public final class MetaModelHelper {
         return row;
     }
 
+    /**
+     * Executes a query on an {@link Executor}, without blocking the calling thread. If the returned future is
+     * cancelled, a query that has not started yet is skipped, and the {@link DataSet} of a query that was already
+     * running is closed as soon as it is produced.
+     * 
+     * @param dataContext the DataContext object to use for executing the query
+     * @param query the query to execute
+     * @param executor the executor to execute the query on
+     * @return a future of the {@link DataSet} produced from executing the query
+     */
+    public static CompletableFuture<DataSet> executeQueryAsync(DataContext dataContext, Query query,
+            Executor executor) {
+        final CompletableFuture<DataSet> result = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> result.isDone() ? null : dataContext.executeQuery(query), executor)
+                .whenComplete((dataSet, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else if (!result.complete(dataSet) && dataSet != null) {
+                        // the future was cancelled while the query was executing
+                        dataSet.close();
+                    }
+                });
+        return result;
+    }
+
     /**
      * Performs a left join (aka left outer join) operation on two datasets.
      * 
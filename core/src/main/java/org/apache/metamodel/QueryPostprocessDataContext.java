@@ -25,6 +25,11 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.apache.metamodel.annotations.InterfaceStability;
@@ -32,6 +37,7 @@ import org.apache.metamodel.convert.ConvertedDataSetInterceptor;
 import org.apache.metamodel.convert.Converters;
 import org.apache.metamodel.convert.HasReadTypeConverters;
 import org.apache.metamodel.convert.TypeConverter;
+import org.apache.metamodel.data.CachingDataSetHeader;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.DataSetHeader;
 import org.apache.metamodel.data.DefaultRow;
@@ -62,6 +68,7 @@ import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.schema.TableType;
 import org.apache.metamodel.util.CollectionUtils;
+import org.apache.metamodel.util.SharedExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -81,6 +88,7 @@ public abstract class QueryPostprocessDataContext extends AbstractDataContext im
 
     private final Map<Column, TypeConverter<?, ?>> converters;
     private final boolean singleTableDatastore;
+    private volatile Executor asyncQueryExecutor;
 
     public QueryPostprocessDataContext() {
         this(true);
@@ -199,11 +207,7 @@ public abstract class QueryPostprocessDataContext extends AbstractDataContext im
                 groupBySelectItems, havingSelectItems, orderBySelectItems);
 
         // Materialize the tables in the from clause
-        final DataSet[] fromDataSets = new DataSet[fromItems.size()];
-        for (int i = 0; i < fromDataSets.length; i++) {
-            FromItem fromItem = fromItems.get(i);
-            fromDataSets[i] = materializeFromItem(fromItem, workSelectItems);
-        }
+        final DataSet[] fromDataSets = materializeFromItems(fromItems, workSelectItems);
 
         // Execute the query using the raw data
         DataSet dataSet = MetaModelHelper.getCarthesianProduct(fromDataSets, whereItems);
@@ -281,6 +285,96 @@ public abstract class QueryPostprocessDataContext extends AbstractDataContext im
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * This implementation executes the query with {@link #executeQuery(Query)} on the executor returned by
+     * {@link #getAsyncQueryExecutor()}. Subclasses with a non-blocking client can override it.
+     */
+    @Override
+    public CompletableFuture<DataSet> executeQueryAsync(final Query query) {
+        return MetaModelHelper.executeQueryAsync(this, query, getAsyncQueryExecutor());
+    }
+
+    /**
+     * Sets the {@link Executor} on which {@link #executeQueryAsync(Query)} executes queries. By default queries are
+     * executed on virtual threads if the JVM supports them, otherwise on the {@link SharedExecutorService}.
+     * 
+     * @param asyncQueryExecutor the executor to use, or null to use the default executor.
+     */
+    public void setAsyncQueryExecutor(Executor asyncQueryExecutor) {
+        this.asyncQueryExecutor = asyncQueryExecutor;
+    }
+
+    /**
+     * Gets the {@link Executor} on which {@link #executeQueryAsync(Query)} executes queries.
+     * 
+     * @return an {@link Executor}, never null.
+     */
+    public Executor getAsyncQueryExecutor() {
+        final Executor executor = asyncQueryExecutor;
+        if (executor == null) {
+            return SharedExecutorService.getBlockingTaskExecutor();
+        }
+        return executor;
+    }
+
+    /**
+     * Gets the {@link ExecutorService} to use for materializing the FROM items of a query concurrently. By default
+     * this method returns null, which means that the FROM items are materialized one at a time. Subclasses whose FROM
+     * items are materialized from independent (typically remote) sources can override this method, so that the
+     * latency of a query becomes that of the slowest source instead of the sum of them.
+     * 
+     * @return an {@link ExecutorService}, or null if FROM items should be materialized sequentially.
+     */
+    protected ExecutorService getFromItemExecutorService() {
+        return null;
+    }
+
+    private DataSet[] materializeFromItems(final List<FromItem> fromItems, final List<SelectItem> selectItems) {
+        final DataSet[] fromDataSets = new DataSet[fromItems.size()];
+        final ExecutorService executorService = getFromItemExecutorService();
+        if (executorService == null || fromDataSets.length < 2) {
+            for (int i = 0; i < fromDataSets.length; i++) {
+                fromDataSets[i] = materializeFromItem(fromItems.get(i), selectItems);
+            }
+            return fromDataSets;
+        }
+
+        // all but the first data set will be fully read by the carthesian
+        // product anyway, so each data set is buffered by the task that
+        // opened it
+        final List<Future<DataSet>> futures = new ArrayList<>(fromDataSets.length);
+        for (final FromItem fromItem : fromItems) {
+            futures.add(executorService.submit(() -> {
+                final DataSet dataSet = materializeFromItem(fromItem, selectItems);
+                final DataSetHeader header = new CachingDataSetHeader(dataSet.getSelectItems());
+                return new InMemoryDataSet(header, dataSet.toRows());
+            }));
+        }
+
+        try {
+            for (int i = 0; i < fromDataSets.length; i++) {
+                fromDataSets[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new MetaModelException("Interrupted while materializing FROM items", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new MetaModelException("Failed to materialize FROM item", e);
+        }
+        return fromDataSets;
+    }
+
     protected DataSet materializeFromItem(final FromItem fromItem, final List<SelectItem> selectItems) {
         DataSet dataSet;
         JoinType joinType = fromItem.getJoin();
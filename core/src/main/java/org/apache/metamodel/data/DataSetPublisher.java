@@ -0,0 +1,239 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.data;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.SharedExecutorService;
+
+/**
+ * Publishes the rows of an asynchronously produced {@link DataSet} (typically
+ * from {@link DataContext#executeQueryAsync(org.apache.metamodel.query.Query)})
+ * to a {@link RowSubscriber}, with demand-driven back-pressure.
+ * 
+ * Rows are read from the {@link DataSet} on the publisher's {@link Executor},
+ * and only as fast as the subscriber requests them, so that neither the
+ * thread that subscribes nor the subscriber's threads block on the DataSet.
+ * The DataSet is closed when all rows have been delivered, when reading fails
+ * or when the subscription is cancelled.
+ * 
+ * Since a {@link DataSet} can only be traversed once, a publisher supports a
+ * single subscriber. Further subscribers receive an
+ * {@link IllegalStateException} through {@link RowSubscriber#onError(Throwable)}.
+ */
+public final class DataSetPublisher {
+
+    private static final RowSubscription NO_SUBSCRIPTION = new RowSubscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final CompletionStage<DataSet> _dataSetStage;
+    private final Executor _executor;
+    private final AtomicBoolean _subscribed;
+
+    /**
+     * Creates a publisher which reads the rows on the shared executor for
+     * blocking tasks.
+     * 
+     * @param dataSetStage
+     *            the stage which produces the {@link DataSet}
+     */
+    public DataSetPublisher(CompletionStage<DataSet> dataSetStage) {
+        this(dataSetStage, SharedExecutorService.getBlockingTaskExecutor());
+    }
+
+    /**
+     * Creates a publisher.
+     * 
+     * @param dataSetStage
+     *            the stage which produces the {@link DataSet}
+     * @param executor
+     *            the executor on which rows are read and delivered
+     */
+    public DataSetPublisher(CompletionStage<DataSet> dataSetStage, Executor executor) {
+        if (dataSetStage == null) {
+            throw new IllegalArgumentException("DataSet stage cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        _dataSetStage = dataSetStage;
+        _executor = executor;
+        _subscribed = new AtomicBoolean(false);
+    }
+
+    /**
+     * Subscribes to the rows of the {@link DataSet}. No rows are delivered
+     * until they are requested through the subscription passed to
+     * {@link RowSubscriber#onSubscribe(RowSubscription)}.
+     * 
+     * @param subscriber
+     */
+    public void subscribe(RowSubscriber subscriber) {
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Subscriber cannot be null");
+        }
+        if (!_subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(NO_SUBSCRIPTION);
+            subscriber.onError(new IllegalStateException("DataSetPublisher only supports a single subscriber"));
+            return;
+        }
+        final DataSetSubscription subscription = new DataSetSubscription(subscriber, _executor);
+        subscriber.onSubscribe(subscription);
+        _dataSetStage.whenComplete(subscription::onDataSet);
+    }
+
+    /**
+     * The subscription, which also is the task that delivers rows. Signals
+     * (requests, cancellation and the arrival of the DataSet) schedule the
+     * task unless it is already scheduled, so that at most one thread at a
+     * time reads the DataSet and invokes the subscriber.
+     */
+    private static final class DataSetSubscription implements RowSubscription, Runnable {
+
+        private final RowSubscriber _subscriber;
+        private final Executor _executor;
+        private final AtomicLong _demand;
+        private final AtomicInteger _pendingSignals;
+        private final AtomicReference<Throwable> _error;
+        private volatile DataSet _dataSet;
+        private volatile boolean _cancelled;
+
+        // only accessed by the delivering task
+        private boolean _done;
+        private boolean _dataSetClosed;
+
+        public DataSetSubscription(RowSubscriber subscriber, Executor executor) {
+            _subscriber = subscriber;
+            _executor = executor;
+            _demand = new AtomicLong(0);
+            _pendingSignals = new AtomicInteger(0);
+            _error = new AtomicReference<>();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                _error.compareAndSet(null, new IllegalArgumentException(
+                        "Number of requested rows must be positive: " + n));
+            } else {
+                _demand.getAndAccumulate(n, (demand, increment) -> {
+                    final long sum = demand + increment;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            _cancelled = true;
+            signal();
+        }
+
+        public void onDataSet(DataSet dataSet, Throwable error) {
+            if (error == null) {
+                _dataSet = dataSet;
+            } else if (error instanceof CompletionException && error.getCause() != null) {
+                _error.compareAndSet(null, error.getCause());
+            } else {
+                _error.compareAndSet(null, error);
+            }
+            signal();
+        }
+
+        private void signal() {
+            if (_pendingSignals.getAndIncrement() == 0) {
+                _executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int signals = 1;
+            do {
+                deliver();
+                signals = _pendingSignals.addAndGet(-signals);
+            } while (signals != 0);
+        }
+
+        private void deliver() {
+            if (_done || _cancelled) {
+                _done = true;
+                closeDataSet();
+                return;
+            }
+            final Throwable error = _error.get();
+            if (error != null) {
+                fail(error);
+                return;
+            }
+            final DataSet dataSet = _dataSet;
+            if (dataSet == null) {
+                // not yet available, the arrival of the DataSet is signalled
+                return;
+            }
+            try {
+                while (_demand.get() > 0 && !_cancelled && _error.get() == null) {
+                    if (!dataSet.next()) {
+                        _done = true;
+                        closeDataSet();
+                        _subscriber.onComplete();
+                        return;
+                    }
+                    final Row row = dataSet.getRow();
+                    if (_demand.get() != Long.MAX_VALUE) {
+                        _demand.decrementAndGet();
+                    }
+                    _subscriber.onNext(row);
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable error) {
+            _done = true;
+            closeDataSet();
+            _subscriber.onError(error);
+        }
+
+        private void closeDataSet() {
+            final DataSet dataSet = _dataSet;
+            if (dataSet != null && !_dataSetClosed) {
+                _dataSetClosed = true;
+                FileHelper.safeClose(dataSet);
+            }
+        }
+    }
+}
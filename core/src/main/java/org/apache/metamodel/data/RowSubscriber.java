@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.data;
+
+/**
+ * Receives the rows of a {@link DataSetPublisher}. Rows are only delivered as
+ * they are requested through the {@link RowSubscription}, which allows the
+ * subscriber to apply back-pressure.
+ * 
+ * The contract follows that of a Reactive Streams (or
+ * java.util.concurrent.Flow) subscriber, so that it can be adapted to such
+ * libraries with a simple delegate: {@link #onSubscribe(RowSubscription)} is
+ * invoked first, followed by any number of {@link #onNext(Row)} invocations
+ * and at most one invocation of either {@link #onComplete()} or
+ * {@link #onError(Throwable)}. The invocations are never concurrent.
+ */
+public interface RowSubscriber {
+
+    /**
+     * Invoked when the subscription starts, before any other method.
+     * 
+     * @param subscription
+     *            the subscription to request rows from, or to cancel
+     */
+    public void onSubscribe(RowSubscription subscription);
+
+    /**
+     * Invoked for each requested row.
+     * 
+     * @param row
+     */
+    public void onNext(Row row);
+
+    /**
+     * Invoked if the query or the reading of the rows failed. No other methods
+     * are invoked afterwards.
+     * 
+     * @param error
+     */
+    public void onError(Throwable error);
+
+    /**
+     * Invoked when all rows have been delivered. No other methods are invoked
+     * afterwards.
+     */
+    public void onComplete();
+}
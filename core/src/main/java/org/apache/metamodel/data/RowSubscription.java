@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.data;
+
+/**
+ * The link between a {@link DataSetPublisher} and its {@link RowSubscriber},
+ * through which the subscriber signals its demand for rows.
+ */
+public interface RowSubscription {
+
+    /**
+     * Requests a number of additional rows. Demand is cumulative, and a demand
+     * of {@link Long#MAX_VALUE} is treated as unbounded.
+     * 
+     * @param n
+     *            the number of rows to request, which must be positive
+     */
+    public void request(long n);
+
+    /**
+     * Cancels the subscription. No more rows are delivered afterwards (though
+     * rows already being delivered may still arrive), and the underlying
+     * {@link DataSet} is closed.
+     */
+    public void cancel();
+}
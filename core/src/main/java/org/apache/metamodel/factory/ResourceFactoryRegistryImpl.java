@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.ServiceLoader;
 
+import org.apache.metamodel.util.CompressedResource;
 import org.apache.metamodel.util.Resource;
 
 public class ResourceFactoryRegistryImpl implements ResourceFactoryRegistry {
@@ -41,9 +42,26 @@ public class ResourceFactoryRegistryImpl implements ResourceFactoryRegistry {
     }
 
     private final List<ResourceFactory> factories;
+    private boolean decompressionEnabled;
 
     public ResourceFactoryRegistryImpl() {
         factories = new ArrayList<>();
+        decompressionEnabled = true;
+    }
+
+    /**
+     * Sets whether resources with a compression extension (such as ".gz")
+     * are wrapped in a {@link CompressedResource}, so that their contents are
+     * transparently decompressed. Enabled by default.
+     * 
+     * @param decompressionEnabled
+     */
+    public void setDecompressionEnabled(boolean decompressionEnabled) {
+        this.decompressionEnabled = decompressionEnabled;
+    }
+
+    public boolean isDecompressionEnabled() {
+        return decompressionEnabled;
     }
 
     @Override
@@ -65,7 +83,11 @@ public class ResourceFactoryRegistryImpl implements ResourceFactoryRegistry {
     public Resource createResource(ResourceProperties properties) {
         for (ResourceFactory factory : factories) {
             if (factory.accepts(properties)) {
-                return factory.create(properties);
+                final Resource resource = factory.create(properties);
+                if (decompressionEnabled && CompressedResource.isCompressed(properties.getUri().getPath())) {
+                    return new CompressedResource(resource);
+                }
+                return resource;
             }
         }
         throw new UnsupportedResourcePropertiesException();
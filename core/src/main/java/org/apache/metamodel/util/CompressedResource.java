@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link Resource} decorator for gzip compressed resources, which
+ * decompresses the contents when reading and compresses them when writing.
+ * 
+ * Reading decompresses on a separate thread, ahead of the consumer, and
+ * inflates BGZF (blocked gzip) files block by block in parallel. Appending
+ * writes a new gzip member, which is read back seamlessly.
+ * 
+ * The name of the resource is the name of the wrapped resource without its
+ * compression extension (e.g. "data.csv" for "data.csv.gz"), so that the
+ * format of the contents can still be recognized by its extension.
+ */
+public class CompressedResource extends AbstractResource implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The file extensions of resources which are recognized as gzip
+     * compressed.
+     */
+    public static final List<String> GZIP_EXTENSIONS = Collections.unmodifiableList(Arrays.asList(".gz", ".gzip",
+            ".bgz", ".bgzf"));
+
+    /**
+     * The default number of decompressed blocks (of up to 64 KB each) to read
+     * ahead of the consumer.
+     */
+    public static final int DEFAULT_READ_AHEAD_BLOCKS = 64;
+
+    private final Resource _resource;
+    private final int _readAheadBlocks;
+
+    public CompressedResource(Resource resource) {
+        this(resource, DEFAULT_READ_AHEAD_BLOCKS);
+    }
+
+    public CompressedResource(Resource resource, int readAheadBlocks) {
+        if (resource == null) {
+            throw new IllegalArgumentException("Resource cannot be null");
+        }
+        if (readAheadBlocks < 1) {
+            throw new IllegalArgumentException("Read-ahead blocks must be positive: " + readAheadBlocks);
+        }
+        _resource = resource;
+        _readAheadBlocks = readAheadBlocks;
+    }
+
+    /**
+     * Determines if a path or filename has the extension of a compressed
+     * resource.
+     * 
+     * @param path
+     * @return
+     */
+    public static boolean isCompressed(String path) {
+        return getCompressionExtension(path) != null;
+    }
+
+    private static String getCompressionExtension(String path) {
+        if (path == null) {
+            return null;
+        }
+        final String lowerCasePath = path.toLowerCase(Locale.ROOT);
+        for (String extension : GZIP_EXTENSIONS) {
+            if (lowerCasePath.endsWith(extension) && lowerCasePath.length() > extension.length()) {
+                return extension;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the wrapped resource, which holds the compressed contents.
+     * 
+     * @return
+     */
+    public Resource getWrappedResource() {
+        return _resource;
+    }
+
+    @Override
+    public String getName() {
+        final String name = _resource.getName();
+        final String extension = getCompressionExtension(name);
+        if (extension == null) {
+            return name;
+        }
+        return name.substring(0, name.length() - extension.length());
+    }
+
+    @Override
+    public String getQualifiedPath() {
+        return _resource.getQualifiedPath();
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return _resource.isReadOnly();
+    }
+
+    @Override
+    public boolean isExists() {
+        return _resource.isExists();
+    }
+
+    /**
+     * Gets the size of the resource's data. Since the decompressed size is not
+     * known without decompressing, -1 is returned unless the resource is
+     * empty.
+     */
+    @Override
+    public long getSize() {
+        return _resource.getSize() == 0 ? 0 : -1;
+    }
+
+    @Override
+    public long getLastModified() {
+        return _resource.getLastModified();
+    }
+
+    @Override
+    public OutputStream write() throws ResourceException {
+        return compress(_resource.write());
+    }
+
+    @Override
+    public OutputStream append() throws ResourceException {
+        return compress(_resource.append());
+    }
+
+    private OutputStream compress(final OutputStream out) {
+        try {
+            return new GZIPOutputStream(out, 64 * 1024) {
+                @Override
+                public void close() throws IOException {
+                    // flush the trailer before closing, since some resources
+                    // (such as InMemoryResource) only keep flushed data
+                    finish();
+                    flush();
+                    super.close();
+                }
+            };
+        } catch (IOException e) {
+            FileHelper.safeClose(out);
+            throw new ResourceException(this, e);
+        }
+    }
+
+    @Override
+    public InputStream read() throws ResourceException {
+        return new ParallelGzipInputStream(_resource.read(), _readAheadBlocks);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(_resource, _readAheadBlocks);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof CompressedResource) {
+            final CompressedResource other = (CompressedResource) obj;
+            return _resource.equals(other._resource) && _readAheadBlocks == other._readAheadBlocks;
+        }
+        return false;
+    }
+}
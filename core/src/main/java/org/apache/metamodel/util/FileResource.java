@@ -18,18 +18,24 @@
  */
 package org.apache.metamodel.util;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * {@link File} based {@link Resource} implementation.
  */
-public class FileResource extends AbstractResource implements Serializable {
+public class FileResource extends AbstractResource implements RangeReadableResource, Serializable {
 
     private class DirectoryInputStream extends AbstractDirectoryInputStream<File> {
 
@@ -161,6 +167,40 @@ public class FileResource extends AbstractResource implements Serializable {
         return in;
     }
 
+    @Override
+    public InputStream read(long offset, long length) throws ResourceException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative: " + offset);
+        }
+        if (_file.isDirectory()) {
+            throw new ResourceException(this, "Cannot read a range of directory: " + getQualifiedPath());
+        }
+        try {
+            final FileChannel channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ);
+            try {
+                channel.position(offset);
+            } catch (IOException e) {
+                FileHelper.safeClose(channel);
+                throw e;
+            }
+            return new RangeInputStream(new BufferedInputStream(Channels.newInputStream(channel)), length);
+        } catch (IOException e) {
+            throw new ResourceException(this, e);
+        }
+    }
+
+    @Override
+    public List<ResourceBlock> getBlocks() throws ResourceException {
+        if (_file.isDirectory()) {
+            throw new ResourceException(this, "Cannot get blocks of directory: " + getQualifiedPath());
+        }
+        if (!_file.exists()) {
+            throw new ResourceException(this, "File does not exist: " + getQualifiedPath());
+        }
+        // local files are not split into blocks with a location
+        return Collections.singletonList(new ResourceBlock(0, _file.length(), Collections.<String> emptyList()));
+    }
+
     private File[] getChildren() {
         return _file.listFiles(new FileFilter() {
             @Override
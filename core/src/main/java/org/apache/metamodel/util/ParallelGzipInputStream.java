@@ -0,0 +1,314 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * {@link InputStream} which decompresses gzip data in the background, ahead of
+ * the reader.
+ * 
+ * A producer task reads the compressed stream and feeds a bounded queue of
+ * decompressed blocks, so that parsing and decompression overlap. Members in
+ * the blocked gzip format (BGZF) carry their compressed size in the header,
+ * which allows them to be inflated concurrently while keeping their order.
+ * Other gzip data (including multi-member gzip, where member boundaries cannot
+ * be found without inflating) is decompressed sequentially by the producer.
+ */
+final class ParallelGzipInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // a BGZF header: the gzip header with an extra field holding the "BC"
+    // subfield, which contains the block size
+    private static final int BGZF_HEADER_LENGTH = 18;
+    private static final int BGZF_MAX_BLOCK_SIZE = 64 * 1024;
+
+    private static final byte[] END = new byte[0];
+
+    private final InputStream _in;
+    private final BlockingQueue<Future<byte[]>> _queue;
+    private final Future<?> _producer;
+    private byte[] _buffer;
+    private int _position;
+    private boolean _closed;
+
+    /**
+     * @param in
+     *            the compressed stream
+     * @param readAheadBlocks
+     *            the maximum number of decompressed blocks (of up to 64 KB
+     *            each) to read ahead of the consumer
+     */
+    public ParallelGzipInputStream(final InputStream in, final int readAheadBlocks) {
+        _in = new BufferedInputStream(in, CHUNK_SIZE);
+        _queue = new ArrayBlockingQueue<>(Math.max(1, readAheadBlocks));
+        // the producer blocks on reading the compressed stream and on the
+        // queue, so it doesn't run on the shared pool
+        final FutureTask<?> producer = new FutureTask<>(this::produce, null);
+        SharedExecutorService.getBlockingTaskExecutor().execute(producer);
+        _producer = producer;
+    }
+
+    private void produce() {
+        try {
+            try {
+                readMembers();
+                _queue.put(CompletableFuture.completedFuture(END));
+            } catch (IOException | RuntimeException e) {
+                final CompletableFuture<byte[]> failure = new CompletableFuture<>();
+                failure.completeExceptionally(e);
+                _queue.put(failure);
+            }
+        } catch (InterruptedException e) {
+            // the stream was closed
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readMembers() throws IOException, InterruptedException {
+        final byte[] header = new byte[BGZF_HEADER_LENGTH];
+        while (true) {
+            _in.mark(BGZF_HEADER_LENGTH);
+            final int headerLength = readFully(_in, header, 0, header.length);
+            if (headerLength == 0) {
+                return;
+            }
+
+            final int blockSize = getBgzfBlockSize(header, headerLength);
+            if (blockSize == -1) {
+                _in.reset();
+                decompressSequentially();
+                return;
+            }
+
+            final byte[] block = Arrays.copyOf(header, blockSize);
+            if (readFully(_in, block, BGZF_HEADER_LENGTH, blockSize - BGZF_HEADER_LENGTH) < blockSize
+                    - BGZF_HEADER_LENGTH) {
+                throw new EOFException("Unexpected end of BGZF block");
+            }
+            // inflating is CPU bound and the number of pending blocks is
+            // bounded by the queue, so the shared pool is fine for it
+            _queue.put(CompletableFuture.supplyAsync(() -> inflate(block), SharedExecutorService.get()));
+        }
+    }
+
+    private void decompressSequentially() throws IOException, InterruptedException {
+        final GZIPInputStream gzipInputStream = new GZIPInputStream(_in, CHUNK_SIZE);
+        while (true) {
+            final byte[] chunk = new byte[CHUNK_SIZE];
+            final int length = readFully(gzipInputStream, chunk, 0, CHUNK_SIZE);
+            if (length > 0) {
+                _queue.put(CompletableFuture.completedFuture(length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk,
+                        length)));
+            }
+            if (length < CHUNK_SIZE) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Determines the total size of a BGZF block from its header.
+     * 
+     * @return the size of the block, or -1 if the header is not a BGZF header
+     */
+    private static int getBgzfBlockSize(final byte[] header, final int headerLength) {
+        if (headerLength < BGZF_HEADER_LENGTH) {
+            return -1;
+        }
+        // gzip magic, deflate method, only the FEXTRA flag, a single "BC"
+        // subfield with a length of 2
+        if ((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || header[2] != 8 || header[3] != 4) {
+            return -1;
+        }
+        if (readShort(header, 10) != 6 || header[12] != 'B' || header[13] != 'C' || readShort(header, 14) != 2) {
+            return -1;
+        }
+        return readShort(header, 16) + 1;
+    }
+
+    private static byte[] inflate(final byte[] block) {
+        final int dataLength = block.length - BGZF_HEADER_LENGTH - 8;
+        final int expectedCrc = readInt(block, block.length - 8);
+        final int uncompressedSize = readInt(block, block.length - 4);
+        try {
+            if (dataLength < 0 || uncompressedSize < 0 || uncompressedSize > BGZF_MAX_BLOCK_SIZE) {
+                throw new ZipException("Corrupt BGZF block");
+            }
+            final byte[] result = new byte[uncompressedSize];
+            final Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(block, BGZF_HEADER_LENGTH, dataLength);
+                final byte[] overflow = new byte[1];
+                int length = 0;
+                while (!inflater.finished()) {
+                    final int inflated;
+                    if (length < result.length) {
+                        inflated = inflater.inflate(result, length, result.length - length);
+                    } else {
+                        // lets the inflater reach the end of the (possibly
+                        // empty) block, which should produce no more data
+                        inflated = inflater.inflate(overflow);
+                        if (inflated > 0) {
+                            throw new ZipException("Corrupt BGZF block: more data than declared");
+                        }
+                    }
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (!inflater.finished() || length != uncompressedSize) {
+                    throw new ZipException("Corrupt BGZF block");
+                }
+            } finally {
+                inflater.end();
+            }
+
+            final CRC32 crc = new CRC32();
+            crc.update(result);
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new ZipException("Corrupt BGZF block: CRC mismatch");
+            }
+            return result;
+        } catch (ZipException e) {
+            throw new UncheckedIOException(e);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new ZipException("Corrupt BGZF block: " + e.getMessage()));
+        }
+    }
+
+    private static int readShort(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+    }
+
+    private static int readInt(final byte[] bytes, final int offset) {
+        return readShort(bytes, offset) | readShort(bytes, offset + 2) << 16;
+    }
+
+    /**
+     * Reads until the requested number of bytes are read or the stream ends.
+     * 
+     * @return the number of bytes read
+     */
+    private static int readFully(final InputStream in, final byte[] bytes, final int offset, final int length)
+            throws IOException {
+        int total = 0;
+        while (total < length) {
+            final int read = in.read(bytes, offset + total, length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Makes sure that the buffer has unread bytes, by taking the next block
+     * from the queue if needed.
+     * 
+     * @return false if the end of the stream has been reached
+     */
+    private boolean fillBuffer() throws IOException {
+        if (_closed) {
+            throw new IOException("Stream closed");
+        }
+        while (_buffer == null || _position >= _buffer.length) {
+            if (_buffer == END) {
+                return false;
+            }
+            try {
+                _buffer = _queue.take().get();
+                _position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new InterruptedIOException("Interrupted while waiting for decompressed data");
+            } catch (ExecutionException e) {
+                close();
+                final Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e
+                        .getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillBuffer()) {
+            return -1;
+        }
+        return _buffer[_position++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fillBuffer()) {
+            return -1;
+        }
+        final int length = Math.min(len, _buffer.length - _position);
+        System.arraycopy(_buffer, _position, b, off, length);
+        _position += length;
+        return length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return _buffer == null || _closed ? 0 : _buffer.length - _position;
+    }
+
+    @Override
+    public void close() {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        _producer.cancel(true);
+        for (Future<byte[]> future = _queue.poll(); future != null; future = _queue.poll()) {
+            future.cancel(true);
+        }
+        FileHelper.safeClose(_in);
+    }
+}
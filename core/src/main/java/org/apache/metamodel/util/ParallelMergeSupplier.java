@@ -0,0 +1,205 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.MetaModelException;
+
+/**
+ * Runs a number of tasks (typically one per segment, region or partition of a
+ * table) in parallel and supplies the elements they produce one at a time.
+ * Elements are merged into a bounded queue, so that the tasks are blocked when
+ * the consumer does not keep up. The order of the elements is therefore only
+ * defined within each task.
+ * 
+ * Tasks that are {@link AutoCloseable} are closed when they complete, and when
+ * the supplier is closed before they started.
+ * 
+ * @param <E>
+ *            the type of elements produced by the tasks
+ */
+public final class ParallelMergeSupplier<E> implements Supplier<E>, Closeable {
+
+    /**
+     * Receives the elements produced by a {@link Task}.
+     * 
+     * @param <E>
+     */
+    @FunctionalInterface
+    public interface Sink<E> {
+
+        /**
+         * Adds an element, waiting if the consumer does not keep up.
+         * 
+         * @param element
+         * @throws InterruptedException
+         *             if the supplier was closed while waiting
+         */
+        void put(E element) throws InterruptedException;
+    }
+
+    /**
+     * A task that produces elements for a {@link ParallelMergeSupplier}.
+     * 
+     * @param <E>
+     */
+    @FunctionalInterface
+    public interface Task<E> {
+
+        /**
+         * Produces all of the elements of the task.
+         * 
+         * @param sink
+         *            the sink to put the elements into
+         * @throws Exception
+         *             if the task fails. The exception is rethrown to the
+         *             consumer.
+         */
+        void run(Sink<E> sink) throws Exception;
+    }
+
+    private static final Object END_OF_WORKER = new Object();
+
+    private final Queue<Task<E>> _pendingTasks;
+    private final BlockingQueue<Object> _queue;
+    private final List<FutureTask<?>> _workers;
+    private int _activeWorkers;
+
+    /**
+     * Creates and starts a {@link ParallelMergeSupplier} which runs the tasks
+     * on the {@link SharedExecutorService#getBlockingTaskExecutor()}.
+     * 
+     * @param tasks
+     *            the tasks to run
+     * @param parallelism
+     *            the maximum number of tasks to run at the same time
+     * @param queueCapacity
+     *            the number of elements to buffer before blocking the tasks
+     */
+    public ParallelMergeSupplier(List<? extends Task<E>> tasks, int parallelism, int queueCapacity) {
+        this(tasks, parallelism, queueCapacity, SharedExecutorService.getBlockingTaskExecutor());
+    }
+
+    /**
+     * Creates and starts a {@link ParallelMergeSupplier}.
+     * 
+     * @param tasks
+     *            the tasks to run
+     * @param parallelism
+     *            the maximum number of tasks to run at the same time
+     * @param queueCapacity
+     *            the number of elements to buffer before blocking the tasks
+     * @param executor
+     *            the executor to run the tasks on
+     */
+    public ParallelMergeSupplier(List<? extends Task<E>> tasks, int parallelism, int queueCapacity,
+            Executor executor) {
+        final int workers = Math.max(1, Math.min(parallelism, tasks.size()));
+        _pendingTasks = new ConcurrentLinkedQueue<>(tasks);
+        _queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        _workers = new ArrayList<>(workers);
+        _activeWorkers = workers;
+        for (int i = 0; i < workers; i++) {
+            final FutureTask<?> worker = new FutureTask<>(this::work, null);
+            _workers.add(worker);
+            executor.execute(worker);
+        }
+    }
+
+    private void work() {
+        try {
+            try {
+                for (Task<E> task = _pendingTasks.poll(); task != null; task = _pendingTasks.poll()) {
+                    try {
+                        task.run(_queue::put);
+                    } finally {
+                        closeTask(task);
+                    }
+                }
+                _queue.put(END_OF_WORKER);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                _queue.put(e);
+            } catch (Exception e) {
+                _queue.put(new MetaModelException(e));
+            }
+        } catch (InterruptedException e) {
+            // the supplier was closed
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeTask(Object task) {
+        if (task instanceof AutoCloseable) {
+            FileHelper.safeClose(task);
+        }
+    }
+
+    /**
+     * Gets the next element of any of the tasks, or null if all of the tasks
+     * have completed.
+     */
+    @Override
+    public E get() {
+        while (_activeWorkers > 0) {
+            final Object element;
+            try {
+                element = _queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new MetaModelException("Interrupted while waiting for parallel tasks", e);
+            }
+            if (element == END_OF_WORKER) {
+                _activeWorkers--;
+            } else if (element instanceof RuntimeException) {
+                close();
+                throw (RuntimeException) element;
+            } else {
+                @SuppressWarnings("unchecked")
+                final E result = (E) element;
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        _activeWorkers = 0;
+        for (FutureTask<?> worker : _workers) {
+            worker.cancel(true);
+        }
+        for (Task<E> task = _pendingTasks.poll(); task != null; task = _pendingTasks.poll()) {
+            closeTask(task);
+        }
+        _queue.clear();
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} wrapper which ends after a maximum number of bytes, used
+ * for range reads of {@link RangeReadableResource}s.
+ */
+class RangeInputStream extends FilterInputStream {
+
+    private long _remaining;
+
+    /**
+     * @param in
+     *            the stream, positioned at the start of the range
+     * @param length
+     *            the maximum number of bytes to read, or a negative number for
+     *            no limit
+     */
+    public RangeInputStream(final InputStream in, final long length) {
+        super(in);
+        _remaining = length < 0 ? Long.MAX_VALUE : length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (_remaining <= 0) {
+            return -1;
+        }
+        final int b = in.read();
+        if (b >= 0) {
+            _remaining--;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (_remaining <= 0) {
+            return len == 0 ? 0 : -1;
+        }
+        final int byteCount = in.read(b, off, (int) Math.min(len, _remaining));
+        if (byteCount > 0) {
+            _remaining -= byteCount;
+        }
+        return byteCount;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long skipped = in.skip(Math.min(n, _remaining));
+        if (skipped > 0) {
+            _remaining -= skipped;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), _remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+        // not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * A {@link Resource} whose contents can be read from an arbitrary byte offset,
+ * and which can tell how its contents are physically laid out in blocks.
+ * 
+ * This allows splittable consumers to divide a resource into byte ranges that
+ * are read independently (and concurrently), preferably aligned with the
+ * blocks and scheduled on the hosts that store them.
+ */
+public interface RangeReadableResource extends Resource {
+
+    /**
+     * Opens up an {@link InputStream} to read a range of the resource's
+     * contents. Reading past the end of the resource simply ends the stream.
+     * 
+     * Consumers of this method are expected to invoke the
+     * {@link InputStream#close()} method manually.
+     * 
+     * @param offset
+     *            the byte offset to start reading from
+     * @param length
+     *            the maximum number of bytes to read, or a negative number to
+     *            read until the end of the resource
+     * @return an {@link InputStream} of the requested range
+     * @throws ResourceException
+     *             if the resource cannot be read, or is not a single file
+     *             (such as a directory)
+     */
+    public InputStream read(long offset, long length) throws ResourceException;
+
+    /**
+     * Gets the blocks of the resource's contents, ordered by offset.
+     * Implementations which have no notion of blocks or locality return a
+     * single block covering the whole resource, without any hosts.
+     * 
+     * @return the blocks of the resource
+     * @throws ResourceException
+     *             if the blocks cannot be determined, or the resource is not a
+     *             single file (such as a directory)
+     */
+    public List<ResourceBlock> getBlocks() throws ResourceException;
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Represents a contiguous range of bytes of a {@link RangeReadableResource},
+ * along with the hosts that store it locally, if any.
+ */
+public final class ResourceBlock implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long _offset;
+    private final long _length;
+    private final List<String> _hosts;
+
+    public ResourceBlock(long offset, long length, List<String> hosts) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative: " + offset);
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative: " + length);
+        }
+        _offset = offset;
+        _length = length;
+        _hosts = hosts == null ? Collections.<String> emptyList() : Collections.unmodifiableList(hosts);
+    }
+
+    /**
+     * Gets the byte offset of the block within the resource.
+     * 
+     * @return
+     */
+    public long getOffset() {
+        return _offset;
+    }
+
+    /**
+     * Gets the number of bytes in the block.
+     * 
+     * @return
+     */
+    public long getLength() {
+        return _length;
+    }
+
+    /**
+     * Gets the names of the hosts which store the block, or an empty list if
+     * the block is not tied to any particular host.
+     * 
+     * @return
+     */
+    public List<String> getHosts() {
+        return _hosts;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(_offset, _length, _hosts);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof ResourceBlock) {
+            final ResourceBlock other = (ResourceBlock) obj;
+            return _offset == other._offset && _length == other._length && _hosts.equals(other._hosts);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceBlock[offset=" + _offset + ",length=" + _length + ",hosts=" + _hosts + "]";
+    }
+}
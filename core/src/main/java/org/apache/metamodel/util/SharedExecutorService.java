@@ -18,6 +18,8 @@
  */
 package org.apache.metamodel.util;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -61,6 +63,8 @@ public final class SharedExecutorService {
 	private static final ExecutorService executor = Executors
 			.newCachedThreadPool(new ThreadFactoryImpl());
 
+	private static final Executor blockingTaskExecutor = createBlockingTaskExecutor();
+
 	private SharedExecutorService() {
 		// prevent instantiation
 	}
@@ -73,4 +77,27 @@ public final class SharedExecutorService {
 	public static final ExecutorService get() {
 		return executor;
 	}
+
+	/**
+	 * Gets a shared {@link Executor} for tasks which spend most of their time
+	 * blocked, such as executing queries against remote datastores. Virtual
+	 * threads are used if the JVM supports them, otherwise the tasks run on
+	 * the shared {@link ExecutorService}.
+	 * 
+	 * @return an {@link Executor} for blocking tasks.
+	 */
+	public static final Executor getBlockingTaskExecutor() {
+		return blockingTaskExecutor;
+	}
+
+	private static Executor createBlockingTaskExecutor() {
+		try {
+			final Method method = Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+			return (Executor) method.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// virtual threads are not available (before Java 21)
+			return executor;
+		}
+	}
 }
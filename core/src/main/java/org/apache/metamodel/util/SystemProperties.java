@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper for reading the numeric system properties that MetaModel uses for
+ * tuning.
+ */
+public final class SystemProperties {
+
+    private static final Logger logger = LoggerFactory.getLogger(SystemProperties.class);
+
+    private SystemProperties() {
+        // prevent instantiation
+    }
+
+    /**
+     * Gets the value of an integer system property.
+     * 
+     * @param key
+     *            the key of the system property
+     * @param defaultValue
+     *            the value to return if the property is not set or is not a
+     *            valid integer
+     * @return the value of the property, or the default value
+     */
+    public static int getInt(String key, int defaultValue) {
+        final String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Failed to parse system property '{}': '{}'", key, value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets the value of a long system property.
+     * 
+     * @param key
+     *            the key of the system property
+     * @param defaultValue
+     *            the value to return if the property is not set or is not a
+     *            valid long
+     * @return the value of the property, or the default value
+     */
+    public static long getLong(String key, long defaultValue) {
+        final String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Failed to parse system property '{}': '{}'", key, value);
+            return defaultValue;
+        }
+    }
+}
@@ -18,8 +18,11 @@
  */
 package org.apache.metamodel;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
@@ -113,4 +116,226 @@ public class CompositeDataContextTest extends TestCase {
 		assertEquals("Row[values=[4, 4, yo, world]]", ds.getRow().toString());
 		assertFalse(ds.next());
 	}
-}
\ No newline at end of file
+
+	public void testCrossDataContextJoinPushesDownFilters() throws Exception {
+		final List<String> queries1 = new ArrayList<>();
+		final List<String> queries2 = new ArrayList<>();
+		DataContext dc1 = createRecordingDataContext("schema1", "table1", queries1);
+		DataContext dc2 = createRecordingDataContext("schema2", "table2", queries2);
+		DataContext composite = new CompositeDataContext(dc1, dc2);
+
+		Table table1 = dc1.getDefaultSchema().getTable(0);
+		Table table2 = dc2.getDefaultSchema().getTable(0);
+
+		Query q = composite.query().from(table1).and(table2)
+				.select(table1.getColumnByName("foo"))
+				.and(table2.getColumnByName("bar"))
+				.where(table1.getColumnByName("foo"))
+				.eq(table2.getColumnByName("foo"))
+				.and(table1.getColumnByName("bar")).eq("hello").toQuery();
+
+		// table1 has a single matching row, table2 has more than 2 rows
+		System.setProperty(CompositeDataContext.SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS, "2");
+		try {
+			List<Object[]> rows = composite.executeQuery(q).toObjectArrays();
+			assertEquals(1, rows.size());
+			assertEquals("[1, hello]", Arrays.toString(rows.get(0)));
+		} finally {
+			System.clearProperty(CompositeDataContext.SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS);
+		}
+
+		assertEquals(
+				"[SELECT table1.foo, table1.bar FROM schema1.table1 WHERE table1.bar = 'hello']",
+				queries1.toString());
+		assertEquals(
+				"[SELECT table2.bar, table2.foo FROM schema2.table2, "
+						+ "SELECT table2.bar, table2.foo FROM schema2.table2 WHERE table2.foo IN ('1')]",
+				queries2.toString());
+	}
+
+	public void testCrossDataContextJoinWithoutSemiJoinReduction() throws Exception {
+		final List<String> queries1 = new ArrayList<>();
+		final List<String> queries2 = new ArrayList<>();
+		DataContext dc1 = createRecordingDataContext("schema1", "table1", queries1);
+		DataContext dc2 = createRecordingDataContext("schema2", "table2", queries2);
+		DataContext composite = new CompositeDataContext(dc1, dc2);
+
+		Table table1 = dc1.getDefaultSchema().getTable(0);
+		Table table2 = dc2.getDefaultSchema().getTable(0);
+
+		Query q = composite.query().from(table1).and(table2)
+				.select(table1.getColumnByName("foo"))
+				.and(table2.getColumnByName("baz"))
+				.where(table1.getColumnByName("foo"))
+				.eq(table2.getColumnByName("foo"))
+				.and(table2.getColumnByName("baz")).eq("table2").toQuery();
+
+		System.setProperty(CompositeDataContext.SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS, "0");
+		try {
+			List<Object[]> rows = composite.executeQuery(q).toObjectArrays();
+			assertEquals(1, rows.size());
+			assertEquals("[3, table2]", Arrays.toString(rows.get(0)));
+		} finally {
+			System.clearProperty(CompositeDataContext.SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS);
+		}
+
+		assertEquals("[SELECT table1.foo FROM schema1.table1]", queries1.toString());
+		assertEquals(
+				"[SELECT table2.baz, table2.foo FROM schema2.table2 WHERE table2.baz = 'table2']",
+				queries2.toString());
+	}
+
+	public void testCrossDataContextJoinWithNoMatchingKeys() throws Exception {
+		final List<String> queries1 = new ArrayList<>();
+		final List<String> queries2 = new ArrayList<>();
+		DataContext dc1 = createRecordingDataContext("schema1", "table1", queries1);
+		DataContext dc2 = createRecordingDataContext("schema2", "table2", queries2);
+		DataContext composite = new CompositeDataContext(dc1, dc2);
+
+		Table table1 = dc1.getDefaultSchema().getTable(0);
+		Table table2 = dc2.getDefaultSchema().getTable(0);
+
+		Query q = composite.query().from(table1).and(table2)
+				.select(table1.getColumnByName("foo"))
+				.where(table1.getColumnByName("foo"))
+				.eq(table2.getColumnByName("foo"))
+				.and(table1.getColumnByName("bar")).eq("foobar").toQuery();
+
+		List<Object[]> rows = composite.executeQuery(q).toObjectArrays();
+		assertEquals(0, rows.size());
+		assertEquals(1, queries1.size());
+		assertEquals(1, queries2.size());
+	}
+
+	public void testCrossDataContextJoinWithNullKeys() throws Exception {
+		final List<String> queries1 = new ArrayList<>();
+		final List<String> queries2 = new ArrayList<>();
+		DataContext dc1 = createRecordingDataContext("schema1", "table1", null, queries1);
+		DataContext dc2 = createRecordingDataContext("schema2", "table2", null, queries2);
+		DataContext composite = new CompositeDataContext(dc1, dc2);
+
+		Table table1 = dc1.getDefaultSchema().getTable(0);
+		Table table2 = dc2.getDefaultSchema().getTable(0);
+
+		// the only matching row of table1 has a null join key
+		Query q = composite.query().from(table1).and(table2)
+				.select(table1.getColumnByName("foo"))
+				.and(table2.getColumnByName("foo"))
+				.where(table1.getColumnByName("bar"))
+				.eq(table2.getColumnByName("bar"))
+				.and(table1.getColumnByName("foo")).eq("2").toQuery();
+
+		assertEquals("[[2, 2]]", toString(executeWithSemiJoinMaxKeys(composite, q, "0")));
+		assertEquals("[[2, 2]]", toString(executeWithSemiJoinMaxKeys(composite, q, "2")));
+		assertEquals(
+				"SELECT table2.foo, table2.bar FROM schema2.table2 WHERE table2.bar IS NULL",
+				queries2.get(queries2.size() - 1));
+	}
+
+	public void testCrossDataContextJoinWithNullAndNonNullKeys() throws Exception {
+		final List<String> queries1 = new ArrayList<>();
+		final List<String> queries2 = new ArrayList<>();
+		DataContext dc1 = createRecordingDataContext("schema1", "table1", null, queries1);
+		DataContext dc2 = createRecordingDataContext("schema2", "table2", null, queries2);
+		DataContext composite = new CompositeDataContext(dc1, dc2);
+
+		Table table1 = dc1.getDefaultSchema().getTable(0);
+		Table table2 = dc2.getDefaultSchema().getTable(0);
+
+		Query q = composite.query().from(table1).and(table2)
+				.select(table1.getColumnByName("foo"))
+				.and(table2.getColumnByName("foo"))
+				.where(table1.getColumnByName("bar"))
+				.eq(table2.getColumnByName("bar"))
+				.and(table1.getColumnByName("foo")).in("1", "2").toQuery();
+
+		assertEquals("[[1, 1], [2, 2]]", toString(executeWithSemiJoinMaxKeys(composite, q, "0")));
+		assertEquals("[[1, 1], [2, 2]]", toString(executeWithSemiJoinMaxKeys(composite, q, "2")));
+		assertEquals(
+				"SELECT table2.foo, table2.bar FROM schema2.table2 "
+						+ "WHERE (table2.bar IN ('hello') OR table2.bar IS NULL)",
+				queries2.get(queries2.size() - 1));
+	}
+
+	private static List<Object[]> executeWithSemiJoinMaxKeys(DataContext dataContext, Query query,
+			String maxKeys) {
+		System.setProperty(CompositeDataContext.SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS, maxKeys);
+		try {
+			return dataContext.executeQuery(query).toObjectArrays();
+		} finally {
+			System.clearProperty(CompositeDataContext.SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS);
+		}
+	}
+
+	private static String toString(List<Object[]> rows) {
+		final List<String> result = new ArrayList<>();
+		for (Object[] row : rows) {
+			result.add(Arrays.toString(row));
+		}
+		return result.toString();
+	}
+
+	public void testDelegatesAreQueriedConcurrently() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(2);
+		DataContext dc1 = createLatchedDataContext("schema1", "table1", latch);
+		DataContext dc2 = createLatchedDataContext("schema2", "table2", latch);
+		CompositeDataContext composite = new CompositeDataContext(dc1, dc2);
+		assertNotNull(composite.getExecutorService());
+
+		Table table1 = dc1.getDefaultSchema().getTable(0);
+		Table table2 = dc2.getDefaultSchema().getTable(0);
+
+		// each delegate waits for the other one to be queried
+		Query q = composite.query().from(table1).and(table2)
+				.select(table1.getColumnByName("bar"))
+				.and(table2.getColumnByName("baz"))
+				.where(table1.getColumnByName("foo"))
+				.eq(table2.getColumnByName("foo")).toQuery();
+		System.setProperty(CompositeDataContext.SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS, "0");
+		List<Object[]> rows;
+		try {
+			rows = composite.executeQuery(q).toObjectArrays();
+		} finally {
+			System.clearProperty(CompositeDataContext.SYSTEM_PROPERTY_SEMI_JOIN_MAX_KEYS);
+		}
+		assertEquals(4, rows.size());
+		assertEquals("[hello, world]", Arrays.toString(rows.get(0)));
+		assertEquals("[hi, table2]", Arrays.toString(rows.get(2)));
+
+		composite.setExecutorService(null);
+		rows = composite.executeQuery(q).toObjectArrays();
+		assertEquals(4, rows.size());
+	}
+
+	private static DataContext createLatchedDataContext(String schemaName,
+			String tableName, final CountDownLatch latch) {
+		return new MockDataContext(schemaName, tableName, tableName) {
+			@Override
+			public DataSet executeQuery(Query query) {
+				latch.countDown();
+				try {
+					assertTrue(latch.await(10, TimeUnit.SECONDS));
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return super.executeQuery(query);
+			}
+		};
+	}
+
+	private static DataContext createRecordingDataContext(String schemaName,
+			String tableName, final List<String> queries) {
+		return createRecordingDataContext(schemaName, tableName, tableName, queries);
+	}
+
+	private static DataContext createRecordingDataContext(String schemaName,
+			String tableName, String value, final List<String> queries) {
+		return new MockDataContext(schemaName, tableName, value) {
+			@Override
+			public DataSet executeQuery(Query query) {
+				queries.add(query.toSql());
+				return super.executeQuery(query);
+			}
+		};
+	}
+}
@@ -22,10 +22,14 @@ import java.nio.channels.UnsupportedAddressTypeException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import javax.swing.table.TableModel;
 
+import org.apache.metamodel.data.AbstractDataSet;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.DataSetHeader;
 import org.apache.metamodel.data.DataSetTableModel;
@@ -53,6 +57,7 @@ import org.apache.metamodel.schema.MutableTable;
 import org.apache.metamodel.schema.Relationship;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.SharedExecutorService;
 
 public class QueryPostprocessDataContextTest extends MetaModelTestCase {
 
@@ -133,6 +138,64 @@ public class QueryPostprocessDataContextTest extends MetaModelTestCase {
         dataSet.close();
     }
 
+    public void testExecuteQueryAsync() throws Exception {
+        final MockDataContext dc = new MockDataContext("sch", "tab", "1");
+        final List<Runnable> tasks = new ArrayList<>();
+        dc.setAsyncQueryExecutor(tasks::add);
+
+        final Query query = dc.query().from("tab").select("foo").toQuery();
+        final CompletableFuture<DataSet> future = dc.executeQueryAsync(query);
+        assertFalse(future.isDone());
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        try (DataSet dataSet = future.get()) {
+            assertEquals(4, dataSet.toRows().size());
+        }
+
+        dc.setAsyncQueryExecutor(null);
+        assertSame(SharedExecutorService.getBlockingTaskExecutor(), dc.getAsyncQueryExecutor());
+        try (DataSet dataSet = dc.executeQueryAsync(query).get()) {
+            assertEquals(4, dataSet.toRows().size());
+        }
+    }
+
+    public void testExecuteQueryAsyncCancelled() throws Exception {
+        final AtomicReference<CompletableFuture<DataSet>> future = new AtomicReference<>();
+        final AtomicBoolean closed = new AtomicBoolean(false);
+        final MockDataContext dc = new MockDataContext("sch", "tab", "1") {
+            @Override
+            public DataSet executeQuery(Query query) {
+                // the future is cancelled while the query is executing
+                future.get().cancel(true);
+                return new AbstractDataSet(query.getSelectClause().getItems()) {
+                    @Override
+                    public boolean next() {
+                        return false;
+                    }
+
+                    @Override
+                    public Row getRow() {
+                        return null;
+                    }
+
+                    @Override
+                    public void close() {
+                        closed.set(true);
+                    }
+                };
+            }
+        };
+        final List<Runnable> tasks = new ArrayList<>();
+        dc.setAsyncQueryExecutor(tasks::add);
+        final Query query = dc.query().from("tab").select("foo").toQuery();
+
+        future.set(dc.executeQueryAsync(query));
+        tasks.get(0).run();
+        assertTrue(future.get().isCancelled());
+        assertTrue(closed.get());
+    }
+
     // see issue METAMODEL-100
     public void testSelectFromColumnsWithSameName() throws Exception {
         final MutableTable table = new MutableTable("table");
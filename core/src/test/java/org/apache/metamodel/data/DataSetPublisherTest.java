@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.MutableColumn;
+
+import junit.framework.TestCase;
+
+public class DataSetPublisherTest extends TestCase {
+
+    private static final Executor SAME_THREAD = Runnable::run;
+
+    private static class RecordingSubscriber implements RowSubscriber {
+        private final List<Object> values = new ArrayList<>();
+        private RowSubscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(RowSubscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Row row) {
+            values.add(row.getValue(0));
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private boolean closed;
+
+    private DataSet createDataSet(int rowCount) {
+        final DataSetHeader header = new SimpleDataSetHeader(new SelectItem[] { new SelectItem(new MutableColumn(
+                "foo")) });
+        final List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new DefaultRow(header, new Object[] { i }));
+        }
+        final DataSet dataSet = new InMemoryDataSet(header, rows);
+        return new AbstractDataSet(header) {
+            @Override
+            public boolean next() {
+                return dataSet.next();
+            }
+
+            @Override
+            public Row getRow() {
+                return dataSet.getRow();
+            }
+
+            @Override
+            public void close() {
+                super.close();
+                closed = true;
+            }
+        };
+    }
+
+    public void testRowsAreDeliveredOnDemand() throws Exception {
+        final CompletableFuture<DataSet> future = new CompletableFuture<>();
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new DataSetPublisher(future, SAME_THREAD).subscribe(subscriber);
+
+        // rows requested before the DataSet is available are delivered once
+        // it arrives
+        subscriber.subscription.request(2);
+        assertEquals("[]", subscriber.values.toString());
+        future.complete(createDataSet(5));
+        assertEquals("[0, 1]", subscriber.values.toString());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(1);
+        assertEquals("[0, 1, 2]", subscriber.values.toString());
+        assertFalse(closed);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals("[0, 1, 2, 3, 4]", subscriber.values.toString());
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        assertTrue(closed);
+    }
+
+    public void testCancel() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new DataSetPublisher(CompletableFuture.completedFuture(createDataSet(5)), SAME_THREAD).subscribe(
+                subscriber);
+
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(10);
+        assertEquals("[0]", subscriber.values.toString());
+        assertFalse(subscriber.completed);
+        assertTrue(closed);
+    }
+
+    public void testQueryFailure() throws Exception {
+        final CompletableFuture<DataSet> future = CompletableFuture.supplyAsync(() -> {
+            throw new MetaModelException("query failed");
+        });
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new DataSetPublisher(future, SAME_THREAD).subscribe(subscriber);
+        try {
+            future.join();
+        } catch (Exception e) {
+            // expected
+        }
+
+        assertTrue(subscriber.error instanceof MetaModelException);
+        assertEquals("query failed", subscriber.error.getMessage());
+        assertFalse(subscriber.completed);
+    }
+
+    public void testInvalidRequest() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new DataSetPublisher(CompletableFuture.completedFuture(createDataSet(5)), SAME_THREAD).subscribe(
+                subscriber);
+
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(closed);
+    }
+
+    public void testSingleSubscriber() throws Exception {
+        final DataSetPublisher publisher = new DataSetPublisher(CompletableFuture.completedFuture(createDataSet(1)),
+                SAME_THREAD);
+        final RecordingSubscriber subscriber1 = new RecordingSubscriber();
+        final RecordingSubscriber subscriber2 = new RecordingSubscriber();
+        publisher.subscribe(subscriber1);
+        publisher.subscribe(subscriber2);
+
+        assertNull(subscriber1.error);
+        assertNotNull(subscriber2.subscription);
+        assertEquals("DataSetPublisher only supports a single subscriber", subscriber2.error.getMessage());
+    }
+}
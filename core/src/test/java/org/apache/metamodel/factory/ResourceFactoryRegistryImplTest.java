@@ -24,6 +24,7 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 
 import org.apache.metamodel.util.ClasspathResource;
+import org.apache.metamodel.util.CompressedResource;
 import org.apache.metamodel.util.InMemoryResource;
 import org.apache.metamodel.util.Resource;
 import org.apache.metamodel.util.UrlResource;
@@ -56,6 +57,20 @@ public class ResourceFactoryRegistryImplTest {
         assertTrue(res instanceof InMemoryResource);
     }
 
+    @Test
+    public void testGetCompressedResource() throws Exception {
+        final Resource res = registry.createResource(new SimpleResourceProperties("mem:///foo.bar.csv.gz"));
+        assertTrue(res instanceof CompressedResource);
+        assertTrue(((CompressedResource) res).getWrappedResource() instanceof InMemoryResource);
+        assertEquals("foo.bar.csv", res.getName());
+
+        final ResourceFactoryRegistryImpl registryWithoutDecompression = new ResourceFactoryRegistryImpl();
+        registryWithoutDecompression.discoverFromClasspath();
+        registryWithoutDecompression.setDecompressionEnabled(false);
+        assertTrue(registryWithoutDecompression.createResource(new SimpleResourceProperties(
+                "mem:///foo.bar.csv.gz")) instanceof InMemoryResource);
+    }
+
     @Test
     public void testGetClasspathResource() throws Exception {
         final Resource res = registry.createResource(new SimpleResourceProperties("classpath:///folder/foo"));
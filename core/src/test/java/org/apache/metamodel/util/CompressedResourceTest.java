@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import junit.framework.TestCase;
+
+public class CompressedResourceTest extends TestCase {
+
+    private static String readAsString(Resource resource) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = resource.read()) {
+            FileHelper.copy(in, out);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public void testWriteAndRead() throws Exception {
+        final InMemoryResource compressedResource = new InMemoryResource("foo/data.csv.gz");
+        final CompressedResource resource = new CompressedResource(compressedResource);
+        assertEquals("data.csv", resource.getName());
+        assertEquals("foo/data.csv.gz", resource.getQualifiedPath());
+        assertEquals(0, resource.getSize());
+
+        resource.write(out -> out.write("hello,world\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(-1, resource.getSize());
+        try (InputStream in = compressedResource.read()) {
+            assertEquals(0x1f, in.read());
+        }
+
+        // appending writes a second gzip member
+        resource.append(out -> out.write("foo,bar\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("hello,world\nfoo,bar\n", readAsString(resource));
+    }
+
+    public void testReadLargeContents() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.append(i).append(",row number ").append(i).append('\n');
+        }
+        final String contents = sb.toString();
+
+        final CompressedResource resource = new CompressedResource(new InMemoryResource("large.csv.gz"), 2);
+        resource.write(out -> out.write(contents.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(contents, readAsString(resource));
+    }
+
+    public void testReadBgzf() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        final ByteArrayOutputStream bgzf = new ByteArrayOutputStream();
+        for (int i = 0; i < 50; i++) {
+            final StringBuilder block = new StringBuilder();
+            for (int j = 0; j < 1000; j++) {
+                block.append("block ").append(i).append(" line ").append(j).append('\n');
+            }
+            sb.append(block);
+            bgzf.write(createBgzfBlock(block.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        // the empty end-of-file block
+        bgzf.write(createBgzfBlock(new byte[0]));
+
+        final CompressedResource resource = new CompressedResource(new InMemoryResource("data.txt.bgz", bgzf
+                .toByteArray(), -1), 4);
+        assertEquals(sb.toString(), readAsString(resource));
+    }
+
+    public void testReadCorruptBgzf() throws Exception {
+        final byte[] block = createBgzfBlock("foo bar baz".getBytes(StandardCharsets.UTF_8));
+        // break the CRC
+        block[block.length - 8]++;
+
+        final CompressedResource resource = new CompressedResource(new InMemoryResource("data.txt.gz", block, -1));
+        try (InputStream in = resource.read()) {
+            in.read();
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertEquals("Corrupt BGZF block: CRC mismatch", e.getMessage());
+        }
+    }
+
+    public void testIsCompressed() throws Exception {
+        assertTrue(CompressedResource.isCompressed("/data/foo.csv.gz"));
+        assertTrue(CompressedResource.isCompressed("foo.JSON.GZIP"));
+        assertFalse(CompressedResource.isCompressed("foo.csv"));
+        assertFalse(CompressedResource.isCompressed(".gz"));
+        assertFalse(CompressedResource.isCompressed(null));
+    }
+
+    private static byte[] createBgzfBlock(byte[] data) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        final byte[] buffer = new byte[data.length + 1024];
+        final int compressedLength = deflater.deflate(buffer);
+        deflater.end();
+
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0 }, 0, 16);
+        writeShort(out, 18 + compressedLength + 8 - 1);
+        out.write(buffer, 0, compressedLength);
+        writeInt(out, (int) crc.getValue());
+        writeInt(out, data.length);
+        return out.toByteArray();
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, value & 0xffff);
+        writeShort(out, (value >> 16) & 0xffff);
+    }
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.Collections;
@@ -89,4 +90,31 @@ public class FileResourceTest {
         Assert.assertEquals(str1, str2);
     }
 
-}
\ No newline at end of file
+
+    private static String readRange(RangeReadableResource resource, long offset, long length) throws Exception {
+        try (InputStream in = resource.read(offset, length)) {
+            return FileHelper.readInputStreamAsString(in, "UTF-8");
+        }
+    }
+
+    @Test
+    public void testReadRange() throws Exception {
+        final FileResource resource = new FileResource(folder.newFile("range.txt"));
+        resource.write(out -> out.write("0123456789".getBytes()));
+
+        assertEquals("3456", readRange(resource, 3, 4));
+        assertEquals("789", readRange(resource, 7, -1));
+        assertEquals("89", readRange(resource, 8, 100));
+        assertEquals("", readRange(resource, 20, 5));
+
+        assertEquals(Collections.singletonList(new ResourceBlock(0, 10, Collections.<String> emptyList())), resource
+                .getBlocks());
+
+        try {
+            new FileResource(folder.getRoot()).read(0, 1);
+            fail("Exception expected");
+        } catch (ResourceException e) {
+            assertTrue(e.getMessage().startsWith("Cannot read a range of directory: "));
+        }
+    }
+}
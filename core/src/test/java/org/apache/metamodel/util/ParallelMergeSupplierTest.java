@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.util.ParallelMergeSupplier.Sink;
+import org.apache.metamodel.util.ParallelMergeSupplier.Task;
+
+import junit.framework.TestCase;
+
+public class ParallelMergeSupplierTest extends TestCase {
+
+    private static Task<Integer> range(int from, int to) {
+        return sink -> {
+            for (int i = from; i < to; i++) {
+                sink.put(i);
+            }
+        };
+    }
+
+    public void testMergesAllElements() throws Exception {
+        final List<Task<Integer>> tasks = Arrays.asList(range(0, 100), range(100, 200), range(200, 300), range(300,
+                300));
+        final List<Integer> result = new ArrayList<>();
+        try (ParallelMergeSupplier<Integer> supplier = new ParallelMergeSupplier<>(tasks, 2, 5)) {
+            for (Integer element = supplier.get(); element != null; element = supplier.get()) {
+                result.add(element);
+            }
+        }
+
+        Collections.sort(result);
+        assertEquals(300, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(i, result.get(i).intValue());
+        }
+    }
+
+    public void testRethrowsTaskFailure() throws Exception {
+        final List<Task<Integer>> tasks = Arrays.asList(range(0, 10), sink -> {
+            throw new IOException("foo");
+        });
+        final ParallelMergeSupplier<Integer> supplier = new ParallelMergeSupplier<>(tasks, 2, 100);
+        try {
+            while (supplier.get() != null) {
+                // consume
+            }
+            fail("Exception expected");
+        } catch (MetaModelException e) {
+            assertEquals("foo", e.getCause().getMessage());
+        }
+    }
+
+    public void testCloseStopsBlockedTasksAndClosesPendingTasks() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final AtomicInteger closed = new AtomicInteger();
+
+        class EndlessTask implements Task<Integer>, Closeable {
+            @Override
+            public void run(Sink<Integer> sink) throws Exception {
+                try {
+                    while (true) {
+                        sink.put(1);
+                    }
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        }
+
+        final List<EndlessTask> tasks = Arrays.asList(new EndlessTask(), new EndlessTask());
+        final ParallelMergeSupplier<Integer> supplier = new ParallelMergeSupplier<>(tasks, 1, 1);
+        assertEquals(1, supplier.get().intValue());
+        supplier.close();
+
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertNull(supplier.get());
+        for (int i = 0; i < 100 && closed.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, closed.get());
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.util;
+
+import junit.framework.TestCase;
+
+public class SystemPropertiesTest extends TestCase {
+
+    private static final String KEY = "metamodel.test.system.properties";
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty(KEY);
+        super.tearDown();
+    }
+
+    public void testGetInt() throws Exception {
+        assertEquals(42, SystemProperties.getInt(KEY, 42));
+
+        System.setProperty(KEY, " 7 ");
+        assertEquals(7, SystemProperties.getInt(KEY, 42));
+
+        System.setProperty(KEY, "");
+        assertEquals(42, SystemProperties.getInt(KEY, 42));
+
+        System.setProperty(KEY, "foo");
+        assertEquals(42, SystemProperties.getInt(KEY, 42));
+
+        System.setProperty(KEY, "10000000000");
+        assertEquals(42, SystemProperties.getInt(KEY, 42));
+    }
+
+    public void testGetLong() throws Exception {
+        assertEquals(-1L, SystemProperties.getLong(KEY, -1L));
+
+        System.setProperty(KEY, "10000000000");
+        assertEquals(10000000000L, SystemProperties.getLong(KEY, -1L));
+
+        System.setProperty(KEY, "1.5");
+        assertEquals(-1L, SystemProperties.getLong(KEY, -1L));
+    }
+}
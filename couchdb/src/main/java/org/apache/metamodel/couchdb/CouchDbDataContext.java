@@ -18,10 +18,18 @@
  */
 package org.apache.metamodel.couchdb;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.MetaModelHelper;
 import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.UpdateScript;
 import org.apache.metamodel.UpdateSummary;
@@ -30,6 +38,9 @@ import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.DocumentSource;
 import org.apache.metamodel.data.SimpleDataSetHeader;
 import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.FromItem;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.Query;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Schema;
@@ -37,15 +48,21 @@ import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.schema.builder.DocumentSourceProvider;
 import org.apache.metamodel.schema.builder.SchemaBuilder;
 import org.apache.metamodel.util.SimpleTableDef;
+import org.apache.metamodel.util.SystemProperties;
 import org.ektorp.CouchDbConnector;
 import org.ektorp.CouchDbInstance;
 import org.ektorp.StreamingViewResult;
 import org.ektorp.ViewQuery;
 import org.ektorp.http.HttpClient;
+import org.ektorp.http.HttpResponse;
 import org.ektorp.http.StdHttpClient;
 import org.ektorp.impl.StdCouchDbInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * DataContext implementation for CouchDB
@@ -53,6 +70,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 public class CouchDbDataContext extends QueryPostprocessDataContext implements UpdateableDataContext,
         DocumentSourceProvider {
 
+    private static final Logger logger = LoggerFactory.getLogger(CouchDbDataContext.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     public static final String SCHEMA_NAME = "CouchDB";
 
     public static final int DEFAULT_PORT = 5984;
@@ -60,6 +81,24 @@ public class CouchDbDataContext extends QueryPostprocessDataContext implements U
     public static final String FIELD_ID = "_id";
     public static final String FIELD_REV = "_rev";
 
+    /**
+     * System property which can be used to configure the number of inserted
+     * documents that are buffered per database before they are written to
+     * CouchDB using a single _bulk_docs request.
+     */
+    public static final String SYSTEM_PROPERTY_INSERT_BATCH_SIZE = "metamodel.couchdb.insert.batch.size";
+
+    public static final int DEFAULT_INSERT_BATCH_SIZE = 1000;
+
+    /**
+     * System property which can be used to configure the number of documents
+     * that are requested per page of a "_find" (Mango) query. Following pages
+     * are requested using the bookmark of the previous page.
+     */
+    public static final String SYSTEM_PROPERTY_FIND_PAGE_SIZE = "metamodel.couchdb.find.page.size";
+
+    public static final int DEFAULT_FIND_PAGE_SIZE = 1000;
+
     // the instance represents a handle to the whole couchdb cluster
     private final CouchDbInstance _couchDbInstance;
     private final SchemaBuilder _schemaBuilder;
@@ -113,6 +152,142 @@ public class CouchDbDataContext extends QueryPostprocessDataContext implements U
         return _schemaBuilder.getSchemaName();
     }
 
+    @Override
+    public DataSet executeQuery(Query query) {
+        // ORDER BY can only be pushed down for simple queries on a single table
+        final List<FromItem> fromItems = query.getFromClause().getItems();
+        final List<OrderByItem> orderByItems = query.getOrderByClause().getItems();
+        if (fromItems.size() == 1 && fromItems.get(0).getTable() != null && isMainSchemaTable(fromItems.get(0)
+                .getTable()) && !orderByItems.isEmpty() && query.getGroupByClause().isEmpty() && query
+                        .getHavingClause().isEmpty() && !query.getSelectClause().isDistinct()) {
+            final Table table = fromItems.get(0).getTable();
+            final List<SelectItem> selectItems = query.getSelectClause().getItems();
+            final boolean allSelectItemsAreColumns = selectItems.stream().allMatch(selectItem -> !selectItem
+                    .hasFunction() && selectItem.getColumn() != null);
+
+            final CouchDbFindQuery findQuery = new CouchDbFindQuery(query.getWhereClause().getItems());
+            if (allSelectItemsAreColumns && findQuery.isFullyPushedDown() && findQuery.setSort(orderByItems)) {
+                final int firstRow = (query.getFirstRow() == null ? 1 : query.getFirstRow());
+                final int maxRows = (query.getMaxRows() == null ? -1 : query.getMaxRows());
+                final DataSet dataSet = executeFindQuery(table, selectItems, findQuery, firstRow, maxRows);
+                if (dataSet != null) {
+                    return dataSet;
+                }
+                logger.debug("CouchDB rejected the sort of the _find query, ordering documents client-side");
+            }
+        }
+        return super.executeQuery(query);
+    }
+
+    @Override
+    protected DataSet materializeMainSchemaTable(Table table, List<SelectItem> selectItems,
+            List<FilterItem> whereItems, int firstRow, int maxRows) {
+        if (!whereItems.isEmpty()) {
+            final CouchDbFindQuery findQuery = new CouchDbFindQuery(whereItems);
+            if (findQuery.hasSelector()) {
+                return executeFindQuery(table, selectItems, findQuery, firstRow, maxRows);
+            }
+        }
+        return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
+    }
+
+    /**
+     * Executes a "_find" query. WHERE items which could not be translated are
+     * evaluated on the returned documents.
+     *
+     * @return the result, or null if CouchDB rejected the sort of the query
+     */
+    private DataSet executeFindQuery(Table table, List<SelectItem> selectItems, CouchDbFindQuery findQuery,
+            int firstRow, int maxRows) {
+        final List<FilterItem> postProcessWhereItems = findQuery.getPostProcessWhereItems();
+        final List<SelectItem> selectItemsToQuery = new ArrayList<>(selectItems);
+        for (FilterItem whereItem : postProcessWhereItems) {
+            addReferencedColumns(whereItem, selectItemsToQuery);
+        }
+        final List<String> fields = selectItemsToQuery.stream().map(selectItem -> selectItem.getColumn()
+                .getName()).distinct().collect(Collectors.toList());
+
+        // paging can only be pushed down when there is no post-processing
+        final int skip = postProcessWhereItems.isEmpty() && firstRow > 1 ? firstRow - 1 : 0;
+        final int rowsToFetch = postProcessWhereItems.isEmpty() ? maxRows : -1;
+        final int pageSize = getFindPageSize();
+        final int firstPageSize = rowsToFetch > 0 ? Math.min(rowsToFetch, pageSize) : pageSize;
+
+        final String databaseName = table.getName();
+        final JsonNode firstPage = executeFindRequest(databaseName, findQuery.toJson(fields, skip, firstPageSize,
+                null), findQuery.hasSort());
+        if (firstPage == null) {
+            return null;
+        }
+
+        DataSet dataSet = new CouchDbFindDataSet(selectItemsToQuery, firstPage,
+                bookmark -> executeFindRequest(databaseName, findQuery.toJson(fields, 0, pageSize, bookmark),
+                        false), firstPageSize, rowsToFetch);
+        if (!postProcessWhereItems.isEmpty()) {
+            dataSet = MetaModelHelper.getFiltered(dataSet, postProcessWhereItems);
+            dataSet = MetaModelHelper.getPaged(dataSet, firstRow, maxRows);
+        }
+        return MetaModelHelper.getSelection(selectItems, dataSet);
+    }
+
+    private static void addReferencedColumns(FilterItem filterItem, List<SelectItem> selectItems) {
+        if (filterItem.isCompoundFilter()) {
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                addReferencedColumns(childItem, selectItems);
+            }
+            return;
+        }
+        final List<SelectItem> referencedItems = new ArrayList<>(2);
+        referencedItems.add(filterItem.getSelectItem());
+        if (filterItem.getOperand() instanceof SelectItem) {
+            referencedItems.add((SelectItem) filterItem.getOperand());
+        }
+        for (SelectItem referencedItem : referencedItems) {
+            if (referencedItem != null && referencedItem.getColumn() != null) {
+                final SelectItem columnItem = new SelectItem(referencedItem.getColumn());
+                if (!selectItems.contains(columnItem)) {
+                    selectItems.add(columnItem);
+                }
+            }
+        }
+    }
+
+    /**
+     * Posts a request to the "_find" endpoint of a database.
+     *
+     * @return the response, or null if the request was rejected and that was
+     *         allowed
+     */
+    private JsonNode executeFindRequest(String databaseName, ObjectNode request, boolean allowRejection) {
+        final String path;
+        try {
+            path = "/" + URLEncoder.encode(databaseName, "UTF-8") + "/_find";
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        logger.debug("Executing CouchDB _find query on {}: {}", databaseName, request);
+        final HttpResponse response = _couchDbInstance.getConnection().post(path, request.toString());
+        try (InputStream content = response.getContent()) {
+            if (!response.isSuccessful()) {
+                if (allowRejection && response.getCode() == 400) {
+                    return null;
+                }
+                throw new MetaModelException("CouchDB _find query on " + databaseName + " failed with status "
+                        + response.getCode() + ": " + IOUtils.toString(content, "UTF-8"));
+            }
+            return OBJECT_MAPPER.readTree(content);
+        } catch (IOException e) {
+            throw new MetaModelException("Failed to read CouchDB _find response", e);
+        } finally {
+            response.releaseConnection();
+        }
+    }
+
+    private int getFindPageSize() {
+        return Math.max(1, SystemProperties.getInt(SYSTEM_PROPERTY_FIND_PAGE_SIZE, DEFAULT_FIND_PAGE_SIZE));
+    }
+
     @Override
     protected DataSet materializeMainSchemaTable(Table table, List<Column> columns, int firstRow, int maxRows) {
         // the connector represents a handle to the the couchdb "database".
@@ -167,6 +342,27 @@ public class CouchDbDataContext extends QueryPostprocessDataContext implements U
             long docCount = connector.getDbInfo().getDocCount();
             return docCount;
         }
+
+        final CouchDbFindQuery findQuery = new CouchDbFindQuery(whereItems);
+        if (findQuery.isFullyPushedDown()) {
+            // count the matching documents without transferring more than
+            // their IDs
+            final String databaseName = table.getName();
+            final int pageSize = getFindPageSize();
+            final List<String> fields = Collections.singletonList(FIELD_ID);
+            long count = 0;
+            String bookmark = null;
+            while (true) {
+                final JsonNode page = executeFindRequest(databaseName, findQuery.toJson(fields, 0, pageSize,
+                        bookmark), false);
+                final int docs = page.path("docs").size();
+                count += docs;
+                if (docs < pageSize || !page.path("bookmark").isTextual()) {
+                    return count;
+                }
+                bookmark = page.get("bookmark").asText();
+            }
+        }
         return null;
     }
 
@@ -175,6 +371,8 @@ public class CouchDbDataContext extends QueryPostprocessDataContext implements U
         final CouchDbUpdateCallback callback = new CouchDbUpdateCallback(this);
         try {
             script.run(callback);
+            // only write the buffered documents if the script completed normally
+            callback.flushInserts();
         } finally {
             callback.close();
         }
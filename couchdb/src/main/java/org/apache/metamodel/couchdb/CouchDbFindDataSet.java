@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.couchdb;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.metamodel.data.AbstractDataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.SelectItem;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * DataSet implementation which reads the result of a CouchDB "_find" query,
+ * requesting the following pages using the bookmark of the previous page.
+ */
+final class CouchDbFindDataSet extends AbstractDataSet {
+
+    private final Function<String, JsonNode> _pageFetcher;
+    private final int _pageSize;
+    private int _remainingRows;
+    private JsonNode _page;
+    private Iterator<JsonNode> _docs;
+    private Row _row;
+
+    /**
+     * Creates the DataSet.
+     *
+     * @param selectItems
+     *            the select items of the DataSet
+     * @param firstPage
+     *            the response to the first request
+     * @param pageFetcher
+     *            a function which fetches the page of a bookmark
+     * @param pageSize
+     *            the number of documents requested per page
+     * @param maxRows
+     *            the maximum number of rows to read, or a negative number for
+     *            all rows
+     */
+    public CouchDbFindDataSet(List<SelectItem> selectItems, JsonNode firstPage,
+            Function<String, JsonNode> pageFetcher, int pageSize, int maxRows) {
+        super(selectItems);
+        _pageFetcher = pageFetcher;
+        _pageSize = pageSize;
+        _remainingRows = maxRows < 0 ? Integer.MAX_VALUE : maxRows;
+        _page = firstPage;
+        _docs = firstPage.path("docs").elements();
+    }
+
+    @Override
+    public boolean next() {
+        if (_remainingRows <= 0) {
+            _row = null;
+            return false;
+        }
+        if (!_docs.hasNext()) {
+            final JsonNode bookmark = _page.get("bookmark");
+            if (_page.path("docs").size() < _pageSize || bookmark == null || !bookmark.isTextual()) {
+                // the last page did not fill up, so there are no more documents
+                _row = null;
+                return false;
+            }
+            _page = _pageFetcher.apply(bookmark.asText());
+            _docs = _page.path("docs").elements();
+            if (!_docs.hasNext()) {
+                _row = null;
+                return false;
+            }
+        }
+
+        _remainingRows--;
+        _row = CouchDbUtils.jsonNodeToMetaModelRow(_docs.next(), getHeader());
+        return true;
+    }
+
+    @Override
+    public Row getRow() {
+        return _row;
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.couchdb;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.util.BooleanComparator;
+import org.apache.metamodel.util.CollectionUtils;
+import org.apache.metamodel.util.NumberComparator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A CouchDB "_find" (Mango) query, translated from the WHERE and ORDER BY
+ * clauses of a MetaModel query.
+ *
+ * Only filter items whose Mango semantics match those of MetaModel are
+ * translated. The rest are exposed as post-processing filter items, which have
+ * to be evaluated on the returned documents.
+ */
+final class CouchDbFindQuery {
+
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    private final ObjectNode _selector;
+    private final List<FilterItem> _postProcessWhereItems;
+    private final Set<Column> _nonNullColumns;
+    private ArrayNode _sort;
+
+    public CouchDbFindQuery(List<FilterItem> whereItems) {
+        _postProcessWhereItems = new ArrayList<>();
+        _nonNullColumns = new HashSet<>();
+
+        final ArrayNode conditions = FACTORY.arrayNode();
+        for (FilterItem whereItem : whereItems) {
+            final JsonNode condition = createCondition(whereItem);
+            if (condition == null) {
+                _postProcessWhereItems.add(whereItem);
+            } else {
+                conditions.add(condition);
+                if (!whereItem.isCompoundFilter()) {
+                    _nonNullColumns.add(whereItem.getSelectItem().getColumn());
+                }
+            }
+        }
+
+        if (conditions.size() == 1) {
+            _selector = (ObjectNode) conditions.get(0);
+        } else {
+            _selector = FACTORY.objectNode();
+            if (conditions.size() > 1) {
+                _selector.set("$and", conditions);
+            }
+        }
+    }
+
+    /**
+     * Determines if any of the filter items were translated into the selector.
+     */
+    public boolean hasSelector() {
+        return _selector.size() > 0;
+    }
+
+    /**
+     * Gets the filter items that were not translated into the selector.
+     */
+    public List<FilterItem> getPostProcessWhereItems() {
+        return _postProcessWhereItems;
+    }
+
+    public boolean isFullyPushedDown() {
+        return _postProcessWhereItems.isEmpty();
+    }
+
+    public boolean hasSort() {
+        return _sort != null;
+    }
+
+    /**
+     * Translates ORDER BY items into the sort of the query. This is only
+     * possible for number and boolean columns (whose collation in CouchDB
+     * matches MetaModel's ordering) which are restricted to non-null values by
+     * the selector, since CouchDB leaves out documents that lack a sort field.
+     * CouchDB furthermore requires a single sort direction.
+     *
+     * @param orderByItems
+     *            the ORDER BY items
+     * @return true if the sort was set, false if the ORDER BY items cannot be
+     *         translated
+     */
+    public boolean setSort(List<OrderByItem> orderByItems) {
+        final ArrayNode sort = FACTORY.arrayNode();
+        OrderByItem.Direction direction = null;
+        for (OrderByItem orderByItem : orderByItems) {
+            final SelectItem selectItem = orderByItem.getSelectItem();
+            if (selectItem.hasFunction() || selectItem.getColumn() == null) {
+                return false;
+            }
+            final Column column = selectItem.getColumn();
+            final ColumnType type = column.getType();
+            if (type == null || !(type.isNumber() || type.isBoolean()) || !_nonNullColumns.contains(column)) {
+                return false;
+            }
+            if (direction != null && direction != orderByItem.getDirection()) {
+                return false;
+            }
+            direction = orderByItem.getDirection();
+            sort.add(FACTORY.objectNode().put(column.getName(), orderByItem.isAscending() ? "asc" : "desc"));
+        }
+        _sort = sort;
+        return true;
+    }
+
+    /**
+     * Creates the request body of the query.
+     *
+     * @param fields
+     *            the fields to return
+     * @param skip
+     *            the number of documents to skip
+     * @param limit
+     *            the maximum number of documents to return
+     * @param bookmark
+     *            the bookmark of the previous page, or null
+     * @return the request body
+     */
+    public ObjectNode toJson(List<String> fields, int skip, int limit, String bookmark) {
+        final ObjectNode json = FACTORY.objectNode();
+        json.set("selector", _selector);
+        final ArrayNode fieldsNode = json.putArray("fields");
+        fields.forEach(fieldsNode::add);
+        if (_sort != null) {
+            json.set("sort", _sort);
+        }
+        json.put("limit", limit);
+        if (skip > 0) {
+            json.put("skip", skip);
+        }
+        if (bookmark != null) {
+            json.put("bookmark", bookmark);
+        }
+        return json;
+    }
+
+    private static JsonNode createCondition(FilterItem filterItem) {
+        if (filterItem.isCompoundFilter()) {
+            final ArrayNode children = FACTORY.arrayNode();
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                final JsonNode condition = createCondition(childItem);
+                if (condition == null) {
+                    return null;
+                }
+                children.add(condition);
+            }
+            final String operator = filterItem.getLogicalOperator() == LogicalOperator.AND ? "$and" : "$or";
+            return FACTORY.objectNode().set(operator, children);
+        }
+
+        final SelectItem selectItem = filterItem.getSelectItem();
+        if (filterItem.getExpression() != null || selectItem == null || selectItem.hasFunction()
+                || selectItem.getColumn() == null || filterItem.getOperand() instanceof SelectItem) {
+            return null;
+        }
+        final Column column = selectItem.getColumn();
+        final ColumnType type = column.getType();
+        final OperatorType operator = filterItem.getOperator();
+        final Object operand = filterItem.getOperand();
+        if (type == null) {
+            return null;
+        }
+
+        final JsonNode value;
+        if (operand == null) {
+            // documents lacking the field count as null in MetaModel, but do
+            // not match a null selector
+            if (operator != OperatorType.DIFFERENT_FROM) {
+                return null;
+            }
+            value = FACTORY.nullNode();
+            return FACTORY.objectNode().set(column.getName(), FACTORY.objectNode().set("$ne", value));
+        }
+
+        final String mangoOperator;
+        if (operator == OperatorType.EQUALS_TO) {
+            mangoOperator = "$eq";
+            value = toJsonValue(type, operand);
+        } else if (operator == OperatorType.IN) {
+            mangoOperator = "$in";
+            final ArrayNode values = FACTORY.arrayNode();
+            for (Object item : CollectionUtils.toList(operand)) {
+                final JsonNode itemValue = toJsonValue(type, item);
+                if (itemValue == null) {
+                    return null;
+                }
+                values.add(itemValue);
+            }
+            value = values;
+        } else if (operator == OperatorType.LIKE && type.isLiteral()) {
+            mangoOperator = "$regex";
+            value = FACTORY.textNode(toRegex(operand.toString()));
+        } else if (type.isNumber() && operator == OperatorType.GREATER_THAN) {
+            // strings are not ranged over, since CouchDB collates them
+            // differently from MetaModel
+            mangoOperator = "$gt";
+            value = toJsonValue(type, operand);
+        } else if (type.isNumber() && operator == OperatorType.GREATER_THAN_OR_EQUAL) {
+            mangoOperator = "$gte";
+            value = toJsonValue(type, operand);
+        } else if (type.isNumber() && operator == OperatorType.LESS_THAN) {
+            mangoOperator = "$lt";
+            value = toJsonValue(type, operand);
+        } else if (type.isNumber() && operator == OperatorType.LESS_THAN_OR_EQUAL) {
+            mangoOperator = "$lte";
+            value = toJsonValue(type, operand);
+        } else {
+            // negations also match documents lacking the field in MetaModel
+            return null;
+        }
+
+        if (value == null) {
+            return null;
+        }
+        return FACTORY.objectNode().set(column.getName(), FACTORY.objectNode().set(mangoOperator, value));
+    }
+
+    /**
+     * Converts an operand to a JSON value of the column's type, since Mango
+     * does not convert between types when comparing.
+     */
+    private static JsonNode toJsonValue(ColumnType type, Object operand) {
+        if (operand == null) {
+            return null;
+        }
+        if (type.isNumber()) {
+            final Number number = NumberComparator.toNumber(operand);
+            if (number == null) {
+                return null;
+            }
+            if (number instanceof Integer || number instanceof Long || number instanceof Short
+                    || number instanceof Byte) {
+                return FACTORY.numberNode(number.longValue());
+            }
+            return FACTORY.numberNode(number.doubleValue());
+        }
+        if (type.isBoolean()) {
+            final Boolean bool = BooleanComparator.toBoolean(operand);
+            return bool == null ? null : FACTORY.booleanNode(bool);
+        }
+        if (type.isLiteral() && operand instanceof String) {
+            return FACTORY.textNode((String) operand);
+        }
+        return null;
+    }
+
+    /**
+     * Converts a LIKE pattern, where only '%' is a wildcard, to an anchored
+     * regular expression.
+     */
+    static String toRegex(String likePattern) {
+        final StringBuilder sb = new StringBuilder("^");
+        for (char c : likePattern.toCharArray()) {
+            if (c == '%') {
+                sb.append("[\\s\\S]*");
+            } else {
+                if ("\\^$.|?*+()[]{}".indexOf(c) != -1) {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+        }
+        return sb.append('$').toString();
+    }
+}
@@ -21,7 +21,6 @@ package org.apache.metamodel.couchdb;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.ektorp.CouchDbConnector;
 import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.insert.AbstractRowInsertionBuilder;
 import org.apache.metamodel.schema.Column;
@@ -48,7 +47,6 @@ final class CouchDbInsertionBuilder extends AbstractRowInsertionBuilder<CouchDbU
             }
         }
 
-        CouchDbConnector connector = getUpdateCallback().getConnector(name);
-        connector.addToBulkBuffer(map);
+        getUpdateCallback().addToBulkBuffer(name, map);
     }
 }
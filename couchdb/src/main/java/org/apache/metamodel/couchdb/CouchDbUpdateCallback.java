@@ -37,6 +37,7 @@ import org.apache.metamodel.insert.RowInsertionBuilder;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.update.RowUpdationBuilder;
+import org.apache.metamodel.util.SystemProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,10 +45,15 @@ final class CouchDbUpdateCallback extends AbstractUpdateCallback implements Clos
 
 	private static final Logger logger = LoggerFactory.getLogger(CouchDbUpdateCallback.class);
 	private final Map<String, CouchDbConnector> _connectors;
+	private final Map<String, Integer> _bulkBufferSizes;
+	private final int _insertBatchSize;
 
 	public CouchDbUpdateCallback(CouchDbDataContext couchDbDataContext) {
 		super(couchDbDataContext);
 		_connectors = new HashMap<String, CouchDbConnector>();
+		_bulkBufferSizes = new HashMap<String, Integer>();
+		_insertBatchSize = SystemProperties.getInt(CouchDbDataContext.SYSTEM_PROPERTY_INSERT_BATCH_SIZE,
+				CouchDbDataContext.DEFAULT_INSERT_BATCH_SIZE);
 	}
 
 	@Override
@@ -105,29 +111,73 @@ final class CouchDbUpdateCallback extends AbstractUpdateCallback implements Clos
 		return new CouchDbRowDeletionBuilder(this, table);
 	}
 
-	@Override
-	public void close() {
+	/**
+	 * Flushes the bulk buffers of all databases.
+	 */
+	protected void flushInserts() {
 		Collection<CouchDbConnector> connectorSet = _connectors.values();
 		for (CouchDbConnector connector : connectorSet) {
-			List<String> errornousResultsDescriptions = new ArrayList<String>();
-			List<DocumentOperationResult> results = connector.flushBulkBuffer();
-			for (DocumentOperationResult result : results) {
-				if (result.isErroneous()) {
-					String id = result.getId();
-					String error = result.getError();
-					String reason = result.getReason();
-					String revision = result.getRevision();
-					logger.error("Error occurred while flushing bulk buffer: {}, id: {}, revision: {}, reason: {}",
-							new Object[] { error, id, revision, reason });
-					errornousResultsDescriptions.add(error);
-				}
-			}
+			flushBulkBuffer(connector);
+		}
+		_bulkBufferSizes.clear();
+	}
 
-			if (!errornousResultsDescriptions.isEmpty()) {
-				throw new MetaModelException(errornousResultsDescriptions.size() + " out of " + results.size()
-						+ " operations in bulk was errornous: " + errornousResultsDescriptions);
+	/**
+	 * Discards any buffered documents which have not been flushed, e.g.
+	 * because the update script failed.
+	 */
+	@Override
+	public void close() {
+		for (CouchDbConnector connector : _connectors.values()) {
+			connector.clearBulkBuffer();
+		}
+		_bulkBufferSizes.clear();
+	}
+
+	/**
+	 * Adds a document to the bulk buffer of a database. The buffer is flushed
+	 * using a single _bulk_docs request when it reaches the configured batch
+	 * size (see {@link CouchDbDataContext#SYSTEM_PROPERTY_INSERT_BATCH_SIZE})
+	 * and when the update script completes.
+	 * 
+	 * @param name
+	 *            the name of the database
+	 * @param document
+	 *            the document to add
+	 */
+	public void addToBulkBuffer(String name, Object document) {
+		final CouchDbConnector connector = getConnector(name);
+		connector.addToBulkBuffer(document);
+
+		final Integer bufferSize = _bulkBufferSizes.get(name);
+		final int newBufferSize = (bufferSize == null ? 0 : bufferSize.intValue()) + 1;
+		if (newBufferSize >= _insertBatchSize) {
+			_bulkBufferSizes.remove(name);
+			flushBulkBuffer(connector);
+		} else {
+			_bulkBufferSizes.put(name, newBufferSize);
+		}
+	}
+
+	private void flushBulkBuffer(CouchDbConnector connector) {
+		List<String> errornousResultsDescriptions = new ArrayList<String>();
+		List<DocumentOperationResult> results = connector.flushBulkBuffer();
+		for (DocumentOperationResult result : results) {
+			if (result.isErroneous()) {
+				String id = result.getId();
+				String error = result.getError();
+				String reason = result.getReason();
+				String revision = result.getRevision();
+				logger.error("Error occurred while flushing bulk buffer: {}, id: {}, revision: {}, reason: {}",
+						new Object[] { error, id, revision, reason });
+				errornousResultsDescriptions.add(error);
 			}
 		}
+
+		if (!errornousResultsDescriptions.isEmpty()) {
+			throw new MetaModelException(errornousResultsDescriptions.size() + " out of " + results.size()
+					+ " operations in bulk was errornous: " + errornousResultsDescriptions);
+		}
 	}
 
 	public CouchDbConnector getConnector(String name) {
@@ -24,6 +24,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -43,13 +45,20 @@ import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.SimpleTableDef;
 import org.ektorp.CouchDbConnector;
+import org.ektorp.CouchDbInstance;
 import org.ektorp.http.HttpClient;
+import org.ektorp.http.HttpResponse;
 import org.ektorp.http.StdHttpClient;
 import org.ektorp.impl.StdCouchDbInstance;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 public class CouchDbDataContextTest extends CouchDbTestSupport {
 
     private HttpClient httpClient;
@@ -497,6 +506,111 @@ public class CouchDbDataContextTest extends CouchDbTestSupport {
         }
     }
 
+    @Test
+    public void testFindQueryPaging() throws Exception {
+        System.setProperty(CouchDbDataContext.SYSTEM_PROPERTY_FIND_PAGE_SIZE, "2");
+        try {
+            final List<String> findRequests = new ArrayList<>();
+            final CouchDbDataContext dc = createFindDataContext(findRequests, 5);
+
+            try (DataSet ds = dc.query().from("people").select("name").where("age").gt(0).execute()) {
+                assertEquals("[Row[values=[Person 1]], Row[values=[Person 2]], Row[values=[Person 3]], "
+                        + "Row[values=[Person 4]], Row[values=[Person 5]]]", ds.toRows().toString());
+            }
+            // the last page does not fill up, so no further page is requested
+            assertEquals(Arrays.asList(
+                    "{\"selector\":{\"age\":{\"$gt\":0}},\"fields\":[\"name\"],\"limit\":2}",
+                    "{\"selector\":{\"age\":{\"$gt\":0}},\"fields\":[\"name\"],\"limit\":2,\"bookmark\":\"2\"}",
+                    "{\"selector\":{\"age\":{\"$gt\":0}},\"fields\":[\"name\"],\"limit\":2,\"bookmark\":\"4\"}"),
+                    findRequests);
+
+            findRequests.clear();
+            try (DataSet ds = dc.query().from("people").select("name").where("age").gt(0).firstRow(2).maxRows(3)
+                    .execute()) {
+                assertEquals("[Row[values=[Person 2]], Row[values=[Person 3]], Row[values=[Person 4]]]", ds
+                        .toRows().toString());
+            }
+            assertEquals(Arrays.asList(
+                    "{\"selector\":{\"age\":{\"$gt\":0}},\"fields\":[\"name\"],\"limit\":2,\"skip\":1}",
+                    "{\"selector\":{\"age\":{\"$gt\":0}},\"fields\":[\"name\"],\"limit\":2,\"bookmark\":\"3\"}"),
+                    findRequests);
+        } finally {
+            System.clearProperty(CouchDbDataContext.SYSTEM_PROPERTY_FIND_PAGE_SIZE);
+        }
+    }
+
+    @Test
+    public void testFindCountQuery() throws Exception {
+        System.setProperty(CouchDbDataContext.SYSTEM_PROPERTY_FIND_PAGE_SIZE, "2");
+        try {
+            final List<String> findRequests = new ArrayList<>();
+            final CouchDbDataContext dc = createFindDataContext(findRequests, 4);
+
+            try (DataSet ds = dc.query().from("people").selectCount().where("age").gt(0).execute()) {
+                assertEquals("[Row[values=[4]]]", ds.toRows().toString());
+            }
+            // only the IDs are requested, until a page does not fill up
+            assertEquals(Arrays.asList(
+                    "{\"selector\":{\"age\":{\"$gt\":0}},\"fields\":[\"_id\"],\"limit\":2}",
+                    "{\"selector\":{\"age\":{\"$gt\":0}},\"fields\":[\"_id\"],\"limit\":2,\"bookmark\":\"2\"}",
+                    "{\"selector\":{\"age\":{\"$gt\":0}},\"fields\":[\"_id\"],\"limit\":2,\"bookmark\":\"4\"}"),
+                    findRequests);
+        } finally {
+            System.clearProperty(CouchDbDataContext.SYSTEM_PROPERTY_FIND_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Creates a DataContext for a "people" database, whose "_find" endpoint is
+     * served by a stub. The stub records the requests it receives, ignores
+     * their selector and pages through the given number of documents, using
+     * the offset of the next document as bookmark.
+     */
+    private CouchDbDataContext createFindDataContext(final List<String> findRequests, final int documentCount) {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final HttpClient httpClient = (HttpClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { HttpClient.class }, (proxy, method, args) -> {
+                    assertEquals("post", method.getName());
+                    assertEquals("/people/_find", args[0]);
+                    findRequests.add((String) args[1]);
+
+                    final JsonNode request = objectMapper.readTree((String) args[1]);
+                    final int offset = request.has("bookmark") ? request.get("bookmark").asInt() : request.path(
+                            "skip").asInt();
+                    final int end = Math.min(offset + request.get("limit").asInt(), documentCount);
+                    final ObjectNode response = objectMapper.createObjectNode();
+                    final ArrayNode docs = response.putArray("docs");
+                    for (int i = offset + 1; i <= end; i++) {
+                        docs.addObject().put("_id", "person" + i).put("name", "Person " + i).put("age", i);
+                    }
+                    response.put("bookmark", Integer.toString(Math.max(offset, end)));
+                    return createHttpResponse(objectMapper.writeValueAsBytes(response));
+                });
+        final CouchDbInstance couchDbInstance = (CouchDbInstance) Proxy.newProxyInstance(getClass()
+                .getClassLoader(), new Class<?>[] { CouchDbInstance.class }, (proxy, method, args) -> {
+                    assertEquals("getConnection", method.getName());
+                    return httpClient;
+                });
+        return new CouchDbDataContext(couchDbInstance, new SimpleTableDef("people", new String[] { "name", "age" },
+                new ColumnType[] { ColumnType.STRING, ColumnType.INTEGER }));
+    }
+
+    private HttpResponse createHttpResponse(final byte[] content) {
+        return (HttpResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {
+                HttpResponse.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "isSuccessful":
+                        return true;
+                    case "getCode":
+                        return 200;
+                    case "getContent":
+                        return new ByteArrayInputStream(content);
+                    default:
+                        return null;
+                    }
+                });
+    }
+
     // reusable method for a couple of test cases above
     private DataSet executeNestedObjectQuery(String sql) {
      // insert a few records
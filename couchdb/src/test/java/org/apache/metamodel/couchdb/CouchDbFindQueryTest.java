@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.couchdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.OrderByItem.Direction;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.SimpleTableDef;
+import org.junit.Test;
+
+public class CouchDbFindQueryTest {
+
+    private final Table table = new SimpleTableDef("people", new String[] { "name", "age", "active", "address" },
+            new ColumnType[] { ColumnType.STRING, ColumnType.INTEGER, ColumnType.BOOLEAN, ColumnType.MAP }).toTable();
+    private final Column nameColumn = table.getColumnByName("name");
+    private final Column ageColumn = table.getColumnByName("age");
+    private final Column activeColumn = table.getColumnByName("active");
+    private final Column addressColumn = table.getColumnByName("address");
+
+    private FilterItem filter(Column column, OperatorType operator, Object operand) {
+        return new FilterItem(new SelectItem(column), operator, operand);
+    }
+
+    private String toJson(CouchDbFindQuery query) {
+        return query.toJson(Arrays.asList("name", "age"), 0, 100, null).toString();
+    }
+
+    @Test
+    public void testSingleCondition() throws Exception {
+        final CouchDbFindQuery query = new CouchDbFindQuery(Collections.singletonList(filter(ageColumn,
+                OperatorType.GREATER_THAN, "30")));
+        assertTrue(query.isFullyPushedDown());
+        assertEquals("{\"selector\":{\"age\":{\"$gt\":30}},\"fields\":[\"name\",\"age\"],\"limit\":100}", toJson(
+                query));
+    }
+
+    @Test
+    public void testCombinedConditions() throws Exception {
+        final List<FilterItem> whereItems = Arrays.asList(filter(nameColumn, OperatorType.LIKE, "J%n.s"),
+                new FilterItem(LogicalOperator.OR, filter(activeColumn, OperatorType.EQUALS_TO, true), filter(
+                        ageColumn, OperatorType.IN, Arrays.asList(1, 2.5))), filter(nameColumn,
+                                OperatorType.DIFFERENT_FROM, null));
+        final CouchDbFindQuery query = new CouchDbFindQuery(whereItems);
+        assertTrue(query.isFullyPushedDown());
+        assertEquals("{\"selector\":{\"$and\":[{\"name\":{\"$regex\":\"^J[\\\\s\\\\S]*n\\\\.s$\"}},"
+                + "{\"$or\":[{\"active\":{\"$eq\":true}},{\"age\":{\"$in\":[1,2.5]}}]},"
+                + "{\"name\":{\"$ne\":null}}]},\"fields\":[\"name\",\"age\"],\"limit\":100}", toJson(query));
+    }
+
+    @Test
+    public void testUntranslatableConditionsArePostProcessed() throws Exception {
+        final FilterItem stringRange = filter(nameColumn, OperatorType.GREATER_THAN, "M");
+        final FilterItem negation = filter(ageColumn, OperatorType.DIFFERENT_FROM, 30);
+        final FilterItem nullCheck = filter(nameColumn, OperatorType.EQUALS_TO, null);
+        final FilterItem mapCondition = filter(addressColumn, OperatorType.EQUALS_TO, "foo");
+        final FilterItem translatable = filter(ageColumn, OperatorType.LESS_THAN_OR_EQUAL, 30);
+
+        final CouchDbFindQuery query = new CouchDbFindQuery(Arrays.asList(stringRange, negation, nullCheck,
+                mapCondition, translatable));
+        assertFalse(query.isFullyPushedDown());
+        assertTrue(query.hasSelector());
+        assertEquals(Arrays.asList(stringRange, negation, nullCheck, mapCondition), query
+                .getPostProcessWhereItems());
+        assertEquals("{\"age\":{\"$lte\":30}}", query.toJson(Collections.emptyList(), 0, 1, null).get(
+                "selector").toString());
+
+        assertFalse(new CouchDbFindQuery(Collections.singletonList(stringRange)).hasSelector());
+    }
+
+    @Test
+    public void testSort() throws Exception {
+        final CouchDbFindQuery query = new CouchDbFindQuery(Collections.singletonList(filter(ageColumn,
+                OperatorType.GREATER_THAN, 0)));
+
+        // strings collate differently in CouchDB
+        assertFalse(query.setSort(Collections.singletonList(new OrderByItem(new SelectItem(nameColumn)))));
+        // documents without the field would be left out
+        assertFalse(query.setSort(Collections.singletonList(new OrderByItem(new SelectItem(activeColumn)))));
+        assertFalse(query.hasSort());
+
+        assertTrue(query.setSort(Collections.singletonList(new OrderByItem(new SelectItem(ageColumn),
+                Direction.DESC))));
+        assertEquals("{\"selector\":{\"age\":{\"$gt\":0}},\"fields\":[\"name\",\"age\"],\"sort\":[{\"age\":"
+                + "\"desc\"}],\"limit\":10,\"skip\":20,\"bookmark\":\"g1AAAA\"}", query.toJson(Arrays.asList(
+                        "name", "age"), 20, 10, "g1AAAA").toString());
+    }
+}
@@ -24,18 +24,23 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.MetaModelHelper;
 import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.UpdateScript;
 import org.apache.metamodel.UpdateSummary;
 import org.apache.metamodel.UpdateableDataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.FirstRowDataSet;
+import org.apache.metamodel.data.MaxRowsDataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.data.SimpleDataSetHeader;
 import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.ColumnType;
@@ -44,7 +49,9 @@ import org.apache.metamodel.schema.MutableSchema;
 import org.apache.metamodel.schema.MutableTable;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.ParallelMergeSupplier;
 import org.apache.metamodel.util.SimpleTableDef;
+import org.apache.metamodel.util.SystemProperties;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
@@ -55,10 +62,11 @@ import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
 import com.amazonaws.services.dynamodbv2.model.GetItemResult;
 import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
 import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
 import com.amazonaws.services.dynamodbv2.model.ListTablesResult;
 import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
-import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
 
 /**
@@ -78,6 +86,20 @@ public class DynamoDbDataContext extends QueryPostprocessDataContext implements
      */
     public static final String SYSTEM_PROPERTY_THROUGHPUT_WRITE_CAPACITY = "metamodel.dynamodb.throughput.capacity.write";
 
+    /**
+     * System property key used for getting the number of inserted items that
+     * are buffered per table before they are written using BatchWriteItem
+     * requests (of at most 25 items each). Defaults to 100.
+     */
+    public static final String SYSTEM_PROPERTY_INSERT_BATCH_SIZE = "metamodel.dynamodb.insert.batch.size";
+
+    /**
+     * System property key used for getting the number of segments (and thus
+     * parallel workers) to use when scanning tables without a row limit.
+     * Defaults to 1, i.e. a sequential scan.
+     */
+    public static final String SYSTEM_PROPERTY_SCAN_SEGMENTS = "metamodel.dynamodb.scan.segments";
+
     /**
      * The artificial schema name used by this DataContext.
      */
@@ -86,6 +108,7 @@ public class DynamoDbDataContext extends QueryPostprocessDataContext implements
     private final AmazonDynamoDB _dynamoDb;
     private final boolean _shutdownOnClose;
     private final SimpleTableDef[] _tableDefs;
+    private final Map<String, List<KeySchemaElement>> _keySchemas;
 
     public DynamoDbDataContext() {
         this(AmazonDynamoDBClientBuilder.defaultClient(), null, true);
@@ -107,6 +130,7 @@ public class DynamoDbDataContext extends QueryPostprocessDataContext implements
         super(false);
         _dynamoDb = client;
         _tableDefs = (tableDefs == null ? new SimpleTableDef[0] : tableDefs);
+        _keySchemas = new ConcurrentHashMap<>();
         _shutdownOnClose = shutdownOnClose;
     }
 
@@ -128,6 +152,7 @@ public class DynamoDbDataContext extends QueryPostprocessDataContext implements
             tableDefs.put(tableDef.getName(), tableDef);
         }
 
+        _keySchemas.clear();
         final MutableSchema schema = new MutableSchema(getMainSchemaName());
         final ListTablesResult tables = _dynamoDb.listTables();
         final List<String> tableNames = tables.getTableNames();
@@ -139,6 +164,7 @@ public class DynamoDbDataContext extends QueryPostprocessDataContext implements
             final TableDescription tableDescription = describeTableResult.getTable();
 
             // add primary keys
+            _keySchemas.put(tableName, tableDescription.getKeySchema());
             addColumnFromKeySchema("Primary index", tableDescription.getKeySchema(), table, true);
 
             // add attributes from global and local indices
@@ -260,14 +286,182 @@ public class DynamoDbDataContext extends QueryPostprocessDataContext implements
 
     @Override
     protected DataSet materializeMainSchemaTable(Table table, List<Column> columns, int maxRows) {
-        final List<String> attributeNames = columns.stream().map(col-> col.getName()).collect(Collectors.toList());
+        return materializeMainSchemaTable(table, columns, Collections.emptyList(), maxRows);
+    }
+
+    @Override
+    protected DataSet materializeMainSchemaTable(Table table, List<SelectItem> selectItems, List<FilterItem> whereItems,
+            int firstRow, int maxRows) {
+        final List<Column> whereColumns = DynamoDbExpressionBuilder.getColumns(whereItems);
+        if (whereColumns == null || selectItems.stream().anyMatch(selectItem -> selectItem.getColumn() == null)) {
+            return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
+        }
+
+        final List<FilterItem> pushedDownWhereItems = new ArrayList<>();
+        final List<FilterItem> postProcessWhereItems = new ArrayList<>();
+        DynamoDbExpressionBuilder.split(whereItems, pushedDownWhereItems, postProcessWhereItems);
+
+        final List<Column> columns = new ArrayList<>();
+        for (SelectItem selectItem : selectItems) {
+            if (!columns.contains(selectItem.getColumn())) {
+                columns.add(selectItem.getColumn());
+            }
+        }
+        for (Column column : whereColumns) {
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+
+        DataSet dataSet;
+        if (postProcessWhereItems.isEmpty()) {
+            final int rowsToMaterialize = maxRows > 0 ? maxRows + firstRow - 1 : -1;
+            dataSet = materializeMainSchemaTable(table, columns, pushedDownWhereItems, rowsToMaterialize);
+            if (firstRow > 1) {
+                dataSet = new FirstRowDataSet(dataSet, firstRow);
+            }
+        } else {
+            dataSet = materializeMainSchemaTable(table, columns, pushedDownWhereItems, -1);
+            dataSet = MetaModelHelper.getFiltered(dataSet, postProcessWhereItems);
+            dataSet = MetaModelHelper.getPaged(dataSet, firstRow, maxRows);
+        }
+        return MetaModelHelper.getSelection(selectItems, dataSet);
+    }
+
+    /**
+     * Materializes a table using either a Query (if there is an equality
+     * filter on the hash key of the table) or a (possibly parallel) Scan. Each
+     * of the filter items is expected to be supported by
+     * {@link DynamoDbExpressionBuilder#isSupported(FilterItem)}.
+     */
+    private DataSet materializeMainSchemaTable(Table table, List<Column> columns, List<FilterItem> whereItems,
+            int maxRows) {
+        final DynamoDbExpressionBuilder expressionBuilder = new DynamoDbExpressionBuilder();
+        final String projectionExpression = expressionBuilder.toProjectionExpression(columns);
+
+        final FilterItem hashKeyItem = findHashKeyEqualsItem(table, whereItems);
+        if (hashKeyItem != null) {
+            final List<FilterItem> filterItems = new ArrayList<>(whereItems);
+            filterItems.remove(hashKeyItem);
+
+            final QueryRequest queryRequest = new QueryRequest(table.getName());
+            queryRequest.setProjectionExpression(projectionExpression);
+            queryRequest.setKeyConditionExpression(expressionBuilder.toKeyConditionExpression(hashKeyItem
+                    .getSelectItem().getColumn(), hashKeyItem.getOperand()));
+            queryRequest.setFilterExpression(expressionBuilder.toConditionExpression(filterItems));
+            queryRequest.setExpressionAttributeNames(expressionBuilder.getExpressionAttributeNames());
+            queryRequest.setExpressionAttributeValues(expressionBuilder.getExpressionAttributeValues());
+            if (maxRows > 0 && filterItems.isEmpty()) {
+                queryRequest.setLimit(maxRows);
+            }
+            final DynamoDbPageReader pageReader = new DynamoDbPageReader(_dynamoDb, queryRequest);
+            return limit(new DynamoDbDataSet(columns, pageReader::nextPage, null), maxRows);
+        }
+
         final ScanRequest scanRequest = new ScanRequest(table.getName());
-        scanRequest.setAttributesToGet(attributeNames);
-        if (maxRows > 0) {
+        scanRequest.setProjectionExpression(projectionExpression);
+        scanRequest.setFilterExpression(expressionBuilder.toConditionExpression(whereItems));
+        scanRequest.setExpressionAttributeNames(expressionBuilder.getExpressionAttributeNames());
+        scanRequest.setExpressionAttributeValues(expressionBuilder.getExpressionAttributeValues());
+        if (maxRows > 0 && whereItems.isEmpty()) {
+            // the limit is the number of items evaluated (not matched) per
+            // page, so it's only applicable when there's no filter
             scanRequest.setLimit(maxRows);
         }
-        final ScanResult result = _dynamoDb.scan(scanRequest);
-        return new DynamoDbDataSet(columns, result);
+
+        final int totalSegments = getScanSegments();
+        if (totalSegments > 1 && maxRows <= 0) {
+            return scanInParallel(columns, scanRequest, totalSegments);
+        }
+        final DynamoDbPageReader pageReader = new DynamoDbPageReader(_dynamoDb, scanRequest);
+        return limit(new DynamoDbDataSet(columns, pageReader::nextPage, null), maxRows);
+    }
+
+    /**
+     * Runs a parallel scan where each of the segments of the table is scanned
+     * by a separate worker. Pages are merged into a bounded queue, so that
+     * workers are blocked (and stop consuming read capacity) when the consumer
+     * does not keep up.
+     */
+    private DataSet scanInParallel(List<Column> columns, ScanRequest scanRequest, int totalSegments) {
+        final List<ParallelMergeSupplier.Task<List<Map<String, AttributeValue>>>> segments = new ArrayList<>(
+                totalSegments);
+        for (int i = 0; i < totalSegments; i++) {
+            final DynamoDbPageReader pageReader = new DynamoDbPageReader(_dynamoDb, scanRequest.clone()
+                    .withTotalSegments(totalSegments).withSegment(i));
+            segments.add(sink -> {
+                for (List<Map<String, AttributeValue>> page = pageReader.nextPage(); page != null; page = pageReader
+                        .nextPage()) {
+                    if (!page.isEmpty()) {
+                        sink.put(page);
+                    }
+                }
+            });
+        }
+        final ParallelMergeSupplier<List<Map<String, AttributeValue>>> scanner = new ParallelMergeSupplier<>(
+                segments, totalSegments, 2 * totalSegments);
+        return new DynamoDbDataSet(columns, scanner, scanner);
+    }
+
+    private static DataSet limit(DataSet dataSet, int maxRows) {
+        if (maxRows > 0) {
+            return new MaxRowsDataSet(dataSet, maxRows);
+        }
+        return dataSet;
+    }
+
+    /**
+     * Gets the key schema of a table, as it was described when the schema was
+     * built. Tables that were created later are described on first use.
+     */
+    private List<KeySchemaElement> getKeySchema(String tableName) {
+        return _keySchemas.computeIfAbsent(tableName, name -> _dynamoDb.describeTable(name).getTable()
+                .getKeySchema());
+    }
+
+    /**
+     * Forgets the key schema of a table, eg. because it has been dropped.
+     */
+    void removeKeySchema(String tableName) {
+        _keySchemas.remove(tableName);
+    }
+
+    private FilterItem findHashKeyEqualsItem(Table table, List<FilterItem> whereItems) {
+        final List<FilterItem> candidates = whereItems.stream().filter(whereItem -> !whereItem.isCompoundFilter()
+                && whereItem.getOperator() == OperatorType.EQUALS_TO && whereItem.getSelectItem().getColumn()
+                        .isPrimaryKey()).collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        final List<KeySchemaElement> keySchema = getKeySchema(table.getName());
+        final List<String> keyAttributeNames = keySchema.stream().map(KeySchemaElement::getAttributeName).collect(
+                Collectors.toList());
+        final String hashKeyName = keySchema.stream().filter(element -> KeyType.HASH.toString().equals(element
+                .getKeyType())).map(KeySchemaElement::getAttributeName).findFirst().orElse(null);
+
+        for (FilterItem candidate : candidates) {
+            if (candidate.getSelectItem().getColumn().getName().equals(hashKeyName)) {
+                // key attributes cannot be part of the filter expression of a
+                // query
+                final boolean otherKeyItems = whereItems.stream().filter(whereItem -> whereItem != candidate)
+                        .anyMatch(whereItem -> {
+                            final List<Column> whereColumns = DynamoDbExpressionBuilder.getColumns(Collections
+                                    .singletonList(whereItem));
+                            return whereColumns.stream().anyMatch(column -> keyAttributeNames.contains(column
+                                    .getName()));
+                        });
+                if (otherKeyItems) {
+                    return null;
+                }
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static int getScanSegments() {
+        return Math.max(1, SystemProperties.getInt(SYSTEM_PROPERTY_SCAN_SEGMENTS, 1));
     }
 
     @Override
@@ -297,7 +491,10 @@ public class DynamoDbDataContext extends QueryPostprocessDataContext implements
         final DynamoDbUpdateCallback callback = new DynamoDbUpdateCallback(this);
         try {
             update.run(callback);
+            // only write the buffered items if the script completed normally
+            callback.flushInserts();
         } finally {
+            callback.close();
             if (callback.isInterrupted()) {
                 Thread.currentThread().interrupt();
             }
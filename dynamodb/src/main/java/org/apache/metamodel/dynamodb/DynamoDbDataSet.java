@@ -18,9 +18,12 @@
  */
 package org.apache.metamodel.dynamodb;
 
+import java.io.Closeable;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.metamodel.data.AbstractDataSet;
@@ -29,29 +32,63 @@ import org.apache.metamodel.data.DefaultRow;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.util.FileHelper;
 
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.amazonaws.services.dynamodbv2.model.ScanResult;
 
+/**
+ * DataSet implementation for DynamoDB scans and queries. Pages of items are
+ * fetched lazily, one at a time, as the DataSet is iterated.
+ */
 final class DynamoDbDataSet extends AbstractDataSet {
 
-    private final Iterator<Map<String, AttributeValue>> _iterator;
+    private final Supplier<List<Map<String, AttributeValue>>> _pageSupplier;
+    private final Closeable _closeable;
+    private Iterator<Map<String, AttributeValue>> _iterator;
+    private boolean _exhausted;
     private Map<String, AttributeValue> _currentItem;
 
-    public DynamoDbDataSet(List<Column> columns, ScanResult result) {
+    /**
+     * Creates a DynamoDbDataSet.
+     * 
+     * @param columns
+     *            the columns of the DataSet
+     * @param pageSupplier
+     *            a supplier of pages of items, which returns null when there
+     *            are no more pages
+     * @param closeable
+     *            an optional resource to close when the DataSet is closed
+     */
+    public DynamoDbDataSet(List<Column> columns, Supplier<List<Map<String, AttributeValue>>> pageSupplier,
+            Closeable closeable) {
         super(columns.stream().map(SelectItem::new).collect(Collectors.toList()));
-        _iterator = result.getItems().iterator();
+        _pageSupplier = pageSupplier;
+        _closeable = closeable;
+        _iterator = Collections.emptyIterator();
+        _exhausted = false;
     }
 
     @Override
     public boolean next() {
-        final boolean hasNext = _iterator.hasNext();
-        if (hasNext) {
-            _currentItem = _iterator.next();
-            return true;
+        while (!_iterator.hasNext()) {
+            final List<Map<String, AttributeValue>> page = _exhausted ? null : _pageSupplier.get();
+            if (page == null) {
+                _exhausted = true;
+                _currentItem = null;
+                return false;
+            }
+            _iterator = page.iterator();
+        }
+        _currentItem = _iterator.next();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (_closeable != null) {
+            FileHelper.safeClose(_closeable);
         }
-        _currentItem = null;
-        return false;
     }
 
     @Override
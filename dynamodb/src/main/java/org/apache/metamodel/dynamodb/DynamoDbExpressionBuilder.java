@@ -0,0 +1,322 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.dynamodb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.util.CollectionUtils;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * Builds DynamoDB expressions (projection, key condition and filter
+ * expressions) along with their expression attribute names and values.
+ * Attribute names are always referenced using placeholders so that reserved
+ * words and special characters in column names do not need any special
+ * treatment.
+ */
+final class DynamoDbExpressionBuilder {
+
+    /**
+     * The maximum number of operands that DynamoDB allows in an IN comparison.
+     */
+    private static final int MAX_IN_OPERANDS = 100;
+
+    private final Map<String, String> _names;
+    private final Map<String, AttributeValue> _values;
+
+    public DynamoDbExpressionBuilder() {
+        _names = new LinkedHashMap<>();
+        _values = new LinkedHashMap<>();
+    }
+
+    /**
+     * Builds a projection expression of a set of columns.
+     *
+     * @param columns
+     * @return the projection expression, or null if there are no columns
+     */
+    public String toProjectionExpression(Collection<Column> columns) {
+        if (columns.isEmpty()) {
+            return null;
+        }
+        final StringJoiner joiner = new StringJoiner(",");
+        for (Column column : columns) {
+            joiner.add(name(column.getName()));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Builds a key condition expression for an equality on the hash key of a
+     * table.
+     *
+     * @param hashKeyColumn
+     * @param value
+     * @return
+     */
+    public String toKeyConditionExpression(Column hashKeyColumn, Object value) {
+        return name(hashKeyColumn.getName()) + " = " + value(DynamoDbUtils.toAttributeValue(value));
+    }
+
+    /**
+     * Builds a condition expression of a list of (AND'ed) filter items.
+     *
+     * @param filterItems
+     * @return the condition expression, or null if there are no filter items
+     */
+    public String toConditionExpression(List<FilterItem> filterItems) {
+        if (filterItems.isEmpty()) {
+            return null;
+        }
+        final StringJoiner joiner = new StringJoiner(" AND ");
+        for (FilterItem filterItem : filterItems) {
+            joiner.add(toConditionExpression(filterItem));
+        }
+        return joiner.toString();
+    }
+
+    private String toConditionExpression(FilterItem filterItem) {
+        if (filterItem.isCompoundFilter()) {
+            final String logicalOperator = filterItem.getLogicalOperator() == LogicalOperator.AND ? " AND " : " OR ";
+            final StringJoiner joiner = new StringJoiner(logicalOperator, "(", ")");
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                joiner.add(toConditionExpression(childItem));
+            }
+            return joiner.toString();
+        }
+
+        final String name = name(filterItem.getSelectItem().getColumn().getName());
+        final OperatorType operator = filterItem.getOperator();
+        final Object operand = filterItem.getOperand();
+        if (operator == OperatorType.EQUALS_TO) {
+            return name + " = " + value(DynamoDbUtils.toAttributeValue(operand));
+        } else if (operator == OperatorType.GREATER_THAN) {
+            return name + " > " + value(DynamoDbUtils.toAttributeValue(operand));
+        } else if (operator == OperatorType.GREATER_THAN_OR_EQUAL) {
+            return name + " >= " + value(DynamoDbUtils.toAttributeValue(operand));
+        } else if (operator == OperatorType.IN) {
+            final StringJoiner joiner = new StringJoiner(",", name + " IN (", ")");
+            for (Object inValue : CollectionUtils.toList(operand)) {
+                joiner.add(value(DynamoDbUtils.toAttributeValue(inValue)));
+            }
+            return joiner.toString();
+        } else if (operator == OperatorType.LIKE) {
+            final String pattern = (String) operand;
+            if (pattern.startsWith("%")) {
+                return "contains(" + name + ", " + value(DynamoDbUtils.toAttributeValue(pattern.substring(1, pattern
+                        .length() - 1))) + ")";
+            }
+            return "begins_with(" + name + ", " + value(DynamoDbUtils.toAttributeValue(pattern.substring(0, pattern
+                    .length() - 1))) + ")";
+        }
+        throw new IllegalArgumentException("Unsupported filter item: " + filterItem);
+    }
+
+    /**
+     * Gets the expression attribute names that have been used, or null if
+     * none.
+     *
+     * @return
+     */
+    public Map<String, String> getExpressionAttributeNames() {
+        return _names.isEmpty() ? null : _names;
+    }
+
+    /**
+     * Gets the expression attribute values that have been used, or null if
+     * none.
+     *
+     * @return
+     */
+    public Map<String, AttributeValue> getExpressionAttributeValues() {
+        return _values.isEmpty() ? null : _values;
+    }
+
+    private String name(String attributeName) {
+        for (Map.Entry<String, String> entry : _names.entrySet()) {
+            if (entry.getValue().equals(attributeName)) {
+                return entry.getKey();
+            }
+        }
+        final String placeholder = "#a" + _names.size();
+        _names.put(placeholder, attributeName);
+        return placeholder;
+    }
+
+    private String value(AttributeValue attributeValue) {
+        final String placeholder = ":v" + _values.size();
+        _values.put(placeholder, attributeValue);
+        return placeholder;
+    }
+
+    /**
+     * Determines if a filter item can be translated into a DynamoDB condition
+     * expression with the exact same semantics as MetaModel's own evaluation.
+     * Comparisons that involve null values (where MetaModel considers null
+     * to be less than any other value, while DynamoDB never matches missing
+     * attributes) and comparisons where the type of the operand does not
+     * match the type of the column are not supported.
+     *
+     * @param filterItem
+     * @return
+     */
+    public static boolean isSupported(FilterItem filterItem) {
+        if (filterItem.isCompoundFilter()) {
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                if (!isSupported(childItem)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (filterItem.getExpression() != null) {
+            return false;
+        }
+        final SelectItem selectItem = filterItem.getSelectItem();
+        if (selectItem == null || selectItem.getColumn() == null || selectItem.hasFunction() || selectItem
+                .getSubQuerySelectItem() != null) {
+            return false;
+        }
+        final ColumnType columnType = selectItem.getColumn().getType();
+        final OperatorType operator = filterItem.getOperator();
+        final Object operand = filterItem.getOperand();
+        if (operator == OperatorType.EQUALS_TO) {
+            return isMatchingType(columnType, operand);
+        } else if (operator == OperatorType.GREATER_THAN || operator == OperatorType.GREATER_THAN_OR_EQUAL) {
+            // string comparison rules differ slightly between Java and
+            // DynamoDB, so only numbers are compared remotely
+            return operand instanceof Number && isMatchingType(columnType, operand);
+        } else if (operator == OperatorType.IN) {
+            if (operand == null) {
+                return false;
+            }
+            final List<?> inValues = CollectionUtils.toList(operand);
+            if (inValues.isEmpty() || inValues.size() > MAX_IN_OPERANDS) {
+                return false;
+            }
+            for (Object inValue : inValues) {
+                if (!isMatchingType(columnType, inValue)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (operator == OperatorType.LIKE) {
+            if (!(operand instanceof String) || !isMatchingType(columnType, operand)) {
+                return false;
+            }
+            final String pattern = (String) operand;
+            final int wildcardCount = pattern.length() - pattern.replace("%", "").length();
+            if (wildcardCount == 1 && pattern.length() > 1 && pattern.endsWith("%")) {
+                // 'foo%'
+                return true;
+            }
+            if (wildcardCount == 2 && pattern.length() > 2 && pattern.startsWith("%") && pattern.endsWith("%")) {
+                // '%foo%'
+                return true;
+            }
+            return false;
+        }
+        return false;
+    }
+
+    /**
+     * Splits a list of (AND'ed) filter items into the ones that can be pushed
+     * down to DynamoDB and the ones that have to be evaluated client-side.
+     *
+     * @param filterItems
+     * @param supportedItems
+     * @param unsupportedItems
+     */
+    public static void split(List<FilterItem> filterItems, List<FilterItem> supportedItems,
+            List<FilterItem> unsupportedItems) {
+        for (FilterItem filterItem : filterItems) {
+            if (isSupported(filterItem)) {
+                supportedItems.add(filterItem);
+            } else {
+                unsupportedItems.add(filterItem);
+            }
+        }
+    }
+
+    /**
+     * Gets all the columns that a list of filter items refer to, or null if
+     * one or more filter items do not refer to plain columns.
+     *
+     * @param filterItems
+     * @return
+     */
+    public static List<Column> getColumns(List<FilterItem> filterItems) {
+        final List<Column> columns = new ArrayList<>();
+        for (FilterItem filterItem : filterItems) {
+            if (!addColumns(filterItem, columns)) {
+                return null;
+            }
+        }
+        return columns;
+    }
+
+    private static boolean addColumns(FilterItem filterItem, List<Column> columns) {
+        if (filterItem.isCompoundFilter()) {
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                if (!addColumns(childItem, columns)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        final SelectItem selectItem = filterItem.getSelectItem();
+        if (selectItem == null || selectItem.getColumn() == null || selectItem.getSubQuerySelectItem() != null
+                || filterItem.getOperand() instanceof SelectItem) {
+            return false;
+        }
+        if (!columns.contains(selectItem.getColumn())) {
+            columns.add(selectItem.getColumn());
+        }
+        return true;
+    }
+
+    private static boolean isMatchingType(ColumnType columnType, Object value) {
+        if (value == null || columnType == null) {
+            return false;
+        }
+        if (value instanceof Number) {
+            return columnType.isNumber();
+        }
+        if (value instanceof String) {
+            return columnType.isLiteral();
+        }
+        if (value instanceof Boolean) {
+            return columnType.isBoolean();
+        }
+        return false;
+    }
+}
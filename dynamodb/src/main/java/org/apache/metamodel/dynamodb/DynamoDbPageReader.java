@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.dynamodb;
+
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+/**
+ * Reads the pages of a scan or query, one page (of at most 1 MB) at a time,
+ * by following the LastEvaluatedKey of each response.
+ */
+final class DynamoDbPageReader {
+
+    private final AmazonDynamoDB _dynamoDb;
+    private final ScanRequest _scanRequest;
+    private final QueryRequest _queryRequest;
+    private boolean _exhausted;
+
+    public DynamoDbPageReader(AmazonDynamoDB dynamoDb, ScanRequest scanRequest) {
+        _dynamoDb = dynamoDb;
+        _scanRequest = scanRequest;
+        _queryRequest = null;
+        _exhausted = false;
+    }
+
+    public DynamoDbPageReader(AmazonDynamoDB dynamoDb, QueryRequest queryRequest) {
+        _dynamoDb = dynamoDb;
+        _scanRequest = null;
+        _queryRequest = queryRequest;
+        _exhausted = false;
+    }
+
+    /**
+     * Reads the next page of items.
+     *
+     * @return the items of the next page, or null if there are no more pages
+     */
+    public List<Map<String, AttributeValue>> nextPage() {
+        if (_exhausted) {
+            return null;
+        }
+
+        final List<Map<String, AttributeValue>> items;
+        final Map<String, AttributeValue> lastEvaluatedKey;
+        if (_scanRequest != null) {
+            final ScanResult result = _dynamoDb.scan(_scanRequest);
+            items = result.getItems();
+            lastEvaluatedKey = result.getLastEvaluatedKey();
+            _scanRequest.setExclusiveStartKey(lastEvaluatedKey);
+        } else {
+            final QueryResult result = _dynamoDb.query(_queryRequest);
+            items = result.getItems();
+            lastEvaluatedKey = result.getLastEvaluatedKey();
+            _queryRequest.setExclusiveStartKey(lastEvaluatedKey);
+        }
+
+        _exhausted = lastEvaluatedKey == null || lastEvaluatedKey.isEmpty();
+        return items;
+    }
+}
@@ -26,7 +26,6 @@ import org.apache.metamodel.insert.AbstractRowInsertionBuilder;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 
 final class DynamoDbRowInsertionBuilder extends AbstractRowInsertionBuilder<DynamoDbUpdateCallback> {
@@ -51,7 +50,6 @@ final class DynamoDbRowInsertionBuilder extends AbstractRowInsertionBuilder<Dyna
             itemValues.put(column.getName(), attributeValue);
         }
 
-        final AmazonDynamoDB dynamoDb = getUpdateCallback().getDataContext().getDynamoDb();
-        dynamoDb.putItem(getTable().getName(), itemValues);
+        getUpdateCallback().putItem(getTable(), itemValues);
     }
 }
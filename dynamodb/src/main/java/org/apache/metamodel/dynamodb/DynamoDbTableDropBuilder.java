@@ -40,6 +40,7 @@ final class DynamoDbTableDropBuilder extends AbstractTableDropBuilder {
     public void execute() throws MetaModelException {
         final String tableName = getTable().getName();
         final DeleteTableResult result = _dataContext.getDynamoDb().deleteTable(tableName);
+        _dataContext.removeKeySchema(tableName);
         logger.debug("Dropped table {} in request ID: {}", tableName, result.getSdkResponseMetadata().getRequestId());
     }
 
@@ -18,20 +18,67 @@
  */
 package org.apache.metamodel.dynamodb;
 
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.metamodel.AbstractUpdateCallback;
+import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.create.TableCreationBuilder;
 import org.apache.metamodel.delete.RowDeletionBuilder;
 import org.apache.metamodel.drop.TableDropBuilder;
 import org.apache.metamodel.insert.RowInsertionBuilder;
+import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-final class DynamoDbUpdateCallback extends AbstractUpdateCallback {
-    
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+final class DynamoDbUpdateCallback extends AbstractUpdateCallback implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DynamoDbUpdateCallback.class);
+
+    /**
+     * The maximum number of items that DynamoDB accepts in a single
+     * BatchWriteItem request.
+     */
+    private static final int MAX_BATCH_WRITE_ITEMS = 25;
+
+    private static final int DEFAULT_INSERT_BATCH_SIZE = 100;
+
+    private static final int DEFAULT_MAX_RETRIES = 10;
+    private static final long DEFAULT_INITIAL_RETRY_DELAY_MILLIS = 50;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+
+    // buffered items per table, keyed by their primary key so that a later
+    // item with the same key replaces an earlier one, like a single put would
+    private final Map<String, Map<Map<String, AttributeValue>, WriteRequest>> _pendingPuts;
+    private final int _insertBatchSize;
+    private final int _maxRetries;
+    private final long _initialRetryDelayMillis;
     private boolean interrupted = false;
 
     public DynamoDbUpdateCallback(DynamoDbDataContext dataContext) {
+        this(dataContext, DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_RETRY_DELAY_MILLIS);
+    }
+
+    DynamoDbUpdateCallback(DynamoDbDataContext dataContext, int maxRetries, long initialRetryDelayMillis) {
         super(dataContext);
+        _pendingPuts = new LinkedHashMap<>();
+        _insertBatchSize = Math.max(1, SystemProperties.getInt(DynamoDbDataContext.SYSTEM_PROPERTY_INSERT_BATCH_SIZE,
+                DEFAULT_INSERT_BATCH_SIZE));
+        _maxRetries = maxRetries;
+        _initialRetryDelayMillis = initialRetryDelayMillis;
     }
     
     public boolean isInterrupted() {
@@ -50,6 +97,7 @@ final class DynamoDbUpdateCallback extends AbstractUpdateCallback {
     @Override
     public TableCreationBuilder createTable(Schema schema, String name) throws IllegalArgumentException,
             IllegalStateException {
+        flushInserts();
         return new DynamoDbTableCreationBuilder(this, schema, name);
     }
 
@@ -61,6 +109,7 @@ final class DynamoDbUpdateCallback extends AbstractUpdateCallback {
     @Override
     public TableDropBuilder dropTable(Table table) throws IllegalArgumentException, IllegalStateException,
             UnsupportedOperationException {
+        flushInserts();
         return new DynamoDbTableDropBuilder(table, getDataContext());
     }
 
@@ -82,4 +131,108 @@ final class DynamoDbUpdateCallback extends AbstractUpdateCallback {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Adds an item to the buffer of items to put into a table. The buffer is
+     * flushed using BatchWriteItem requests when it reaches the configured
+     * batch size (see
+     * {@link DynamoDbDataContext#SYSTEM_PROPERTY_INSERT_BATCH_SIZE}) and when
+     * the update script has completed. An item replaces a buffered item with
+     * the same primary key, since BatchWriteItem rejects requests with
+     * duplicate keys.
+     * 
+     * @param table
+     * @param item
+     */
+    protected void putItem(Table table, Map<String, AttributeValue> item) {
+        final String tableName = table.getName();
+        Map<Map<String, AttributeValue>, WriteRequest> writeRequests = _pendingPuts.get(tableName);
+        if (writeRequests == null) {
+            writeRequests = new LinkedHashMap<>();
+            _pendingPuts.put(tableName, writeRequests);
+        }
+        writeRequests.put(getKey(table, item), new WriteRequest(new PutRequest(item)));
+        if (writeRequests.size() >= _insertBatchSize) {
+            flushInserts(tableName);
+        }
+    }
+
+    private static Map<String, AttributeValue> getKey(Table table, Map<String, AttributeValue> item) {
+        final List<Column> primaryKeys = table.getPrimaryKeys();
+        if (primaryKeys.isEmpty()) {
+            // the key attributes are unknown, only identical items are merged
+            return item;
+        }
+        final Map<String, AttributeValue> key = new HashMap<>();
+        for (Column primaryKey : primaryKeys) {
+            key.put(primaryKey.getName(), item.get(primaryKey.getName()));
+        }
+        return key;
+    }
+
+    /**
+     * Flushes the buffered items of all tables.
+     */
+    protected void flushInserts() {
+        for (String tableName : new ArrayList<>(_pendingPuts.keySet())) {
+            flushInserts(tableName);
+        }
+    }
+
+    private void flushInserts(String tableName) {
+        final Map<Map<String, AttributeValue>, WriteRequest> pendingPuts = _pendingPuts.remove(tableName);
+        if (pendingPuts == null) {
+            return;
+        }
+        final List<WriteRequest> writeRequests = new ArrayList<>(pendingPuts.values());
+        for (int i = 0; i < writeRequests.size(); i += MAX_BATCH_WRITE_ITEMS) {
+            final List<WriteRequest> chunk = writeRequests.subList(i, Math.min(i + MAX_BATCH_WRITE_ITEMS,
+                    writeRequests.size()));
+            batchWrite(tableName, chunk);
+        }
+    }
+
+    private void batchWrite(String tableName, List<WriteRequest> writeRequests) {
+        final AmazonDynamoDB dynamoDb = getDataContext().getDynamoDb();
+
+        Map<String, List<WriteRequest>> requestItems = new HashMap<>();
+        requestItems.put(tableName, new ArrayList<>(writeRequests));
+
+        long retryDelay = _initialRetryDelayMillis;
+        for (int retries = 0;; retries++) {
+            final BatchWriteItemResult result = dynamoDb.batchWriteItem(requestItems);
+            final Map<String, List<WriteRequest>> unprocessedItems = result.getUnprocessedItems();
+            if (unprocessedItems == null || unprocessedItems.isEmpty()) {
+                return;
+            }
+
+            final List<WriteRequest> unprocessedTableItems = unprocessedItems.get(tableName);
+            final int unprocessedCount = unprocessedTableItems == null ? 0 : unprocessedTableItems.size();
+            if (retries >= _maxRetries) {
+                throw new MetaModelException("Failed to write " + unprocessedCount + " items to table '"
+                        + tableName + "', they were still unprocessed after " + retries + " retries");
+            }
+
+            // throttled: back off exponentially and retry the remaining items
+            logger.debug("{} items of batch write to {} were unprocessed, retrying in {} ms", unprocessedCount,
+                    tableName, retryDelay);
+            try {
+                Thread.sleep(retryDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MetaModelException("Interrupted while retrying batch write to table '" + tableName
+                        + "'", e);
+            }
+            retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            requestItems = unprocessedItems;
+        }
+    }
+
+    /**
+     * Discards any buffered items which have not been flushed, e.g. because
+     * the update script failed.
+     */
+    @Override
+    public void close() {
+        _pendingPuts.clear();
+    }
 }
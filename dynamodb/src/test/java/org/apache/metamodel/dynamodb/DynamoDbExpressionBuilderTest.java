@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.dynamodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+
+public class DynamoDbExpressionBuilderTest extends TestCase {
+
+    private final MutableTable table = new MutableTable("tbl");
+    private final MutableColumn nameColumn = new MutableColumn("name", ColumnType.STRING, table, 0, true);
+    private final MutableColumn sizeColumn = new MutableColumn("size", ColumnType.NUMBER, table, 1, true);
+    private final MutableColumn untypedColumn = new MutableColumn("foo", null, table, 2, true);
+
+    public void testIsSupported() throws Exception {
+        assertTrue(DynamoDbExpressionBuilder.isSupported(filter(nameColumn, OperatorType.EQUALS_TO, "bar")));
+        assertTrue(DynamoDbExpressionBuilder.isSupported(filter(sizeColumn, OperatorType.GREATER_THAN, 10)));
+        assertTrue(DynamoDbExpressionBuilder.isSupported(filter(nameColumn, OperatorType.LIKE, "ba%")));
+        assertTrue(DynamoDbExpressionBuilder.isSupported(filter(nameColumn, OperatorType.LIKE, "%ba%")));
+        assertTrue(DynamoDbExpressionBuilder.isSupported(filter(sizeColumn, OperatorType.IN, Arrays.asList(1, 2))));
+
+        // null semantics differ
+        assertFalse(DynamoDbExpressionBuilder.isSupported(filter(nameColumn, OperatorType.EQUALS_TO, null)));
+        assertFalse(DynamoDbExpressionBuilder.isSupported(filter(sizeColumn, OperatorType.LESS_THAN, 10)));
+        assertFalse(DynamoDbExpressionBuilder.isSupported(filter(nameColumn, OperatorType.DIFFERENT_FROM, "bar")));
+
+        // type mismatches and unknown types
+        assertFalse(DynamoDbExpressionBuilder.isSupported(filter(sizeColumn, OperatorType.EQUALS_TO, "10")));
+        assertFalse(DynamoDbExpressionBuilder.isSupported(filter(untypedColumn, OperatorType.EQUALS_TO, "bar")));
+        assertFalse(DynamoDbExpressionBuilder.isSupported(filter(nameColumn, OperatorType.GREATER_THAN, "bar")));
+
+        // wildcards in the middle of patterns
+        assertFalse(DynamoDbExpressionBuilder.isSupported(filter(nameColumn, OperatorType.LIKE, "b%r")));
+        assertFalse(DynamoDbExpressionBuilder.isSupported(filter(nameColumn, OperatorType.LIKE, "%bar")));
+    }
+
+    public void testToConditionExpression() throws Exception {
+        final List<FilterItem> whereItems = new ArrayList<>();
+        whereItems.add(filter(nameColumn, OperatorType.LIKE, "ba%"));
+        whereItems.add(new FilterItem(LogicalOperator.OR, filter(sizeColumn, OperatorType.GREATER_THAN_OR_EQUAL, 10),
+                filter(sizeColumn, OperatorType.IN, new Object[] { 1, 2 })));
+        whereItems.add(filter(untypedColumn, OperatorType.EQUALS_TO, "baz"));
+
+        final List<FilterItem> supportedItems = new ArrayList<>();
+        final List<FilterItem> unsupportedItems = new ArrayList<>();
+        DynamoDbExpressionBuilder.split(whereItems, supportedItems, unsupportedItems);
+        assertEquals(2, supportedItems.size());
+        assertEquals(1, unsupportedItems.size());
+
+        final DynamoDbExpressionBuilder builder = new DynamoDbExpressionBuilder();
+        assertEquals("#a0,#a1", builder.toProjectionExpression(Arrays.asList(nameColumn, sizeColumn)));
+        assertEquals("begins_with(#a0, :v0) AND (#a1 >= :v1 OR #a1 IN (:v2,:v3))", builder.toConditionExpression(
+                supportedItems));
+        assertEquals("{#a0=name, #a1=size}", builder.getExpressionAttributeNames().toString());
+        assertEquals(4, builder.getExpressionAttributeValues().size());
+        assertEquals("ba", builder.getExpressionAttributeValues().get(":v0").getS());
+        assertEquals("10", builder.getExpressionAttributeValues().get(":v1").getN());
+
+        assertEquals(Arrays.asList(nameColumn, sizeColumn, untypedColumn), DynamoDbExpressionBuilder.getColumns(
+                whereItems));
+    }
+
+    public void testEmptyExpressions() throws Exception {
+        final DynamoDbExpressionBuilder builder = new DynamoDbExpressionBuilder();
+        assertNull(builder.toProjectionExpression(new ArrayList<>()));
+        assertNull(builder.toConditionExpression(new ArrayList<>()));
+        assertNull(builder.getExpressionAttributeNames());
+        assertNull(builder.getExpressionAttributeValues());
+    }
+
+    private static FilterItem filter(MutableColumn column, OperatorType operator, Object operand) {
+        return new FilterItem(new SelectItem(column), operator, operand);
+    }
+}
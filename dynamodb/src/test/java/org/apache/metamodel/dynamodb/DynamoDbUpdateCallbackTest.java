@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.dynamodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import junit.framework.TestCase;
+
+public class DynamoDbUpdateCallbackTest extends TestCase {
+
+    private final MutableTable table = new MutableTable("tbl");
+    private AmazonDynamoDB dynamoDb;
+    private DynamoDbDataContext dataContext;
+    private Capture<Map<String, List<WriteRequest>>> requests;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        table.addColumn(new MutableColumn("id", ColumnType.INTEGER, table, 0, false).setPrimaryKey(true));
+        table.addColumn(new MutableColumn("name", ColumnType.STRING, table, 1, true));
+        dynamoDb = EasyMock.createMock(AmazonDynamoDB.class);
+        dataContext = new DynamoDbDataContext(dynamoDb);
+        requests = new Capture<>(CaptureType.ALL);
+    }
+
+    private void expectBatchWrite(BatchWriteItemResult result) {
+        EasyMock.expect(dynamoDb.batchWriteItem(EasyMock.capture(requests))).andReturn(result);
+    }
+
+    private List<Integer> getCapturedBatchSizes() {
+        final List<Integer> sizes = new ArrayList<>();
+        for (Map<String, List<WriteRequest>> request : requests.getValues()) {
+            sizes.add(request.get("tbl").size());
+        }
+        return sizes;
+    }
+
+    private static Map<String, List<WriteRequest>> getRequestItems(List<WriteRequest> writeRequests) {
+        final Map<String, List<WriteRequest>> requestItems = new HashMap<>();
+        requestItems.put("tbl", writeRequests);
+        return requestItems;
+    }
+
+    public void testInsertsAreWrittenInBatchesOf25() throws Exception {
+        expectBatchWrite(new BatchWriteItemResult());
+        expectBatchWrite(new BatchWriteItemResult());
+        EasyMock.replay(dynamoDb);
+
+        dataContext.executeUpdate(callback -> {
+            for (int i = 0; i < 30; i++) {
+                callback.insertInto(table).value("id", i).value("name", "foo").execute();
+            }
+            // replaces the first item instead of failing the batch
+            callback.insertInto(table).value("id", 0).value("name", "bar").execute();
+        });
+
+        EasyMock.verify(dynamoDb);
+        assertEquals("[25, 5]", getCapturedBatchSizes().toString());
+        assertEquals("bar", requests.getValues().get(0).get("tbl").get(0).getPutRequest().getItem().get("name")
+                .getS());
+    }
+
+    public void testUnprocessedItemsAreRetried() throws Exception {
+        final DynamoDbUpdateCallback callback = new DynamoDbUpdateCallback(dataContext, 3, 1);
+        expectBatchWrite(new BatchWriteItemResult().withUnprocessedItems(getRequestItems(Arrays.asList(
+                new WriteRequest(), new WriteRequest()))));
+        expectBatchWrite(new BatchWriteItemResult());
+        EasyMock.replay(dynamoDb);
+
+        for (int i = 0; i < 3; i++) {
+            callback.insertInto(table).value("id", i).execute();
+        }
+        callback.flushInserts();
+
+        EasyMock.verify(dynamoDb);
+        assertEquals("[3, 2]", getCapturedBatchSizes().toString());
+    }
+
+    public void testRetryLimit() throws Exception {
+        final DynamoDbUpdateCallback callback = new DynamoDbUpdateCallback(dataContext, 2, 1);
+        final Map<String, List<WriteRequest>> unprocessed = getRequestItems(Collections.singletonList(
+                new WriteRequest()));
+        expectBatchWrite(new BatchWriteItemResult().withUnprocessedItems(unprocessed));
+        expectBatchWrite(new BatchWriteItemResult().withUnprocessedItems(unprocessed));
+        expectBatchWrite(new BatchWriteItemResult().withUnprocessedItems(unprocessed));
+        EasyMock.replay(dynamoDb);
+
+        callback.insertInto(table).value("id", 1).execute();
+        try {
+            callback.flushInserts();
+            fail("Exception expected");
+        } catch (MetaModelException e) {
+            assertEquals("Failed to write 1 items to table 'tbl', they were still unprocessed after 2 retries", e
+                    .getMessage());
+        }
+        EasyMock.verify(dynamoDb);
+    }
+
+    public void testNoFlushAfterScriptFails() throws Exception {
+        // no batch writes are expected
+        EasyMock.replay(dynamoDb);
+
+        final IllegalStateException failure = new IllegalStateException("script failed");
+        try {
+            dataContext.executeUpdate(callback -> {
+                callback.insertInto(table).value("id", 1).execute();
+                throw failure;
+            });
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        EasyMock.verify(dynamoDb);
+    }
+}
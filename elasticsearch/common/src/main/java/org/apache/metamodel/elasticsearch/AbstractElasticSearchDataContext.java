@@ -27,18 +27,33 @@ import org.apache.metamodel.DataContext;
 import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.UpdateableDataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.elasticsearch.common.ElasticSearchAggregationQuery;
 import org.apache.metamodel.elasticsearch.common.ElasticSearchUtils;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.Query;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.MutableColumn;
 import org.apache.metamodel.schema.MutableSchema;
 import org.apache.metamodel.schema.MutableTable;
 import org.apache.metamodel.schema.Schema;
+import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.SimpleTableDef;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public abstract class AbstractElasticSearchDataContext extends QueryPostprocessDataContext implements DataContext,
         UpdateableDataContext {
 
+    private static final Logger logger = LoggerFactory.getLogger(AbstractElasticSearchDataContext.class);
+
     public static final TimeValue TIMEOUT_SCROLL = TimeValue.timeValueSeconds(60);
 
     protected final String indexName;
@@ -81,6 +96,96 @@ public abstract class AbstractElasticSearchDataContext extends QueryPostprocessD
      */
     protected abstract SimpleTableDef[] detectSchema();
 
+    /**
+     * Executes a search request with the given source on the document type
+     * represented by a table. Used for aggregation queries, see
+     * {@link ElasticSearchAggregationQuery}.
+     *
+     * @param table
+     * @param searchSource
+     * @return
+     */
+    protected abstract SearchResponse executeAggregationSearch(Table table, SearchSourceBuilder searchSource);
+
+    @Override
+    public DataSet executeQuery(final Query query) {
+        if (isAggregationSupported(query)) {
+            final DataSet dataSet = executeAggregationQuery(query);
+            if (dataSet != null) {
+                return dataSet;
+            }
+        }
+        return super.executeQuery(query);
+    }
+
+    /**
+     * Determines if a query can be executed as an ElasticSearch aggregation,
+     * which also requires it to be on a table of the index, and not eg. on the
+     * information schema.
+     */
+    private boolean isAggregationSupported(final Query query) {
+        if (!ElasticSearchAggregationQuery.isSupported(query)) {
+            return false;
+        }
+        final Schema schema = query.getFromClause().getItem(0).getTable().getSchema();
+        return schema != null && getMainSchemaName().equals(schema.getName());
+    }
+
+    /**
+     * Executes a query with GROUP BY and/or aggregate functions as an
+     * ElasticSearch aggregation.
+     *
+     * @return the result of the query, or null if the query should instead be
+     *         aggregated by MetaModel
+     */
+    private DataSet executeAggregationQuery(final Query query) {
+        final Table table = query.getFromClause().getItem(0).getTable();
+        final List<FilterItem> whereItems = query.getWhereClause().getItems();
+        final QueryBuilder queryBuilder;
+        if (whereItems.isEmpty()) {
+            queryBuilder = null;
+        } else {
+            queryBuilder = ElasticSearchUtils.createQueryBuilderForSimpleWhere(whereItems, LogicalOperator.AND);
+            if (queryBuilder == null) {
+                return null;
+            }
+        }
+
+        final ElasticSearchAggregationQuery aggregationQuery = new ElasticSearchAggregationQuery(query,
+                queryBuilder);
+        final SearchResponse firstResponse;
+        try {
+            firstResponse = executeAggregationSearch(table, aggregationQuery.createSearchSource(null));
+        } catch (RuntimeException e) {
+            if (!isRejectedAggregation(e)) {
+                throw e;
+            }
+            logger.warn("ElasticSearch rejected query as an aggregation, falling back to post processing: {}",
+                    e.getMessage());
+            return null;
+        }
+
+        final DataSet dataSet = new ElasticSearchAggregationDataSet(aggregationQuery, firstResponse,
+                searchSource -> executeAggregationSearch(table, searchSource));
+        return aggregationQuery.postProcess(dataSet);
+    }
+
+    /**
+     * Determines if an aggregation search failed because ElasticSearch rejected
+     * the request, typically because a field is not aggregatable (e.g. a text
+     * field) or doesn't support the aggregation (e.g. the average of a keyword
+     * field). Other failures, such as connection errors, are not.
+     */
+    private static boolean isRejectedAggregation(final RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ElasticsearchException
+                    && ((ElasticsearchException) cause).status() == RestStatus.BAD_REQUEST) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     protected Schema getMainSchema() throws MetaModelException {
         final MutableSchema theSchema = new MutableSchema(getMainSchemaName());
@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.elasticsearch;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.metamodel.data.AbstractDataSet;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.elasticsearch.common.ElasticSearchAggregationQuery;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+/**
+ * {@link DataSet} implementation for the rows of an
+ * {@link ElasticSearchAggregationQuery}. Subsequent pages of the aggregation
+ * are requested as the rows of the previous page are consumed.
+ */
+final class ElasticSearchAggregationDataSet extends AbstractDataSet {
+
+    private final ElasticSearchAggregationQuery _aggregationQuery;
+    private final Function<SearchSourceBuilder, SearchResponse> _searcher;
+
+    private List<Row> _rows;
+    private Map<String, Object> _afterKey;
+    private int _rowIndex;
+    private Row _row;
+
+    public ElasticSearchAggregationDataSet(final ElasticSearchAggregationQuery aggregationQuery,
+            final SearchResponse firstResponse, final Function<SearchSourceBuilder, SearchResponse> searcher) {
+        super(aggregationQuery.getOutputSelectItems());
+        _aggregationQuery = aggregationQuery;
+        _searcher = searcher;
+        readResponse(firstResponse);
+    }
+
+    private void readResponse(final SearchResponse response) {
+        _rows = _aggregationQuery.getRows(response);
+        _afterKey = _aggregationQuery.getAfterKey(response);
+        _rowIndex = 0;
+    }
+
+    @Override
+    public boolean next() {
+        while (_rowIndex >= _rows.size()) {
+            if (_afterKey == null) {
+                _row = null;
+                return false;
+            }
+            readResponse(_searcher.apply(_aggregationQuery.createSearchSource(_afterKey)));
+        }
+        _row = _rows.get(_rowIndex);
+        _rowIndex++;
+        return true;
+    }
+
+    @Override
+    public Row getRow() {
+        return _row;
+    }
+}
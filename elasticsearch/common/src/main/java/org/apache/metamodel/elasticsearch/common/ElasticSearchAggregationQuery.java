@@ -0,0 +1,488 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.elasticsearch.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.metamodel.MetaModelHelper;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.AggregateFunction;
+import org.apache.metamodel.query.FromItem;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.OrderByItem.Direction;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.util.CollectionUtils;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.metrics.Stats;
+import org.elasticsearch.search.aggregations.metrics.ValueCount;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Translates a MetaModel {@link Query} with GROUP BY and/or aggregate
+ * functions on a single ElasticSearch document type into an ElasticSearch
+ * aggregation request:
+ *
+ * <ul>
+ * <li>GROUP BY columns become the (terms) sources of a composite aggregation,
+ * which is paged through using its "after key".</li>
+ * <li>COUNT(*) is the document count of each bucket (or the total hit count
+ * if there is no GROUP BY).</li>
+ * <li>COUNT(column) becomes a value count aggregation, and SUM, AVG, MIN and
+ * MAX become a stats aggregation of the column.</li>
+ * </ul>
+ *
+ * ORDER BY items on the grouped columns are applied by ordering the sources
+ * of the composite aggregation. HAVING items and other ORDER BY items are
+ * applied afterwards in {@link #postProcess(DataSet)}.
+ */
+public final class ElasticSearchAggregationQuery {
+
+    public static final String COMPOSITE_AGGREGATION_NAME = "groups";
+
+    private static final List<String> SUPPORTED_AGGREGATE_FUNCTIONS = Arrays.asList("COUNT", "SUM", "AVG", "MIN",
+            "MAX");
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final Query _query;
+    private final QueryBuilder _queryBuilder;
+    private final List<SelectItem> _groupBySelectItems;
+    private final List<SortOrder> _groupBySortOrders;
+    private final List<SelectItem> _aggregateSelectItems;
+    private final List<SelectItem> _outputSelectItems;
+    private final boolean _orderPushedDown;
+
+    /**
+     * Determines if a query can be expressed as an aggregation request. The
+     * query must be on a single table, must have a GROUP BY clause and/or
+     * aggregate functions, and all items of the SELECT, GROUP BY, HAVING and
+     * ORDER BY clauses must be plain (grouped) columns or one of the aggregate
+     * functions COUNT, SUM, AVG, MIN and MAX. SUM and AVG require numeric
+     * columns, and MIN and MAX require numeric or date columns.
+     *
+     * Note that the WHERE clause is not inspected, since it is the
+     * responsibility of the caller to create the query for it.
+     *
+     * @param query
+     * @return
+     */
+    public static boolean isSupported(Query query) {
+        final List<FromItem> fromItems = query.getFromClause().getItems();
+        if (fromItems.size() != 1 || fromItems.get(0).getTable() == null) {
+            return false;
+        }
+        if (query.getSelectClause().isDistinct()) {
+            return false;
+        }
+
+        final List<SelectItem> selectItems = query.getSelectClause().getItems();
+        final List<SelectItem> groupBySelectItems = query.getGroupByClause().getEvaluatedSelectItems();
+        final List<SelectItem> havingSelectItems = query.getHavingClause().getEvaluatedSelectItems();
+        final List<SelectItem> orderBySelectItems = query.getOrderByClause().getEvaluatedSelectItems();
+
+        final List<SelectItem> allSelectItems = CollectionUtils.concat(false, selectItems, groupBySelectItems,
+                havingSelectItems, orderBySelectItems);
+        for (SelectItem selectItem : allSelectItems) {
+            if (!isSupported(selectItem)) {
+                return false;
+            }
+        }
+        for (SelectItem groupBySelectItem : groupBySelectItems) {
+            if (groupBySelectItem.getAggregateFunction() != null) {
+                return false;
+            }
+        }
+
+        final List<SelectItem> aggregateSelectItems = MetaModelHelper.getAggregateFunctionSelectItems(
+                allSelectItems);
+        if (groupBySelectItems.isEmpty()) {
+            if (aggregateSelectItems.isEmpty() || !query.getHavingClause().isEmpty()) {
+                return false;
+            }
+            if (selectItems.size() == 1 && SelectItem.isCountAllItem(selectItems.get(0))) {
+                // a plain COUNT(*) is better served by the native count
+                return false;
+            }
+        }
+
+        // all non-aggregated items must be grouped
+        final List<SelectItem> nonAggregatedSelectItems = CollectionUtils.concat(true, selectItems,
+                havingSelectItems, orderBySelectItems);
+        nonAggregatedSelectItems.removeAll(aggregateSelectItems);
+        for (SelectItem selectItem : nonAggregatedSelectItems) {
+            if (indexOf(groupBySelectItems, selectItem) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSupported(SelectItem selectItem) {
+        if (SelectItem.isCountAllItem(selectItem)) {
+            return true;
+        }
+        if (selectItem.getScalarFunction() != null || selectItem.getSubQuerySelectItem() != null
+                || selectItem.getExpression() != null) {
+            return false;
+        }
+        final Column column = selectItem.getColumn();
+        if (column == null || column.isPrimaryKey() || !isAggregatable(column.getType())) {
+            // document IDs and nested objects are not aggregatable
+            return false;
+        }
+        final AggregateFunction aggregateFunction = selectItem.getAggregateFunction();
+        if (aggregateFunction == null) {
+            return true;
+        }
+        final String functionName = aggregateFunction.getFunctionName();
+        if (!SUPPORTED_AGGREGATE_FUNCTIONS.contains(functionName)) {
+            return false;
+        }
+        switch (functionName) {
+        case "SUM":
+        case "AVG":
+            return column.getType().isNumber();
+        case "MIN":
+        case "MAX":
+            return column.getType().isNumber() || column.getType().isTimeBased();
+        default:
+            return true;
+        }
+    }
+
+    private static boolean isAggregatable(ColumnType columnType) {
+        return columnType != null && (columnType.isLiteral() || columnType.isNumber() || columnType.isTimeBased()
+                || columnType.isBoolean());
+    }
+
+    /**
+     * Creates an aggregation query.
+     *
+     * @param query
+     *            the query to translate. Must be supported, see
+     *            {@link #isSupported(Query)}.
+     * @param queryBuilder
+     *            the query for the WHERE clause of the query, or null to match
+     *            all documents
+     */
+    public ElasticSearchAggregationQuery(Query query, QueryBuilder queryBuilder) {
+        if (!isSupported(query)) {
+            throw new IllegalArgumentException("Query cannot be expressed as an ElasticSearch aggregation: "
+                    + query);
+        }
+        _query = query;
+        _queryBuilder = queryBuilder;
+
+        final List<SelectItem> selectItems = query.getSelectClause().getItems();
+        final List<SelectItem> havingSelectItems = query.getHavingClause().getEvaluatedSelectItems();
+        final List<SelectItem> orderBySelectItems = query.getOrderByClause().getEvaluatedSelectItems();
+
+        _groupBySelectItems = new ArrayList<>();
+        _groupBySortOrders = new ArrayList<>();
+        _orderPushedDown = orderGroupBySelectItems(query.getGroupByClause().getEvaluatedSelectItems(), query
+                .getOrderByClause().getItems());
+
+        _aggregateSelectItems = new ArrayList<>();
+        for (SelectItem selectItem : MetaModelHelper.getAggregateFunctionSelectItems(CollectionUtils.concat(true,
+                selectItems, havingSelectItems, orderBySelectItems))) {
+            if (indexOf(_aggregateSelectItems, selectItem) == -1) {
+                _aggregateSelectItems.add(selectItem);
+            }
+        }
+
+        _outputSelectItems = CollectionUtils.concat(false, _groupBySelectItems, _aggregateSelectItems);
+    }
+
+    /**
+     * Orders the grouped select items so that the order of the composite
+     * aggregation matches the ORDER BY clause, if possible.
+     *
+     * @return whether or not the ORDER BY clause is satisfied by the order of
+     *         the composite aggregation
+     */
+    private boolean orderGroupBySelectItems(List<SelectItem> groupBySelectItems, List<OrderByItem> orderByItems) {
+        boolean orderPushedDown = true;
+        for (OrderByItem orderByItem : orderByItems) {
+            final int index = indexOf(groupBySelectItems, orderByItem.getSelectItem());
+            if (index == -1 || indexOf(_groupBySelectItems, orderByItem.getSelectItem()) != -1) {
+                orderPushedDown = false;
+                break;
+            }
+            _groupBySelectItems.add(groupBySelectItems.get(index));
+            _groupBySortOrders.add(orderByItem.getDirection() == Direction.DESC ? SortOrder.DESC : SortOrder.ASC);
+        }
+        if (!orderPushedDown) {
+            _groupBySelectItems.clear();
+            _groupBySortOrders.clear();
+        }
+        for (SelectItem selectItem : groupBySelectItems) {
+            if (indexOf(_groupBySelectItems, selectItem) == -1) {
+                _groupBySelectItems.add(selectItem);
+                _groupBySortOrders.add(SortOrder.ASC);
+            }
+        }
+        return orderPushedDown;
+    }
+
+    /**
+     * Determines if the query has a GROUP BY clause, in which case the result
+     * is paged through using {@link #createSearchSource(Map)}. Otherwise the
+     * result is a single row.
+     *
+     * @return
+     */
+    public boolean isGrouped() {
+        return !_groupBySelectItems.isEmpty();
+    }
+
+    /**
+     * Creates the search request source for a page of the aggregation.
+     *
+     * @param afterKey
+     *            the after key of the previous page (see
+     *            {@link #getAfterKey(SearchResponse)}), or null for the first
+     *            page
+     * @return
+     */
+    public SearchSourceBuilder createSearchSource(Map<String, Object> afterKey) {
+        final SearchSourceBuilder searchSource = new SearchSourceBuilder();
+        searchSource.size(0);
+        if (_queryBuilder != null) {
+            searchSource.query(_queryBuilder);
+        }
+
+        final List<AggregationBuilder> metricAggregations = new ArrayList<>();
+        for (int i = 0; i < _aggregateSelectItems.size(); i++) {
+            final SelectItem selectItem = _aggregateSelectItems.get(i);
+            if (SelectItem.isCountAllItem(selectItem)) {
+                continue;
+            }
+            final String fieldName = selectItem.getColumn().getName();
+            if ("COUNT".equals(selectItem.getAggregateFunction().getFunctionName())) {
+                metricAggregations.add(AggregationBuilders.count(getMetricName(i)).field(fieldName));
+            } else {
+                metricAggregations.add(AggregationBuilders.stats(getMetricName(i)).field(fieldName));
+            }
+        }
+
+        if (isGrouped()) {
+            final List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>();
+            for (int i = 0; i < _groupBySelectItems.size(); i++) {
+                sources.add(new TermsValuesSourceBuilder(getSourceName(i)).field(_groupBySelectItems.get(i)
+                        .getColumn().getName()).missingBucket(true).order(_groupBySortOrders.get(i)));
+            }
+            final CompositeAggregationBuilder composite = AggregationBuilders.composite(COMPOSITE_AGGREGATION_NAME,
+                    sources).size(PAGE_SIZE);
+            if (afterKey != null) {
+                composite.aggregateAfter(afterKey);
+            }
+            metricAggregations.forEach(composite::subAggregation);
+            searchSource.aggregation(composite);
+        } else {
+            searchSource.trackTotalHits(true);
+            metricAggregations.forEach(searchSource::aggregation);
+        }
+        return searchSource;
+    }
+
+    /**
+     * Gets the rows of a page of the aggregation. The rows have
+     * {@link #getOutputSelectItems()} as header.
+     *
+     * @param response
+     * @return
+     */
+    public List<Row> getRows(SearchResponse response) {
+        final DataSetHeader header = new SimpleDataSetHeader(_outputSelectItems);
+        final Aggregations aggregations = response.getAggregations();
+        if (!isGrouped()) {
+            final long totalHits = response.getHits().getTotalHits().value;
+            return Collections.singletonList(createRow(header, Collections.emptyMap(), totalHits, aggregations));
+        }
+
+        final List<Row> rows = new ArrayList<>();
+        final CompositeAggregation composite = aggregations.get(COMPOSITE_AGGREGATION_NAME);
+        for (CompositeAggregation.Bucket bucket : composite.getBuckets()) {
+            rows.add(createRow(header, bucket.getKey(), bucket.getDocCount(), bucket.getAggregations()));
+        }
+        return rows;
+    }
+
+    /**
+     * Gets the key to continue the aggregation after, or null if there are no
+     * more pages.
+     *
+     * @param response
+     * @return
+     */
+    public Map<String, Object> getAfterKey(SearchResponse response) {
+        if (!isGrouped()) {
+            return null;
+        }
+        final CompositeAggregation composite = response.getAggregations().get(COMPOSITE_AGGREGATION_NAME);
+        if (composite.getBuckets().size() < PAGE_SIZE) {
+            return null;
+        }
+        return composite.afterKey();
+    }
+
+    private Row createRow(DataSetHeader header, Map<String, Object> key, long docCount,
+            Aggregations aggregations) {
+        final Object[] values = new Object[_outputSelectItems.size()];
+        for (int i = 0; i < _groupBySelectItems.size(); i++) {
+            values[i] = toValue(_groupBySelectItems.get(i).getColumn(), key.get(getSourceName(i)));
+        }
+        for (int i = 0; i < _aggregateSelectItems.size(); i++) {
+            final SelectItem selectItem = _aggregateSelectItems.get(i);
+            final Object value;
+            if (SelectItem.isCountAllItem(selectItem)) {
+                value = docCount;
+            } else if ("COUNT".equals(selectItem.getAggregateFunction().getFunctionName())) {
+                final ValueCount valueCount = aggregations.get(getMetricName(i));
+                value = valueCount.getValue();
+            } else {
+                value = getStatsValue(selectItem, aggregations.get(getMetricName(i)));
+            }
+            values[_groupBySelectItems.size() + i] = value;
+        }
+        return new DefaultRow(header, values);
+    }
+
+    /**
+     * Gets the value of a SUM, AVG, MIN or MAX function from a stats
+     * aggregation, using the same result types as MetaModel's own aggregate
+     * functions.
+     */
+    private static Object getStatsValue(SelectItem selectItem, Stats stats) {
+        final String functionName = selectItem.getAggregateFunction().getFunctionName();
+        if ("SUM".equals(functionName)) {
+            return stats.getCount() == 0 ? 0d : stats.getSum();
+        } else if ("AVG".equals(functionName)) {
+            return stats.getCount() == 0 ? 0d : stats.getAvg();
+        }
+        if (stats.getCount() == 0) {
+            return null;
+        }
+        final double value = "MIN".equals(functionName) ? stats.getMin() : stats.getMax();
+        final ColumnType columnType = selectItem.getColumn().getType();
+        if (columnType.isTimeBased()) {
+            return new Date((long) value);
+        }
+        if (columnType == ColumnType.BIGINT || columnType == ColumnType.INTEGER || columnType == ColumnType.SMALLINT
+                || columnType == ColumnType.TINYINT) {
+            return toValue(selectItem.getColumn(), (long) value);
+        }
+        return value;
+    }
+
+    /**
+     * Converts a key of a composite aggregation to the value that would have
+     * been read from the source of a document.
+     */
+    private static Object toValue(Column column, Object key) {
+        if (key == null) {
+            return null;
+        }
+        final ColumnType columnType = column.getType();
+        if (columnType.isTimeBased() && key instanceof Number) {
+            return new Date(((Number) key).longValue());
+        }
+        if (columnType.isBoolean() && key instanceof Number) {
+            return ((Number) key).longValue() != 0;
+        }
+        if (key instanceof Long) {
+            // the JSON parser of document sources returns integers when
+            // possible
+            final long longValue = ((Long) key).longValue();
+            if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+                return (int) longValue;
+            }
+        }
+        return key;
+    }
+
+    private static String getSourceName(int index) {
+        return "g" + index;
+    }
+
+    private static String getMetricName(int index) {
+        return "m" + index;
+    }
+
+    private static int indexOf(List<SelectItem> selectItems, SelectItem selectItem) {
+        for (int i = 0; i < selectItems.size(); i++) {
+            if (selectItems.get(i).equalsIgnoreAlias(selectItem)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the select items of the rows produced by
+     * {@link #getRows(SearchResponse)}.
+     *
+     * @return
+     */
+    public List<SelectItem> getOutputSelectItems() {
+        return _outputSelectItems;
+    }
+
+    /**
+     * Applies the parts of the query that could not be expressed in the
+     * aggregation request to the result of the aggregation.
+     *
+     * @param dataSet
+     *            a {@link DataSet} of the rows produced by the aggregation,
+     *            with {@link #getOutputSelectItems()} as header
+     * @return the final result of the query
+     */
+    public DataSet postProcess(DataSet dataSet) {
+        dataSet = MetaModelHelper.getFiltered(dataSet, _query.getHavingClause().getItems());
+        if (!_orderPushedDown) {
+            dataSet = MetaModelHelper.getOrdered(dataSet, _query.getOrderByClause().getItems());
+        }
+        dataSet = MetaModelHelper.getSelection(_query.getSelectClause().getItems(), dataSet);
+
+        final Integer firstRow = _query.getFirstRow();
+        final Integer maxRows = _query.getMaxRows();
+        return MetaModelHelper.getPaged(dataSet, firstRow == null ? 1 : firstRow, maxRows == null ? -1 : maxRows);
+    }
+}
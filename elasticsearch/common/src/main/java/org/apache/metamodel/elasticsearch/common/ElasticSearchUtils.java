@@ -43,6 +43,7 @@ import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.ExistsQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
 public class ElasticSearchUtils {
 
@@ -287,6 +288,33 @@ public class ElasticSearchUtils {
         return columnType;
     }
 
+    /**
+     * Creates a {@link FetchSourceContext} which only includes the fields of the columns of the select items in the
+     * source of the hits of a search, since fetching the entire source of large documents is wasteful. The source is
+     * not fetched at all if only the document ID is selected.
+     */
+    public static FetchSourceContext createFetchSourceContext(final List<SelectItem> selectItems) {
+        final List<String> includes = new ArrayList<>();
+        for (final SelectItem selectItem : selectItems) {
+            final Column column = selectItem.getColumn();
+            if (column == null) {
+                // can't tell which fields are needed
+                return FetchSourceContext.FETCH_SOURCE;
+            }
+            if (!column.isPrimaryKey() && !includes.contains(column.getName())) {
+                includes.add(column.getName());
+                if (column.getType() == ColumnType.MAP) {
+                    // also include the fields which have dots in their name, see createRow(...)
+                    includes.add(column.getName() + ".*");
+                }
+            }
+        }
+        if (includes.isEmpty()) {
+            return FetchSourceContext.DO_NOT_FETCH_SOURCE;
+        }
+        return new FetchSourceContext(true, includes.toArray(new String[includes.size()]), Strings.EMPTY_ARRAY);
+    }
+
     /**
      * Creates and returns a {@link Row} for the given sourceMap, using the documentId as primary key and the header as
      * definition of which columns are added to the row. 
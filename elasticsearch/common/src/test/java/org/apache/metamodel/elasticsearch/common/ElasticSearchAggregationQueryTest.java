@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.elasticsearch.common;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem.Direction;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import junit.framework.TestCase;
+
+public class ElasticSearchAggregationQueryTest extends TestCase {
+
+    private final MutableTable table = new MutableTable("tweet");
+    private final MutableColumn idColumn = new MutableColumn("_id", ColumnType.STRING, table, 0, true)
+            .setPrimaryKey(true);
+    private final MutableColumn userColumn = new MutableColumn("user", ColumnType.STRING, table, 1, true);
+    private final MutableColumn likesColumn = new MutableColumn("likes", ColumnType.BIGINT, table, 2, true);
+    private final MutableColumn postDateColumn = new MutableColumn("postDate", ColumnType.DATE, table, 3, true);
+    private final MutableColumn mapColumn = new MutableColumn("meta", ColumnType.MAP, table, 4, true);
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        table.addColumn(idColumn).addColumn(userColumn).addColumn(likesColumn).addColumn(postDateColumn)
+                .addColumn(mapColumn);
+    }
+
+    public void testIsSupported() throws Exception {
+        assertTrue(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(userColumn).selectCount()
+                .groupBy(userColumn)));
+        assertTrue(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(FunctionType.SUM,
+                likesColumn).select(FunctionType.MAX, postDateColumn)));
+        assertTrue(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(userColumn).groupBy(
+                userColumn).having(FunctionType.COUNT, userColumn, OperatorType.GREATER_THAN, 2).orderBy(
+                        userColumn)));
+
+        // plain COUNT(*) queries are handled by executeCountQuery(...)
+        assertFalse(ElasticSearchAggregationQuery.isSupported(new Query().from(table).selectCount()));
+        // not aggregated
+        assertFalse(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(userColumn)));
+        // not grouped
+        assertFalse(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(userColumn).select(
+                FunctionType.SUM, likesColumn)));
+        // unsupported functions and column types
+        assertFalse(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(FunctionType.SUM,
+                userColumn)));
+        assertFalse(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(FunctionType.FIRST,
+                likesColumn)));
+        assertFalse(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(idColumn).selectCount()
+                .groupBy(idColumn)));
+        assertFalse(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(mapColumn).selectCount()
+                .groupBy(mapColumn)));
+        assertFalse(ElasticSearchAggregationQuery.isSupported(new Query().from(table).select(userColumn).selectCount()
+                .groupBy(userColumn).selectDistinct()));
+    }
+
+    public void testCreateGroupedSearchSource() throws Exception {
+        final Query query = new Query().from(table).select(userColumn).select(FunctionType.AVG, likesColumn)
+                .select(FunctionType.COUNT, likesColumn).groupBy(userColumn, postDateColumn).orderBy(
+                        postDateColumn, Direction.DESC);
+        final ElasticSearchAggregationQuery aggregationQuery = new ElasticSearchAggregationQuery(query, null);
+
+        assertTrue(aggregationQuery.isGrouped());
+        assertEquals("[tweet.postDate, tweet.user, AVG(tweet.likes), COUNT(tweet.likes)]", aggregationQuery
+                .getOutputSelectItems().toString());
+
+        final String json = aggregationQuery.createSearchSource(Collections.singletonMap("g0", "foo")).toString()
+                .replaceAll("\\s", "");
+        assertTrue(json, json.startsWith("{\"size\":0,"));
+        assertTrue(json, json.contains("\"composite\":{\"size\":1000,\"sources\":[{\"g0\":{\"terms\":{\"field\":"
+                + "\"postDate\",\"missing_bucket\":true,\"order\":\"desc\"}}},{\"g1\":{\"terms\":{\"field\":"
+                + "\"user\",\"missing_bucket\":true,\"order\":\"asc\"}}}],\"after\":{\"g0\":\"foo\"}}"));
+        assertTrue(json, json.contains("\"m0\":{\"stats\":{\"field\":\"likes\"}}"));
+        assertTrue(json, json.contains("\"m1\":{\"value_count\":{\"field\":\"likes\"}}"));
+    }
+
+    public void testCreateGlobalSearchSource() throws Exception {
+        final Query query = new Query().from(table).selectCount().select(FunctionType.MIN, likesColumn).select(
+                FunctionType.MAX, likesColumn);
+        final ElasticSearchAggregationQuery aggregationQuery = new ElasticSearchAggregationQuery(query, null);
+
+        assertFalse(aggregationQuery.isGrouped());
+        final SearchSourceBuilder searchSource = aggregationQuery.createSearchSource(null);
+        final String json = searchSource.toString().replaceAll("\\s", "");
+        assertTrue(json, json.contains("\"track_total_hits\":true"));
+        assertFalse(json, json.contains("composite"));
+        assertEquals(Arrays.asList("m1", "m2"), Arrays.asList(searchSource.aggregations().getAggregatorFactories()
+                .stream().map(aggregation -> aggregation.getName()).sorted().toArray()));
+    }
+}
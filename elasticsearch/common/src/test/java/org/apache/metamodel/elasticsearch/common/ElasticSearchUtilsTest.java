@@ -36,6 +36,7 @@ import org.apache.metamodel.schema.MutableColumn;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
 import junit.framework.TestCase;
 
@@ -130,4 +131,20 @@ public class ElasticSearchUtilsTest extends TestCase {
         assertTrue(((Map<String, Object>)shouldList.get(0)).containsKey("match"));
         assertTrue(((Map<String, Object>)shouldList.get(1)).containsKey("match"));
     }
+
+    public void testCreateFetchSourceContext() {
+        final SelectItem idItem = new SelectItem(new MutableColumn("_id", ColumnType.STRING).setPrimaryKey(true));
+        final SelectItem nameItem = new SelectItem(new MutableColumn("name", ColumnType.STRING));
+        final SelectItem addressItem = new SelectItem(new MutableColumn("address", ColumnType.MAP));
+
+        final FetchSourceContext idOnly = ElasticSearchUtils.createFetchSourceContext(Collections.singletonList(
+                idItem));
+        assertFalse(idOnly.fetchSource());
+
+        final FetchSourceContext fetchSourceContext = ElasticSearchUtils.createFetchSourceContext(Arrays.asList(
+                idItem, nameItem, addressItem, nameItem));
+        assertTrue(fetchSourceContext.fetchSource());
+        assertEquals("[name, address, address.*]", Arrays.toString(fetchSourceContext.includes()));
+        assertEquals(0, fetchSourceContext.excludes().length);
+    }
 }
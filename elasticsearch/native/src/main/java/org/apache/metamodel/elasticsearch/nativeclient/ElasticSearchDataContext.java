@@ -216,6 +216,12 @@ public class ElasticSearchDataContext extends AbstractElasticSearchDataContext {
                 .collect(Collectors.toList()));
     }
 
+    @Override
+    protected SearchResponse executeAggregationSearch(Table table, SearchSourceBuilder searchSource) {
+        return getElasticSearchClient().prepareSearch(indexName).setTypes(table.getName()).setSource(searchSource)
+                .execute().actionGet();
+    }
+
     private SearchRequestBuilder createSearchRequest(Table table, int firstRow, int maxRows, QueryBuilder queryBuilder) {
         final String documentType = table.getName();
         final SearchRequestBuilder searchRequest = getElasticSearchClient().prepareSearch(indexName).setTypes(documentType);
@@ -45,6 +45,7 @@ import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.SimpleTableDef;
+import org.apache.metamodel.util.SystemProperties;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.search.SearchRequest;
@@ -82,8 +83,42 @@ public class ElasticSearchRestDataContext extends AbstractElasticSearchDataConte
 
     private static final Logger logger = LoggerFactory.getLogger(ElasticSearchRestDataContext.class);
 
+    /**
+     * System property key used for getting the number of documents to fetch
+     * per page (or scroll) of search results. Queries that expect more rows
+     * than this are scrolled. Defaults to 400.
+     */
+    public static final String SYSTEM_PROPERTY_PAGE_SIZE = "metamodel.elasticsearch.page.size";
+
+    /**
+     * System property key used for getting the number of slices to scroll in
+     * parallel when reading a whole document type (i.e. a query with no row
+     * limit). The documents of a sliced scroll are not returned in any
+     * particular order. Defaults to 1, i.e. a single scroll.
+     */
+    public static final String SYSTEM_PROPERTY_SCROLL_SLICES = "metamodel.elasticsearch.scroll.slices";
+
+    /**
+     * System property key used for enabling paging with "search_after" instead
+     * of scrolling when reading a whole document type, so that no scroll
+     * context is kept open on the cluster. Only applies if
+     * {@link #SYSTEM_PROPERTY_SEARCH_AFTER_TIEBREAKER} is set as well. Defaults
+     * to false.
+     */
+    public static final String SYSTEM_PROPERTY_SEARCH_AFTER = "metamodel.elasticsearch.search.after";
+
+    /**
+     * System property key used for getting the field which "search_after"
+     * pages are sorted on. It must be a keyword (or numeric) field with doc
+     * values and a unique value per document, such as a copy of the document
+     * ID. Sorting on "_id" would load field data on the cluster, and "_doc" is
+     * only unique within a shard.
+     */
+    public static final String SYSTEM_PROPERTY_SEARCH_AFTER_TIEBREAKER =
+            "metamodel.elasticsearch.search.after.tiebreaker";
+
     // we scroll when more than 400 rows are expected
-    private static final int SCROLL_THRESHOLD = 400;
+    private static final int DEFAULT_PAGE_SIZE = 400;
 
     private final RestHighLevelClient restHighLevelClient;
 
@@ -197,17 +232,64 @@ public class ElasticSearchRestDataContext extends AbstractElasticSearchDataConte
                 LogicalOperator.AND);
         if (queryBuilder != null) {
             // where clause can be pushed down to an ElasticSearch query
-            SearchSourceBuilder searchSourceBuilder = createSearchRequest(firstRow, maxRows, queryBuilder);
-            SearchResponse result = executeSearch(table, searchSourceBuilder, scrollNeeded(maxRows));
-
-            return new ElasticSearchRestDataSet(getRestHighLevelClient(), result, selectItems);
+            return search(table, selectItems, queryBuilder, firstRow, maxRows);
         }
         return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
     }
 
-    private boolean scrollNeeded(int maxRows) {
+    private DataSet search(final Table table, final List<SelectItem> selectItems, final QueryBuilder queryBuilder,
+            final int firstRow, final int maxRows) {
+        final int pageSize = getPageSize();
+        final SearchSourceBuilder searchSourceBuilder = createSearchRequest(firstRow, maxRows, queryBuilder,
+                pageSize);
+        searchSourceBuilder.fetchSource(ElasticSearchUtils.createFetchSourceContext(selectItems));
+
+        if (firstRow <= 1 && !limitMaxRowsIsSet(maxRows)) {
+            final String tiebreakerField = getSearchAfterTiebreakerField();
+            if (tiebreakerField != null) {
+                return new ElasticSearchRestHitDataSet(selectItems, new ElasticSearchRestSearchAfterScanner(
+                        getRestHighLevelClient(), getIndexName(), searchSourceBuilder, tiebreakerField), null);
+            }
+            final int slices = getScrollSlices();
+            if (slices > 1) {
+                final ElasticSearchRestSlicedScanner scanner = new ElasticSearchRestSlicedScanner(
+                        getRestHighLevelClient(), getIndexName(), searchSourceBuilder, slices);
+                return new ElasticSearchRestHitDataSet(selectItems, scanner, scanner);
+            }
+        }
+
+        final SearchResponse result = executeSearch(table, searchSourceBuilder, scrollNeeded(maxRows, pageSize));
+        return new ElasticSearchRestDataSet(getRestHighLevelClient(), result, selectItems);
+    }
+
+    private boolean scrollNeeded(int maxRows, int pageSize) {
         // if either we don't know about max rows or max rows is set higher than threshold
-        return !limitMaxRowsIsSet(maxRows) || maxRows > SCROLL_THRESHOLD;
+        return !limitMaxRowsIsSet(maxRows) || maxRows > pageSize;
+    }
+
+    private static int getPageSize() {
+        return Math.max(1, SystemProperties.getInt(SYSTEM_PROPERTY_PAGE_SIZE, DEFAULT_PAGE_SIZE));
+    }
+
+    private static int getScrollSlices() {
+        return Math.max(1, SystemProperties.getInt(SYSTEM_PROPERTY_SCROLL_SLICES, 1));
+    }
+
+    /**
+     * Gets the field to sort "search_after" pages on, or null if documents
+     * should be scrolled.
+     */
+    private static String getSearchAfterTiebreakerField() {
+        if (!Boolean.parseBoolean(System.getProperty(SYSTEM_PROPERTY_SEARCH_AFTER))) {
+            return null;
+        }
+        final String tiebreakerField = System.getProperty(SYSTEM_PROPERTY_SEARCH_AFTER_TIEBREAKER);
+        if (tiebreakerField == null || tiebreakerField.trim().isEmpty()) {
+            logger.warn("System property '{}' is set, but '{}' is not. Scrolling instead.",
+                    SYSTEM_PROPERTY_SEARCH_AFTER, SYSTEM_PROPERTY_SEARCH_AFTER_TIEBREAKER);
+            return null;
+        }
+        return tiebreakerField.trim();
     }
 
     private SearchResponse executeSearch(final Table table, final SearchSourceBuilder searchSourceBuilder,
@@ -227,15 +309,17 @@ public class ElasticSearchRestDataContext extends AbstractElasticSearchDataConte
     }
 
     @Override
-    protected DataSet materializeMainSchemaTable(Table table, List<Column> columns, int maxRows) {
-        SearchResponse searchResult = executeSearch(table, createSearchRequest(1, maxRows, null), scrollNeeded(
-                maxRows));
+    protected SearchResponse executeAggregationSearch(final Table table, final SearchSourceBuilder searchSource) {
+        return executeSearch(table, searchSource, false);
+    }
 
-        return new ElasticSearchRestDataSet(getRestHighLevelClient(), searchResult, columns.stream()
-                .map(SelectItem::new).collect(Collectors.toList()));
+    @Override
+    protected DataSet materializeMainSchemaTable(Table table, List<Column> columns, int maxRows) {
+        return search(table, columns.stream().map(SelectItem::new).collect(Collectors.toList()), null, 1, maxRows);
     }
 
-    private SearchSourceBuilder createSearchRequest(int firstRow, int maxRows, QueryBuilder queryBuilder) {
+    private SearchSourceBuilder createSearchRequest(int firstRow, int maxRows, QueryBuilder queryBuilder,
+            int pageSize) {
         final SearchSourceBuilder searchRequest = new SearchSourceBuilder();
         if (firstRow > 1) {
             final int zeroBasedFrom = firstRow - 1;
@@ -244,7 +328,7 @@ public class ElasticSearchRestDataContext extends AbstractElasticSearchDataConte
         if (limitMaxRowsIsSet(maxRows)) {
             searchRequest.size(maxRows);
         } else {
-            searchRequest.size(SCROLL_THRESHOLD);
+            searchRequest.size(pageSize);
         }
 
         if (queryBuilder != null) {
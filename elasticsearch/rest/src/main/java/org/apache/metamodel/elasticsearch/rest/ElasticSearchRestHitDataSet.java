@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.elasticsearch.rest;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.data.AbstractDataSet;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.elasticsearch.common.ElasticSearchUtils;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.util.FileHelper;
+import org.elasticsearch.search.SearchHit;
+
+/**
+ * {@link DataSet} implementation which wraps a supplier of {@link SearchHit}s,
+ * such as a {@link ElasticSearchRestSlicedScanner} or a
+ * {@link ElasticSearchRestSearchAfterScanner}.
+ */
+final class ElasticSearchRestHitDataSet extends AbstractDataSet {
+
+    private final Supplier<SearchHit> _hitSupplier;
+    private final Closeable _closeable;
+
+    private SearchHit _currentHit;
+
+    /**
+     * Creates an ElasticSearchRestHitDataSet.
+     *
+     * @param selectItems
+     *            the select items of the DataSet
+     * @param hitSupplier
+     *            a supplier of hits, which returns null when there are no more
+     *            hits
+     * @param closeable
+     *            an optional resource to close when the DataSet is closed
+     */
+    public ElasticSearchRestHitDataSet(final List<SelectItem> selectItems, final Supplier<SearchHit> hitSupplier,
+            final Closeable closeable) {
+        super(selectItems);
+        _hitSupplier = hitSupplier;
+        _closeable = closeable;
+    }
+
+    @Override
+    public boolean next() {
+        _currentHit = _hitSupplier.get();
+        return _currentHit != null;
+    }
+
+    @Override
+    public Row getRow() {
+        if (_currentHit == null) {
+            return null;
+        }
+        return ElasticSearchUtils.createRow(_currentHit.getSourceAsMap(), _currentHit.getId(), getHeader());
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (_closeable != null) {
+            FileHelper.safeClose(_closeable);
+        }
+    }
+}
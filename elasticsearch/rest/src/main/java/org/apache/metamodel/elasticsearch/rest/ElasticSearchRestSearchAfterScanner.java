@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.elasticsearch.rest;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.MetaModelException;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Pages through the hits of a search in the order of a tiebreaker field using
+ * "search_after", i.e. without keeping a scroll context open on the cluster.
+ * Each page is a separate search, so documents which are indexed or deleted
+ * while paging may or may not be returned.
+ */
+final class ElasticSearchRestSearchAfterScanner implements Supplier<SearchHit> {
+
+    private final RestHighLevelClient _client;
+    private final String _indexName;
+    private final SearchSourceBuilder _searchSource;
+
+    private SearchHit[] _hits;
+    private int _hitIndex;
+
+    /**
+     * Creates a search_after scanner.
+     *
+     * @param client
+     *            the client to search with
+     * @param indexName
+     *            the name of the index to search
+     * @param searchSource
+     *            the source of the search, which must not be sorted. Its size
+     *            is used as page size.
+     * @param tiebreakerField
+     *            a field with doc values and a unique value per document, which
+     *            the hits are sorted on
+     */
+    public ElasticSearchRestSearchAfterScanner(final RestHighLevelClient client, final String indexName,
+            final SearchSourceBuilder searchSource, final String tiebreakerField) {
+        _client = client;
+        _indexName = indexName;
+        _searchSource = searchSource.sort(tiebreakerField, SortOrder.ASC);
+    }
+
+    /**
+     * Gets the next hit, or null if there are no more hits.
+     */
+    @Override
+    public SearchHit get() {
+        if (_hits == null) {
+            _hits = search();
+        } else if (_hitIndex == _hits.length) {
+            if (_hits.length < _searchSource.size()) {
+                // the last page was not full, so there are no more hits
+                return null;
+            }
+            _searchSource.searchAfter(_hits[_hits.length - 1].getSortValues());
+            _hits = search();
+            _hitIndex = 0;
+        }
+        if (_hitIndex == _hits.length) {
+            return null;
+        }
+        return _hits[_hitIndex++];
+    }
+
+    private SearchHit[] search() {
+        try {
+            return _client.search(new SearchRequest(new String[] { _indexName }, _searchSource),
+                    RequestOptions.DEFAULT).getHits().getHits();
+        } catch (IOException e) {
+            throw new MetaModelException("Could not execute ElasticSearch query", e);
+        }
+    }
+}
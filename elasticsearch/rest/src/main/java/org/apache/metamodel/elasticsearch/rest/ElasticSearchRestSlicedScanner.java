@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.elasticsearch.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.elasticsearch.AbstractElasticSearchDataContext;
+import org.apache.metamodel.util.ParallelMergeSupplier;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scrolls through the slices of a search (see {@link SliceBuilder})
+ * concurrently, each slice with its own scroll context, and supplies their hits
+ * one at a time (see {@link ParallelMergeSupplier}). The order of the hits is
+ * therefore not defined.
+ */
+final class ElasticSearchRestSlicedScanner implements Supplier<SearchHit>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ElasticSearchRestSlicedScanner.class);
+
+    private final RestHighLevelClient _client;
+    private final ParallelMergeSupplier<SearchHit> _hits;
+
+    /**
+     * Creates and starts a sliced scan.
+     *
+     * @param client
+     *            the client to search with
+     * @param indexName
+     *            the name of the index to search
+     * @param searchSource
+     *            the source of the search. It is copied for each slice.
+     * @param slices
+     *            the number of slices, must be at least 2
+     */
+    public ElasticSearchRestSlicedScanner(final RestHighLevelClient client, final String indexName,
+            final SearchSourceBuilder searchSource, final int slices) {
+        if (slices < 2) {
+            throw new IllegalArgumentException("Number of slices must be at least 2, got " + slices);
+        }
+        _client = client;
+        final List<ParallelMergeSupplier.Task<SearchHit>> scrolls = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            final SearchRequest searchRequest = new SearchRequest(new String[] { indexName }, searchSource
+                    .copyWithNewSlice(new SliceBuilder(i, slices)));
+            searchRequest.scroll(AbstractElasticSearchDataContext.TIMEOUT_SCROLL);
+            scrolls.add(sink -> scroll(searchRequest, sink));
+        }
+        _hits = new ParallelMergeSupplier<>(scrolls, slices, Math.max(1, searchSource.size()) * 2);
+    }
+
+    private void scroll(final SearchRequest searchRequest, final ParallelMergeSupplier.Sink<SearchHit> sink)
+            throws InterruptedException {
+        String scrollId = null;
+        try {
+            SearchResponse response = _client.search(searchRequest, RequestOptions.DEFAULT);
+            scrollId = response.getScrollId();
+            while (response.getHits().getHits().length > 0) {
+                for (final SearchHit hit : response.getHits().getHits()) {
+                    sink.put(hit);
+                }
+                response = _client.scroll(new SearchScrollRequest(scrollId).scroll(
+                        AbstractElasticSearchDataContext.TIMEOUT_SCROLL), RequestOptions.DEFAULT);
+                scrollId = response.getScrollId();
+            }
+        } catch (IOException e) {
+            throw new MetaModelException("Could not scroll ElasticSearch slice", e);
+        } finally {
+            clearScroll(scrollId);
+        }
+    }
+
+    private void clearScroll(final String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        final ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+        clearScrollRequest.addScrollId(scrollId);
+        try {
+            _client.clearScroll(clearScrollRequest, RequestOptions.DEFAULT);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not clear scroll.", e);
+        }
+    }
+
+    /**
+     * Gets the next hit of any of the slices, or null if all of the slices
+     * have been fully scrolled.
+     */
+    @Override
+    public SearchHit get() {
+        return _hits.get();
+    }
+
+    @Override
+    public void close() {
+        _hits.close();
+    }
+}
@@ -18,16 +18,23 @@
  */
 package org.apache.metamodel.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.metamodel.MetaModelException;
@@ -38,7 +45,7 @@ import com.google.common.base.Strings;
  * A {@link Resource} implementation that connects to Apache Hadoop's HDFS
  * distributed file system.
  */
-public class HdfsResource extends AbstractResource implements Serializable {
+public class HdfsResource extends AbstractResource implements RangeReadableResource, Serializable {
 
     private static final long serialVersionUID = 1L;
 
@@ -271,6 +278,61 @@ public class HdfsResource extends AbstractResource implements Serializable {
         }
     }
 
+    @Override
+    public InputStream read(long offset, long length) throws ResourceException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative: " + offset);
+        }
+        final FileSystem fs = getHadoopFileSystem();
+        try {
+            final FileStatus fileStatus = getFileStatus(fs);
+            if (offset >= fileStatus.getLen() || length == 0) {
+                // seeking beyond the end of the file is not allowed
+                FileHelper.safeClose(fs);
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            final FSDataInputStream in = fs.open(fileStatus.getPath());
+            in.seek(offset);
+            // return a wrapper InputStream which manages the 'fs' closeable
+            return new HdfsFileInputStream(new RangeInputStream(in, length), fs);
+        } catch (Exception e) {
+            // we can close 'fs' in case of an exception
+            FileHelper.safeClose(fs);
+            throw wrapException(e);
+        }
+    }
+
+    @Override
+    public List<ResourceBlock> getBlocks() throws ResourceException {
+        final FileSystem fs = getHadoopFileSystem();
+        try {
+            final FileStatus fileStatus = getFileStatus(fs);
+            final BlockLocation[] blockLocations = fs.getFileBlockLocations(fileStatus, 0, fileStatus.getLen());
+            final List<ResourceBlock> blocks = new ArrayList<>(blockLocations.length);
+            for (final BlockLocation blockLocation : blockLocations) {
+                blocks.add(new ResourceBlock(blockLocation.getOffset(), blockLocation.getLength(), Arrays.asList(
+                        blockLocation.getHosts())));
+            }
+            return blocks;
+        } catch (Exception e) {
+            throw wrapException(e);
+        } finally {
+            FileHelper.safeClose(fs);
+        }
+    }
+
+    /**
+     * Gets the status of the resource's file, for operations which are not
+     * applicable to directories.
+     */
+    private FileStatus getFileStatus(FileSystem fs) throws IOException {
+        final FileStatus fileStatus = fs.getFileStatus(getHadoopPath());
+        if (!fileStatus.isFile()) {
+            throw new ResourceException(this, "Not a file: " + getQualifiedPath());
+        }
+        return fileStatus;
+    }
+
     private RuntimeException wrapException(Exception e) {
         if (e instanceof RuntimeException) {
             return (RuntimeException) e;
@@ -40,6 +40,19 @@ public class HBaseConfiguration extends BaseObject implements Serializable {
     public static final int DEFAULT_ZOOKEEPER_SESSION_TIMEOUT = 5000;
     public static final int DEFAULT_ZOOKEEPER_RECOVERY_RETRIES = 1;
 
+    /**
+     * Default scanner caching and batch size. A value of 0 means that HBase's
+     * own defaults are used.
+     */
+    public static final int DEFAULT_SCANNER_CACHING = 0;
+    public static final int DEFAULT_SCANNER_BATCH = 0;
+
+    /**
+     * Default number of parallel region scans. A value of 1 means that tables
+     * are scanned sequentially.
+     */
+    public static final int DEFAULT_SCAN_PARALLELISM = 1;
+
     private final String _schemaName;
     private final int _zookeeperPort;
     private final String _zookeeperHostname;
@@ -48,6 +61,9 @@ public class HBaseConfiguration extends BaseObject implements Serializable {
     private final int _hbaseClientRetries;
     private final int _zookeeperSessionTimeout;
     private final int _zookeeperRecoveryRetries;
+    private final int _scannerCaching;
+    private final int _scannerBatch;
+    private final int _scanParallelism;
 
     /**
      * Creates a {@link HBaseConfiguration} using default values.
@@ -96,6 +112,40 @@ public class HBaseConfiguration extends BaseObject implements Serializable {
     public HBaseConfiguration(String schemaName, String zookeeperHostname, int zookeeperPort,
             SimpleTableDef[] tableDefinitions, ColumnType defaultRowKeyType, int hbaseClientRetries,
             int zookeeperSessionTimeout, int zookeeperRecoveryRetries) {
+        this(schemaName, zookeeperHostname, zookeeperPort, tableDefinitions, defaultRowKeyType, hbaseClientRetries,
+                zookeeperSessionTimeout, zookeeperRecoveryRetries, DEFAULT_SCANNER_CACHING, DEFAULT_SCANNER_BATCH,
+                DEFAULT_SCAN_PARALLELISM);
+    }
+
+    /**
+     * Creates a {@link HBaseConfiguration} using detailed configuration
+     * properties.
+     * 
+     * @param schemaName
+     * @param zookeeperHostname
+     * @param zookeeperPort
+     * @param tableDefinitions
+     * @param defaultRowKeyType
+     * @param hbaseClientRetries
+     * @param zookeeperSessionTimeout
+     * @param zookeeperRecoveryRetries
+     * @param scannerCaching
+     *            the number of rows fetched per RPC when scanning, or 0 to use
+     *            HBase's default
+     * @param scannerBatch
+     *            the maximum number of cells returned per row (wide rows are
+     *            split into several results), or 0 to return whole rows
+     * @param scanParallelism
+     *            the number of regions to scan in parallel when a query has no
+     *            row limit
+     */
+    public HBaseConfiguration(String schemaName, String zookeeperHostname, int zookeeperPort,
+            SimpleTableDef[] tableDefinitions, ColumnType defaultRowKeyType, int hbaseClientRetries,
+            int zookeeperSessionTimeout, int zookeeperRecoveryRetries, int scannerCaching, int scannerBatch,
+            int scanParallelism) {
+        if (scanParallelism < 1) {
+            throw new IllegalArgumentException("Scan parallelism must be at least 1");
+        }
         _schemaName = schemaName;
         _zookeeperHostname = zookeeperHostname;
         _zookeeperPort = zookeeperPort;
@@ -104,6 +154,9 @@ public class HBaseConfiguration extends BaseObject implements Serializable {
         _hbaseClientRetries = hbaseClientRetries;
         _zookeeperSessionTimeout = zookeeperSessionTimeout;
         _zookeeperRecoveryRetries = zookeeperRecoveryRetries;
+        _scannerCaching = scannerCaching;
+        _scannerBatch = scannerBatch;
+        _scanParallelism = scanParallelism;
     }
 
     public String getSchemaName() {
@@ -146,4 +199,16 @@ public class HBaseConfiguration extends BaseObject implements Serializable {
     public int getZookeeperRecoveryRetries() {
         return _zookeeperRecoveryRetries;
     }
+
+    public int getScannerCaching() {
+        return _scannerCaching;
+    }
+
+    public int getScannerBatch() {
+        return _scannerBatch;
+    }
+
+    public int getScanParallelism() {
+        return _scanParallelism;
+    }
 }
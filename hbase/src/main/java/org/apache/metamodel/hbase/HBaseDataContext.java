@@ -19,6 +19,7 @@
 package org.apache.metamodel.hbase;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
@@ -27,14 +28,16 @@ import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Result;
-import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
-import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.MetaModelHelper;
 import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.UpdateScript;
 import org.apache.metamodel.UpdateSummary;
@@ -42,6 +45,8 @@ import org.apache.metamodel.UpdateableDataContext;
 import org.apache.metamodel.annotations.InterfaceStability;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.EmptyDataSet;
+import org.apache.metamodel.data.FirstRowDataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.data.SimpleDataSetHeader;
 import org.apache.metamodel.query.FilterItem;
@@ -61,6 +66,8 @@ public class HBaseDataContext extends QueryPostprocessDataContext implements Upd
 
     public static final String FIELD_ID = "_id";
 
+    private static final int COUNT_SCANNER_CACHING = 10000;
+
     private final HBaseConfiguration _configuration;
     private final Connection _connection;
 
@@ -165,26 +172,33 @@ public class HBaseDataContext extends QueryPostprocessDataContext implements Upd
 
     @Override
     protected Number executeCountQuery(Table table, List<FilterItem> whereItems, boolean functionApproximationAllowed) {
-        if (whereItems != null && !whereItems.isEmpty()) {
+        final List<FilterItem> unsupportedItems = new ArrayList<>();
+        final HBaseRowKeyRange range = whereItems == null ? HBaseRowKeyRange.ALL : HBaseRowKeyRange.of(whereItems,
+                unsupportedItems);
+        if (!unsupportedItems.isEmpty()) {
             return null;
         }
+        if (range.isEmpty()) {
+            return 0;
+        }
+
+        final Scan scan = new Scan();
+        scan.setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+        scan.setCaching(_configuration.getScannerCaching() > 0 ? _configuration.getScannerCaching()
+                : COUNT_SCANNER_CACHING);
+        scan.setCacheBlocks(false);
 
         long result = 0;
-        final org.apache.hadoop.hbase.client.Table hTable = getHTable(table.getName());
+        final HBaseRowScanner scanner = createRowScanner(table, scan, range, -1);
         try {
-            Scan scan = new Scan();
-            scan.setFilter(new FirstKeyOnlyFilter());
-            ResultScanner scanner = hTable.getScanner(scan);
-            try {
-                while (scanner.next() != null) {
-                    result++;
-                }
-            } finally {
-                scanner.close();
+            while (scanner.next() != null) {
+                result++;
             }
             return result;
         } catch (IOException e) {
             throw new MetaModelException(e);
+        } finally {
+            scanner.close();
         }
     }
 
@@ -216,8 +230,76 @@ public class HBaseDataContext extends QueryPostprocessDataContext implements Upd
         }
     }
 
+    @Override
+    protected DataSet materializeMainSchemaTable(Table table, List<SelectItem> selectItems, List<FilterItem> whereItems,
+            int firstRow, int maxRows) {
+        final List<FilterItem> postProcessWhereItems = new ArrayList<>();
+        final HBaseRowKeyRange range = HBaseRowKeyRange.of(whereItems, postProcessWhereItems);
+
+        final List<Column> columns = new ArrayList<>();
+        for (SelectItem selectItem : selectItems) {
+            if (selectItem.getColumn() == null) {
+                return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
+            }
+            if (!columns.contains(selectItem.getColumn())) {
+                columns.add(selectItem.getColumn());
+            }
+        }
+        for (FilterItem whereItem : postProcessWhereItems) {
+            if (!addColumns(whereItem, columns)) {
+                return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
+            }
+        }
+
+        if (range == HBaseRowKeyRange.ALL) {
+            // nothing to push down
+            return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
+        }
+        if (range.isEmpty()) {
+            return new EmptyDataSet(selectItems);
+        }
+
+        DataSet dataSet;
+        if (postProcessWhereItems.isEmpty()) {
+            final int rowsToMaterialize = maxRows > 0 ? maxRows + firstRow - 1 : -1;
+            dataSet = materializeMainSchemaTable(table, columns, range, rowsToMaterialize);
+            if (firstRow > 1) {
+                dataSet = new FirstRowDataSet(dataSet, firstRow);
+            }
+        } else {
+            dataSet = materializeMainSchemaTable(table, columns, range, -1);
+            dataSet = MetaModelHelper.getFiltered(dataSet, postProcessWhereItems);
+            dataSet = MetaModelHelper.getPaged(dataSet, firstRow, maxRows);
+        }
+        return MetaModelHelper.getSelection(selectItems, dataSet);
+    }
+
+    private static boolean addColumns(FilterItem filterItem, List<Column> columns) {
+        if (filterItem.isCompoundFilter()) {
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                if (!addColumns(childItem, columns)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        final SelectItem selectItem = filterItem.getSelectItem();
+        if (selectItem == null || selectItem.getColumn() == null || filterItem.getOperand() instanceof SelectItem) {
+            return false;
+        }
+        if (!columns.contains(selectItem.getColumn())) {
+            columns.add(selectItem.getColumn());
+        }
+        return true;
+    }
+
     @Override
     protected DataSet materializeMainSchemaTable(Table table, List<Column> columns, int maxRows) {
+        return materializeMainSchemaTable(table, columns, HBaseRowKeyRange.ALL, maxRows);
+    }
+
+    private DataSet materializeMainSchemaTable(Table table, List<Column> columns, HBaseRowKeyRange range,
+            int maxRows) {
         final Scan scan = new Scan();
         for (Column column : columns) {
             if (!column.isPrimaryKey()) {
@@ -233,22 +315,66 @@ public class HBaseDataContext extends QueryPostprocessDataContext implements Upd
             }
         }
 
+        if (_configuration.getScannerCaching() > 0) {
+            scan.setCaching(_configuration.getScannerCaching());
+        }
+        if (_configuration.getScannerBatch() > 0) {
+            scan.setBatch(_configuration.getScannerBatch());
+        }
         if (maxRows > 0) {
             setMaxRows(scan, maxRows);
         }
 
-        final org.apache.hadoop.hbase.client.Table hTable = getHTable(table.getName());
+        final HBaseRowScanner scanner = createRowScanner(table, scan, range, maxRows);
+        return new HBaseDataSet(columns, scanner);
+    }
+
+    /**
+     * Creates a {@link HBaseRowScanner} for a scan within a row key range. If
+     * parallel scans are configured (see
+     * {@link HBaseConfiguration#getScanParallelism()}) and there's no row
+     * limit, the range is split by region boundaries and the regions are
+     * scanned in parallel.
+     */
+    private HBaseRowScanner createRowScanner(Table table, Scan scan, HBaseRowKeyRange range, int maxRows) {
+        final TableName tableName = TableName.valueOf(table.getName());
         try {
-            final ResultScanner scanner = hTable.getScanner(scan);
-            return new HBaseDataSet(columns, scanner, hTable);
-        } catch (Exception e) {
-            FileHelper.safeClose(hTable);
+            if (_configuration.getScanParallelism() > 1 && maxRows <= 0) {
+                final byte[][] regionStartKeys;
+                try (RegionLocator regionLocator = _connection.getRegionLocator(tableName)) {
+                    regionStartKeys = regionLocator.getStartKeys();
+                }
+                final List<HBaseRowKeyRange> regionRanges = range.split(regionStartKeys);
+                if (regionRanges.size() > 1) {
+                    final List<Scan> scans = new ArrayList<>(regionRanges.size());
+                    for (HBaseRowKeyRange regionRange : regionRanges) {
+                        final Scan regionScan = new Scan(scan);
+                        regionRange.applyTo(regionScan);
+                        scans.add(regionScan);
+                    }
+                    return new HBaseParallelRowScanner(_connection, tableName, scans, _configuration
+                            .getScanParallelism());
+                }
+            }
+
+            range.applyTo(scan);
+            final org.apache.hadoop.hbase.client.Table hTable = getHTable(table.getName());
+            try {
+                return new HBaseTableRowScanner(hTable, scan);
+            } catch (Exception e) {
+                FileHelper.safeClose(hTable);
+                throw e;
+            }
+        } catch (IOException e) {
             throw new MetaModelException(e);
         }
     }
 
     private void setMaxRows(Scan scan, int maxRows) {
-        scan.setFilter(new PageFilter(maxRows));
+        scan.setLimit(maxRows);
+        if (scan.getCaching() <= 0 || scan.getCaching() > maxRows) {
+            scan.setCaching(maxRows);
+        }
     }
 
     @Override
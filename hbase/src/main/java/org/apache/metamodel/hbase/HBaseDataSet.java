@@ -23,42 +23,26 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.apache.hadoop.hbase.client.Result;
-import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.data.AbstractDataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 final class HBaseDataSet extends AbstractDataSet {
 
-    private static final Logger logger = LoggerFactory.getLogger(HBaseDataSet.class);
-
-    private final ResultScanner _scanner;
-    private final org.apache.hadoop.hbase.client.Table _hTable;
+    private final HBaseRowScanner _scanner;
     private volatile Result _nextResult;
 
-    public HBaseDataSet(List<Column> columns, ResultScanner scanner, org.apache.hadoop.hbase.client.Table hTable) {
+    public HBaseDataSet(List<Column> columns, HBaseRowScanner scanner) {
         super(columns.stream().map(SelectItem::new).collect(Collectors.toList()));
         _scanner = scanner;
-        _hTable = hTable;
     }
 
     @Override
     public void close() {
         super.close();
-        try {
-            _scanner.close();
-        } catch (Exception e) {
-            logger.warn("Failed to close ResultScanner", e);
-        }
-        try {
-            _hTable.close();
-        } catch (Exception e) {
-            logger.warn("Failed to close HTable", e);
-        }
+        _scanner.close();
     }
 
     @Override
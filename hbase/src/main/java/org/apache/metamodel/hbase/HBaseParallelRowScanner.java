@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.hbase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.ParallelMergeSupplier;
+
+/**
+ * {@link HBaseRowScanner} that scans a number of row key ranges (typically one
+ * per region) in parallel, see {@link ParallelMergeSupplier}. The order of the
+ * rows is therefore not the row key order.
+ */
+final class HBaseParallelRowScanner implements HBaseRowScanner {
+
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private final ParallelMergeSupplier<Result> _results;
+
+    public HBaseParallelRowScanner(Connection connection, TableName tableName, List<Scan> scans, int parallelism) {
+        final List<ParallelMergeSupplier.Task<Result>> tasks = new ArrayList<>(scans.size());
+        for (Scan scan : scans) {
+            tasks.add(sink -> {
+                final Table hTable = connection.getTable(tableName);
+                final HBaseRowScanner scanner;
+                try {
+                    scanner = new HBaseTableRowScanner(hTable, scan);
+                } catch (Exception e) {
+                    FileHelper.safeClose(hTable);
+                    throw e;
+                }
+                try {
+                    for (Result result = scanner.next(); result != null; result = scanner.next()) {
+                        sink.put(result);
+                    }
+                } finally {
+                    scanner.close();
+                }
+            });
+        }
+        _results = new ParallelMergeSupplier<>(tasks, parallelism, QUEUE_CAPACITY);
+    }
+
+    @Override
+    public Result next() {
+        return _results.get();
+    }
+
+    @Override
+    public void close() {
+        _results.close();
+    }
+}
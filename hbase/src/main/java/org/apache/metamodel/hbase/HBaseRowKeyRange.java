@@ -0,0 +1,249 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.hbase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+
+/**
+ * Represents a range of row keys to scan, from an inclusive start row to an
+ * exclusive stop row. An empty start or stop row means that the range is
+ * unbounded in that direction, like in HBase's own {@link Scan}.
+ */
+final class HBaseRowKeyRange {
+
+    private static final byte[] UNBOUNDED = new byte[0];
+
+    public static final HBaseRowKeyRange ALL = new HBaseRowKeyRange(UNBOUNDED, UNBOUNDED);
+
+    private final byte[] _startRow;
+    private final byte[] _stopRow;
+
+    public HBaseRowKeyRange(byte[] startRow, byte[] stopRow) {
+        _startRow = startRow == null ? UNBOUNDED : startRow;
+        _stopRow = stopRow == null ? UNBOUNDED : stopRow;
+    }
+
+    public byte[] getStartRow() {
+        return _startRow;
+    }
+
+    public byte[] getStopRow() {
+        return _stopRow;
+    }
+
+    /**
+     * Determines if the range cannot contain any rows.
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return _stopRow.length > 0 && Bytes.compareTo(_startRow, _stopRow) >= 0;
+    }
+
+    /**
+     * Creates the intersection of this range and another range.
+     *
+     * @param other
+     * @return
+     */
+    public HBaseRowKeyRange intersect(HBaseRowKeyRange other) {
+        final byte[] startRow = Bytes.compareTo(_startRow, other._startRow) >= 0 ? _startRow : other._startRow;
+        final byte[] stopRow;
+        if (_stopRow.length == 0) {
+            stopRow = other._stopRow;
+        } else if (other._stopRow.length == 0) {
+            stopRow = _stopRow;
+        } else {
+            stopRow = Bytes.compareTo(_stopRow, other._stopRow) <= 0 ? _stopRow : other._stopRow;
+        }
+        return new HBaseRowKeyRange(startRow, stopRow);
+    }
+
+    /**
+     * Splits this range by region boundaries.
+     *
+     * @param regionStartKeys
+     *            the start keys of the regions of a table, as returned by
+     *            {@link org.apache.hadoop.hbase.client.RegionLocator#getStartKeys()}
+     * @return the non-empty parts of this range within each region
+     */
+    public List<HBaseRowKeyRange> split(byte[][] regionStartKeys) {
+        final byte[][] startKeys = regionStartKeys.clone();
+        Arrays.sort(startKeys, Bytes.BYTES_COMPARATOR);
+
+        final List<HBaseRowKeyRange> result = new ArrayList<>();
+        for (int i = 0; i < startKeys.length; i++) {
+            final byte[] regionStopKey = i + 1 < startKeys.length ? startKeys[i + 1] : UNBOUNDED;
+            final HBaseRowKeyRange part = intersect(new HBaseRowKeyRange(startKeys[i], regionStopKey));
+            if (!part.isEmpty()) {
+                result.add(part);
+            }
+        }
+        if (result.isEmpty() && !isEmpty()) {
+            result.add(this);
+        }
+        return result;
+    }
+
+    /**
+     * Applies the range to a {@link Scan}.
+     *
+     * @param scan
+     */
+    public void applyTo(Scan scan) {
+        if (_startRow.length > 0) {
+            scan.withStartRow(_startRow, true);
+        }
+        if (_stopRow.length > 0) {
+            scan.withStopRow(_stopRow, false);
+        }
+    }
+
+    /**
+     * Determines if a filter item is a condition on the row key that can be
+     * translated into a row key range, see {@link #of(FilterItem)}.
+     *
+     * @param filterItem
+     * @return
+     */
+    public static boolean isSupported(FilterItem filterItem) {
+        if (filterItem.isCompoundFilter() || filterItem.getExpression() != null) {
+            return false;
+        }
+        final SelectItem selectItem = filterItem.getSelectItem();
+        if (selectItem == null || selectItem.hasFunction() || selectItem.getSubQuerySelectItem() != null) {
+            return false;
+        }
+        final Column column = selectItem.getColumn();
+        if (column == null || !HBaseDataContext.FIELD_ID.equals(column.getName())) {
+            return false;
+        }
+        final ColumnType type = column.getType();
+        if (type == null || !(type.isLiteral() || type.isBinary())) {
+            // the byte order of encoded numbers does not match their natural
+            // order (eg. for negative numbers)
+            return false;
+        }
+
+        final Object operand = filterItem.getOperand();
+        if (!(operand instanceof String || operand instanceof byte[])) {
+            return false;
+        }
+        final OperatorType operator = filterItem.getOperator();
+        if (operator == OperatorType.LIKE) {
+            if (!(operand instanceof String)) {
+                return false;
+            }
+            final String pattern = (String) operand;
+            return pattern.length() > 1 && pattern.indexOf('%') == pattern.length() - 1;
+        }
+        return operator == OperatorType.EQUALS_TO || operator == OperatorType.GREATER_THAN
+                || operator == OperatorType.GREATER_THAN_OR_EQUAL || operator == OperatorType.LESS_THAN
+                || operator == OperatorType.LESS_THAN_OR_EQUAL;
+    }
+
+    /**
+     * Creates a row key range from a supported filter item, see
+     * {@link #isSupported(FilterItem)}.
+     *
+     * @param filterItem
+     * @return
+     */
+    public static HBaseRowKeyRange of(FilterItem filterItem) {
+        final OperatorType operator = filterItem.getOperator();
+        final Object operand = filterItem.getOperand();
+        if (operator == OperatorType.LIKE) {
+            final String pattern = (String) operand;
+            final byte[] prefix = Bytes.toBytes(pattern.substring(0, pattern.length() - 1));
+            return new HBaseRowKeyRange(prefix, prefixStopRow(prefix));
+        }
+
+        final byte[] key = operand instanceof byte[] ? (byte[]) operand : Bytes.toBytes((String) operand);
+        if (operator == OperatorType.EQUALS_TO) {
+            return new HBaseRowKeyRange(key, nextRow(key));
+        } else if (operator == OperatorType.GREATER_THAN) {
+            return new HBaseRowKeyRange(nextRow(key), UNBOUNDED);
+        } else if (operator == OperatorType.GREATER_THAN_OR_EQUAL) {
+            return new HBaseRowKeyRange(key, UNBOUNDED);
+        } else if (operator == OperatorType.LESS_THAN) {
+            return new HBaseRowKeyRange(UNBOUNDED, key);
+        } else if (operator == OperatorType.LESS_THAN_OR_EQUAL) {
+            return new HBaseRowKeyRange(UNBOUNDED, nextRow(key));
+        }
+        throw new IllegalArgumentException("Unsupported filter item: " + filterItem);
+    }
+
+    /**
+     * Creates a row key range from a list of (AND'ed) filter items, adding
+     * the items that could not be translated to a list of items that need
+     * to be evaluated client-side.
+     *
+     * @param filterItems
+     * @param unsupportedItems
+     * @return
+     */
+    public static HBaseRowKeyRange of(List<FilterItem> filterItems, List<FilterItem> unsupportedItems) {
+        HBaseRowKeyRange range = ALL;
+        for (FilterItem filterItem : filterItems) {
+            if (isSupported(filterItem)) {
+                range = range.intersect(of(filterItem));
+            } else {
+                unsupportedItems.add(filterItem);
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Gets the smallest row key that is greater than the given key.
+     */
+    private static byte[] nextRow(byte[] key) {
+        return Bytes.add(key, new byte[] { 0 });
+    }
+
+    /**
+     * Gets the smallest row key that is greater than all keys with the given
+     * prefix, or an unbounded stop row if there is no such key.
+     */
+    private static byte[] prefixStopRow(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xFF) {
+                final byte[] stopRow = Arrays.copyOf(prefix, i + 1);
+                stopRow[i]++;
+                return stopRow;
+            }
+        }
+        return UNBOUNDED;
+    }
+
+    @Override
+    public String toString() {
+        return "HBaseRowKeyRange[" + Bytes.toStringBinary(_startRow) + "," + Bytes.toStringBinary(_stopRow) + "]";
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link HBaseRowScanner} that wraps a {@link ResultScanner}. When the scan
+ * has a batch size (see {@link Scan#setBatch(int)}) wide rows are returned by
+ * HBase as several partial results, which are merged back into complete rows.
+ */
+final class HBaseTableRowScanner implements HBaseRowScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(HBaseTableRowScanner.class);
+
+    private final Table _hTable;
+    private final ResultScanner _scanner;
+    private final boolean _batched;
+    private Result _lookahead;
+
+    public HBaseTableRowScanner(Table hTable, Scan scan) throws IOException {
+        _hTable = hTable;
+        _scanner = hTable.getScanner(scan);
+        _batched = scan.getBatch() > 0;
+    }
+
+    @Override
+    public Result next() throws IOException {
+        final Result first = _lookahead == null ? _scanner.next() : _lookahead;
+        _lookahead = null;
+        if (first == null || !_batched) {
+            return first;
+        }
+
+        List<Cell> cells = null;
+        Result result = _scanner.next();
+        while (result != null && Bytes.equals(first.getRow(), result.getRow())) {
+            if (cells == null) {
+                cells = new ArrayList<>(Arrays.asList(first.rawCells()));
+            }
+            cells.addAll(Arrays.asList(result.rawCells()));
+            result = _scanner.next();
+        }
+        _lookahead = result;
+
+        if (cells == null) {
+            return first;
+        }
+        return Result.create(cells);
+    }
+
+    @Override
+    public void close() {
+        try {
+            _scanner.close();
+        } catch (Exception e) {
+            logger.warn("Failed to close ResultScanner", e);
+        }
+        try {
+            _hTable.close();
+        } catch (Exception e) {
+            logger.warn("Failed to close HTable", e);
+        }
+    }
+}
@@ -68,9 +68,15 @@ public class HbaseDataContextFactory extends AbstractDataContextFactory {
         final int zookeeperRecoveryRetries =
                 getInt(map.get("zookeeper-recovery-retries"), HBaseConfiguration.DEFAULT_ZOOKEEPER_RECOVERY_RETRIES);
 
+        final int scannerCaching = getInt(map.get("scanner-caching"), HBaseConfiguration.DEFAULT_SCANNER_CACHING);
+        final int scannerBatch = getInt(map.get("scanner-batch"), HBaseConfiguration.DEFAULT_SCANNER_BATCH);
+        final int scanParallelism =
+                getInt(map.get("scan-parallelism"), HBaseConfiguration.DEFAULT_SCAN_PARALLELISM);
+
         final HBaseConfiguration configuration =
                 new HBaseConfiguration(schemaName, zookeeperHostname, zookeeperPort, tableDefinitions,
-                        defaultRowKeyType, hbaseClientRetries, zookeeperSessionTimeout, zookeeperRecoveryRetries);
+                        defaultRowKeyType, hbaseClientRetries, zookeeperSessionTimeout, zookeeperRecoveryRetries,
+                        scannerCaching, scannerBatch, scanParallelism);
         return new HBaseDataContext(configuration);
     }
 
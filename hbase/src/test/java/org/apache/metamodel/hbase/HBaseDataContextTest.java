@@ -116,6 +116,22 @@ public class HBaseDataContextTest extends HBaseTestCase {
             assertEquals("Row[values=[" + RK_1 + "]]", dataSet5.getRow().toString());
             assertFalse(dataSet5.next());
         }
+
+        // row key range query - using start and stop rows
+        try (final DataSet dataSet6 = getDataContext().query().from(TABLE_NAME).select(HBaseDataContext.FIELD_ID)
+                .where(HBaseDataContext.FIELD_ID).gt(RK_1).execute()) {
+            assertTrue(dataSet6.next());
+            assertEquals("Row[values=[" + RK_2 + "]]", dataSet6.getRow().toString());
+            assertFalse(dataSet6.next());
+        }
+
+        // row key prefix count
+        try (final DataSet dataSet7 = getDataContext().query().from(TABLE_NAME).selectCount()
+                .where(HBaseDataContext.FIELD_ID).like("junit%").execute()) {
+            assertTrue(dataSet7.next());
+            assertEquals("Row[values=[" + NUMBER_OF_ROWS + "]]", dataSet7.getRow().toString());
+            assertFalse(dataSet7.next());
+        }
     }
 
     private void insertRecordsNatively() throws IOException, InterruptedException {
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.hbase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+
+public class HBaseRowKeyRangeTest extends TestCase {
+
+    private final MutableTable table = new MutableTable("tbl");
+    private final MutableColumn idColumn = new MutableColumn(HBaseDataContext.FIELD_ID, ColumnType.VARCHAR, table,
+            0, true);
+    private final MutableColumn fooColumn = new MutableColumn("foo", ColumnType.MAP, table, 1, true);
+
+    public void testRangeOfFilterItems() throws Exception {
+        final List<FilterItem> whereItems = new ArrayList<>();
+        whereItems.add(filter(idColumn, OperatorType.GREATER_THAN_OR_EQUAL, "b"));
+        whereItems.add(filter(idColumn, OperatorType.LESS_THAN, "d"));
+        whereItems.add(filter(fooColumn, OperatorType.EQUALS_TO, "bar"));
+
+        final List<FilterItem> unsupportedItems = new ArrayList<>();
+        final HBaseRowKeyRange range = HBaseRowKeyRange.of(whereItems, unsupportedItems);
+        assertEquals("HBaseRowKeyRange[b,d]", range.toString());
+        assertEquals(1, unsupportedItems.size());
+        assertFalse(range.isEmpty());
+    }
+
+    public void testExclusiveAndInclusiveBounds() throws Exception {
+        assertEquals("HBaseRowKeyRange[b\\x00,]", HBaseRowKeyRange.of(filter(idColumn, OperatorType.GREATER_THAN,
+                "b")).toString());
+        assertEquals("HBaseRowKeyRange[,b\\x00]", HBaseRowKeyRange.of(filter(idColumn,
+                OperatorType.LESS_THAN_OR_EQUAL, "b")).toString());
+        assertEquals("HBaseRowKeyRange[b,b\\x00]", HBaseRowKeyRange.of(filter(idColumn, OperatorType.EQUALS_TO, "b"))
+                .toString());
+    }
+
+    public void testPrefix() throws Exception {
+        assertEquals("HBaseRowKeyRange[junit,juniu]", HBaseRowKeyRange.of(filter(idColumn, OperatorType.LIKE,
+                "junit%")).toString());
+
+        final HBaseRowKeyRange range = HBaseRowKeyRange.of(Arrays.asList(filter(idColumn, OperatorType.LIKE, "a%"),
+                filter(idColumn, OperatorType.GREATER_THAN, "b")), new ArrayList<>());
+        assertTrue(range.isEmpty());
+    }
+
+    public void testIsSupported() throws Exception {
+        assertTrue(HBaseRowKeyRange.isSupported(filter(idColumn, OperatorType.LIKE, "foo%")));
+        assertTrue(HBaseRowKeyRange.isSupported(filter(idColumn, OperatorType.LESS_THAN, new byte[] { 1 })));
+        assertFalse(HBaseRowKeyRange.isSupported(filter(idColumn, OperatorType.LIKE, "%foo")));
+        assertFalse(HBaseRowKeyRange.isSupported(filter(idColumn, OperatorType.LIKE, "f%o%")));
+        assertFalse(HBaseRowKeyRange.isSupported(filter(idColumn, OperatorType.DIFFERENT_FROM, "foo")));
+        assertFalse(HBaseRowKeyRange.isSupported(filter(idColumn, OperatorType.GREATER_THAN, 42)));
+        assertFalse(HBaseRowKeyRange.isSupported(filter(fooColumn, OperatorType.EQUALS_TO, "foo")));
+
+        final MutableColumn numericIdColumn = new MutableColumn(HBaseDataContext.FIELD_ID, ColumnType.INTEGER);
+        assertFalse(HBaseRowKeyRange.isSupported(filter(numericIdColumn, OperatorType.GREATER_THAN, "1")));
+    }
+
+    public void testSplitByRegions() throws Exception {
+        final byte[][] regionStartKeys = new byte[][] { new byte[0], "c".getBytes(), "f".getBytes() };
+
+        assertEquals("[HBaseRowKeyRange[,c], HBaseRowKeyRange[c,f], HBaseRowKeyRange[f,]]",
+                HBaseRowKeyRange.ALL.split(regionStartKeys).toString());
+
+        final HBaseRowKeyRange range = new HBaseRowKeyRange("b".getBytes(), "d".getBytes());
+        assertEquals("[HBaseRowKeyRange[b,c], HBaseRowKeyRange[c,d]]", range.split(regionStartKeys).toString());
+
+        final HBaseRowKeyRange singleRegionRange = new HBaseRowKeyRange("g".getBytes(), null);
+        assertEquals("[HBaseRowKeyRange[g,]]", singleRegionRange.split(regionStartKeys).toString());
+    }
+
+    private static FilterItem filter(MutableColumn column, OperatorType operator, Object operand) {
+        return new FilterItem(new SelectItem(column), operator, operand);
+    }
+}
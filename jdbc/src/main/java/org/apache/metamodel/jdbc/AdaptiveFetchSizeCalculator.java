@@ -0,0 +1,224 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.Table;
+
+/**
+ * {@link FetchSizeCalculator} which adapts to the actual size of the values
+ * returned by the database.
+ *
+ * The first rows of every {@link JdbcDataSet} are sampled and the observed
+ * value sizes are kept as per-table statistics. Subsequent queries on the same
+ * columns will have their fetch size calculated based on these observations
+ * instead of the (often inaccurate) estimates derived from the column type and
+ * declared column size, eg. for TEXT/JSONB columns or narrow numeric tables.
+ */
+final class AdaptiveFetchSizeCalculator extends FetchSizeCalculator {
+
+	/**
+	 * The number of rows to sample in each {@link JdbcDataSet}
+	 */
+	static final int SAMPLE_ROWS = 500;
+
+	/**
+	 * The minimum number of observed values before the observations are
+	 * trusted over the static estimate.
+	 */
+	private static final int MIN_OBSERVATIONS = 50;
+
+	/**
+	 * The number of observed values after which a column's statistics are
+	 * considered stable and no longer updated.
+	 */
+	private static final long MAX_OBSERVATIONS = 100000;
+
+	private final ConcurrentMap<Table, TableStatistics> _tableStatistics;
+
+	public AdaptiveFetchSizeCalculator(int bytesInMemory) {
+		super(bytesInMemory);
+		_tableStatistics = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Determines if rows with the given select items are still worth sampling.
+	 *
+	 * @param selectItems
+	 * @return
+	 */
+	public boolean isSamplingNeeded(List<SelectItem> selectItems) {
+		for (SelectItem selectItem : selectItems) {
+			final ColumnStatistics statistics = getColumnStatistics(selectItem, false);
+			if (statistics != null && !statistics.isStable()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Records the values of a row that has been fetched from the database.
+	 *
+	 * @param selectItems
+	 *            the select items of the row
+	 * @param values
+	 *            the values of the row
+	 */
+	public void observe(List<SelectItem> selectItems, Object[] values) {
+		for (int i = 0; i < values.length; i++) {
+			final ColumnStatistics statistics = getColumnStatistics(selectItems.get(i), true);
+			if (statistics != null) {
+				statistics.observe(getObservedSize(values[i]));
+			}
+		}
+	}
+
+	/**
+	 * Gets the observed average size (in bytes) of values in a column, or null
+	 * if not enough values have been observed.
+	 *
+	 * @param column
+	 * @return
+	 */
+	public Integer getObservedValueSize(Column column) {
+		final TableStatistics tableStatistics = _tableStatistics.get(column.getTable());
+		if (tableStatistics == null) {
+			return null;
+		}
+		final ColumnStatistics statistics = tableStatistics.get(column);
+		if (statistics == null) {
+			return null;
+		}
+		return statistics.getAverageSize();
+	}
+
+	@Override
+	protected int getValueSize(SelectItem selectItem) {
+		final Column column = selectItem.getColumn();
+		if (column != null && selectItem.getAggregateFunction() == null) {
+			final Integer observedSize = getObservedValueSize(column);
+			if (observedSize != null) {
+				return observedSize;
+			}
+		}
+		return super.getValueSize(selectItem);
+	}
+
+	private ColumnStatistics getColumnStatistics(SelectItem selectItem, boolean create) {
+		final Column column = selectItem.getColumn();
+		if (column == null || column.getTable() == null || selectItem.getAggregateFunction() != null
+				|| selectItem.getScalarFunction() != null) {
+			return null;
+		}
+		TableStatistics tableStatistics = _tableStatistics.get(column.getTable());
+		if (tableStatistics == null) {
+			if (!create) {
+				// no observations on the table so far
+				return new ColumnStatistics();
+			}
+			tableStatistics = new TableStatistics();
+			final TableStatistics existing = _tableStatistics.putIfAbsent(column.getTable(), tableStatistics);
+			if (existing != null) {
+				tableStatistics = existing;
+			}
+		}
+		ColumnStatistics statistics = tableStatistics.get(column);
+		if (statistics == null) {
+			if (!create) {
+				return new ColumnStatistics();
+			}
+			statistics = new ColumnStatistics();
+			final ColumnStatistics existing = tableStatistics.putIfAbsent(column, statistics);
+			if (existing != null) {
+				statistics = existing;
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Gets the approximate size (in bytes) that a value occupies in the fetch
+	 * buffer.
+	 */
+	private static int getObservedSize(Object value) {
+		if (value == null) {
+			return 1;
+		} else if (value instanceof CharSequence) {
+			return 2 * ((CharSequence) value).length();
+		} else if (value instanceof byte[]) {
+			return ((byte[]) value).length;
+		} else if (value instanceof Boolean) {
+			return 2;
+		} else if (value instanceof Number || value instanceof Date) {
+			return 16;
+		} else if (value instanceof Clob) {
+			try {
+				return (int) Math.min(Integer.MAX_VALUE, 2 * ((Clob) value).length());
+			} catch (SQLException e) {
+				return 4 * KB;
+			}
+		} else if (value instanceof Blob) {
+			try {
+				return (int) Math.min(Integer.MAX_VALUE, ((Blob) value).length());
+			} catch (SQLException e) {
+				return 4 * KB;
+			}
+		}
+		return DEFAULT_COLUMN_SIZE;
+	}
+
+	private static final class TableStatistics extends ConcurrentHashMap<Column, ColumnStatistics> {
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static final class ColumnStatistics {
+
+		private long _observations;
+		private long _totalSize;
+
+		public synchronized void observe(int size) {
+			if (_observations < MAX_OBSERVATIONS) {
+				_observations++;
+				_totalSize += size;
+			}
+		}
+
+		public synchronized boolean isStable() {
+			return _observations >= MAX_OBSERVATIONS;
+		}
+
+		public synchronized Integer getAverageSize() {
+			if (_observations < MIN_OBSERVATIONS) {
+				return null;
+			}
+			return (int) Math.max(1, _totalSize / _observations);
+		}
+	}
+}
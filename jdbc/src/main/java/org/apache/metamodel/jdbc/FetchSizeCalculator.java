@@ -35,18 +35,18 @@ import org.slf4j.LoggerFactory;
  * "http://www.oracle.com/technetwork/database/enterprise-edition/memory.pdf"
  * >JDBC Memory Management</a>, section "Where does it all go?".
  */
-final class FetchSizeCalculator {
+class FetchSizeCalculator {
 
 	/**
 	 * 22 bytes is a reasonable approximation for remaining row types, we add a
 	 * few bytes to be on the safe side.
 	 */
-	private static final int DEFAULT_COLUMN_SIZE = 30;
+	static final int DEFAULT_COLUMN_SIZE = 30;
 
 	/**
 	 * A kilobyte (kb)
 	 */
-	private static final int KB = 1024;
+	static final int KB = 1024;
 
 	private static final Logger logger = LoggerFactory
 			.getLogger(FetchSizeCalculator.class);
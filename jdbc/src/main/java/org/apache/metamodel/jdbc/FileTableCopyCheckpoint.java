@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.util.FileHelper;
+
+/**
+ * {@link TableCopyCheckpoint} that stores the completed split ranges in a local
+ * file, one line per split range, so that a copy can be resumed after a
+ * restart of the JVM.
+ */
+public final class FileTableCopyCheckpoint implements TableCopyCheckpoint {
+
+    private static final char SEPARATOR = '\t';
+
+    private final File _file;
+    private final Set<String> _completedSplitKeys;
+
+    public FileTableCopyCheckpoint(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        _file = file;
+        _completedSplitKeys = new HashSet<>();
+        if (file.exists()) {
+            readCompletedSplitKeys();
+        }
+    }
+
+    private void readCompletedSplitKeys() {
+        final BufferedReader reader = FileHelper.getBufferedReader(_file, FileHelper.UTF_8_CHARSET);
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final int separatorIndex = line.lastIndexOf(SEPARATOR);
+                if (separatorIndex != -1) {
+                    _completedSplitKeys.add(unescape(line.substring(0, separatorIndex)));
+                }
+            }
+        } catch (IOException e) {
+            throw new MetaModelException("Could not read checkpoint file: " + _file, e);
+        } finally {
+            FileHelper.safeClose(reader);
+        }
+    }
+
+    @Override
+    public synchronized boolean isCompleted(String splitKey) {
+        return _completedSplitKeys.contains(splitKey);
+    }
+
+    @Override
+    public synchronized void markCompleted(String splitKey, long rowCount) {
+        if (!_completedSplitKeys.add(splitKey)) {
+            return;
+        }
+        final Writer writer = FileHelper.getWriter(_file, FileHelper.UTF_8_CHARSET, true);
+        try {
+            writer.write(escape(splitKey) + SEPARATOR + rowCount + '\n');
+        } catch (IOException e) {
+            throw new MetaModelException("Could not write checkpoint file: " + _file, e);
+        } finally {
+            FileHelper.safeClose(writer);
+        }
+    }
+
+    private static String escape(String str) {
+        return str.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+    }
+
+    private static String unescape(String str) {
+        final StringBuilder sb = new StringBuilder(str.length());
+        for (int i = 0; i < str.length(); i++) {
+            final char c = str.charAt(i);
+            if (c == '\\' && i + 1 < str.length()) {
+                i++;
+                final char next = str.charAt(i);
+                switch (next) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                default:
+                    sb.append(next);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -39,6 +39,7 @@ import org.apache.metamodel.AbstractDataContext;
 import org.apache.metamodel.BatchUpdateScript;
 import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.MetaModelHelper;
+import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.UpdateScript;
 import org.apache.metamodel.UpdateSummary;
 import org.apache.metamodel.UpdateableDataContext;
@@ -62,6 +63,10 @@ import org.apache.metamodel.jdbc.dialects.SQLServerQueryRewriter;
 import org.apache.metamodel.jdbc.dialects.SQLiteQueryRewriter;
 import org.apache.metamodel.query.AggregateFunction;
 import org.apache.metamodel.query.CompiledQuery;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.FromItem;
+import org.apache.metamodel.query.GroupByItem;
+import org.apache.metamodel.query.OrderByItem;
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.ColumnType;
@@ -69,7 +74,9 @@ import org.apache.metamodel.schema.ColumnTypeImpl;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.SuperColumnType;
 import org.apache.metamodel.schema.TableType;
+import org.apache.metamodel.util.CollectionUtils;
 import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.SystemProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,6 +87,10 @@ public class JdbcDataContext extends AbstractDataContext implements UpdateableDa
 
     public static final String SYSTEM_PROPERTY_BATCH_UPDATES = "metamodel.jdbc.batch.updates";
     public static final String SYSTEM_PROPERTY_CONVERT_LOBS = "metamodel.jdbc.convert.lobs";
+    public static final String SYSTEM_PROPERTY_CONVERT_LOBS_INLINE_THRESHOLD =
+            "metamodel.jdbc.convert.lobs.inline.threshold";
+    public static final String SYSTEM_PROPERTY_FETCH_SIZE_ADAPTIVE = "metamodel.jdbc.fetchsize.adaptive";
+    public static final String SYSTEM_PROPERTY_FETCH_SIZE_MEMORY_BYTES = "metamodel.jdbc.fetchsize.memory.bytes";
 
     public static final String SYSTEM_PROPERTY_COMPILED_QUERY_POOL_MAX_SIZE =
             "metamodel.jdbc.compiledquery.pool.max.size";
@@ -104,14 +115,21 @@ public class JdbcDataContext extends AbstractDataContext implements UpdateableDa
 
     private static final String SCHEMA_NAME_IDENTIFIER = "TABLE_SCHEM";
 
+    private static final int DEFAULT_FETCH_SIZE_MEMORY_BYTES = 16 * 1024 * 1024;
+
     public static final ColumnType COLUMN_TYPE_CLOB_AS_STRING =
             new ColumnTypeImpl("CLOB", SuperColumnType.LITERAL_TYPE, String.class, true);
     public static final ColumnType COLUMN_TYPE_BLOB_AS_BYTES =
             new ColumnTypeImpl("BLOB", SuperColumnType.BINARY_TYPE, byte[].class, true);
+    public static final ColumnType COLUMN_TYPE_CLOB_AS_LAZY_LOB =
+            new ColumnTypeImpl("CLOB", SuperColumnType.LITERAL_TYPE, Object.class, true);
+    public static final ColumnType COLUMN_TYPE_BLOB_AS_LAZY_LOB =
+            new ColumnTypeImpl("BLOB", SuperColumnType.BINARY_TYPE, Object.class, true);
 
     private static final Logger logger = LoggerFactory.getLogger(JdbcDataContext.class);
 
     private final FetchSizeCalculator _fetchSizeCalculator;
+    private final long _lobInlineThreshold;
     private final Connection _connection;
     private final DataSource _dataSource;
     private final TableType[] _tableTypes;
@@ -178,8 +196,8 @@ public class JdbcDataContext extends AbstractDataContext implements UpdateableDa
             _singleConnection = false;
         }
 
-        // available memory for fetching is so far fixed at 16 megs.
-        _fetchSizeCalculator = new FetchSizeCalculator(16 * 1024 * 1024);
+        _fetchSizeCalculator = createFetchSizeCalculator();
+        _lobInlineThreshold = SystemProperties.getLong(SYSTEM_PROPERTY_CONVERT_LOBS_INLINE_THRESHOLD, -1);
 
         boolean supportsBatchUpdates = false;
         String identifierQuoteString = null;
@@ -293,6 +311,17 @@ public class JdbcDataContext extends AbstractDataContext implements UpdateableDa
         this(dataSource, TableType.DEFAULT_TABLE_TYPES, null);
     }
 
+    private static FetchSizeCalculator createFetchSizeCalculator() {
+        // available memory for fetching defaults to 16 megs.
+        final int bytesInMemory = SystemProperties.getInt(SYSTEM_PROPERTY_FETCH_SIZE_MEMORY_BYTES,
+                DEFAULT_FETCH_SIZE_MEMORY_BYTES);
+
+        if ("true".equals(System.getProperty(SYSTEM_PROPERTY_FETCH_SIZE_ADAPTIVE))) {
+            return new AdaptiveFetchSizeCalculator(bytesInMemory);
+        }
+        return new FetchSizeCalculator(bytesInMemory);
+    }
+
     private boolean supportsBatchUpdates(DatabaseMetaData metaData) {
         if ("true".equals(System.getProperty(SYSTEM_PROPERTY_BATCH_UPDATES))) {
             return true;
@@ -524,6 +553,10 @@ public class JdbcDataContext extends AbstractDataContext implements UpdateableDa
     }
 
     protected DataSet executeQuery(Connection connection, Query query, boolean closeConnectionOnCloseDataSet) {
+        if (isClientSideEvaluationRequired(query)) {
+            return executeWithClientSideEvaluation(connection, query, closeConnectionOnCloseDataSet);
+        }
+
         final Statement statement;
         try {
             statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
@@ -549,6 +582,271 @@ public class JdbcDataContext extends AbstractDataContext implements UpdateableDa
         return dataSet;
     }
 
+    /**
+     * Determines if a query contains parts that the database cannot evaluate,
+     * ie. aggregate functions that the dialect does not support or scalar
+     * functions outside of the SELECT clause. Such queries are executed by
+     * pushing down the parts that the database can handle and evaluating the
+     * rest on the client side.
+     * 
+     * @param query
+     * @return
+     */
+    private boolean isClientSideEvaluationRequired(Query query) {
+        for (FromItem fromItem : query.getFromClause().getItems()) {
+            final Query subQuery = fromItem.getSubQuery();
+            if (subQuery != null) {
+                if (MetaModelHelper.containsNonSelectScalaFunctions(subQuery)
+                        || !MetaModelHelper.getScalarFunctionSelectItems(subQuery.getSelectClause().getItems())
+                                .isEmpty() || containsUnsupportedAggregateFunctions(subQuery)) {
+                    // sub-queries are pushed down as-is, so the query will be
+                    // rejected in any case
+                    return false;
+                }
+            }
+        }
+
+        return MetaModelHelper.containsNonSelectScalaFunctions(query) || containsUnsupportedAggregateFunctions(query);
+    }
+
+    private boolean containsUnsupportedAggregateFunctions(Query query) {
+        final List<SelectItem> selectItems = CollectionUtils.concat(true, query.getSelectClause().getItems(),
+                query.getHavingClause().getEvaluatedSelectItems(), query.getOrderByClause().getEvaluatedSelectItems());
+        for (SelectItem selectItem : selectItems) {
+            final AggregateFunction aggregateFunction = selectItem.getAggregateFunction();
+            if (aggregateFunction != null && !_queryRewriter.isAggregateFunctionSupported(aggregateFunction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Executes a query which cannot be fully evaluated by the database. The
+     * FROM clause and the WHERE items without scalar functions are pushed down,
+     * while the rest of the query is evaluated on the client side, in the same
+     * way as {@link QueryPostprocessDataContext} does.
+     * 
+     * If the database can evaluate the WHERE and GROUP BY clauses and all
+     * aggregate functions of the query, the grouping and aggregation is pushed
+     * down too, so that only one row per group is transferred. Otherwise a
+     * query which selects only the plain column values needed is pushed down,
+     * and the rows matching the pushed down WHERE items are aggregated on the
+     * client side.
+     * 
+     * @param connection
+     * @param query
+     * @param closeConnectionOnCloseDataSet
+     * @return
+     */
+    private DataSet executeWithClientSideEvaluation(Connection connection, Query query,
+            boolean closeConnectionOnCloseDataSet) {
+        DataSet dataSet = null;
+        boolean executed = false;
+        try {
+            final List<SelectItem> selectItems = query.getSelectClause().getItems();
+            final List<GroupByItem> groupByItems = query.getGroupByClause().getItems();
+            final List<FilterItem> havingItems = query.getHavingClause().getItems();
+            final List<OrderByItem> orderByItems = query.getOrderByClause().getItems();
+
+            final Query pushDownQuery = query.clone();
+            final List<FilterItem> pushDownWhereItems = new ArrayList<>(pushDownQuery.getWhereClause().getItems());
+            pushDownQuery.getSelectClause().removeItems();
+            pushDownQuery.getSelectClause().setDistinct(false);
+            pushDownQuery.getWhereClause().removeItems();
+            pushDownQuery.getGroupByClause().removeItems();
+            pushDownQuery.getHavingClause().removeItems();
+            pushDownQuery.getOrderByClause().removeItems();
+            pushDownQuery.setFirstRow(null);
+            pushDownQuery.setMaxRows(null);
+
+            // split the WHERE clause into the items that the database can evaluate
+            // and the ones that has to be evaluated client-side
+            final List<FilterItem> whereItems = query.getWhereClause().getItems();
+            final List<FilterItem> clientSideWhereItems = new ArrayList<>();
+            for (int i = 0; i < whereItems.size(); i++) {
+                final FilterItem whereItem = whereItems.get(i);
+                final List<SelectItem> evaluatedSelectItems = MetaModelHelper.getEvaluatedSelectItems(Collections
+                        .singletonList(whereItem));
+                if (MetaModelHelper.getScalarFunctionSelectItems(evaluatedSelectItems).isEmpty()) {
+                    pushDownQuery.where(pushDownWhereItems.get(i));
+                } else {
+                    clientSideWhereItems.add(whereItem);
+                }
+            }
+
+            final List<SelectItem> workSelectItems = CollectionUtils.concat(true, selectItems, MetaModelHelper
+                    .getEvaluatedSelectItems(clientSideWhereItems), query.getGroupByClause().getEvaluatedSelectItems(),
+                    query.getHavingClause().getEvaluatedSelectItems(), query.getOrderByClause()
+                            .getEvaluatedSelectItems());
+            final List<SelectItem> scalarFunctionSelectItems = MetaModelHelper.getScalarFunctionSelectItems(
+                    workSelectItems);
+
+            final List<FilterItem> clientSideHavingItems = new ArrayList<>();
+            final Query aggregatePushDownQuery = clientSideWhereItems.isEmpty() ? createAggregatePushDownQuery(
+                    query, workSelectItems, clientSideHavingItems) : null;
+            if (aggregatePushDownQuery != null) {
+                logger.debug("Query '{}' requires client-side evaluation. Pushing down aggregate query: {}", query,
+                        aggregatePushDownQuery);
+
+                executed = true;
+                dataSet = executeQuery(connection, aggregatePushDownQuery, closeConnectionOnCloseDataSet);
+
+                // the scalar functions are applied to GROUP BY items only
+                if (!scalarFunctionSelectItems.isEmpty()) {
+                    dataSet = new ScalarFunctionDataSet(scalarFunctionSelectItems, dataSet);
+                }
+                dataSet = MetaModelHelper.getFiltered(dataSet, clientSideHavingItems);
+            } else {
+                // select only the plain values that the work select items are based on
+                final List<SelectItem> pushDownSelectItems = new ArrayList<>();
+                for (SelectItem workSelectItem : workSelectItems) {
+                    if (!SelectItem.isCountAllItem(workSelectItem)) {
+                        addIgnoreAlias(pushDownSelectItems, workSelectItem.replaceFunction(null).setAlias(null));
+                    }
+                }
+                if (pushDownSelectItems.isEmpty()) {
+                    throw new MetaModelException("Query cannot be evaluated on this JDBC database. Query rejected: "
+                            + query);
+                }
+                pushDownQuery.select(pushDownSelectItems.toArray(new SelectItem[pushDownSelectItems.size()]));
+
+                logger.debug("Query '{}' requires client-side evaluation. Pushing down query: {}", query,
+                        pushDownQuery);
+
+                executed = true;
+                dataSet = executeQuery(connection, pushDownQuery, closeConnectionOnCloseDataSet);
+
+                if (!scalarFunctionSelectItems.isEmpty()) {
+                    dataSet = new ScalarFunctionDataSet(scalarFunctionSelectItems, dataSet);
+                }
+                dataSet = MetaModelHelper.getFiltered(dataSet, clientSideWhereItems);
+
+                final List<SelectItem> groupingSelectItems = CollectionUtils.concat(true, selectItems, query
+                        .getGroupByClause().getEvaluatedSelectItems(), query.getHavingClause()
+                                .getEvaluatedSelectItems(), query.getOrderByClause().getEvaluatedSelectItems());
+                if (groupByItems.isEmpty()) {
+                    dataSet = MetaModelHelper.getAggregated(groupingSelectItems, dataSet);
+                } else {
+                    dataSet = MetaModelHelper.getGrouped(groupingSelectItems, dataSet, groupByItems);
+                }
+                dataSet = MetaModelHelper.getFiltered(dataSet, havingItems);
+            }
+
+            if (query.getSelectClause().isDistinct()) {
+                dataSet = MetaModelHelper.getSelection(selectItems, dataSet);
+                dataSet = MetaModelHelper.getDistinct(dataSet);
+                dataSet = MetaModelHelper.getOrdered(dataSet, orderByItems);
+            } else {
+                dataSet = MetaModelHelper.getOrdered(dataSet, orderByItems);
+                dataSet = MetaModelHelper.getSelection(selectItems, dataSet);
+            }
+
+            final Integer firstRow = query.getFirstRow();
+            final Integer maxRows = query.getMaxRows();
+            dataSet = MetaModelHelper.getPaged(dataSet, firstRow == null ? 1 : firstRow,
+                    maxRows == null ? -1 : maxRows);
+            return dataSet;
+        } catch (RuntimeException e) {
+            // a failed push down query has already closed the connection,
+            // otherwise the connection is owned by the data set
+            if (dataSet != null) {
+                dataSet.close();
+            } else if (!executed) {
+                close(connection);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a query which pushes down the grouping and aggregation of a
+     * query whose WHERE clause the database can evaluate. This is possible if
+     * the GROUP BY items have no scalar functions, the aggregate functions are
+     * supported and all other work select items are, or are scalar functions
+     * of, GROUP BY items. The HAVING items with scalar functions are left for
+     * the client side.
+     * 
+     * @param query
+     *            the query to execute
+     * @param workSelectItems
+     *            the select items of the SELECT, GROUP BY, HAVING and ORDER BY
+     *            clauses
+     * @param clientSideHavingItems
+     *            a list which the HAVING items that are not pushed down are
+     *            added to
+     * @return the query, or null if the query has to be evaluated on the plain
+     *         rows
+     */
+    private Query createAggregatePushDownQuery(Query query, List<SelectItem> workSelectItems,
+            List<FilterItem> clientSideHavingItems) {
+        final List<SelectItem> groupBySelectItems = query.getGroupByClause().getEvaluatedSelectItems();
+        if (!MetaModelHelper.getScalarFunctionSelectItems(groupBySelectItems).isEmpty()) {
+            return null;
+        }
+        if (groupBySelectItems.isEmpty() && MetaModelHelper.getAggregateFunctionSelectItems(workSelectItems)
+                .isEmpty()) {
+            return null;
+        }
+
+        final List<SelectItem> pushDownSelectItems = new ArrayList<>();
+        for (SelectItem groupBySelectItem : groupBySelectItems) {
+            addIgnoreAlias(pushDownSelectItems, groupBySelectItem.replaceFunction(null).setAlias(null));
+        }
+        for (SelectItem workSelectItem : workSelectItems) {
+            final AggregateFunction aggregateFunction = workSelectItem.getAggregateFunction();
+            if (aggregateFunction == null) {
+                if (!containsIgnoreAlias(groupBySelectItems, workSelectItem.replaceFunction(null))) {
+                    return null;
+                }
+            } else if (_queryRewriter.isAggregateFunctionSupported(aggregateFunction)) {
+                addIgnoreAlias(pushDownSelectItems, workSelectItem.replaceFunction(aggregateFunction, workSelectItem
+                        .getFunctionParameters()).setAlias(null));
+            } else {
+                return null;
+            }
+        }
+
+        final Query pushDownQuery = query.clone();
+        final List<FilterItem> pushDownHavingItems = new ArrayList<>(pushDownQuery.getHavingClause().getItems());
+        pushDownQuery.getSelectClause().removeItems();
+        pushDownQuery.getSelectClause().setDistinct(false);
+        pushDownQuery.getHavingClause().removeItems();
+        pushDownQuery.getOrderByClause().removeItems();
+        pushDownQuery.setFirstRow(null);
+        pushDownQuery.setMaxRows(null);
+        pushDownQuery.select(pushDownSelectItems.toArray(new SelectItem[pushDownSelectItems.size()]));
+
+        final List<FilterItem> havingItems = query.getHavingClause().getItems();
+        for (int i = 0; i < havingItems.size(); i++) {
+            final FilterItem havingItem = havingItems.get(i);
+            final List<SelectItem> evaluatedSelectItems = MetaModelHelper.getEvaluatedSelectItems(Collections
+                    .singletonList(havingItem));
+            if (!groupBySelectItems.isEmpty() && MetaModelHelper.getScalarFunctionSelectItems(evaluatedSelectItems)
+                    .isEmpty()) {
+                pushDownQuery.having(pushDownHavingItems.get(i));
+            } else {
+                clientSideHavingItems.add(havingItem);
+            }
+        }
+        return pushDownQuery;
+    }
+
+    private static boolean containsIgnoreAlias(List<SelectItem> selectItems, SelectItem selectItem) {
+        for (SelectItem existingSelectItem : selectItems) {
+            if (existingSelectItem.equalsIgnoreAlias(selectItem, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addIgnoreAlias(List<SelectItem> selectItems, SelectItem selectItem) {
+        if (!containsIgnoreAlias(selectItems, selectItem)) {
+            selectItems.add(selectItem);
+        }
+    }
+
     private int getFetchSize(Query query, final Statement statement) {
         try {
             final int defaultFetchSize = statement.getFetchSize();
@@ -890,6 +1188,21 @@ public class JdbcDataContext extends AbstractDataContext implements UpdateableDa
         return _fetchSizeCalculator;
     }
 
+    /**
+     * Gets the maximum length (in characters for CLOBs, in bytes for BLOBs) of
+     * LOB values that are eagerly converted to String/byte[] when LOB
+     * conversion is enabled. Larger values are represented as {@link LazyLob}s,
+     * which is why LOB columns are then typed as
+     * {@link #COLUMN_TYPE_CLOB_AS_LAZY_LOB} and
+     * {@link #COLUMN_TYPE_BLOB_AS_LAZY_LOB}.
+     * 
+     * @return the threshold, or a negative number if all LOB values should be
+     *         converted eagerly.
+     */
+    public long getLobInlineThreshold() {
+        return _lobInlineThreshold;
+    }
+
     /**
      * {@inheritDoc}
      * 
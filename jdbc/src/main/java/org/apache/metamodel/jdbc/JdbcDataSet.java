@@ -51,6 +51,8 @@ final class JdbcDataSet extends AbstractDataSet {
     private final JdbcDataContext _jdbcDataContext;
     private final Connection _connection;
     private final boolean _closeConnectionOnCloseDataSet;
+    private final AdaptiveFetchSizeCalculator _adaptiveFetchSizeCalculator;
+    private int _rowsToSample;
     private Row _row;
     private boolean _closed;
 
@@ -78,6 +80,17 @@ final class JdbcDataSet extends AbstractDataSet {
         _closed = false;
         _compiledQuery = null;
         _lease = null;
+
+        final FetchSizeCalculator fetchSizeCalculator = jdbcDataContext == null ? null : jdbcDataContext
+                .getFetchSizeCalculator();
+        if (fetchSizeCalculator instanceof AdaptiveFetchSizeCalculator
+                && ((AdaptiveFetchSizeCalculator) fetchSizeCalculator).isSamplingNeeded(getSelectItems())) {
+            _adaptiveFetchSizeCalculator = (AdaptiveFetchSizeCalculator) fetchSizeCalculator;
+            _rowsToSample = AdaptiveFetchSizeCalculator.SAMPLE_ROWS;
+        } else {
+            _adaptiveFetchSizeCalculator = null;
+            _rowsToSample = 0;
+        }
     }
 
     /**
@@ -102,6 +115,8 @@ final class JdbcDataSet extends AbstractDataSet {
         _statement = null;
         _resultSet = resultSet;
         _closed = false;
+        _adaptiveFetchSizeCalculator = null;
+        _rowsToSample = 0;
     }
 
     /**
@@ -137,6 +152,10 @@ final class JdbcDataSet extends AbstractDataSet {
                                 .getMessage());
                     }
                 }
+                if (_rowsToSample > 0) {
+                    _rowsToSample--;
+                    _adaptiveFetchSizeCalculator.observe(getSelectItems(), values);
+                }
                 _row = new DefaultRow(getHeader(), values);
             } else {
                 _row = null;
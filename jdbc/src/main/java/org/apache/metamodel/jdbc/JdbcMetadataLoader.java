@@ -361,10 +361,14 @@ final class JdbcMetadataLoader implements MetadataLoader {
 
         ColumnType columnType = _dataContext.getQueryRewriter().getColumnType(jdbcType, nativeType, columnSize);
         if (convertLobs) {
+            // with an inline threshold, large values are read as LazyLobs
+            final boolean lazyLobs = _dataContext.getLobInlineThreshold() >= 0;
             if (columnType == ColumnType.CLOB || columnType == ColumnType.NCLOB) {
-                columnType = JdbcDataContext.COLUMN_TYPE_CLOB_AS_STRING;
+                columnType = lazyLobs ? JdbcDataContext.COLUMN_TYPE_CLOB_AS_LAZY_LOB
+                        : JdbcDataContext.COLUMN_TYPE_CLOB_AS_STRING;
             } else if (columnType == ColumnType.BLOB) {
-                columnType = JdbcDataContext.COLUMN_TYPE_BLOB_AS_BYTES;
+                columnType = lazyLobs ? JdbcDataContext.COLUMN_TYPE_BLOB_AS_LAZY_LOB
+                        : JdbcDataContext.COLUMN_TYPE_BLOB_AS_BYTES;
             }
         }
 
@@ -0,0 +1,463 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import org.apache.metamodel.BatchUpdateScript;
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.UpdateCallback;
+import org.apache.metamodel.UpdateableDataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.insert.RowInsertionBuilder;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility for copying the result of a query (typically a full table) from one
+ * {@link DataContext} into a table of an {@link UpdateableDataContext}.
+ *
+ * The source query is split into ranges using the {@link QuerySplitter}. A
+ * number of reader threads execute the split queries concurrently and hand
+ * over batches of rows to a number of writer threads through a bounded queue,
+ * so that readers are slowed down (back-pressure) when writers cannot keep
+ * up. Each batch is written using a {@link BatchUpdateScript}, which for JDBC
+ * databases with batch support means JDBC batch inserts. Multiple writer
+ * threads are only allowed when the target is a {@link JdbcDataContext} backed
+ * by a DataSource, so that every writer uses its own connection and
+ * transaction. With any other target a single writer is used.
+ *
+ * Progress is reported through {@link TableCopyStatistics}. If a
+ * {@link TableCopyCheckpoint} is configured, every fully copied split range is
+ * recorded, and split ranges that are already recorded are skipped, which
+ * makes it possible to restart an interrupted copy. Note that a split range
+ * that was only partially copied when the copy was interrupted will be copied
+ * again in full.
+ *
+ * Source columns are mapped to target columns by name.
+ */
+public final class JdbcTableCopier {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcTableCopier.class);
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final DataContext _sourceDataContext;
+    private final Query _sourceQuery;
+    private final UpdateableDataContext _targetDataContext;
+    private final Table _targetTable;
+    private final Column[] _targetColumns;
+    private final TableCopyStatistics _statistics;
+
+    private int _readerThreads = 1;
+    private int _writerThreads = 1;
+    private int _batchSize = DEFAULT_BATCH_SIZE;
+    private int _queueSize = DEFAULT_QUEUE_SIZE;
+    private long _maxRowsPerSplit = QuerySplitter.DEFAULT_MAX_ROWS;
+    private TableCopyCheckpoint _checkpoint;
+
+    public JdbcTableCopier(DataContext sourceDataContext, Query sourceQuery, UpdateableDataContext targetDataContext,
+            Table targetTable) {
+        if (sourceDataContext == null || targetDataContext == null) {
+            throw new IllegalArgumentException("DataContexts cannot be null");
+        }
+        if (sourceQuery == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        if (targetTable == null) {
+            throw new IllegalArgumentException("Target table cannot be null");
+        }
+        _sourceDataContext = sourceDataContext;
+        _sourceQuery = sourceQuery;
+        _targetDataContext = targetDataContext;
+        _targetTable = targetTable;
+        _targetColumns = getTargetColumns(sourceQuery, targetTable);
+        _statistics = new TableCopyStatistics();
+    }
+
+    /**
+     * Creates a {@link JdbcTableCopier} that copies all columns of a source
+     * table into a target table.
+     *
+     * @param sourceDataContext
+     * @param sourceTable
+     * @param targetDataContext
+     * @param targetTable
+     */
+    public JdbcTableCopier(DataContext sourceDataContext, Table sourceTable, UpdateableDataContext targetDataContext,
+            Table targetTable) {
+        this(sourceDataContext, new Query().from(sourceTable).select(sourceTable.getColumns()), targetDataContext,
+                targetTable);
+    }
+
+    private boolean isDataSourceTarget() {
+        return _targetDataContext instanceof JdbcDataContext
+                && ((JdbcDataContext) _targetDataContext).getDelegate() instanceof DataSource;
+    }
+
+    private static Column[] getTargetColumns(Query sourceQuery, Table targetTable) {
+        final List<SelectItem> selectItems = sourceQuery.getSelectClause().getItems();
+        final Column[] targetColumns = new Column[selectItems.size()];
+        for (int i = 0; i < targetColumns.length; i++) {
+            final SelectItem selectItem = selectItems.get(i);
+            String name = selectItem.getAlias();
+            if (name == null && selectItem.getColumn() != null) {
+                name = selectItem.getColumn().getName();
+            }
+            final Column targetColumn = name == null ? null : targetTable.getColumnByName(name);
+            if (targetColumn == null) {
+                throw new IllegalArgumentException("No column in target table " + targetTable.getName()
+                        + " matches select item: " + selectItem);
+            }
+            targetColumns[i] = targetColumn;
+        }
+        return targetColumns;
+    }
+
+    public JdbcTableCopier setReaderThreads(int readerThreads) {
+        if (readerThreads < 1) {
+            throw new IllegalArgumentException("readerThreads must be positive");
+        }
+        _readerThreads = readerThreads;
+        return this;
+    }
+
+    /**
+     * Sets the number of writer threads. More than one writer thread requires
+     * a target {@link JdbcDataContext} backed by a DataSource, since writers
+     * sharing a single connection would commit and roll back each other's
+     * batches.
+     *
+     * @param writerThreads
+     * @return
+     */
+    public JdbcTableCopier setWriterThreads(int writerThreads) {
+        if (writerThreads < 1) {
+            throw new IllegalArgumentException("writerThreads must be positive");
+        }
+        if (writerThreads > 1 && !isDataSourceTarget()) {
+            throw new IllegalArgumentException(
+                    "Multiple writer threads require a target JdbcDataContext backed by a DataSource");
+        }
+        _writerThreads = writerThreads;
+        return this;
+    }
+
+    /**
+     * Sets the number of rows written per batch.
+     *
+     * @param batchSize
+     * @return
+     */
+    public JdbcTableCopier setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        _batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of batches waiting to be written. Readers will
+     * block when the queue is full.
+     *
+     * @param queueSize
+     * @return
+     */
+    public JdbcTableCopier setQueueSize(int queueSize) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("queueSize must be positive");
+        }
+        _queueSize = queueSize;
+        return this;
+    }
+
+    /**
+     * Sets the desired maximum number of rows per split range, see
+     * {@link QuerySplitter#setMaxRows(long)}.
+     *
+     * @param maxRowsPerSplit
+     * @return
+     */
+    public JdbcTableCopier setMaxRowsPerSplit(long maxRowsPerSplit) {
+        _maxRowsPerSplit = maxRowsPerSplit;
+        return this;
+    }
+
+    public JdbcTableCopier setCheckpoint(TableCopyCheckpoint checkpoint) {
+        _checkpoint = checkpoint;
+        return this;
+    }
+
+    public TableCopyStatistics getStatistics() {
+        return _statistics;
+    }
+
+    /**
+     * Copies the rows, splitting the source query using the
+     * {@link QuerySplitter}.
+     *
+     * @return the statistics of the copy
+     * @throws MetaModelException
+     *             if reading or writing failed
+     */
+    public TableCopyStatistics copy() throws MetaModelException {
+        final List<Query> splitQueries = new QuerySplitter(_sourceDataContext, _sourceQuery).setMaxRows(
+                _maxRowsPerSplit).splitQuery();
+        return copy(splitQueries);
+    }
+
+    /**
+     * Copies the rows of a given list of split queries, which together must
+     * yield the result of the source query.
+     *
+     * @param splitQueries
+     * @return the statistics of the copy
+     * @throws MetaModelException
+     *             if reading or writing failed
+     */
+    public TableCopyStatistics copy(List<Query> splitQueries) throws MetaModelException {
+        _statistics.start(splitQueries.size());
+
+        final BlockingQueue<SplitState> splits = new ArrayBlockingQueue<>(Math.max(1, splitQueries.size()));
+        for (Query splitQuery : splitQueries) {
+            final String splitKey = splitQuery.toSql();
+            if (_checkpoint != null && _checkpoint.isCompleted(splitKey)) {
+                logger.info("Skipping split range, already copied: {}", splitKey);
+                _statistics.splitSkipped();
+            } else {
+                splits.add(new SplitState(splitKey, splitQuery));
+            }
+        }
+
+        final BlockingQueue<RowBatch> batches = new ArrayBlockingQueue<>(_queueSize);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final AtomicInteger activeReaders = new AtomicInteger(_readerThreads);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(_readerThreads + _writerThreads);
+        try {
+            for (int i = 0; i < _readerThreads; i++) {
+                executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            runReader(splits, batches, failure);
+                        } catch (RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            activeReaders.decrementAndGet();
+                        }
+                    }
+                });
+            }
+            for (int i = 0; i < _writerThreads; i++) {
+                executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            runWriter(batches, activeReaders, failure);
+                        } catch (RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                });
+            }
+            executorService.shutdown();
+            while (!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.debug("Copy in progress: {}", _statistics);
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, new MetaModelException("Interrupted while copying table", e));
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            _statistics.end();
+        }
+
+        final RuntimeException e = failure.get();
+        if (e != null) {
+            if (e instanceof MetaModelException) {
+                throw e;
+            }
+            throw new MetaModelException("Failed to copy table: " + e.getMessage(), e);
+        }
+
+        logger.info("Copy finished: {}", _statistics);
+        return _statistics;
+    }
+
+    private void runReader(BlockingQueue<SplitState> splits, BlockingQueue<RowBatch> batches,
+            AtomicReference<RuntimeException> failure) {
+        for (SplitState split = splits.poll(); split != null && failure.get() == null; split = splits.poll()) {
+            logger.debug("Reading split range: {}", split._key);
+            try (DataSet dataSet = _sourceDataContext.executeQuery(split._query)) {
+                List<Row> rows = new ArrayList<>(_batchSize);
+                while (dataSet.next()) {
+                    rows.add(dataSet.getRow());
+                    if (rows.size() == _batchSize) {
+                        if (!enqueue(batches, new RowBatch(split, rows), failure)) {
+                            return;
+                        }
+                        rows = new ArrayList<>(_batchSize);
+                    }
+                }
+                if (!rows.isEmpty() && !enqueue(batches, new RowBatch(split, rows), failure)) {
+                    return;
+                }
+            }
+            split.readCompleted();
+        }
+    }
+
+    private boolean enqueue(BlockingQueue<RowBatch> batches, RowBatch batch,
+            AtomicReference<RuntimeException> failure) {
+        batch._split.batchEnqueued();
+        _statistics.addRowsRead(batch._rows.size());
+        try {
+            while (!batches.offer(batch, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            throw new MetaModelException("Interrupted while waiting for writers", e);
+        }
+    }
+
+    private void runWriter(BlockingQueue<RowBatch> batches, AtomicInteger activeReaders,
+            AtomicReference<RuntimeException> failure) {
+        while (failure.get() == null) {
+            final RowBatch batch;
+            try {
+                batch = batches.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new MetaModelException("Interrupted while waiting for readers", e);
+            }
+            if (batch == null) {
+                if (activeReaders.get() == 0 && batches.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            write(batch._rows);
+            _statistics.addRowsWritten(batch._rows.size());
+            batch._split.batchWritten();
+        }
+    }
+
+    private void write(final List<Row> rows) {
+        _targetDataContext.executeUpdate(new BatchUpdateScript() {
+            @Override
+            public void run(UpdateCallback callback) {
+                for (Row row : rows) {
+                    final RowInsertionBuilder insertion = callback.insertInto(_targetTable);
+                    for (int i = 0; i < _targetColumns.length; i++) {
+                        insertion.value(_targetColumns[i], row.getValue(i));
+                    }
+                    insertion.execute();
+                }
+            }
+        });
+    }
+
+    /**
+     * Tracks the progress of a single split range, which is complete when all
+     * its rows have been read and all of its batches have been written.
+     */
+    private final class SplitState {
+
+        private final String _key;
+        private final Query _query;
+        private long _pendingBatches;
+        private long _rowCount;
+        private boolean _readCompleted;
+        private boolean _completed;
+
+        public SplitState(String key, Query query) {
+            _key = key;
+            _query = query;
+        }
+
+        public synchronized void batchEnqueued() {
+            _pendingBatches++;
+        }
+
+        public void batchWritten() {
+            synchronized (this) {
+                _pendingBatches--;
+            }
+            checkCompleted();
+        }
+
+        public void readCompleted() {
+            synchronized (this) {
+                _readCompleted = true;
+            }
+            checkCompleted();
+        }
+
+        private void checkCompleted() {
+            synchronized (this) {
+                if (_completed || !_readCompleted || _pendingBatches != 0) {
+                    return;
+                }
+                _completed = true;
+            }
+            logger.debug("Split range copied: {}", _key);
+            _statistics.splitCompleted();
+            if (_checkpoint != null) {
+                _checkpoint.markCompleted(_key, _rowCount);
+            }
+        }
+    }
+
+    private static final class RowBatch {
+
+        private final SplitState _split;
+        private final List<Row> _rows;
+
+        public RowBatch(SplitState split, List<Row> rows) {
+            _split = split;
+            _rows = rows;
+            synchronized (split) {
+                split._rowCount += rows.size();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.data.AbstractDataSet;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.data.WrappingDataSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DataSet for keyset paginated queries. Pages will be queried as needed, not
+ * at once, each one seeking past the last key of the previous page.
+ * 
+ * @see org.apache.metamodel.jdbc.KeysetPaginator
+ */
+final class KeysetPaginationDataSet extends AbstractDataSet implements WrappingDataSet {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeysetPaginationDataSet.class);
+
+    private final KeysetPaginator _paginator;
+    private DataSet _currentDataSet;
+    private Object[] _lastKey;
+    private int _currentPageRowCount;
+    private boolean _lastPage;
+    private int _pageIndex = 0;
+
+    public KeysetPaginationDataSet(KeysetPaginator paginator, Object[] lastKey) {
+        super(paginator.getPageSelectItems());
+        _paginator = paginator;
+        _lastKey = lastKey;
+        _lastPage = false;
+    }
+
+    @Override
+    public DataSet getWrappedDataSet() {
+        return _currentDataSet;
+    }
+
+    @Override
+    public void close() {
+        if (_currentDataSet != null) {
+            logger.debug("currentDataSet.close()");
+            _currentDataSet.close();
+        }
+        _currentDataSet = null;
+        _lastPage = true;
+    }
+
+    @Override
+    public Row getRow() throws MetaModelException {
+        if (_currentDataSet != null) {
+            return _currentDataSet.getRow();
+        }
+        throw new IllegalStateException("No rows available. Either DataSet is closed or next() hasn't been called");
+    }
+
+    @Override
+    public boolean next() {
+        if (_currentDataSet != null) {
+            if (_currentDataSet.next()) {
+                _currentPageRowCount++;
+                _lastKey = _paginator.getKey(_currentDataSet.getRow());
+                return true;
+            }
+            logger.debug("currentDataSet.close()");
+            _currentDataSet.close();
+            _currentDataSet = null;
+
+            // a page that is not full is the last page
+            if (_currentPageRowCount < _paginator.getPageSize()) {
+                _lastPage = true;
+            }
+        }
+        if (_lastPage) {
+            return false;
+        }
+
+        _pageIndex++;
+        logger.debug("Executing page #{}", _pageIndex);
+        _currentDataSet = _paginator.executePage(_lastKey);
+        _currentPageRowCount = 0;
+        return next();
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.MetaModelHelper;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.FromItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.Table;
+
+/**
+ * The KeysetPaginator class makes it possible to page through a (potentially
+ * huge) query result using keyset pagination (also known as "seek" paging).
+ *
+ * Instead of using {@link Query#setFirstRow(Integer)}, which is translated
+ * into OFFSET or ROW_NUMBER constructs that force the database to scan and
+ * discard every skipped row, each page is selected using a WHERE predicate on
+ * the last seen key, ie. <code>WHERE (k) &gt; (last seen k)</code>, ordered by
+ * the key. When the key is indexed (which primary keys typically are) the cost
+ * of fetching a page is therefore constant, no matter how deep into the result
+ * the page is.
+ *
+ * The key columns must together be unique and not nullable. If no key columns
+ * are specified, the primary key columns of the queried table will be used.
+ *
+ * Pages can either be walked one at a time, using {@link #executePage(Object[])}
+ * and {@link #getKey(Row)}, or all at once as a single {@link DataSet} using
+ * {@link #executeQueries()}.
+ *
+ * @see QuerySplitter
+ */
+public final class KeysetPaginator {
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private final DataContext _dataContext;
+    private final Query _query;
+    private final List<Column> _keyColumns;
+    private final List<SelectItem> _keySelectItems;
+    private final List<SelectItem> _outputSelectItems;
+    private int _pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * Creates a {@link KeysetPaginator} that uses the primary key of the
+     * queried table as the key.
+     *
+     * @param dc
+     * @param q
+     */
+    public KeysetPaginator(DataContext dc, Query q) {
+        this(dc, q, getPrimaryKeys(q));
+    }
+
+    /**
+     * Creates a {@link KeysetPaginator} that uses the specified (unique and non
+     * nullable) columns as the key.
+     *
+     * @param dc
+     * @param q
+     * @param keyColumns
+     */
+    public KeysetPaginator(DataContext dc, Query q, List<Column> keyColumns) {
+        if (dc == null) {
+            throw new IllegalArgumentException("DataContext cannot be null");
+        }
+        if (q == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        if (keyColumns == null || keyColumns.isEmpty()) {
+            throw new IllegalArgumentException("Key columns cannot be null or empty");
+        }
+        if (!isPaginatable(q)) {
+            throw new IllegalArgumentException("Query cannot be paginated using keyset pagination: " + q);
+        }
+        _dataContext = dc;
+        _keyColumns = Collections.unmodifiableList(new ArrayList<>(keyColumns));
+        _outputSelectItems = q.getSelectClause().getItems();
+
+        // add the key columns to the select clause, if they're not already
+        // there, so that the last seen key can be read from the rows.
+        _query = q.clone();
+        _keySelectItems = new ArrayList<>(_keyColumns.size());
+        for (Column keyColumn : _keyColumns) {
+            SelectItem selectItem = _query.getSelectClause().getSelectItem(keyColumn);
+            if (selectItem == null) {
+                selectItem = new SelectItem(keyColumn);
+                _query.select(selectItem);
+            }
+            _keySelectItems.add(selectItem);
+        }
+    }
+
+    private static List<Column> getPrimaryKeys(Query q) {
+        if (q == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        final List<FromItem> fromItems = q.getFromClause().getItems();
+        if (fromItems.size() != 1 || fromItems.get(0).getTable() == null) {
+            throw new IllegalArgumentException(
+                    "Key columns must be specified for queries that do not select from a single table: " + q);
+        }
+        final Table table = fromItems.get(0).getTable();
+        final List<Column> primaryKeys = table.getPrimaryKeys();
+        if (primaryKeys.isEmpty()) {
+            throw new IllegalArgumentException("Table has no primary key, key columns must be specified: " + table);
+        }
+        return primaryKeys;
+    }
+
+    /**
+     * Determines if a query can be paginated using keyset pagination. This is
+     * the case for queries without explicit paging, ordering, grouping and
+     * aggregation.
+     *
+     * @param q
+     * @return
+     */
+    public static boolean isPaginatable(Query q) {
+        if (q.getFirstRow() != null || q.getMaxRows() != null) {
+            return false;
+        }
+        if (q.getOrderByClause().getItemCount() != 0) {
+            return false;
+        }
+        if (q.getGroupByClause().getItemCount() != 0 || q.getHavingClause().getItemCount() != 0) {
+            return false;
+        }
+        if (q.getSelectClause().isDistinct()) {
+            return false;
+        }
+        for (SelectItem selectItem : q.getSelectClause().getItems()) {
+            if (selectItem.getAggregateFunction() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the number of rows to fetch per page.
+     *
+     * @param pageSize
+     * @return
+     */
+    public KeysetPaginator setPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        _pageSize = pageSize;
+        return this;
+    }
+
+    public int getPageSize() {
+        return _pageSize;
+    }
+
+    public List<Column> getKeyColumns() {
+        return _keyColumns;
+    }
+
+    /**
+     * @return the select items of the page queries, ie. the select items of the
+     *         original query plus any key columns not already selected.
+     */
+    List<SelectItem> getPageSelectItems() {
+        return _query.getSelectClause().getItems();
+    }
+
+    /**
+     * Creates the query for the page that follows the specified key.
+     *
+     * @param lastKey
+     *            the last seen key, or null if the first page should be
+     *            queried
+     * @return
+     */
+    public Query createPageQuery(Object[] lastKey) {
+        final Query q = _query.clone();
+        if (lastKey != null) {
+            if (lastKey.length != _keyColumns.size()) {
+                throw new IllegalArgumentException("Expected " + _keyColumns.size() + " key values, got "
+                        + lastKey.length);
+            }
+            q.where(createSeekFilter(lastKey));
+        }
+        for (Column keyColumn : _keyColumns) {
+            q.orderBy(new OrderByItem(new SelectItem(keyColumn)));
+        }
+        q.setMaxRows(_pageSize);
+        return q;
+    }
+
+    /**
+     * Creates the filter equivalent to the row value comparison
+     * <code>(k1, k2, ..., kn) &gt; (v1, v2, ..., vn)</code>, expanded as
+     * <code>k1 &gt; v1 OR (k1 = v1 AND k2 &gt; v2) OR ...</code> since row
+     * value comparisons are not supported by all databases.
+     *
+     * @param lastKey
+     * @return
+     */
+    private FilterItem createSeekFilter(Object[] lastKey) {
+        final List<FilterItem> alternatives = new ArrayList<>(_keyColumns.size());
+        for (int i = 0; i < _keyColumns.size(); i++) {
+            final List<FilterItem> conjunction = new ArrayList<>(i + 1);
+            for (int j = 0; j < i; j++) {
+                conjunction.add(new FilterItem(new SelectItem(_keyColumns.get(j)), OperatorType.EQUALS_TO,
+                        lastKey[j]));
+            }
+            conjunction.add(new FilterItem(new SelectItem(_keyColumns.get(i)), OperatorType.GREATER_THAN,
+                    lastKey[i]));
+            if (conjunction.size() == 1) {
+                alternatives.add(conjunction.get(0));
+            } else {
+                alternatives.add(new FilterItem(LogicalOperator.AND, conjunction));
+            }
+        }
+        if (alternatives.size() == 1) {
+            return alternatives.get(0);
+        }
+        return new FilterItem(alternatives);
+    }
+
+    /**
+     * Gets the key of a row from a page.
+     *
+     * @param row
+     * @return
+     */
+    public Object[] getKey(Row row) {
+        final Object[] key = new Object[_keySelectItems.size()];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = row.getValue(_keySelectItems.get(i));
+        }
+        return key;
+    }
+
+    /**
+     * Executes the query for the page that follows the specified key. The rows
+     * of the resulting {@link DataSet} will contain the key columns, even if
+     * these are not selected by the original query, to allow retrieval of the
+     * last seen key using {@link #getKey(Row)}.
+     *
+     * @param lastKey
+     *            the last seen key, or null if the first page should be
+     *            queried
+     * @return
+     */
+    public DataSet executePage(Object[] lastKey) {
+        return _dataContext.executeQuery(createPageQuery(lastKey));
+    }
+
+    /**
+     * Executes all pages, lazily and one at a time, and exposes them as a
+     * single {@link DataSet} with the select items of the original query.
+     *
+     * @return
+     */
+    public DataSet executeQueries() {
+        return executeQueries(null);
+    }
+
+    /**
+     * Executes all pages following the specified key, lazily and one at a
+     * time, and exposes them as a single {@link DataSet} with the select items
+     * of the original query. This can be used to resume a previously
+     * interrupted pagination.
+     *
+     * @param lastKey
+     * @return
+     */
+    public DataSet executeQueries(Object[] lastKey) {
+        final DataSet dataSet = new KeysetPaginationDataSet(this, lastKey);
+        return MetaModelHelper.getSelection(_outputSelectItems, dataSet);
+    }
+}
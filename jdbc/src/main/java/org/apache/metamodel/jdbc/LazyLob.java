@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.jdbc.JdbcUtils.JdbcActionType;
+import org.apache.metamodel.util.FileHelper;
+
+/**
+ * Value type for large CLOB/BLOB values that are read lazily. When LOB
+ * conversion is enabled (see {@link JdbcDataContext#SYSTEM_PROPERTY_CONVERT_LOBS})
+ * together with an inline threshold (see
+ * {@link JdbcDataContext#SYSTEM_PROPERTY_CONVERT_LOBS_INLINE_THRESHOLD}), LOB
+ * values larger than the threshold are represented by this type instead of a
+ * fully materialized String or byte[]. Such columns are typed as
+ * {@link JdbcDataContext#COLUMN_TYPE_CLOB_AS_LAZY_LOB} or
+ * {@link JdbcDataContext#COLUMN_TYPE_BLOB_AS_LAZY_LOB}.
+ *
+ * The contents of a {@link LazyLob} are streamed from the database on demand,
+ * and are therefore only available while the DataSet that produced it is open.
+ */
+public final class LazyLob {
+
+    private final Clob _clob;
+    private final Blob _blob;
+    private final long _length;
+
+    public LazyLob(Clob clob) throws SQLException {
+        if (clob == null) {
+            throw new IllegalArgumentException("Clob cannot be null");
+        }
+        _clob = clob;
+        _blob = null;
+        _length = clob.length();
+    }
+
+    public LazyLob(Blob blob) throws SQLException {
+        if (blob == null) {
+            throw new IllegalArgumentException("Blob cannot be null");
+        }
+        _clob = null;
+        _blob = blob;
+        _length = blob.length();
+    }
+
+    /**
+     * Determines if this is a binary (BLOB) value or a character (CLOB) value.
+     *
+     * @return
+     */
+    public boolean isBinary() {
+        return _blob != null;
+    }
+
+    /**
+     * Gets the length of the value, in characters for CLOB values and in bytes
+     * for BLOB values.
+     *
+     * @return
+     */
+    public long length() {
+        return _length;
+    }
+
+    /**
+     * Gets a stream of the characters of a CLOB value.
+     *
+     * @return
+     */
+    public Reader getCharacterStream() {
+        if (_clob == null) {
+            throw new IllegalStateException("Character stream is not available for binary LOB values");
+        }
+        try {
+            return _clob.getCharacterStream();
+        } catch (SQLException e) {
+            throw JdbcUtils.wrapException(e, "read CLOB value", JdbcActionType.QUERY);
+        }
+    }
+
+    /**
+     * Gets a stream of the bytes of a BLOB value, or the ASCII stream of a CLOB
+     * value.
+     *
+     * @return
+     */
+    public InputStream getBinaryStream() {
+        try {
+            if (_blob == null) {
+                return _clob.getAsciiStream();
+            }
+            return _blob.getBinaryStream();
+        } catch (SQLException e) {
+            throw JdbcUtils.wrapException(e, "read LOB value", JdbcActionType.QUERY);
+        }
+    }
+
+    /**
+     * Reads the full value of a CLOB into a String.
+     *
+     * @return
+     */
+    public String readAsString() throws MetaModelException {
+        return FileHelper.readAsString(getCharacterStream());
+    }
+
+    /**
+     * Reads the full value of a BLOB into a byte array.
+     *
+     * @return
+     */
+    public byte[] readAsBytes() throws MetaModelException {
+        if (_blob == null) {
+            throw new IllegalStateException("Bytes are not available for character LOB values");
+        }
+        return FileHelper.readAsBytes(getBinaryStream());
+    }
+
+    /**
+     * Releases the resources held by the underlying LOB locator.
+     */
+    public void free() {
+        try {
+            if (_blob == null) {
+                _clob.free();
+            } else {
+                _blob.free();
+            }
+        } catch (SQLException e) {
+            throw JdbcUtils.wrapException(e, "free LOB value", JdbcActionType.OTHER);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LazyLob[type=" + (isBinary() ? "BLOB" : "CLOB") + ",length=" + _length + "]";
+    }
+}
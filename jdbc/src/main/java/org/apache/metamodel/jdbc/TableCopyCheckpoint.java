@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+/**
+ * Keeps track of the split ranges that have been fully copied by a
+ * {@link JdbcTableCopier}, so that an interrupted copy can be restarted
+ * without copying the completed ranges again.
+ * 
+ * @see FileTableCopyCheckpoint
+ */
+public interface TableCopyCheckpoint {
+
+    /**
+     * Determines if a split range has already been copied.
+     * 
+     * @param splitKey
+     *            the key of the split range, ie. the SQL representation of the
+     *            split query
+     * @return
+     */
+    public boolean isCompleted(String splitKey);
+
+    /**
+     * Marks a split range as completely copied.
+     * 
+     * @param splitKey
+     *            the key of the split range, ie. the SQL representation of the
+     *            split query
+     * @param rowCount
+     *            the number of rows copied in the split range
+     */
+    public void markCompleted(String splitKey, long rowCount);
+}
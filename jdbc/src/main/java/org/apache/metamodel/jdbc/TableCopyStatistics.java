@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and throughput metrics of a {@link JdbcTableCopier}. The metrics are
+ * updated while the copy is running and can be polled from other threads.
+ */
+public final class TableCopyStatistics {
+
+    private final AtomicLong _rowsRead = new AtomicLong();
+    private final AtomicLong _rowsWritten = new AtomicLong();
+    private final AtomicInteger _splitsCompleted = new AtomicInteger();
+    private final AtomicInteger _splitsSkipped = new AtomicInteger();
+    private volatile int _splitCount;
+    private volatile long _startTimeMillis;
+    private volatile long _endTimeMillis;
+
+    TableCopyStatistics() {
+    }
+
+    void start(int splitCount) {
+        _splitCount = splitCount;
+        _startTimeMillis = System.currentTimeMillis();
+    }
+
+    void end() {
+        _endTimeMillis = System.currentTimeMillis();
+    }
+
+    void addRowsRead(long rows) {
+        _rowsRead.addAndGet(rows);
+    }
+
+    void addRowsWritten(long rows) {
+        _rowsWritten.addAndGet(rows);
+    }
+
+    void splitCompleted() {
+        _splitsCompleted.incrementAndGet();
+    }
+
+    void splitSkipped() {
+        _splitsSkipped.incrementAndGet();
+    }
+
+    public long getRowsRead() {
+        return _rowsRead.get();
+    }
+
+    public long getRowsWritten() {
+        return _rowsWritten.get();
+    }
+
+    /**
+     * @return the total number of split ranges to copy, including skipped ones
+     */
+    public int getSplitCount() {
+        return _splitCount;
+    }
+
+    public int getSplitsCompleted() {
+        return _splitsCompleted.get();
+    }
+
+    /**
+     * @return the number of split ranges that were skipped because they had
+     *         already been copied according to the checkpoint
+     */
+    public int getSplitsSkipped() {
+        return _splitsSkipped.get();
+    }
+
+    public long getElapsedMillis() {
+        if (_startTimeMillis == 0) {
+            return 0;
+        }
+        final long endTimeMillis = _endTimeMillis == 0 ? System.currentTimeMillis() : _endTimeMillis;
+        return endTimeMillis - _startTimeMillis;
+    }
+
+    /**
+     * @return the average number of rows written per second
+     */
+    public double getRowsPerSecond() {
+        final long elapsedMillis = getElapsedMillis();
+        if (elapsedMillis == 0) {
+            return 0;
+        }
+        return getRowsWritten() * 1000d / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "TableCopyStatistics[rowsRead=" + getRowsRead() + ",rowsWritten=" + getRowsWritten()
+                + ",splitsCompleted=" + getSplitsCompleted() + ",splitsSkipped=" + getSplitsSkipped() + ",splitCount="
+                + getSplitCount() + ",rowsPerSecond=" + (long) getRowsPerSecond() + "]";
+    }
+}
@@ -33,6 +33,7 @@ import java.util.Date;
 import java.util.List;
 
 import org.apache.metamodel.jdbc.JdbcDataContext;
+import org.apache.metamodel.jdbc.LazyLob;
 import org.apache.metamodel.query.AbstractQueryClause;
 import org.apache.metamodel.query.FilterClause;
 import org.apache.metamodel.query.FilterItem;
@@ -344,7 +345,15 @@ public abstract class AbstractQueryRewriter implements IQueryRewriter {
         }
 
         try {
-            if (type == ColumnType.DATE && value instanceof Date) {
+            if (value instanceof LazyLob) {
+                // stream the LOB value instead of materializing it
+                final LazyLob lob = (LazyLob) value;
+                if (lob.isBinary()) {
+                    st.setBinaryStream(valueIndex, lob.getBinaryStream(), lob.length());
+                } else {
+                    st.setCharacterStream(valueIndex, lob.getCharacterStream(), lob.length());
+                }
+            } else if (type == ColumnType.DATE && value instanceof Date) {
                 Calendar cal = Calendar.getInstance();
                 cal.setTime((Date) value);
                 st.setDate(valueIndex, new java.sql.Date(cal.getTimeInMillis()), cal);
@@ -434,8 +443,13 @@ public abstract class AbstractQueryRewriter implements IQueryRewriter {
             } else if (type == ColumnType.BLOB) {
                 final Blob blob = resultSet.getBlob(columnIndex);
                 return blob;
-            } else if (type == JdbcDataContext.COLUMN_TYPE_BLOB_AS_BYTES) {
+            } else if (type == JdbcDataContext.COLUMN_TYPE_BLOB_AS_BYTES
+                    || type == JdbcDataContext.COLUMN_TYPE_BLOB_AS_LAZY_LOB) {
                 final Blob blob = resultSet.getBlob(columnIndex);
+                if (type == JdbcDataContext.COLUMN_TYPE_BLOB_AS_LAZY_LOB && blob != null
+                        && isLazyLob(blob.length())) {
+                    return new LazyLob(blob);
+                }
                 final InputStream inputStream = blob.getBinaryStream();
                 final byte[] bytes = FileHelper.readAsBytes(inputStream);
                 return bytes;
@@ -444,8 +458,13 @@ public abstract class AbstractQueryRewriter implements IQueryRewriter {
             } else if (type == ColumnType.CLOB || type == ColumnType.NCLOB) {
                 final Clob clob = resultSet.getClob(columnIndex);
                 return clob;
-            } else if (type == JdbcDataContext.COLUMN_TYPE_CLOB_AS_STRING) {
+            } else if (type == JdbcDataContext.COLUMN_TYPE_CLOB_AS_STRING
+                    || type == JdbcDataContext.COLUMN_TYPE_CLOB_AS_LAZY_LOB) {
                 final Clob clob = resultSet.getClob(columnIndex);
+                if (type == JdbcDataContext.COLUMN_TYPE_CLOB_AS_LAZY_LOB && clob != null
+                        && isLazyLob(clob.length())) {
+                    return new LazyLob(clob);
+                }
                 final Reader reader = clob.getCharacterStream();
                 final String result = FileHelper.readAsString(reader);
                 return result;
@@ -459,6 +478,21 @@ public abstract class AbstractQueryRewriter implements IQueryRewriter {
         return resultSet.getObject(columnIndex);
     }
 
+    /**
+     * Determines if a converted LOB value of a particular length should be
+     * represented as a {@link LazyLob} instead of being read eagerly.
+     * 
+     * @param length
+     * @return
+     */
+    protected boolean isLazyLob(long length) {
+        if (_dataContext == null) {
+            return false;
+        }
+        final long threshold = _dataContext.getLobInlineThreshold();
+        return threshold >= 0 && length > threshold;
+    }
+
     protected boolean isSupportedVersion(String databaseProductName, int databaseVersion) {
         if (databaseProductName.equals(_dataContext.getDatabaseProductName())
                 && databaseVersion <= VersionParser.getMajorVersion(_dataContext.getDatabaseVersion())) {
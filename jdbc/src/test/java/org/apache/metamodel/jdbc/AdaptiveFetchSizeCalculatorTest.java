@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+
+public class AdaptiveFetchSizeCalculatorTest extends TestCase {
+
+	public void testObservedSizesOverrideEstimates() throws Exception {
+		MutableTable table = new MutableTable("foo");
+		MutableColumn textColumn = new MutableColumn("text", ColumnType.VARCHAR, table, 0, true);
+		MutableColumn numberColumn = new MutableColumn("number", ColumnType.INTEGER, table, 1, true);
+		table.addColumn(textColumn).addColumn(numberColumn);
+
+		Query query = new Query().from(table).select(textColumn, numberColumn);
+		List<SelectItem> selectItems = query.getSelectClause().getItems();
+
+		AdaptiveFetchSizeCalculator calc = new AdaptiveFetchSizeCalculator(256 * 1024);
+
+		// without observations the static estimate applies (1 KB for text
+		// without column size, 16 bytes for numbers)
+		assertEquals(256 * 1024 / (1024 + 16), calc.getFetchSize(query));
+		assertTrue(calc.isSamplingNeeded(selectItems));
+
+		// too few observations to be trusted
+		calc.observe(selectItems, new Object[] { "hello world", 42 });
+		assertNull(calc.getObservedValueSize(textColumn));
+		assertEquals(256 * 1024 / (1024 + 16), calc.getFetchSize(query));
+
+		for (int i = 0; i < 100; i++) {
+			calc.observe(selectItems, new Object[] { "hello world", 42 });
+		}
+		assertEquals(22, calc.getObservedValueSize(textColumn).intValue());
+		assertEquals(16, calc.getObservedValueSize(numberColumn).intValue());
+		assertEquals(256 * 1024 / (22 + 16), calc.getFetchSize(query));
+	}
+
+	public void testLargeValuesReduceFetchSize() throws Exception {
+		MutableTable table = new MutableTable("foo");
+		MutableColumn jsonColumn = new MutableColumn("json", ColumnType.VARCHAR, table, 0, true).setColumnSize(
+				100);
+		table.addColumn(jsonColumn);
+
+		Query query = new Query().from(table).select(jsonColumn);
+		List<SelectItem> selectItems = query.getSelectClause().getItems();
+
+		AdaptiveFetchSizeCalculator calc = new AdaptiveFetchSizeCalculator(1024 * 1024);
+		assertEquals(1024 * 1024 / 200, calc.getFetchSize(query));
+
+		char[] chars = new char[8192];
+		Arrays.fill(chars, 'a');
+		String largeValue = new String(chars);
+		for (int i = 0; i < 100; i++) {
+			calc.observe(selectItems, new Object[] { largeValue });
+		}
+		assertEquals(64, calc.getFetchSize(query));
+	}
+
+	public void testAggregatesAreNotSampled() throws Exception {
+		MutableTable table = new MutableTable("foo");
+		MutableColumn column = new MutableColumn("bar", ColumnType.VARCHAR, table, 0, true);
+		table.addColumn(column);
+
+		Query query = new Query().from(table).selectCount();
+		List<SelectItem> selectItems = query.getSelectClause().getItems();
+
+		AdaptiveFetchSizeCalculator calc = new AdaptiveFetchSizeCalculator(1024 * 1024);
+		assertFalse(calc.isSamplingNeeded(selectItems));
+	}
+}
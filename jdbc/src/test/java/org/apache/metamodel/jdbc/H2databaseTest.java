@@ -510,6 +510,10 @@ public class H2databaseTest extends TestCase {
         JdbcTestTemplates.convertClobToString(dc);
     }
 
+    public void testConvertLargeClobToLazyLob() throws Exception {
+        JdbcTestTemplates.convertLargeClobToLazyLob(conn);
+    }
+
     public void testDifferentOperators() throws Exception {
         JdbcTestTemplates.differentOperatorsTest(conn);
     }
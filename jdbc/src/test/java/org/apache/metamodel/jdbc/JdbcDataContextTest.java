@@ -47,6 +47,7 @@ import org.apache.metamodel.jdbc.dialects.IQueryRewriter;
 import org.apache.metamodel.query.CompiledQuery;
 import org.apache.metamodel.query.FilterItem;
 import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.GroupByItem;
 import org.apache.metamodel.query.OperatorType;
 import org.apache.metamodel.query.OrderByItem;
 import org.apache.metamodel.query.Query;
@@ -248,30 +249,119 @@ public class JdbcDataContextTest extends JdbcTestCase {
     public void testWhereScalarFunction() throws Exception {
         final Connection connection = getTestDbConnection();
         final JdbcDataContext dataContext = new JdbcDataContext(connection);
+        final DataSet dataSet = dataContext.query().from("customers").select("customernumber")
+                .where(FunctionType.TO_BOOLEAN, "creditlimit").eq(true).orderBy("customernumber").limit(2).execute();
         try {
-            dataContext.query().from("customers").select("customernumber")
-                    .where(FunctionType.TO_BOOLEAN, "creditlimit").eq(true).limit(2).execute();
-            fail("Exception expected");
-        } catch (MetaModelException e) {
-            assertEquals(
-                    "Scalar functions outside of SELECT clause is not supported for JDBC databases. Query rejected: "
-                            + "SELECT \"CUSTOMERS\".\"CUSTOMERNUMBER\" FROM PUBLIC.\"CUSTOMERS\" WHERE TO_BOOLEAN(\"CUSTOMERS\".\"CREDITLIMIT\") = TRUE",
-                    e.getMessage());
+            assertTrue(dataSet.next());
+            assertEquals("Row[values=[103]]", dataSet.getRow().toString());
+            assertTrue(dataSet.next());
+            assertEquals("Row[values=[112]]", dataSet.getRow().toString());
+            assertFalse(dataSet.next());
+        } finally {
+            dataSet.close();
+        }
+    }
+
+    public void testGroupByScalarFunction() throws Exception {
+        final Connection connection = getTestDbConnection();
+        final JdbcDataContext dataContext = new JdbcDataContext(connection);
+        final Table table = dataContext.getDefaultSchema().getTableByName("CUSTOMERS");
+        final SelectItem groupBySelectItem = new SelectItem(FunctionType.TO_BOOLEAN, table.getColumnByName(
+                "CREDITLIMIT"));
+
+        final Query query = dataContext.query().from(table).select(groupBySelectItem).selectCount().where(
+                "COUNTRY").ne("Foobar").toQuery();
+        query.groupBy(new GroupByItem(groupBySelectItem));
+        query.orderBy(new OrderByItem(groupBySelectItem));
+
+        final DataSet dataSet = dataContext.executeQuery(query);
+        try {
+            assertTrue(dataSet.next());
+            assertEquals("Row[values=[false, 24]]", dataSet.getRow().toString());
+            assertTrue(dataSet.next());
+            assertEquals("Row[values=[true, 98]]", dataSet.getRow().toString());
+            assertFalse(dataSet.next());
+        } finally {
+            dataSet.close();
         }
     }
 
     public void testUnsupportedAggregateFunction() throws Exception {
         final Connection connection = getTestDbConnection();
         final JdbcDataContext dataContext = new JdbcDataContext(connection);
+        final DataSet dataSet = dataContext.query().from("customers").select(FunctionType.RANDOM, "customernumber")
+                .select(FunctionType.MAX, "customernumber").execute();
         try {
-            dataContext.query().from("customers").select(FunctionType.RANDOM, "customernumber").execute();
-            fail("Exception expected");
-        } catch (MetaModelException e) {
-            assertEquals("Aggregate function 'RANDOM' is not supported on this JDBC database. Query rejected: "
-                    + "SELECT RANDOM(\"CUSTOMERS\".\"CUSTOMERNUMBER\") FROM PUBLIC.\"CUSTOMERS\"", e.getMessage());
+            assertTrue(dataSet.next());
+            final Number randomValue = (Number) dataSet.getRow().getValue(0);
+            assertTrue(randomValue.intValue() >= 103);
+            assertTrue(randomValue.intValue() <= 496);
+            assertEquals(496, ((Number) dataSet.getRow().getValue(1)).intValue());
+            assertFalse(dataSet.next());
+        } finally {
+            dataSet.close();
         }
     }
 
+    public void testUnsupportedAggregateFunctionWithHaving() throws Exception {
+        final Connection connection = getTestDbConnection();
+        final JdbcDataContext dataContext = new JdbcDataContext(connection);
+        final DataSet dataSet = dataContext.query().from("customers").select("country").select(FunctionType.FIRST,
+                "country").groupBy("country").having(FunctionType.COUNT, "customernumber").gt(10).orderBy("country")
+                .execute();
+        try {
+            assertTrue(dataSet.next());
+            assertEquals("Row[values=[France, France]]", dataSet.getRow().toString());
+            assertTrue(dataSet.next());
+            assertEquals("Row[values=[Germany, Germany]]", dataSet.getRow().toString());
+            assertTrue(dataSet.next());
+            assertEquals("Row[values=[USA, USA]]", dataSet.getRow().toString());
+            assertFalse(dataSet.next());
+        } finally {
+            dataSet.close();
+        }
+    }
+
+    public void testGroupedQueryWithScalarFunctionPushesDownAggregates() throws Exception {
+        final List<String> sqls = new ArrayList<>();
+        final JdbcDataContext dataContext = new JdbcDataContext(getTestDbConnection());
+        dataContext.setQueryRewriter(new DefaultQueryRewriter(dataContext) {
+            @Override
+            public String rewriteQuery(Query query) {
+                final String sql = super.rewriteQuery(query);
+                sqls.add(sql);
+                return sql;
+            }
+        });
+        final Table table = dataContext.getDefaultSchema().getTableByName("CUSTOMERS");
+        final Column countryColumn = table.getColumnByName("COUNTRY");
+        final Column customerNumberColumn = table.getColumnByName("CUSTOMERNUMBER");
+
+        final Query query = dataContext.query().from(table).select(countryColumn).selectCount().select(
+                FunctionType.MAX, "CREDITLIMIT").groupBy(countryColumn).having(FunctionType.COUNT,
+                        customerNumberColumn).gt(5).toQuery();
+        query.orderBy(new OrderByItem(new SelectItem(FunctionType.TO_STRING, countryColumn),
+                OrderByItem.Direction.DESC));
+
+        final Query expectedQuery = dataContext.query().from(table).select(countryColumn).selectCount().select(
+                FunctionType.MAX, "CREDITLIMIT").groupBy(countryColumn).having(FunctionType.COUNT,
+                        customerNumberColumn).gt(5).orderBy(countryColumn).desc().toQuery();
+
+        final List<Row> expectedRows = dataContext.executeQuery(expectedQuery).toRows();
+        assertEquals(1, sqls.size());
+        sqls.clear();
+
+        final List<Row> rows = dataContext.executeQuery(query).toRows();
+        assertEquals(expectedRows.toString(), rows.toString());
+        assertTrue(rows.size() > 1);
+
+        assertEquals(1, sqls.size());
+        final String sql = sqls.get(0);
+        assertTrue(sql, sql.contains(" GROUP BY "));
+        assertTrue(sql, sql.contains(" HAVING "));
+        assertFalse(sql, sql.contains(" ORDER BY "));
+    }
+
     public void testExecuteQueryWithComparisonGreaterThanOrEquals() throws Exception {
         Connection connection = getTestDbConnection();
         JdbcDataContext dataContext = new JdbcDataContext(connection,
@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.create.CreateTable;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Schema;
+import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.FileHelper;
+
+public class JdbcTableCopierTest extends JdbcTestCase {
+
+    private Connection _targetConnection;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Class.forName(H2databaseTest.DRIVER_CLASS);
+        _targetConnection = DriverManager.getConnection(H2databaseTest.URL_MEMORY_DATABASE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        _targetConnection.close();
+    }
+
+    public void testCopyInParallel() throws Exception {
+        final DataContext sourceDc = new JdbcDataContext(getTestDbConnection());
+        final Table sourceTable = sourceDc.getDefaultSchema().getTableByName("CUSTOMERS");
+        final Query query = sourceDc.query().from(sourceTable).select("CUSTOMERNUMBER", "CUSTOMERNAME").toQuery();
+
+        // multiple writers need a connection each
+        final BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setDriverClassName(H2databaseTest.DRIVER_CLASS);
+        dataSource.setUrl("jdbc:h2:mem:table_copier_target");
+        try {
+            final JdbcDataContext targetDc = new JdbcDataContext(dataSource);
+            final Table targetTable = createTargetTable(targetDc);
+
+            final JdbcTableCopier copier = new JdbcTableCopier(sourceDc, query, targetDc, targetTable)
+                    .setReaderThreads(2).setWriterThreads(2).setBatchSize(10).setQueueSize(2).setMaxRowsPerSplit(
+                            100);
+            final TableCopyStatistics statistics = copier.copy();
+
+            assertEquals(122, statistics.getRowsRead());
+            assertEquals(122, statistics.getRowsWritten());
+            assertTrue(statistics.getSplitCount() > 1);
+            assertEquals(statistics.getSplitCount(), statistics.getSplitsCompleted());
+            assertEquals(0, statistics.getSplitsSkipped());
+
+            assertEquals(122, getRowCount(targetDc, targetTable));
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    public void testMultipleWritersRequireDataSource() throws Exception {
+        final DataContext sourceDc = new JdbcDataContext(getTestDbConnection());
+        final Table sourceTable = sourceDc.getDefaultSchema().getTableByName("CUSTOMERS");
+
+        final JdbcDataContext targetDc = new JdbcDataContext(_targetConnection);
+        final Table targetTable = createTargetTable(targetDc);
+
+        final JdbcTableCopier copier = new JdbcTableCopier(sourceDc, sourceDc.query().from(sourceTable).select(
+                "CUSTOMERNUMBER", "CUSTOMERNAME").toQuery(), targetDc, targetTable);
+        try {
+            copier.setWriterThreads(2);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Multiple writer threads require a target JdbcDataContext backed by a DataSource", e
+                    .getMessage());
+        }
+        copier.setReaderThreads(2).setWriterThreads(1);
+    }
+
+    public void testRestartFromCheckpoint() throws Exception {
+        final DataContext sourceDc = new JdbcDataContext(getTestDbConnection());
+        final Table sourceTable = sourceDc.getDefaultSchema().getTableByName("CUSTOMERS");
+        final Query query = sourceDc.query().from(sourceTable).select("CUSTOMERNUMBER", "CUSTOMERNAME").toQuery();
+
+        final JdbcDataContext targetDc = new JdbcDataContext(_targetConnection);
+        final Table targetTable = createTargetTable(targetDc);
+
+        final File checkpointFile = FileHelper.createTempFile("table_copy", ".checkpoint");
+        checkpointFile.delete();
+        try {
+            TableCopyStatistics statistics = new JdbcTableCopier(sourceDc, query, targetDc, targetTable)
+                    .setMaxRowsPerSplit(100).setCheckpoint(new FileTableCopyCheckpoint(checkpointFile)).copy();
+            assertEquals(122, statistics.getRowsWritten());
+            final int splitCount = statistics.getSplitCount();
+
+            // a new copier with the same checkpoint file has nothing left to do
+            statistics = new JdbcTableCopier(sourceDc, query, targetDc, targetTable).setMaxRowsPerSplit(100)
+                    .setCheckpoint(new FileTableCopyCheckpoint(checkpointFile)).copy();
+            assertEquals(0, statistics.getRowsWritten());
+            assertEquals(splitCount, statistics.getSplitsSkipped());
+
+            assertEquals(122, getRowCount(targetDc, targetTable));
+        } finally {
+            checkpointFile.delete();
+        }
+    }
+
+    private Table createTargetTable(JdbcDataContext targetDc) {
+        final Schema schema = targetDc.getDefaultSchema();
+        targetDc.executeUpdate(new CreateTable(schema, "customers_copy").withColumn("CUSTOMERNUMBER").ofType(
+                ColumnType.INTEGER).withColumn("CUSTOMERNAME").ofType(ColumnType.VARCHAR).ofSize(50));
+        return schema.getTableByName("customers_copy");
+    }
+
+    private long getRowCount(DataContext dc, Table table) {
+        final DataSet ds = dc.query().from(table).selectCount().execute();
+        try {
+            assertTrue(ds.next());
+            return ((Number) ds.getRow().getValue(0)).longValue();
+        } finally {
+            ds.close();
+        }
+    }
+}
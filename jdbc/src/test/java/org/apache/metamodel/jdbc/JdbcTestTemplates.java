@@ -569,6 +569,51 @@ public class JdbcTestTemplates {
         System.setProperty(JdbcDataContext.SYSTEM_PROPERTY_CONVERT_LOBS, "");
     }
 
+    public static void convertLargeClobToLazyLob(Connection connection) {
+        System.setProperty(JdbcDataContext.SYSTEM_PROPERTY_CONVERT_LOBS, "true");
+        System.setProperty(JdbcDataContext.SYSTEM_PROPERTY_CONVERT_LOBS_INLINE_THRESHOLD, "10");
+
+        final JdbcDataContext dc = new JdbcDataContext(connection);
+        assertEquals(10, dc.getLobInlineThreshold());
+
+        final Schema schema = dc.getDefaultSchema();
+
+        dc.executeUpdate(new UpdateScript() {
+            @Override
+            public void run(UpdateCallback callback) {
+                Table table = callback.createTable(schema, "lazy_lob_test_table").withColumn("id")
+                        .ofType(ColumnType.INTEGER).asPrimaryKey().withColumn("foo").ofType(ColumnType.CLOB).execute();
+
+                callback.insertInto(table).value("id", 1).value("foo", "baaaaz").execute();
+                callback.insertInto(table).value("id", 2).value("foo", "foooooooabavlsdk\nflskmflsdk").execute();
+            }
+        });
+
+        final Column column = dc.getDefaultSchema().getTableByName("lazy_lob_test_table").getColumnByName("foo");
+        assertEquals(JdbcDataContext.COLUMN_TYPE_CLOB_AS_LAZY_LOB, column.getType());
+        assertEquals(Object.class, column.getType().getJavaEquivalentClass());
+
+        final DataSet ds = dc.query().from(schema, "lazy_lob_test_table").select("id", "foo").orderBy("id")
+                .execute();
+        assertTrue(ds.next());
+        assertEquals("Row[values=[1, baaaaz]]", ds.getRow().toString());
+        assertTrue(ds.next());
+        final Object value = ds.getRow().getValue(1);
+        assertTrue(value instanceof LazyLob);
+        final LazyLob lob = (LazyLob) value;
+        assertFalse(lob.isBinary());
+        assertEquals(26, lob.length());
+        assertEquals("LazyLob[type=CLOB,length=26]", lob.toString());
+        assertEquals("foooooooabavlsdk\nflskmflsdk", lob.readAsString());
+        assertFalse(ds.next());
+        ds.close();
+
+        dc.executeUpdate(new DropTable(schema, "lazy_lob_test_table"));
+
+        System.clearProperty(JdbcDataContext.SYSTEM_PROPERTY_CONVERT_LOBS_INLINE_THRESHOLD);
+        System.setProperty(JdbcDataContext.SYSTEM_PROPERTY_CONVERT_LOBS, "");
+    }
+
     public static void simpleCreateInsertUpdateAndDrop(final JdbcDataContext dataContext, final String testTableName) {
         final Schema defaultSchema = dataContext.getDefaultSchema();
 
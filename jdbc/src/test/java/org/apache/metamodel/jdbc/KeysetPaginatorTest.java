@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.jdbc;
+
+import java.util.Arrays;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Table;
+
+public class KeysetPaginatorTest extends JdbcTestCase {
+
+    public void testSingleColumnKey() throws Exception {
+        DataContext dc = new JdbcDataContext(getTestDbConnection());
+        Table table = dc.getDefaultSchema().getTableByName("CUSTOMERS");
+
+        Query q = dc.query().from(table).select("CUSTOMERNAME").toQuery();
+        KeysetPaginator paginator = new KeysetPaginator(dc, q).setPageSize(50);
+        assertEquals(1, paginator.getKeyColumns().size());
+        assertEquals("CUSTOMERNUMBER", paginator.getKeyColumns().get(0).getName());
+
+        assertEquals("SELECT _CUSTOMERS_._CUSTOMERNAME_, _CUSTOMERS_._CUSTOMERNUMBER_ FROM PUBLIC._CUSTOMERS_ "
+                + "ORDER BY _CUSTOMERS_._CUSTOMERNUMBER_ ASC", paginator.createPageQuery(null).toSql().replace('\"',
+                        '_'));
+        assertEquals("SELECT _CUSTOMERS_._CUSTOMERNAME_, _CUSTOMERS_._CUSTOMERNUMBER_ FROM PUBLIC._CUSTOMERS_ "
+                + "WHERE _CUSTOMERS_._CUSTOMERNUMBER_ > 112 ORDER BY _CUSTOMERS_._CUSTOMERNUMBER_ ASC", paginator
+                        .createPageQuery(new Object[] { 112 }).toSql().replace('\"', '_'));
+
+        DataSet ds = paginator.executeQueries();
+        assertEquals(1, ds.getSelectItems().size());
+        int count = 0;
+        while (ds.next()) {
+            assertEquals(1, ds.getRow().size());
+            count++;
+        }
+        ds.close();
+        assertEquals(122, count);
+    }
+
+    public void testCompositeKeyPageByPage() throws Exception {
+        DataContext dc = new JdbcDataContext(getTestDbConnection());
+        Table table = dc.getDefaultSchema().getTableByName("ORDERDETAILS");
+
+        Query q = dc.query().from(table).select("QUANTITYORDERED").toQuery();
+        KeysetPaginator paginator = new KeysetPaginator(dc, q).setPageSize(1000);
+
+        assertEquals("SELECT _ORDERDETAILS_._QUANTITYORDERED_, _ORDERDETAILS_._ORDERNUMBER_, "
+                + "_ORDERDETAILS_._PRODUCTCODE_ FROM PUBLIC._ORDERDETAILS_ WHERE (_ORDERDETAILS_._ORDERNUMBER_ > 10100 "
+                + "OR (_ORDERDETAILS_._ORDERNUMBER_ = 10100 AND _ORDERDETAILS_._PRODUCTCODE_ > 'S18_1749')) "
+                + "ORDER BY _ORDERDETAILS_._ORDERNUMBER_ ASC, _ORDERDETAILS_._PRODUCTCODE_ ASC", paginator
+                        .createPageQuery(new Object[] { 10100, "S18_1749" }).toSql().replace('\"', '_'));
+
+        int[] pageSizes = new int[4];
+        Object[] lastKey = null;
+        for (int i = 0; i < pageSizes.length; i++) {
+            DataSet page = paginator.executePage(lastKey);
+            while (page.next()) {
+                Row row = page.getRow();
+                Object[] key = paginator.getKey(row);
+                assertNotNull(key[0]);
+                assertNotNull(key[1]);
+                lastKey = key;
+                pageSizes[i]++;
+            }
+            page.close();
+        }
+        assertEquals("[1000, 1000, 996, 0]", Arrays.toString(pageSizes));
+    }
+
+    public void testResumeFromKey() throws Exception {
+        DataContext dc = new JdbcDataContext(getTestDbConnection());
+        Table table = dc.getDefaultSchema().getTableByName("CUSTOMERS");
+
+        Query q = dc.query().from(table).select("CUSTOMERNUMBER").toQuery();
+        KeysetPaginator paginator = new KeysetPaginator(dc, q).setPageSize(10);
+
+        DataSet ds = paginator.executeQueries(new Object[] { 300 });
+        int count = 0;
+        while (ds.next()) {
+            assertTrue(((Number) ds.getRow().getValue(0)).intValue() > 300);
+            count++;
+        }
+        ds.close();
+        assertTrue(count > 0);
+        assertTrue(count < 122);
+    }
+
+    public void testUnsupportedQueries() throws Exception {
+        DataContext dc = new JdbcDataContext(getTestDbConnection());
+        Table table = dc.getDefaultSchema().getTableByName("CUSTOMERS");
+
+        assertFalse(KeysetPaginator.isPaginatable(dc.query().from(table).select("CUSTOMERNAME").orderBy("CITY")
+                .toQuery()));
+        assertFalse(KeysetPaginator.isPaginatable(dc.query().from(table).selectCount().toQuery()));
+        assertFalse(KeysetPaginator.isPaginatable(dc.query().from(table).select("CUSTOMERNAME").firstRow(10)
+                .toQuery()));
+        assertTrue(KeysetPaginator.isPaginatable(dc.query().from(table).select("CUSTOMERNAME").toQuery()));
+
+        Table trialBalance = dc.getDefaultSchema().getTableByName("TRIAL_BALANCE");
+        try {
+            new KeysetPaginator(dc, dc.query().from(trialBalance).selectAll().toQuery());
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Table has no primary key"));
+        }
+    }
+}
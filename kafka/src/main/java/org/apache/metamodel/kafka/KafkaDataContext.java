@@ -21,6 +21,7 @@ package org.apache.metamodel.kafka;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -28,6 +29,7 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
@@ -51,12 +53,30 @@ import org.apache.metamodel.schema.MutableSchema;
 import org.apache.metamodel.schema.MutableTable;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.ParallelMergeSupplier;
 
 @InterfaceStability.Unstable
 public class KafkaDataContext<K, V> extends QueryPostprocessDataContext implements UpdateableDataContext {
 
     public static final String SYSTEM_PROPERTY_CONSUMER_POLL_TIMEOUT = "metamodel.kafka.consumer.poll.timeout";
 
+    /**
+     * System property key used for enabling the consumption of each partition
+     * of a topic by a separate consumer, in parallel. The records of different
+     * partitions are then interleaved in the order that they are received.
+     * Defaults to false.
+     */
+    public static final String SYSTEM_PROPERTY_CONSUMER_PARALLEL = "metamodel.kafka.consumer.parallel";
+
+    /**
+     * System property key used for declaring that the timestamps of the
+     * records in each partition are increasing, e.g. because the topics use
+     * log append time. If true, an upper bound on the "timestamp" column is
+     * used to stop consuming a partition early. Defaults to false.
+     */
+    public static final String SYSTEM_PROPERTY_TIMESTAMPS_ORDERED = "metamodel.kafka.timestamps.ordered";
+
     public static final String COLUMN_PARTITION = "partition";
     public static final String COLUMN_OFFSET = "offset";
     public static final String COLUMN_TIMESTAMP = "timestamp";
@@ -65,8 +85,8 @@ public class KafkaDataContext<K, V> extends QueryPostprocessDataContext implemen
 
     private static final Set<OperatorType> OPTIMIZED_PARTITION_OPERATORS = new HashSet<>(Arrays.asList(
             OperatorType.EQUALS_TO, OperatorType.IN));
-    private static final Set<OperatorType> OPTIMIZED_OFFSET_OPERATORS = new HashSet<>(Arrays.asList(
-            OperatorType.GREATER_THAN, OperatorType.GREATER_THAN_OR_EQUAL));
+
+    private static final int RECORDS_QUEUED_PER_PARTITION = 500;
 
     private final Class<K> keyClass;
     private final Class<V> valueClass;
@@ -113,23 +133,59 @@ public class KafkaDataContext<K, V> extends QueryPostprocessDataContext implemen
     protected DataSet materializeMainSchemaTable(Table table, List<Column> columns, int maxRows) {
         final String topic = table.getName();
         final Consumer<K, V> consumer = consumerAndProducerFactory.createConsumer(topic, keyClass, valueClass);
-        final List<PartitionInfo> partitionInfos = consumer.partitionsFor(topic);
-        final List<TopicPartition> partitions = partitionInfos.stream().map(partitionInfo -> {
-            return new TopicPartition(topic, partitionInfo.partition());
-        }).collect(Collectors.toList());
-
-        consumer.assign(partitions);
-        consumer.seekToBeginning(partitions);
+        final List<TopicPartition> partitions = getPartitions(consumer, topic);
 
         final List<SelectItem> selectItems = columns.stream().map(col -> new SelectItem(col)).collect(Collectors
                 .toList());
 
+        if (isParallelConsumption(partitions)) {
+            return materializeMainSchemaTableInParallel(consumer, partitions, new KafkaRecordFilter(), selectItems,
+                    0, maxRows);
+        }
+
+        consumer.assign(partitions);
+        consumer.seekToBeginning(partitions);
+
         return materializeMainSchemaTableFromConsumer(consumer, selectItems, 0, maxRows);
     }
 
     protected DataSet materializeMainSchemaTableFromConsumer(Consumer<K, V> consumer, List<SelectItem> selectItems,
             int offset, int maxRows) {
-        DataSet dataSet = new KafkaDataSet<K, V>(consumer, selectItems);
+        return page(new KafkaDataSet<K, V>(consumer, selectItems), offset, maxRows);
+    }
+
+    private DataSet materializeMainSchemaTableInParallel(Consumer<K, V> firstConsumer,
+            List<TopicPartition> partitions, KafkaRecordFilter filter, List<SelectItem> selectItems, int offset,
+            int maxRows) {
+        final boolean timestampsOrdered = isTimestampsOrdered();
+        final long pollTimeout = KafkaDataSet.getPollTimeout();
+        final List<KafkaRecordReader<K, V>> readers = new ArrayList<>(partitions.size());
+        Consumer<K, V> consumer = firstConsumer;
+        try {
+            for (TopicPartition partition : partitions) {
+                if (consumer == null) {
+                    consumer = consumerAndProducerFactory.createConsumer(partition.topic(), keyClass, valueClass);
+                }
+                readers.add(new KafkaRecordReader<>(consumer, Collections.singletonList(partition), filter,
+                        timestampsOrdered, pollTimeout));
+                consumer = null;
+            }
+        } catch (RuntimeException e) {
+            // close the consumers that were created before the failure
+            FileHelper.safeClose(consumer);
+            for (KafkaRecordReader<K, V> reader : readers) {
+                FileHelper.safeClose(reader);
+            }
+            throw e;
+        }
+        // records of the same partition keep their order, but records of
+        // different partitions are interleaved
+        final ParallelMergeSupplier<ConsumerRecord<K, V>> parallelReader = new ParallelMergeSupplier<>(readers,
+                readers.size(), partitions.size() * RECORDS_QUEUED_PER_PARTITION);
+        return page(new KafkaDataSet<>(parallelReader, parallelReader, selectItems), offset, maxRows);
+    }
+
+    private static DataSet page(DataSet dataSet, int offset, int maxRows) {
         if (offset > 0) {
             dataSet = new FirstRowDataSet(dataSet, offset);
         }
@@ -139,37 +195,54 @@ public class KafkaDataContext<K, V> extends QueryPostprocessDataContext implemen
         return dataSet;
     }
 
+    private List<TopicPartition> getPartitions(Consumer<K, V> consumer, String topic) {
+        final List<PartitionInfo> partitionInfos = consumer.partitionsFor(topic);
+        return partitionInfos.stream().map(partitionInfo -> {
+            return new TopicPartition(topic, partitionInfo.partition());
+        }).collect(Collectors.toList());
+    }
+
+    private static boolean isParallelConsumption(List<TopicPartition> partitions) {
+        return partitions.size() > 1 && Boolean.parseBoolean(System.getProperty(SYSTEM_PROPERTY_CONSUMER_PARALLEL));
+    }
+
+    private static boolean isTimestampsOrdered() {
+        return Boolean.parseBoolean(System.getProperty(SYSTEM_PROPERTY_TIMESTAMPS_ORDERED));
+    }
+
     @Override
     protected DataSet materializeMainSchemaTable(Table table, List<SelectItem> selectItems, List<FilterItem> whereItems,
             int firstRow, int maxRows) {
-        // check if we can optimize the consumption when either "partition" or "offset"
-        // are in the where items.
+        // check if we can optimize the consumption when either "partition", "offset" or "timestamp" are in the
+        // where items.
         if (!whereItems.isEmpty()) {
             final boolean optimizable = whereItems.stream().allMatch(this::isOptimizable);
             if (optimizable) {
-                long offset = 0;
+                final KafkaRecordFilter filter = new KafkaRecordFilter();
                 List<Integer> partitions = null;
 
                 for (FilterItem whereItem : whereItems) {
                     final OperatorType operator = whereItem.getOperator();
                     switch (whereItem.getSelectItem().getColumn().getName()) {
                     case COLUMN_OFFSET:
-                        if (operator == OperatorType.GREATER_THAN) {
-                            offset = toLong(whereItem.getOperand()) + 1;
-                        } else if (operator == OperatorType.GREATER_THAN_OR_EQUAL) {
-                            offset = toLong(whereItem.getOperand());
-                        } else {
-                            throw new UnsupportedOperationException();
-                        }
+                    case COLUMN_TIMESTAMP:
+                        filter.add(whereItem);
                         break;
                     case COLUMN_PARTITION:
+                        final List<Integer> filteredPartitions;
                         if (operator == OperatorType.EQUALS_TO) {
-                            partitions = Arrays.asList(toInt(whereItem.getOperand()));
+                            filteredPartitions = Arrays.asList(toInt(whereItem.getOperand()));
                         } else if (operator == OperatorType.IN) {
-                            partitions = toIntList(whereItem.getOperand());
+                            filteredPartitions = toIntList(whereItem.getOperand());
                         } else {
                             throw new UnsupportedOperationException();
                         }
+                        if (partitions == null) {
+                            partitions = filteredPartitions;
+                        } else {
+                            partitions = new ArrayList<>(partitions);
+                            partitions.retainAll(filteredPartitions);
+                        }
                         break;
                     default:
                         throw new UnsupportedOperationException();
@@ -182,27 +255,22 @@ public class KafkaDataContext<K, V> extends QueryPostprocessDataContext implemen
                 // handle partition filtering
                 final List<TopicPartition> assignedPartitions;
                 if (partitions == null) {
-                    final List<PartitionInfo> partitionInfos = consumer.partitionsFor(topic);
-                    assignedPartitions = partitionInfos.stream().map(partitionInfo -> {
-                        return new TopicPartition(topic, partitionInfo.partition());
-                    }).collect(Collectors.toList());
+                    assignedPartitions = getPartitions(consumer, topic);
                 } else {
                     assignedPartitions = partitions.stream().map(partitionNumber -> {
                         return new TopicPartition(topic, partitionNumber);
                     }).collect(Collectors.toList());
                 }
 
-                // handle offset filtering
-                consumer.assign(assignedPartitions);
-                if (offset == 0) {
-                    consumer.seekToBeginning(assignedPartitions);
-                } else {
-                    for (TopicPartition topicPartition : assignedPartitions) {
-                        consumer.seek(topicPartition, offset);
-                    }
+                if (isParallelConsumption(assignedPartitions)) {
+                    return materializeMainSchemaTableInParallel(consumer, assignedPartitions, filter, selectItems,
+                            firstRow, maxRows);
                 }
 
-                return materializeMainSchemaTableFromConsumer(consumer, selectItems, firstRow, maxRows);
+                // handle offset and timestamp filtering
+                final KafkaRecordReader<K, V> reader = new KafkaRecordReader<>(consumer, assignedPartitions,
+                        filter, isTimestampsOrdered(), KafkaDataSet.getPollTimeout());
+                return page(new KafkaDataSet<>(reader, selectItems), firstRow, maxRows);
             }
         }
         return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
@@ -231,13 +299,6 @@ public class KafkaDataContext<K, V> extends QueryPostprocessDataContext implemen
         return Integer.parseInt(obj.toString());
     }
 
-    private static long toLong(Object obj) {
-        if (obj instanceof Number) {
-            return ((Number) obj).longValue();
-        }
-        return Long.parseLong(obj.toString());
-    }
-
     private boolean isOptimizable(FilterItem whereItem) {
         if (whereItem.isCompoundFilter()) {
             return false;
@@ -257,7 +318,8 @@ public class KafkaDataContext<K, V> extends QueryPostprocessDataContext implemen
 
         switch (column.getName()) {
         case COLUMN_OFFSET:
-            return OPTIMIZED_OFFSET_OPERATORS.contains(whereItem.getOperator());
+        case COLUMN_TIMESTAMP:
+            return KafkaRecordFilter.isSupported(whereItem);
         case COLUMN_PARTITION:
             return OPTIMIZED_PARTITION_OPERATORS.contains(whereItem.getOperator());
         default:
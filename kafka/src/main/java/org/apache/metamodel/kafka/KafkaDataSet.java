@@ -18,52 +18,60 @@
  */
 package org.apache.metamodel.kafka;
 
-import java.util.Iterator;
+import java.io.Closeable;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.metamodel.data.AbstractDataSet;
 import org.apache.metamodel.data.CachingDataSetHeader;
 import org.apache.metamodel.data.DefaultRow;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.util.FileHelper;
 
 final class KafkaDataSet<K, V> extends AbstractDataSet {
 
-    private final Consumer<K, V> consumer;
-    private final long pollTimeout;
+    private final Supplier<ConsumerRecord<K, V>> recordSupplier;
+    private final Closeable closeable;
 
-    private Iterator<ConsumerRecord<K, V>> currentIterator;
     private ConsumerRecord<K, V> currentRow;
 
     public KafkaDataSet(Consumer<K, V> consumer, List<SelectItem> selectItems) {
+        this(new KafkaRecordReader<>(consumer, getPollTimeout()), selectItems);
+    }
+
+    public KafkaDataSet(KafkaRecordReader<K, V> reader, List<SelectItem> selectItems) {
+        this(reader, reader, selectItems);
+    }
+
+    public KafkaDataSet(Supplier<ConsumerRecord<K, V>> recordSupplier, Closeable closeable,
+            List<SelectItem> selectItems) {
         super(new CachingDataSetHeader(selectItems));
-        this.consumer = consumer;
-        this.pollTimeout = Long.parseLong(System.getProperty(KafkaDataContext.SYSTEM_PROPERTY_CONSUMER_POLL_TIMEOUT,
-                "1000"));
+        this.recordSupplier = recordSupplier;
+        this.closeable = closeable;
     }
-    
+
+    static long getPollTimeout() {
+        return Long.parseLong(System.getProperty(KafkaDataContext.SYSTEM_PROPERTY_CONSUMER_POLL_TIMEOUT, "1000"));
+    }
+
+    /**
+     * Gets the consumer that the records are read from, or null if they are
+     * read by multiple consumers.
+     */
     public Consumer<K, V> getConsumer() {
-        return consumer;
+        if (recordSupplier instanceof KafkaRecordReader) {
+            return ((KafkaRecordReader<K, V>) recordSupplier).getConsumer();
+        }
+        return null;
     }
 
     @Override
     public boolean next() {
-        if (currentIterator == null || !currentIterator.hasNext()) {
-            final ConsumerRecords<K, V> records = consumer.poll(pollTimeout);
-            if (records == null || records.isEmpty()) {
-                return false;
-            }
-            currentIterator = records.iterator();
-        }
-
-        this.currentRow = currentIterator.next();
-        if (currentRow == null) {
-            return false;
-        }
-        return true;
+        this.currentRow = recordSupplier.get();
+        return currentRow != null;
     }
 
     @Override
@@ -96,7 +104,6 @@ final class KafkaDataSet<K, V> extends AbstractDataSet {
     public void close() {
         super.close();
         currentRow = null;
-        consumer.unsubscribe();
-        consumer.close();
+        FileHelper.safeClose(closeable);
     }
 }
@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.kafka;
+
+import java.util.Date;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.util.TimeComparator;
+
+/**
+ * Range of offsets and timestamps of the records to read, as restricted by
+ * comparisons on the "offset" and "timestamp" columns in the WHERE clause of a
+ * query. The lower bounds determine where the consumption of each partition
+ * starts, and the upper bounds where it can stop (see
+ * {@link KafkaRecordReader}).
+ */
+final class KafkaRecordFilter {
+
+    private long minOffset = 0;
+    private long maxOffset = Long.MAX_VALUE;
+    private long minTimestamp = Long.MIN_VALUE;
+    private long maxTimestamp = Long.MAX_VALUE;
+
+    /**
+     * Determines if a where item can be applied by a {@link KafkaRecordFilter}.
+     *
+     * @param whereItem
+     * @return
+     */
+    public static boolean isSupported(FilterItem whereItem) {
+        final Column column = whereItem.getSelectItem().getColumn();
+        if (whereItem.getOperand() == null) {
+            return false;
+        }
+        switch (column.getName()) {
+        case KafkaDataContext.COLUMN_OFFSET:
+        case KafkaDataContext.COLUMN_TIMESTAMP:
+            break;
+        default:
+            return false;
+        }
+        final OperatorType operator = whereItem.getOperator();
+        if (operator != OperatorType.EQUALS_TO && operator != OperatorType.GREATER_THAN
+                && operator != OperatorType.GREATER_THAN_OR_EQUAL && operator != OperatorType.LESS_THAN
+                && operator != OperatorType.LESS_THAN_OR_EQUAL) {
+            return false;
+        }
+        // operands that can't be converted are left to the post-processing
+        return toValue(whereItem) != null;
+    }
+
+    /**
+     * Narrows the range of this filter by a where item.
+     *
+     * @param whereItem
+     *            a where item, see {@link #isSupported(FilterItem)}
+     */
+    public void add(FilterItem whereItem) {
+        final boolean timestamp = isTimestamp(whereItem);
+        final Long operand = toValue(whereItem);
+        if (operand == null) {
+            throw new IllegalArgumentException("Unsupported operand: " + whereItem.getOperand());
+        }
+        final long value = operand.longValue();
+
+        // lower bounds are inclusive, upper bounds are exclusive
+        long lowerBound = Long.MIN_VALUE;
+        long upperBound = Long.MAX_VALUE;
+        final OperatorType operator = whereItem.getOperator();
+        if (operator == OperatorType.EQUALS_TO) {
+            lowerBound = value;
+            upperBound = increment(value);
+        } else if (operator == OperatorType.GREATER_THAN) {
+            lowerBound = increment(value);
+        } else if (operator == OperatorType.GREATER_THAN_OR_EQUAL) {
+            lowerBound = value;
+        } else if (operator == OperatorType.LESS_THAN) {
+            upperBound = value;
+        } else if (operator == OperatorType.LESS_THAN_OR_EQUAL) {
+            upperBound = increment(value);
+        } else {
+            throw new UnsupportedOperationException("Unsupported operator: " + operator);
+        }
+
+        if (timestamp) {
+            minTimestamp = Math.max(minTimestamp, lowerBound);
+            maxTimestamp = Math.min(maxTimestamp, upperBound);
+        } else {
+            minOffset = Math.max(minOffset, lowerBound);
+            maxOffset = Math.min(maxOffset, upperBound);
+        }
+    }
+
+    private static long increment(long value) {
+        return value == Long.MAX_VALUE ? value : value + 1;
+    }
+
+    /**
+     * Determines if a record is within the range of this filter.
+     *
+     * @param record
+     * @return
+     */
+    public boolean accept(ConsumerRecord<?, ?> record) {
+        return record.offset() >= minOffset && record.offset() < maxOffset && record.timestamp() >= minTimestamp
+                && record.timestamp() < maxTimestamp;
+    }
+
+    /**
+     * Gets the first offset to read (inclusive).
+     */
+    public long getMinOffset() {
+        return minOffset;
+    }
+
+    /**
+     * Gets the offset to stop reading at (exclusive), or {@link Long#MAX_VALUE}
+     * if there is no upper bound.
+     */
+    public long getMaxOffset() {
+        return maxOffset;
+    }
+
+    /**
+     * Gets the earliest timestamp to read (inclusive), or
+     * {@link Long#MIN_VALUE} if there is no lower bound.
+     */
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    /**
+     * Gets the timestamp that records must be earlier than, or
+     * {@link Long#MAX_VALUE} if there is no upper bound.
+     */
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    private static boolean isTimestamp(FilterItem whereItem) {
+        return KafkaDataContext.COLUMN_TIMESTAMP.equals(whereItem.getSelectItem().getColumn().getName());
+    }
+
+    /**
+     * Converts the operand of a where item to an offset or a timestamp, or
+     * null if it can't be converted.
+     */
+    private static Long toValue(FilterItem whereItem) {
+        final Object operand = whereItem.getOperand();
+        return isTimestamp(whereItem) ? toTimestamp(operand) : toLong(operand);
+    }
+
+    private static Long toLong(Object obj) {
+        if (obj instanceof Number) {
+            return ((Number) obj).longValue();
+        }
+        try {
+            return Long.parseLong(obj.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long toTimestamp(Object obj) {
+        if (obj instanceof Number) {
+            return ((Number) obj).longValue();
+        }
+        final Date date = TimeComparator.toDate(obj);
+        if (date == null) {
+            return null;
+        }
+        return date.getTime();
+    }
+}
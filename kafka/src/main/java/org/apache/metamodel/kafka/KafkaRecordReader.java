@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.kafka;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.metamodel.util.ParallelMergeSupplier;
+
+/**
+ * Reads the records of a number of partitions through a single
+ * {@link Consumer}, one record at a time.
+ *
+ * The consumption of each partition starts at the lower bound of the
+ * {@link KafkaRecordFilter} on offsets and timestamps (looked up with
+ * {@link Consumer#offsetsForTimes(Map)}), and a partition is paused as soon as
+ * its upper bound on offsets is reached. Reading ends when all partitions are
+ * paused, or when a poll returns no records.
+ *
+ * As a {@link ParallelMergeSupplier.Task} the reader drains itself into a
+ * {@link ParallelMergeSupplier}, which closes the consumer in the thread that
+ * used it.
+ */
+final class KafkaRecordReader<K, V> implements Supplier<ConsumerRecord<K, V>>,
+        ParallelMergeSupplier.Task<ConsumerRecord<K, V>>, Closeable {
+
+    private final Consumer<K, V> consumer;
+    private final KafkaRecordFilter filter;
+    private final long pollTimeout;
+    private final Map<TopicPartition, Long> endOffsets;
+    private final Set<TopicPartition> activePartitions;
+
+    private Iterator<ConsumerRecord<K, V>> currentIterator;
+
+    /**
+     * Creates a reader which reads all records of the consumer's current
+     * assignment from its current position.
+     *
+     * @param consumer
+     * @param pollTimeout
+     */
+    public KafkaRecordReader(Consumer<K, V> consumer, long pollTimeout) {
+        this.consumer = consumer;
+        this.filter = new KafkaRecordFilter();
+        this.pollTimeout = pollTimeout;
+        this.endOffsets = Collections.emptyMap();
+        this.activePartitions = null;
+    }
+
+    /**
+     * Creates a reader which assigns a number of partitions to the consumer and
+     * seeks to the start of the range of the filter in each of them.
+     *
+     * @param consumer
+     * @param partitions
+     * @param filter
+     * @param timestampsOrdered
+     *            whether or not the timestamps of the records of each
+     *            partition are known to be increasing (e.g. when the topic uses
+     *            log append time), in which case the upper bound on timestamps
+     *            is also used to stop reading a partition.
+     * @param pollTimeout
+     */
+    public KafkaRecordReader(Consumer<K, V> consumer, List<TopicPartition> partitions, KafkaRecordFilter filter,
+            boolean timestampsOrdered, long pollTimeout) {
+        this.consumer = consumer;
+        this.filter = filter;
+        this.pollTimeout = pollTimeout;
+        this.endOffsets = new HashMap<>();
+        this.activePartitions = new HashSet<>(partitions);
+
+        consumer.assign(partitions);
+
+        final Map<TopicPartition, Long> startOffsets = new HashMap<>();
+        if (filter.getMinTimestamp() != Long.MIN_VALUE) {
+            final Map<TopicPartition, OffsetAndTimestamp> timestampOffsets = consumer.offsetsForTimes(
+                    toTimestampMap(partitions, filter.getMinTimestamp()));
+            for (TopicPartition partition : partitions) {
+                final OffsetAndTimestamp offsetAndTimestamp = timestampOffsets.get(partition);
+                if (offsetAndTimestamp == null) {
+                    // no records at or after the timestamp
+                    startOffsets.put(partition, Long.MAX_VALUE);
+                } else {
+                    startOffsets.put(partition, Math.max(filter.getMinOffset(), offsetAndTimestamp.offset()));
+                }
+            }
+        } else if (filter.getMinOffset() > 0) {
+            partitions.forEach(partition -> startOffsets.put(partition, filter.getMinOffset()));
+        }
+
+        if (filter.getMaxOffset() != Long.MAX_VALUE) {
+            partitions.forEach(partition -> endOffsets.put(partition, filter.getMaxOffset()));
+        }
+        if (timestampsOrdered && filter.getMaxTimestamp() != Long.MAX_VALUE) {
+            final Map<TopicPartition, OffsetAndTimestamp> timestampOffsets = consumer.offsetsForTimes(
+                    toTimestampMap(partitions, filter.getMaxTimestamp()));
+            timestampOffsets.forEach((partition, offsetAndTimestamp) -> {
+                if (offsetAndTimestamp != null) {
+                    endOffsets.merge(partition, offsetAndTimestamp.offset(), Math::min);
+                }
+            });
+        }
+
+        if (startOffsets.isEmpty()) {
+            consumer.seekToBeginning(partitions);
+        } else {
+            for (TopicPartition partition : partitions) {
+                final long startOffset = startOffsets.get(partition);
+                if (startOffset >= endOffsets.getOrDefault(partition, Long.MAX_VALUE)) {
+                    pause(partition);
+                } else {
+                    consumer.seek(partition, startOffset);
+                }
+            }
+        }
+    }
+
+    private static Map<TopicPartition, Long> toTimestampMap(List<TopicPartition> partitions, long timestamp) {
+        final Map<TopicPartition, Long> map = new HashMap<>();
+        partitions.forEach(partition -> map.put(partition, timestamp));
+        return map;
+    }
+
+    public Consumer<K, V> getConsumer() {
+        return consumer;
+    }
+
+    /**
+     * Gets the next record, or null if there are no more records.
+     */
+    @Override
+    public ConsumerRecord<K, V> get() {
+        while (true) {
+            if (activePartitions != null && activePartitions.isEmpty()) {
+                return null;
+            }
+            if (currentIterator == null || !currentIterator.hasNext()) {
+                final ConsumerRecords<K, V> records = consumer.poll(pollTimeout);
+                if (records == null || records.isEmpty()) {
+                    return null;
+                }
+                currentIterator = records.iterator();
+            }
+
+            final ConsumerRecord<K, V> record = currentIterator.next();
+            if (record == null) {
+                return null;
+            }
+            if (endOffsets.isEmpty()) {
+                if (filter.accept(record)) {
+                    return record;
+                }
+                continue;
+            }
+
+            final TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            final long endOffset = endOffsets.getOrDefault(partition, Long.MAX_VALUE);
+            if (record.offset() >= endOffset - 1) {
+                pause(partition);
+                if (record.offset() >= endOffset) {
+                    continue;
+                }
+            }
+            if (filter.accept(record)) {
+                return record;
+            }
+        }
+    }
+
+    private void pause(TopicPartition partition) {
+        if (activePartitions.remove(partition)) {
+            consumer.pause(Collections.singleton(partition));
+        }
+    }
+
+    @Override
+    public void run(ParallelMergeSupplier.Sink<ConsumerRecord<K, V>> sink) throws InterruptedException {
+        for (ConsumerRecord<K, V> record = get(); record != null; record = get()) {
+            sink.put(record);
+        }
+    }
+
+    @Override
+    public void close() {
+        currentIterator = null;
+        consumer.unsubscribe();
+        consumer.close();
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.metamodel.kafka;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,8 +30,10 @@ import java.util.function.Supplier;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
 import org.easymock.Capture;
@@ -158,6 +161,53 @@ public class KafkaDataContextTest extends EasyMockSupport {
         Assert.assertEquals(42, capturedAssignmentList.get(2).partition());
     }
 
+    @Test
+    public void testQueryOptimizationByTimestampAndOffset() {
+        final ConsumerAndProducerFactory consumerFactory = createMock(ConsumerAndProducerFactory.class);
+        @SuppressWarnings("unchecked")
+        final Consumer<String, String> consumer = createMock(Consumer.class);
+
+        EasyMock.expect(consumerFactory.createConsumer("myTopic", String.class, String.class)).andReturn(consumer);
+
+        final TopicPartition topicPartition = new TopicPartition("myTopic", 2);
+        consumer.assign(Arrays.asList(topicPartition));
+
+        // the lower bound on the timestamp is looked up and sought to
+        EasyMock.expect(consumer.offsetsForTimes(Collections.singletonMap(topicPartition, 1000L))).andReturn(
+                Collections.singletonMap(topicPartition, new OffsetAndTimestamp(20, 1020)));
+        consumer.seek(topicPartition, 20);
+
+        final List<ConsumerRecord<String, String>> list = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            list.add(new ConsumerRecord<String, String>("myTopic", 2, 20 + i, 1020 + i, TimestampType.CREATE_TIME,
+                    0, 4, 6, "key" + i, "value" + i));
+        }
+        EasyMock.expect(consumer.poll(1000)).andReturn(new ConsumerRecords<>(Collections.singletonMap(
+                topicPartition, list)));
+
+        // the partition is paused when the upper bound on the offset is reached, and no more polls are made
+        consumer.pause(Collections.singleton(topicPartition));
+
+        consumer.unsubscribe();
+        consumer.close();
+
+        replayAll();
+
+        final Supplier<Collection<String>> topicSupplier = () -> Arrays.asList("myTopic");
+        final DataContext dc = new KafkaDataContext<>(String.class, String.class, consumerFactory, topicSupplier);
+
+        final DataSet dataSet = dc.query().from("myTopic").select("offset", "value").where("partition").eq(2).and(
+                "timestamp").gte(1000).and("offset").lt(22).execute();
+        Assert.assertTrue(dataSet.next());
+        Assert.assertEquals("Row[values=[20, value0]]", dataSet.getRow().toString());
+        Assert.assertTrue(dataSet.next());
+        Assert.assertEquals("Row[values=[21, value1]]", dataSet.getRow().toString());
+        Assert.assertFalse(dataSet.next());
+        dataSet.close();
+
+        verifyAll();
+    }
+
     private ConsumerRecords<String, String> createConsumerRecords(int partition, int offset, int howMany) {
         final List<ConsumerRecord<String, String>> list = new ArrayList<>();
         for (int i = 0; i < howMany; i++) {
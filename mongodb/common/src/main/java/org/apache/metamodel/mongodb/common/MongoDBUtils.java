@@ -18,14 +18,20 @@
  */
 package org.apache.metamodel.mongodb.common;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.metamodel.data.DataSetHeader;
 import org.apache.metamodel.data.DefaultRow;
 import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.OrderByItem.Direction;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
 import org.apache.metamodel.util.CollectionUtils;
 
 import com.mongodb.DBObject;
@@ -35,6 +41,15 @@ import com.mongodb.DBObject;
  */
 public class MongoDBUtils {
 
+    /**
+     * The approximate amount of memory (in bytes) to spend on a batch of
+     * documents fetched by a cursor.
+     */
+    private static final int BATCH_SIZE_MEMORY = 4 * 1024 * 1024;
+
+    private static final int MIN_BATCH_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 10000;
+
     /**
      * Converts a MongoDB data object {@link DBObject} into MetaModel
      * {@link Row}.
@@ -79,6 +94,35 @@ public class MongoDBUtils {
         return new DefaultRow(header, values);
     }
 
+    /**
+     * Converts a map into MetaModel, using a specific key for each item of the
+     * header. This is useful for documents that do not use the column names
+     * as keys, such as the output of an aggregation pipeline.
+     * 
+     * @param map
+     *            a map object storing data of a MongoDB document.
+     * @param header
+     *            a header describing the columns of the data stored.
+     * @param keys
+     *            the keys of the values, corresponding to the select items of
+     *            the header.
+     * @return the MetaModel {@link Row} result object.
+     */
+    public static Row toRow(Map<?, ?> map, DataSetHeader header, List<String> keys) {
+        if (map == null) {
+            return null;
+        }
+
+        final int size = header.size();
+        final Object[] values = new Object[size];
+        for (int i = 0; i < values.length; i++) {
+            final SelectItem selectItem = header.getSelectItem(i);
+            final Object value = map.get(keys.get(i));
+            values[i] = toValue(selectItem.getColumn(), value);
+        }
+        return new DefaultRow(header, values);
+    }
+
     private static Object toValue(Column column, Object value) {
         if (value instanceof List) {
             return value;
@@ -90,4 +134,132 @@ public class MongoDBUtils {
         return value;
     }
 
+    /**
+     * Gets the field paths to include in the projection of a find query that
+     * should retrieve a set of columns. Column names may be dotted paths to
+     * nested fields. Paths that are nested within another projected path are
+     * left out, since MongoDB does not allow overlapping paths in a
+     * projection.
+     * 
+     * @param columns
+     *            the columns to retrieve
+     * @return the list of field paths
+     */
+    public static List<String> getProjectionPaths(Collection<Column> columns) {
+        final List<String> paths = new ArrayList<>();
+        for (Column column : columns) {
+            final String path = column.getName();
+            if (!paths.contains(path)) {
+                paths.add(path);
+            }
+        }
+        for (Iterator<String> it = paths.iterator(); it.hasNext();) {
+            final String path = it.next();
+            for (String otherPath : paths) {
+                if (path.startsWith(otherPath + ".")) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Determines if the "_id" field should be excluded from a projection,
+     * which it is not by default in MongoDB.
+     * 
+     * @param projectionPaths
+     *            the paths of the projection, see
+     *            {@link #getProjectionPaths(Collection)}
+     * @return
+     */
+    public static boolean isIdExcludedFromProjection(List<String> projectionPaths) {
+        for (String path : projectionPaths) {
+            if (path.equals("_id") || path.startsWith("_id.")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines if a sort on a list of {@link OrderByItem}s can be served by
+     * an index, ie. if the sorted fields are a prefix of the index' key with
+     * either the same or the reverse directions. Sorts that are not backed by
+     * an index are executed in memory by MongoDB, which is limited in size.
+     * 
+     * @param orderByItems
+     *            the items to sort by
+     * @param indexKey
+     *            the key document of an index
+     * @return
+     */
+    public static boolean isSortCoveredByIndex(List<OrderByItem> orderByItems, Map<String, Object> indexKey) {
+        if (orderByItems.isEmpty() || orderByItems.size() > indexKey.size()) {
+            return false;
+        }
+        final Iterator<Map.Entry<String, Object>> keyIterator = indexKey.entrySet().iterator();
+        Boolean reversed = null;
+        for (OrderByItem orderByItem : orderByItems) {
+            final SelectItem selectItem = orderByItem.getSelectItem();
+            if (selectItem.hasFunction() || selectItem.getColumn() == null) {
+                return false;
+            }
+            final Map.Entry<String, Object> keyEntry = keyIterator.next();
+            if (!keyEntry.getKey().equals(selectItem.getColumn().getName())) {
+                return false;
+            }
+            if (!(keyEntry.getValue() instanceof Number)) {
+                // eg. text, hashed or geospatial indexes
+                return false;
+            }
+            final boolean ascendingKey = ((Number) keyEntry.getValue()).doubleValue() > 0;
+            final boolean itemReversed = ascendingKey != (orderByItem.getDirection() == Direction.ASC);
+            if (reversed == null) {
+                reversed = itemReversed;
+            } else if (reversed.booleanValue() != itemReversed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets a cursor batch size for documents consisting of the given
+     * (projected) columns, based on an estimate of the size of the values.
+     * 
+     * @param columns
+     * @return
+     */
+    public static int getBatchSize(Collection<Column> columns) {
+        int rowSize = 0;
+        for (Column column : columns) {
+            rowSize += getValueSize(column);
+        }
+        final int batchSize = BATCH_SIZE_MEMORY / Math.max(1, rowSize);
+        return Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, batchSize));
+    }
+
+    private static int getValueSize(Column column) {
+        final ColumnType type = column.getType();
+        if (type == null) {
+            return 1024;
+        }
+        if (type.isNumber() || type.isTimeBased() || type.isBoolean()) {
+            return 16;
+        }
+        if (type == ColumnType.ROWID) {
+            return 24;
+        }
+        if (type.isLiteral()) {
+            final Integer columnSize = column.getColumnSize();
+            if (columnSize != null && columnSize.intValue() > 0) {
+                return 2 * Math.min(columnSize.intValue(), 4096);
+            }
+            return 256;
+        }
+        // maps, lists and other nested structures
+        return 4 * 1024;
+    }
 }
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.mongodb.common;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.metamodel.data.AbstractDataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.util.FileHelper;
+
+import com.mongodb.DBObject;
+
+/**
+ * DataSet over the documents produced by a {@link MongoDbAggregationPipeline}
+ * .
+ */
+public final class MongoDbAggregationDataSet extends AbstractDataSet {
+
+    private final MongoDbAggregationPipeline _pipeline;
+    private final Iterator<?> _cursor;
+    private final Closeable _closeable;
+    private volatile Map<?, ?> _document;
+
+    /**
+     * Creates a {@link MongoDbAggregationDataSet}.
+     * 
+     * @param pipeline
+     *            the pipeline that was executed
+     * @param cursor
+     *            the cursor of the result documents, either maps or
+     *            {@link DBObject}s
+     * @param closeable
+     *            callback for closing the cursor
+     */
+    public MongoDbAggregationDataSet(MongoDbAggregationPipeline pipeline, Iterator<?> cursor, Closeable closeable) {
+        super(pipeline.getOutputSelectItems());
+        _pipeline = pipeline;
+        _cursor = cursor;
+        _closeable = closeable;
+    }
+
+    @Override
+    public boolean next() {
+        if (_cursor.hasNext()) {
+            final Object document = _cursor.next();
+            if (document instanceof DBObject) {
+                _document = ((DBObject) document).toMap();
+            } else {
+                _document = (Map<?, ?>) document;
+            }
+            return true;
+        } else {
+            _document = null;
+            return false;
+        }
+    }
+
+    @Override
+    public Row getRow() {
+        return MongoDBUtils.toRow(_document, getHeader(), _pipeline.getOutputFields());
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        FileHelper.safeClose(_closeable);
+    }
+}
@@ -0,0 +1,532 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.mongodb.common;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.MetaModelHelper;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.EmptyDataSet;
+import org.apache.metamodel.data.InMemoryDataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.AggregateFunction;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.FromItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.OrderByItem.Direction;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.util.CollectionUtils;
+
+/**
+ * Translates a MetaModel {@link Query} on a single MongoDB collection into a
+ * MongoDB aggregation pipeline, consisting of $match, $group, $project, $sort,
+ * $skip and $limit stages.
+ *
+ * The pipeline is built from plain {@link Map}s created by a document factory,
+ * which makes it independent of the driver version in use (both the
+ * <code>org.bson.Document</code> and <code>com.mongodb.BasicDBObject</code>
+ * classes are maps). The documents produced by the pipeline are flat, with
+ * one field per item in {@link #getOutputSelectItems()}, named as in
+ * {@link #getOutputFields()}.
+ *
+ * Parts of the query that cannot be expressed in the pipeline (eg. HAVING
+ * items with unsupported operators) are applied afterwards in
+ * {@link #postProcess(DataSet)}.
+ */
+public final class MongoDbAggregationPipeline {
+
+    private static final List<String> SUPPORTED_AGGREGATE_FUNCTIONS = Arrays.asList("COUNT", "SUM", "AVG", "MIN",
+            "MAX", "FIRST", "LAST");
+
+    private final Query _query;
+    private final Supplier<Map<String, Object>> _documentFactory;
+    private final List<Map<String, Object>> _stages;
+    private final List<SelectItem> _outputSelectItems;
+    private final List<String> _outputFields;
+    private final List<FilterItem> _postProcessedHavingItems;
+    private final List<OrderByItem> _postProcessedOrderByItems;
+    private boolean _globalAggregation;
+    private boolean _pagingPostProcessed;
+
+    /**
+     * Determines if a query can be expressed as an aggregation pipeline. The
+     * query must be on a single table, and all items of the SELECT, GROUP BY,
+     * HAVING and ORDER BY clauses must be plain columns or one of the
+     * aggregate functions COUNT, SUM, AVG, MIN, MAX, FIRST and LAST.
+     *
+     * Note that the WHERE clause is not inspected, since it is the
+     * responsibility of the caller to create the $match document.
+     *
+     * @param query
+     * @return
+     */
+    public static boolean isSupported(Query query) {
+        final List<FromItem> fromItems = query.getFromClause().getItems();
+        if (fromItems.size() != 1 || fromItems.get(0).getTable() == null) {
+            return false;
+        }
+
+        final List<SelectItem> selectItems = query.getSelectClause().getItems();
+        final List<SelectItem> groupBySelectItems = query.getGroupByClause().getEvaluatedSelectItems();
+        final List<SelectItem> havingSelectItems = query.getHavingClause().getEvaluatedSelectItems();
+        final List<SelectItem> orderBySelectItems = query.getOrderByClause().getEvaluatedSelectItems();
+
+        final List<SelectItem> allSelectItems = CollectionUtils.concat(false, selectItems, groupBySelectItems,
+                havingSelectItems, orderBySelectItems);
+        for (SelectItem selectItem : allSelectItems) {
+            if (!isSupported(selectItem)) {
+                return false;
+            }
+        }
+        for (SelectItem groupBySelectItem : groupBySelectItems) {
+            if (groupBySelectItem.getAggregateFunction() != null) {
+                return false;
+            }
+        }
+
+        final boolean distinct = query.getSelectClause().isDistinct();
+        final boolean aggregated = !MetaModelHelper.getAggregateFunctionSelectItems(allSelectItems).isEmpty();
+        final boolean grouped = !groupBySelectItems.isEmpty() || aggregated;
+
+        if (grouped) {
+            if (distinct) {
+                return false;
+            }
+            if (groupBySelectItems.isEmpty() && !query.getHavingClause().isEmpty()) {
+                return false;
+            }
+            if (groupBySelectItems.isEmpty() && selectItems.size() == 1 && SelectItem.isCountAllItem(selectItems
+                    .get(0))) {
+                // a plain COUNT(*) is better served by the native count
+                // operation
+                return false;
+            }
+            // all non-aggregated items must be grouped
+            final List<SelectItem> nonAggregatedSelectItems = CollectionUtils.concat(true, selectItems,
+                    havingSelectItems, orderBySelectItems);
+            nonAggregatedSelectItems.removeAll(MetaModelHelper.getAggregateFunctionSelectItems(allSelectItems));
+            for (SelectItem selectItem : nonAggregatedSelectItems) {
+                if (indexOf(groupBySelectItems, selectItem) == -1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (!query.getHavingClause().isEmpty()) {
+            return false;
+        }
+        if (distinct) {
+            for (SelectItem orderBySelectItem : orderBySelectItems) {
+                if (indexOf(selectItems, orderBySelectItem) == -1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSupported(SelectItem selectItem) {
+        if (SelectItem.isCountAllItem(selectItem)) {
+            return true;
+        }
+        if (selectItem.getScalarFunction() != null || selectItem.getSubQuerySelectItem() != null
+                || selectItem.getExpression() != null) {
+            return false;
+        }
+        final AggregateFunction aggregateFunction = selectItem.getAggregateFunction();
+        if (aggregateFunction == null) {
+            return selectItem.getColumn() != null;
+        }
+        if (!SUPPORTED_AGGREGATE_FUNCTIONS.contains(aggregateFunction.getFunctionName())) {
+            return false;
+        }
+        return selectItem.getColumn() != null;
+    }
+
+    /**
+     * Creates an aggregation pipeline for a query.
+     *
+     * @param query
+     *            the query to translate. Must be supported, see
+     *            {@link #isSupported(Query)}.
+     * @param matchDocument
+     *            the query document for the WHERE clause of the query, or
+     *            null if the query has no WHERE clause
+     * @param documentFactory
+     *            a factory for new (empty) documents of the driver in use
+     */
+    public MongoDbAggregationPipeline(Query query, Map<String, Object> matchDocument,
+            Supplier<Map<String, Object>> documentFactory) {
+        if (!isSupported(query)) {
+            throw new IllegalArgumentException("Query cannot be expressed as a MongoDB aggregation pipeline: "
+                    + query);
+        }
+        _query = query;
+        _documentFactory = documentFactory;
+        _stages = new ArrayList<>();
+        _outputSelectItems = new ArrayList<>();
+        _outputFields = new ArrayList<>();
+        _postProcessedHavingItems = new ArrayList<>();
+        _postProcessedOrderByItems = new ArrayList<>();
+
+        if (matchDocument != null && !matchDocument.isEmpty()) {
+            addStage("$match", matchDocument);
+        }
+
+        final List<SelectItem> selectItems = query.getSelectClause().getItems();
+        final List<SelectItem> groupBySelectItems = query.getGroupByClause().getEvaluatedSelectItems();
+        final List<SelectItem> havingSelectItems = query.getHavingClause().getEvaluatedSelectItems();
+        final List<SelectItem> orderBySelectItems = query.getOrderByClause().getEvaluatedSelectItems();
+        final List<SelectItem> aggregateSelectItems = MetaModelHelper.getAggregateFunctionSelectItems(
+                CollectionUtils.concat(true, selectItems, havingSelectItems, orderBySelectItems));
+
+        if (!groupBySelectItems.isEmpty() || !aggregateSelectItems.isEmpty()) {
+            buildGroupStages(groupBySelectItems, aggregateSelectItems);
+        } else if (query.getSelectClause().isDistinct()) {
+            buildGroupStages(selectItems, Collections.<SelectItem> emptyList());
+        } else {
+            buildProjectionStages(selectItems);
+        }
+    }
+
+    /**
+     * Builds the stages of a query without grouping. Sorting and paging is
+     * applied before the projection, so that indexes can be used.
+     */
+    private void buildProjectionStages(List<SelectItem> selectItems) {
+        final Map<String, Object> sort = newDocument();
+        for (OrderByItem orderByItem : _query.getOrderByClause().getItems()) {
+            sort.put(orderByItem.getSelectItem().getColumn().getName(), getSortDirection(orderByItem));
+        }
+        if (!sort.isEmpty()) {
+            addStage("$sort", sort);
+        }
+        addPagingStages();
+
+        final Map<String, Object> project = newDocument();
+        project.put("_id", 0);
+        for (SelectItem selectItem : selectItems) {
+            if (indexOf(_outputSelectItems, selectItem) == -1) {
+                final String field = "f" + _outputFields.size();
+                project.put(field, "$" + selectItem.getColumn().getName());
+                addOutput(selectItem, field);
+            }
+        }
+        addStage("$project", project);
+    }
+
+    private void buildGroupStages(List<SelectItem> groupBySelectItems, List<SelectItem> aggregateSelectItems) {
+        final Map<String, Object> group = newDocument();
+        final Map<String, Object> project = newDocument();
+        project.put("_id", 0);
+
+        if (groupBySelectItems.isEmpty()) {
+            _globalAggregation = true;
+            group.put("_id", null);
+        } else {
+            final Map<String, Object> id = newDocument();
+            for (SelectItem selectItem : groupBySelectItems) {
+                if (indexOf(_outputSelectItems, selectItem) == -1) {
+                    final String field = "g" + _outputFields.size();
+                    id.put(field, "$" + selectItem.getColumn().getName());
+                    project.put(field, "$_id." + field);
+                    addOutput(selectItem, field);
+                }
+            }
+            group.put("_id", id);
+        }
+
+        for (SelectItem selectItem : aggregateSelectItems) {
+            if (indexOf(_outputSelectItems, selectItem) == -1) {
+                final String field = "a" + _outputFields.size();
+                group.put(field, createAccumulator(selectItem));
+                project.put(field, 1);
+                addOutput(selectItem, field);
+            }
+        }
+
+        addStage("$group", group);
+        addStage("$project", project);
+
+        final List<FilterItem> havingItems = _query.getHavingClause().getItems();
+        final Map<String, Object> havingMatch = createMatchDocument(havingItems);
+        if (havingMatch == null) {
+            _postProcessedHavingItems.addAll(havingItems);
+        } else if (!havingMatch.isEmpty()) {
+            addStage("$match", havingMatch);
+        }
+
+        final List<OrderByItem> orderByItems = _query.getOrderByClause().getItems();
+        final Map<String, Object> sort = newDocument();
+        for (OrderByItem orderByItem : orderByItems) {
+            final int index = indexOf(_outputSelectItems, orderByItem.getSelectItem());
+            if (index == -1 || !_postProcessedHavingItems.isEmpty()) {
+                sort.clear();
+                _postProcessedOrderByItems.addAll(orderByItems);
+                break;
+            }
+            sort.put(_outputFields.get(index), getSortDirection(orderByItem));
+        }
+        if (!sort.isEmpty()) {
+            addStage("$sort", sort);
+        }
+
+        if (_globalAggregation || !_postProcessedHavingItems.isEmpty() || !_postProcessedOrderByItems.isEmpty()) {
+            // the result of a global aggregation must be completed first, and
+            // post processed filters and ordering affect the paging
+            _pagingPostProcessed = true;
+        } else {
+            addPagingStages();
+        }
+    }
+
+    private void addPagingStages() {
+        final Integer firstRow = _query.getFirstRow();
+        final Integer maxRows = _query.getMaxRows();
+        if (maxRows != null && maxRows.intValue() == 0) {
+            // $limit does not accept zero
+            _pagingPostProcessed = true;
+            return;
+        }
+        if (firstRow != null && firstRow.intValue() > 1) {
+            addStage("$skip", firstRow.intValue() - 1);
+        }
+        if (maxRows != null) {
+            addStage("$limit", maxRows.intValue());
+        }
+    }
+
+    private Object createAccumulator(SelectItem selectItem) {
+        final String functionName = selectItem.getAggregateFunction().getFunctionName();
+        if ("COUNT".equals(functionName)) {
+            if (selectItem.getColumn() == null) {
+                return newDocument("$sum", 1);
+            }
+            // only non-null values are counted
+            final Object isNull = newDocument("$eq", Arrays.asList(newDocument("$ifNull", Arrays.asList("$"
+                    + selectItem.getColumn().getName(), null)), null));
+            return newDocument("$sum", newDocument("$cond", Arrays.asList(isNull, 0, 1)));
+        }
+        return newDocument("$" + functionName.toLowerCase(), "$" + selectItem.getColumn().getName());
+    }
+
+    /**
+     * Creates a $match document for filter items on the output fields of the
+     * $project stage, or null if not all filter items could be converted.
+     */
+    private Map<String, Object> createMatchDocument(List<FilterItem> filterItems) {
+        final List<Object> conditions = new ArrayList<>();
+        for (FilterItem filterItem : filterItems) {
+            final Object condition = createMatchCondition(filterItem);
+            if (condition == null) {
+                return null;
+            }
+            conditions.add(condition);
+        }
+        if (conditions.isEmpty()) {
+            return newDocument();
+        }
+        if (conditions.size() == 1) {
+            @SuppressWarnings("unchecked")
+            final Map<String, Object> condition = (Map<String, Object>) conditions.get(0);
+            return condition;
+        }
+        return newDocument("$and", conditions);
+    }
+
+    private Object createMatchCondition(FilterItem filterItem) {
+        if (filterItem.isCompoundFilter()) {
+            final List<Object> childConditions = new ArrayList<>();
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                final Object childCondition = createMatchCondition(childItem);
+                if (childCondition == null) {
+                    return null;
+                }
+                childConditions.add(childCondition);
+            }
+            final String operator = filterItem.getLogicalOperator() == LogicalOperator.AND ? "$and" : "$or";
+            return newDocument(operator, childConditions);
+        }
+
+        final int index = indexOf(_outputSelectItems, filterItem.getSelectItem());
+        Object operand = filterItem.getOperand();
+        if (index == -1 || operand instanceof SelectItem) {
+            return null;
+        }
+
+        final String operatorName = getOperatorName(filterItem.getOperator());
+        if (operatorName == null) {
+            return null;
+        }
+        if (operand != null && operand.getClass().isArray()) {
+            final List<Object> list = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(operand); i++) {
+                list.add(Array.get(operand, i));
+            }
+            operand = list;
+        } else if (operand instanceof Collection) {
+            operand = new ArrayList<Object>((Collection<?>) operand);
+        }
+        return newDocument(_outputFields.get(index), newDocument(operatorName, operand));
+    }
+
+    private static String getOperatorName(OperatorType operator) {
+        if (OperatorType.EQUALS_TO.equals(operator)) {
+            return "$eq";
+        }
+        if (OperatorType.DIFFERENT_FROM.equals(operator)) {
+            return "$ne";
+        }
+        if (OperatorType.LESS_THAN.equals(operator)) {
+            return "$lt";
+        }
+        if (OperatorType.LESS_THAN_OR_EQUAL.equals(operator)) {
+            return "$lte";
+        }
+        if (OperatorType.GREATER_THAN.equals(operator)) {
+            return "$gt";
+        }
+        if (OperatorType.GREATER_THAN_OR_EQUAL.equals(operator)) {
+            return "$gte";
+        }
+        if (OperatorType.IN.equals(operator)) {
+            return "$in";
+        }
+        return null;
+    }
+
+    private static int getSortDirection(OrderByItem orderByItem) {
+        return orderByItem.getDirection() == Direction.DESC ? -1 : 1;
+    }
+
+    private static int indexOf(List<SelectItem> selectItems, SelectItem selectItem) {
+        for (int i = 0; i < selectItems.size(); i++) {
+            if (selectItems.get(i).equalsIgnoreAlias(selectItem)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void addOutput(SelectItem selectItem, String field) {
+        _outputSelectItems.add(selectItem);
+        _outputFields.add(field);
+    }
+
+    private void addStage(String operator, Object value) {
+        _stages.add(newDocument(operator, value));
+    }
+
+    private Map<String, Object> newDocument() {
+        return _documentFactory.get();
+    }
+
+    private Map<String, Object> newDocument(String key, Object value) {
+        final Map<String, Object> document = newDocument();
+        document.put(key, value);
+        return document;
+    }
+
+    /**
+     * Gets the stages of the aggregation pipeline. All stages are documents
+     * created by the document factory.
+     *
+     * @return
+     */
+    public List<Map<String, Object>> getStages() {
+        return _stages;
+    }
+
+    /**
+     * Gets the select items of the documents produced by the pipeline.
+     *
+     * @return
+     */
+    public List<SelectItem> getOutputSelectItems() {
+        return _outputSelectItems;
+    }
+
+    /**
+     * Gets the field names of the documents produced by the pipeline,
+     * corresponding to {@link #getOutputSelectItems()}.
+     *
+     * @return
+     */
+    public List<String> getOutputFields() {
+        return _outputFields;
+    }
+
+    /**
+     * Determines if the query is evaluated completely by the pipeline, ie. if
+     * {@link #postProcess(DataSet)} will only do the final selection.
+     *
+     * @return
+     */
+    public boolean isFullyPushedDown() {
+        return !_globalAggregation && !_pagingPostProcessed && _postProcessedHavingItems.isEmpty()
+                && _postProcessedOrderByItems.isEmpty();
+    }
+
+    /**
+     * Applies the parts of the query that could not be expressed in the
+     * pipeline to the result of the pipeline.
+     *
+     * @param dataSet
+     *            a {@link DataSet} of the documents produced by the pipeline,
+     *            with {@link #getOutputSelectItems()} as header
+     * @return the final result of the query
+     */
+    public DataSet postProcess(DataSet dataSet) {
+        if (_globalAggregation) {
+            // $group produces no documents at all when nothing is matched,
+            // whereas a query with only aggregates always yields a single row
+            final List<Row> rows = dataSet.toRows();
+            dataSet.close();
+            if (rows.isEmpty()) {
+                dataSet = MetaModelHelper.getAggregated(_outputSelectItems, new EmptyDataSet(_outputSelectItems));
+            } else {
+                dataSet = new InMemoryDataSet(new SimpleDataSetHeader(_outputSelectItems), rows);
+            }
+        }
+
+        dataSet = MetaModelHelper.getFiltered(dataSet, _postProcessedHavingItems);
+        dataSet = MetaModelHelper.getOrdered(dataSet, _postProcessedOrderByItems);
+        dataSet = MetaModelHelper.getSelection(_query.getSelectClause().getItems(), dataSet);
+
+        if (_pagingPostProcessed) {
+            final Integer firstRow = _query.getFirstRow();
+            final Integer maxRows = _query.getMaxRows();
+            dataSet = MetaModelHelper.getPaged(dataSet, firstRow == null ? 1 : firstRow, maxRows == null ? -1
+                    : maxRows);
+        }
+        return dataSet;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.mongodb.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.OrderByItem.Direction;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+
+public class MongoDBUtilsTest extends TestCase {
+
+    private final MutableTable table = new MutableTable("foo");
+
+    public void testGetProjectionPaths() throws Exception {
+        final List<String> paths = MongoDBUtils.getProjectionPaths(Arrays.<Column> asList(column("name",
+                ColumnType.STRING), column("address.city", ColumnType.STRING), column("address", ColumnType.MAP),
+                column("name", ColumnType.STRING), column("age", ColumnType.INTEGER)));
+        assertEquals("[name, address, age]", paths.toString());
+        assertTrue(MongoDBUtils.isIdExcludedFromProjection(paths));
+
+        assertFalse(MongoDBUtils.isIdExcludedFromProjection(Arrays.asList("name", "_id")));
+    }
+
+    public void testIsSortCoveredByIndex() throws Exception {
+        final Map<String, Object> indexKey = new LinkedHashMap<>();
+        indexKey.put("country", 1);
+        indexKey.put("age", -1);
+
+        final Column country = column("country", ColumnType.STRING);
+        final Column age = column("age", ColumnType.INTEGER);
+
+        assertTrue(MongoDBUtils.isSortCoveredByIndex(orderBy(country, Direction.ASC), indexKey));
+        assertTrue(MongoDBUtils.isSortCoveredByIndex(orderBy(country, Direction.DESC), indexKey));
+        assertTrue(MongoDBUtils.isSortCoveredByIndex(Arrays.asList(new OrderByItem(new SelectItem(country),
+                Direction.DESC), new OrderByItem(new SelectItem(age), Direction.ASC)), indexKey));
+
+        assertFalse(MongoDBUtils.isSortCoveredByIndex(Arrays.asList(new OrderByItem(new SelectItem(country),
+                Direction.ASC), new OrderByItem(new SelectItem(age), Direction.ASC)), indexKey));
+        assertFalse(MongoDBUtils.isSortCoveredByIndex(orderBy(age, Direction.ASC), indexKey));
+
+        final Map<String, Object> textIndexKey = new LinkedHashMap<>();
+        textIndexKey.put("country", "text");
+        assertFalse(MongoDBUtils.isSortCoveredByIndex(orderBy(country, Direction.ASC), textIndexKey));
+    }
+
+    public void testGetBatchSize() throws Exception {
+        assertEquals(10000, MongoDBUtils.getBatchSize(Arrays.<Column> asList(column("age", ColumnType.INTEGER))));
+        assertEquals(1024, MongoDBUtils.getBatchSize(Arrays.<Column> asList(column("address", ColumnType.MAP))));
+
+        final List<Column> wideColumns = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            wideColumns.add(column("nested" + i, ColumnType.MAP));
+        }
+        assertEquals(100, MongoDBUtils.getBatchSize(wideColumns));
+    }
+
+    private Column column(String name, ColumnType type) {
+        return new MutableColumn(name, type, table, 0, true);
+    }
+
+    private List<OrderByItem> orderBy(Column column, Direction direction) {
+        return Arrays.asList(new OrderByItem(new SelectItem(column), direction));
+    }
+}
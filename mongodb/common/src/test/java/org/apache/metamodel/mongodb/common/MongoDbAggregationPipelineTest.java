@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.mongodb.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.OrderByItem.Direction;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+
+public class MongoDbAggregationPipelineTest extends TestCase {
+
+    private MutableTable table;
+    private MutableColumn countryColumn;
+    private MutableColumn ageColumn;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        table = new MutableTable("persons");
+        countryColumn = new MutableColumn("country", ColumnType.VARCHAR, table, 0, true);
+        ageColumn = new MutableColumn("age", ColumnType.INTEGER, table, 1, true);
+        table.addColumn(countryColumn).addColumn(ageColumn);
+    }
+
+    public void testIsSupported() throws Exception {
+        assertTrue(MongoDbAggregationPipeline.isSupported(new Query().from(table).select(countryColumn).selectCount()
+                .groupBy(countryColumn)));
+        assertTrue(MongoDbAggregationPipeline.isSupported(new Query().from(table).select(countryColumn).orderBy(
+                ageColumn)));
+        assertTrue(MongoDbAggregationPipeline.isSupported(new Query().from(table).select(FunctionType.MAX, ageColumn)
+                .selectCount()));
+
+        // native count is preferred
+        assertFalse(MongoDbAggregationPipeline.isSupported(new Query().from(table).selectCount()));
+        // non-grouped column
+        assertFalse(MongoDbAggregationPipeline.isSupported(new Query().from(table).select(countryColumn).select(
+                FunctionType.MAX, ageColumn)));
+        // unsupported functions
+        assertFalse(MongoDbAggregationPipeline.isSupported(new Query().from(table).select(FunctionType.RANDOM,
+                ageColumn)));
+        assertFalse(MongoDbAggregationPipeline.isSupported(new Query().from(table).select(FunctionType.TO_STRING,
+                ageColumn).orderBy(ageColumn)));
+    }
+
+    public void testGroupByCount() throws Exception {
+        final Query query = new Query().from(table).select(countryColumn).selectCount().groupBy(countryColumn)
+                .orderBy(countryColumn);
+        final MongoDbAggregationPipeline pipeline = createPipeline(query, null);
+
+        assertEquals("[{$group={_id={g0=$country}, a1={$sum=1}}}, {$project={_id=0, g0=$_id.g0, a1=1}}, "
+                + "{$sort={g0=1}}]", pipeline.getStages().toString());
+        assertTrue(pipeline.isFullyPushedDown());
+
+        final DataSet dataSet = pipeline.postProcess(createDataSet(pipeline, createDocument("g0", "DK", "a1", 2),
+                createDocument("g0", "US", "a1", 3)));
+        assertEquals("[Row[values=[DK, 2]], Row[values=[US, 3]]]", dataSet.toRows().toString());
+    }
+
+    public void testAggregatesWithHavingAndPaging() throws Exception {
+        final Map<String, Object> match = createDocument("age", createDocument("$gt", 18));
+        final Query query = new Query().from(table).select(countryColumn).select(FunctionType.AVG, ageColumn)
+                .select(FunctionType.COUNT, ageColumn).where(ageColumn, OperatorType.GREATER_THAN, 18).groupBy(
+                        countryColumn).having(FunctionType.MAX, ageColumn, OperatorType.LESS_THAN, 65).orderBy(
+                        new OrderByItem(new SelectItem(FunctionType.AVG, ageColumn), Direction.DESC)).setFirstRow(2)
+                .setMaxRows(10);
+        final MongoDbAggregationPipeline pipeline = createPipeline(query, match);
+
+        assertEquals("[{$match={age={$gt=18}}}, "
+                + "{$group={_id={g0=$country}, a1={$avg=$age}, a2={$sum={$cond=[{$eq=[{$ifNull=[$age, null]}, null]}, 0, 1]}}, a3={$max=$age}}}, "
+                + "{$project={_id=0, g0=$_id.g0, a1=1, a2=1, a3=1}}, {$match={a3={$lt=65}}}, {$sort={a1=-1}}, "
+                + "{$skip=1}, {$limit=10}]", pipeline.getStages().toString());
+        assertEquals("[g0, a1, a2, a3]", pipeline.getOutputFields().toString());
+    }
+
+    public void testUnsupportedHavingIsPostProcessed() throws Exception {
+        final Query query = new Query().from(table).select(countryColumn).groupBy(countryColumn).having(countryColumn,
+                OperatorType.LIKE, "D%").orderBy(countryColumn).setMaxRows(1);
+        final MongoDbAggregationPipeline pipeline = createPipeline(query, null);
+
+        assertEquals("[{$group={_id={g0=$country}}}, {$project={_id=0, g0=$_id.g0}}]", pipeline.getStages()
+                .toString());
+        assertFalse(pipeline.isFullyPushedDown());
+
+        final DataSet dataSet = pipeline.postProcess(createDataSet(pipeline, createDocument("g0", "US"),
+                createDocument("g0", "DE"), createDocument("g0", "DK")));
+        assertEquals("[Row[values=[DE]]]", dataSet.toRows().toString());
+    }
+
+    public void testGlobalAggregationWithoutDocuments() throws Exception {
+        final Query query = new Query().from(table).selectCount().select(FunctionType.SUM, ageColumn);
+        final MongoDbAggregationPipeline pipeline = createPipeline(query, null);
+
+        assertEquals("[{$group={_id=null, a0={$sum=1}, a1={$sum=$age}}}, {$project={_id=0, a0=1, a1=1}}]", pipeline
+                .getStages().toString());
+
+        final DataSet dataSet = pipeline.postProcess(createDataSet(pipeline));
+        assertEquals("[Row[values=[0, 0.0]]]", dataSet.toRows().toString());
+    }
+
+    public void testOrderByWithoutGrouping() throws Exception {
+        final Query query = new Query().from(table).select(countryColumn).orderBy(ageColumn).setMaxRows(5);
+        final MongoDbAggregationPipeline pipeline = createPipeline(query, null);
+
+        assertEquals("[{$sort={age=1}}, {$limit=5}, {$project={_id=0, f0=$country}}]", pipeline.getStages()
+                .toString());
+    }
+
+    public void testDistinct() throws Exception {
+        final Query query = new Query().from(table).select(countryColumn).orderBy(countryColumn);
+        query.getSelectClause().setDistinct(true);
+        final MongoDbAggregationPipeline pipeline = createPipeline(query, null);
+
+        assertEquals("[{$group={_id={g0=$country}}}, {$project={_id=0, g0=$_id.g0}}, {$sort={g0=1}}]", pipeline
+                .getStages().toString());
+    }
+
+    private MongoDbAggregationPipeline createPipeline(Query query, Map<String, Object> match) {
+        assertTrue(MongoDbAggregationPipeline.isSupported(query));
+        return new MongoDbAggregationPipeline(query, match, LinkedHashMap::new);
+    }
+
+    @SafeVarargs
+    private final DataSet createDataSet(MongoDbAggregationPipeline pipeline, Map<String, Object>... documents) {
+        final List<Map<String, Object>> list = new ArrayList<>(Arrays.asList(documents));
+        return new MongoDbAggregationDataSet(pipeline, list.iterator(), () -> {
+        });
+    }
+
+    private static Map<String, Object> createDocument(Object... keysAndValues) {
+        final Map<String, Object> document = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            document.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return document;
+    }
+}
@@ -20,16 +20,20 @@ package org.apache.metamodel.mongodb.mongo2;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.MetaModelHelper;
 import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.UpdateScript;
 import org.apache.metamodel.UpdateSummary;
@@ -40,9 +44,13 @@ import org.apache.metamodel.data.InMemoryDataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.data.SimpleDataSetHeader;
 import org.apache.metamodel.mongodb.common.MongoDBUtils;
+import org.apache.metamodel.mongodb.common.MongoDbAggregationDataSet;
+import org.apache.metamodel.mongodb.common.MongoDbAggregationPipeline;
 import org.apache.metamodel.query.FilterItem;
 import org.apache.metamodel.query.FromItem;
 import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.OrderByItem.Direction;
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
@@ -58,9 +66,11 @@ import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mongodb.AggregationOptions;
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
+import com.mongodb.Cursor;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
@@ -78,8 +88,18 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
 
     private static final Logger logger = LoggerFactory.getLogger(MongoDbDataSet.class);
 
+    /**
+     * System property which can be used to configure the number of inserted
+     * documents that are buffered per collection before they are written to
+     * MongoDB using a single bulk insert.
+     */
+    public static final String SYSTEM_PROPERTY_INSERT_BATCH_SIZE = "metamodel.mongodb.insert.batch.size";
+
+    public static final int DEFAULT_INSERT_BATCH_SIZE = 1000;
+
     private final DB _mongoDb;
     private final SimpleTableDef[] _tableDefs;
+    private final Map<String, List<Map<String, Object>>> _indexKeys;
     private WriteConcernAdvisor _writeConcernAdvisor;
     private Schema _schema;
 
@@ -100,6 +120,7 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
         super(false);
         _mongoDb = mongoDb;
         _tableDefs = tableDefs;
+        _indexKeys = new ConcurrentHashMap<>();
         _schema = null;
     }
 
@@ -263,9 +284,12 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
                 && fromItems.get(0).getTable().getSchema() == _schema) {
             final Table table = fromItems.get(0).getTable();
 
-            // if GROUP BY, HAVING and ORDER BY clauses are not specified
+            // if GROUP BY and HAVING clauses are not specified, and ORDER BY
+            // can be served by an index
+            final List<OrderByItem> orderByItems = query.getOrderByClause().getItems();
             if (query.getGroupByClause().isEmpty() && query.getHavingClause().isEmpty()
-                    && query.getOrderByClause().isEmpty()) {
+                    && !query.getSelectClause().isDistinct()
+                    && (orderByItems.isEmpty() || isSortCoveredByIndex(table, orderByItems))) {
 
                 final List<FilterItem> whereItems = query.getWhereClause().getItems();
 
@@ -326,16 +350,24 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
                                 table,
                                 selectItems,
                                 whereItems,
+                                orderByItems,
                                 firstRow,
                                 maxRows, false);
                         return dataSet;
                     } else {
-                        final DataSet dataSet = materializeMainSchemaTableInternal(table, selectItems, whereItems, firstRow,
-                                maxRows, false);
+                        final DataSet dataSet = materializeMainSchemaTableInternal(table, selectItems, whereItems,
+                                orderByItems, firstRow, maxRows, false);
                         return dataSet;
                     }
                 }
             }
+
+            if (MongoDbAggregationPipeline.isSupported(query)) {
+                final DataSet dataSet = executeAggregationPipeline(table, query);
+                if (dataSet != null) {
+                    return dataSet;
+                }
+            }
         }
 
         logger.debug("Query will be simplified for MongoDB and post processed.");
@@ -344,21 +376,80 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
 
 
 
+    /**
+     * Executes a query (with GROUP BY, ORDER BY and/or aggregate functions) as
+     * an aggregation pipeline.
+     * 
+     * @param table
+     * @param query
+     * @return the result of the query, or null if the WHERE clause of the
+     *         query could not be pushed down
+     */
+    private DataSet executeAggregationPipeline(Table table, Query query) {
+        if (MetaModelHelper.containsNonSelectScalaFunctions(query)) {
+            return null;
+        }
+        final BasicDBObject match;
+        try {
+            match = createMongoDbQuery(table, query.getWhereClause().getItems());
+        } catch (IllegalStateException e) {
+            logger.debug("WHERE clause cannot be expressed in MongoDB, falling back to post processing", e);
+            return null;
+        }
+
+        final MongoDbAggregationPipeline pipeline = new MongoDbAggregationPipeline(query, match, BasicDBObject::new);
+        final List<DBObject> stages = pipeline.getStages().stream().map(stage -> (DBObject) stage).collect(
+                Collectors.toList());
+
+        logger.info("Executing MongoDB 'aggregate' query: {}", stages);
+        final DBCollection collection = _mongoDb.getCollection(table.getName());
+        final AggregationOptions options = AggregationOptions.builder().allowDiskUse(true).outputMode(
+                AggregationOptions.OutputMode.CURSOR).build();
+        final Cursor cursor = collection.aggregate(stages, options);
+
+        return pipeline.postProcess(new MongoDbAggregationDataSet(pipeline, cursor, cursor::close));
+    }
+
     private DataSet materializeMainSchemaTableInternal(Table table, List<SelectItem> selectItems,
-            List<FilterItem> whereItems, int firstRow, int maxRows, boolean queryPostProcessed) {
-        DBCursor cursor = getCursor(table, whereItems, firstRow, maxRows);
+            List<FilterItem> whereItems, List<OrderByItem> orderByItems, int firstRow, int maxRows,
+            boolean queryPostProcessed) {
+        DBCursor cursor = getCursor(table, selectItems, whereItems, orderByItems, firstRow, maxRows);
 
         return new MongoDbDataSet(cursor, selectItems, queryPostProcessed);
     }
 
-    private DBCursor getCursor(Table table, List<FilterItem> whereItems, int firstRow, int maxRows) {
+    private DBCursor getCursor(Table table, List<SelectItem> selectItems, List<FilterItem> whereItems,
+            List<OrderByItem> orderByItems, int firstRow, int maxRows) {
         final DBCollection collection = _mongoDb.getCollection(table.getName());
 
         final DBObject query = createMongoDbQuery(table, whereItems);
 
-        logger.info("Executing MongoDB 'find' query: {}", query);
-        DBCursor cursor = collection.find(query);
+        final Set<Column> columns = new LinkedHashSet<>();
+        for (SelectItem selectItem : selectItems) {
+            if (selectItem.getColumn() != null) {
+                columns.add(selectItem.getColumn());
+            }
+        }
+        final BasicDBObject projection = new BasicDBObject();
+        final List<String> projectionPaths = MongoDBUtils.getProjectionPaths(columns);
+        for (String path : projectionPaths) {
+            projection.put(path, 1);
+        }
+        if (MongoDBUtils.isIdExcludedFromProjection(projectionPaths)) {
+            projection.put("_id", 0);
+        }
+
+        logger.info("Executing MongoDB 'find' query: {} with projection {}", query, projection);
+        DBCursor cursor = collection.find(query, projection).batchSize(MongoDBUtils.getBatchSize(columns));
 
+        if (orderByItems != null && !orderByItems.isEmpty()) {
+            final BasicDBObject sort = new BasicDBObject();
+            for (OrderByItem orderByItem : orderByItems) {
+                sort.put(orderByItem.getSelectItem().getColumn().getName(), orderByItem.getDirection() == Direction.ASC
+                        ? 1 : -1);
+            }
+            cursor = cursor.sort(sort);
+        }
         if (maxRows > 0) {
             cursor = cursor.limit(maxRows);
         }
@@ -369,6 +460,46 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
         return cursor;
     }
 
+    /**
+     * Determines if a sort can be served by one of the indexes of the
+     * collection of a table. The index keys of each collection are cached
+     * until the schemas are refreshed or the collection is dropped.
+     */
+    private boolean isSortCoveredByIndex(Table table, List<OrderByItem> orderByItems) {
+        final List<Map<String, Object>> indexKeys = _indexKeys.computeIfAbsent(table.getName(), this::getIndexKeys);
+        for (Map<String, Object> indexKey : indexKeys) {
+            if (MongoDBUtils.isSortCoveredByIndex(orderByItems, indexKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Map<String, Object>> getIndexKeys(String collectionName) {
+        final List<Map<String, Object>> result = new ArrayList<>();
+        for (DBObject index : _mongoDb.getCollection(collectionName).getIndexInfo()) {
+            final Object indexKey = index.get("key");
+            if (indexKey instanceof BasicDBObject) {
+                result.add((BasicDBObject) indexKey);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clears the cached index keys of a collection, eg. when it is dropped.
+     *
+     * @param collectionName
+     */
+    void clearIndexKeys(String collectionName) {
+        _indexKeys.remove(collectionName);
+    }
+
+    @Override
+    protected void onSchemaCacheRefreshed() {
+        _indexKeys.clear();
+    }
+
     protected BasicDBObject createMongoDbQuery(Table table, List<FilterItem> whereItems) {
         assert _schema == table.getSchema();
 
@@ -475,6 +606,7 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
                 table,
                 columns.stream().map(SelectItem::new).collect(Collectors.toList()),
                 null,
+                null,
                 1,
                 maxRows,
                 true);
@@ -486,6 +618,7 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
                 table,
                 columns.stream().map(SelectItem::new).collect(Collectors.toList()),
                 null,
+                null,
                 firstRow,
                 maxRows,
                 true);
@@ -498,6 +631,8 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
         MongoDbUpdateCallback callback = new MongoDbUpdateCallback(this, writeConcernAdvisor);
         try {
             update.run(callback);
+            // only write the buffered documents if the script completed normally
+            callback.flushInserts();
         } finally {
             callback.close();
         }
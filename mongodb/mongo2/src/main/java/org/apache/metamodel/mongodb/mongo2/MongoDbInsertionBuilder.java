@@ -23,18 +23,13 @@ import org.apache.metamodel.insert.AbstractRowInsertionBuilder;
 import org.apache.metamodel.insert.RowInsertionBuilder;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
-import org.slf4j.LoggerFactory;
-import org.slf4j.Logger;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.WriteConcern;
-import com.mongodb.WriteResult;
 
 final class MongoDbInsertionBuilder extends AbstractRowInsertionBuilder<MongoDbUpdateCallback> implements RowInsertionBuilder {
 
-    private static final Logger logger = LoggerFactory.getLogger(MongoDbInsertionBuilder.class);
-
     public MongoDbInsertionBuilder(MongoDbUpdateCallback updateCallback, Table table) {
         super(updateCallback, table);
     }
@@ -58,7 +53,6 @@ final class MongoDbInsertionBuilder extends AbstractRowInsertionBuilder<MongoDbU
 
         final WriteConcern writeConcern = updateCallback.getWriteConcernAdvisor().adviceInsert(collection, doc);
 
-        final WriteResult writeResult = collection.insert(doc, writeConcern);
-        logger.info("Insert returned result: {}", writeResult);
+        updateCallback.insert(getTable().getName(), doc, writeConcern);
     }
 }
@@ -21,11 +21,14 @@ package org.apache.metamodel.mongodb.mongo3;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -43,9 +46,13 @@ import org.apache.metamodel.data.InMemoryDataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.data.SimpleDataSetHeader;
 import org.apache.metamodel.mongodb.common.MongoDBUtils;
+import org.apache.metamodel.mongodb.common.MongoDbAggregationDataSet;
+import org.apache.metamodel.mongodb.common.MongoDbAggregationPipeline;
 import org.apache.metamodel.query.FilterItem;
 import org.apache.metamodel.query.FromItem;
 import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.OrderByItem.Direction;
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
@@ -80,8 +87,18 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
 
     private static final Logger logger = LoggerFactory.getLogger(MongoDbDataSet.class);
 
+    /**
+     * System property which can be used to configure the number of inserted
+     * documents that are buffered per collection before they are written to
+     * MongoDB using a single bulk insert.
+     */
+    public static final String SYSTEM_PROPERTY_INSERT_BATCH_SIZE = "metamodel.mongodb.insert.batch.size";
+
+    public static final int DEFAULT_INSERT_BATCH_SIZE = 1000;
+
     private final MongoDatabase _mongoDb;
     private final SimpleTableDef[] _tableDefs;
+    private final Map<String, List<Map<String, Object>>> _indexKeys;
     private WriteConcernAdvisor _writeConcernAdvisor;
     private Schema _schema;
 
@@ -98,6 +115,7 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
         super(false);
         _mongoDb = mongoDb;
         _tableDefs = tableDefs;
+        _indexKeys = new ConcurrentHashMap<>();
         _schema = null;
     }
 
@@ -261,9 +279,12 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
                 && fromItems.get(0).getTable().getSchema() == _schema) {
             final Table table = fromItems.get(0).getTable();
 
-            // if GROUP BY, HAVING and ORDER BY clauses are not specified
+            // if GROUP BY and HAVING clauses are not specified, and ORDER BY
+            // can be served by an index
+            final List<OrderByItem> orderByItems = query.getOrderByClause().getItems();
             if (query.getGroupByClause().isEmpty() && query.getHavingClause().isEmpty()
-                    && query.getOrderByClause().isEmpty()) {
+                    && !query.getSelectClause().isDistinct()
+                    && (orderByItems.isEmpty() || isSortCoveredByIndex(table, orderByItems))) {
 
                 final List<FilterItem> whereItems = query.getWhereClause().getItems();
 
@@ -323,27 +344,65 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
 
                     if (thereIsAtLeastOneAlias) {
                         final DataSet dataSet = materializeMainSchemaTableInternal(table, selectItems, whereItems,
-                                firstRow, maxRows, false);
+                                orderByItems, firstRow, maxRows, false);
                         return dataSet;
                     } else {
                         final DataSet dataSet = materializeMainSchemaTableInternal(table, selectItems, whereItems,
-                                firstRow, maxRows, false);
+                                orderByItems, firstRow, maxRows, false);
                         return dataSet;
                     }
                 }
             }
+
+            if (MongoDbAggregationPipeline.isSupported(query)) {
+                final DataSet dataSet = executeAggregationPipeline(table, query);
+                if (dataSet != null) {
+                    return dataSet;
+                }
+            }
         }
 
         logger.debug("Query will be simplified for MongoDB and post processed.");
         return super.executeQuery(query);
     }
 
-    private DataSet materializeMainSchemaTableInternal(Table table, List<SelectItem> selectItems,
-            List<FilterItem> whereItems, int firstRow, int maxRows, boolean queryPostProcessed) {
+    /**
+     * Executes a query (with GROUP BY, ORDER BY and/or aggregate functions) as
+     * an aggregation pipeline.
+     * 
+     * @param table
+     * @param query
+     * @return the result of the query, or null if the WHERE clause of the
+     *         query could not be pushed down
+     */
+    private DataSet executeAggregationPipeline(Table table, Query query) {
         final List<FilterItem> postProcessWhereItems = new ArrayList<>();
-        final MongoCursor<Document> cursor = getDocumentMongoCursor(table, whereItems, firstRow, maxRows, whereItem -> {
+        final Document match = createMongoDbQuery(table, query.getWhereClause().getItems(), whereItem -> {
             postProcessWhereItems.add(whereItem);
         });
+        if (!postProcessWhereItems.isEmpty()) {
+            return null;
+        }
+
+        final MongoDbAggregationPipeline pipeline = new MongoDbAggregationPipeline(query, match, Document::new);
+        final List<Document> stages = pipeline.getStages().stream().map(stage -> (Document) stage).collect(
+                Collectors.toList());
+
+        logger.info("Executing MongoDB 'aggregate' query: {}", stages);
+        final MongoCollection<Document> collection = _mongoDb.getCollection(table.getName());
+        final MongoCursor<Document> cursor = collection.aggregate(stages).allowDiskUse(true).iterator();
+
+        return pipeline.postProcess(new MongoDbAggregationDataSet(pipeline, cursor, cursor::close));
+    }
+
+    private DataSet materializeMainSchemaTableInternal(Table table, List<SelectItem> selectItems,
+            List<FilterItem> whereItems, List<OrderByItem> orderByItems, int firstRow, int maxRows,
+            boolean queryPostProcessed) {
+        final List<FilterItem> postProcessWhereItems = new ArrayList<>();
+        final MongoCursor<Document> cursor = getDocumentMongoCursor(table, selectItems, whereItems, orderByItems,
+                firstRow, maxRows, whereItem -> {
+                    postProcessWhereItems.add(whereItem);
+                });
 
         final DataSet dataSet;
         if (postProcessWhereItems.isEmpty()) {
@@ -365,15 +424,45 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
         return dataSet;
     }
 
-    private MongoCursor<Document> getDocumentMongoCursor(Table table, List<FilterItem> whereItems, int firstRow,
-            int maxRows, Consumer<FilterItem> filterItemsToPostProcessConsumer) {
+    private MongoCursor<Document> getDocumentMongoCursor(Table table, List<SelectItem> selectItems,
+            List<FilterItem> whereItems, List<OrderByItem> orderByItems, int firstRow, int maxRows,
+            Consumer<FilterItem> filterItemsToPostProcessConsumer) {
         final MongoCollection<Document> collection = _mongoDb.getCollection(table.getName());
 
-        final Document query = createMongoDbQuery(table, whereItems, filterItemsToPostProcessConsumer);
+        // the columns of filter items that are post processed have to be
+        // retrieved as well
+        final Set<Column> columns = new LinkedHashSet<>();
+        selectItems.forEach(selectItem -> columns.add(selectItem.getColumn()));
+        final Document query = createMongoDbQuery(table, whereItems, whereItem -> {
+            final Column column = whereItem.getSelectItem() == null ? null : whereItem.getSelectItem().getColumn();
+            if (column != null) {
+                columns.add(column);
+            }
+            filterItemsToPostProcessConsumer.accept(whereItem);
+        });
+        columns.remove(null);
+
+        final Document projection = new Document();
+        final List<String> projectionPaths = MongoDBUtils.getProjectionPaths(columns);
+        for (String path : projectionPaths) {
+            projection.put(path, 1);
+        }
+        if (MongoDBUtils.isIdExcludedFromProjection(projectionPaths)) {
+            projection.put("_id", 0);
+        }
 
-        logger.info("Executing MongoDB 'find' query: {}", query);
-        FindIterable<Document> iterable = collection.find(query);
+        logger.info("Executing MongoDB 'find' query: {} with projection {}", query, projection);
+        FindIterable<Document> iterable = collection.find(query).projection(projection).batchSize(MongoDBUtils
+                .getBatchSize(columns));
 
+        if (orderByItems != null && !orderByItems.isEmpty()) {
+            final Document sort = new Document();
+            for (OrderByItem orderByItem : orderByItems) {
+                sort.put(orderByItem.getSelectItem().getColumn().getName(), orderByItem.getDirection() == Direction.ASC
+                        ? 1 : -1);
+            }
+            iterable = iterable.sort(sort);
+        }
         if (maxRows > 0) {
             iterable = iterable.limit(maxRows);
         }
@@ -385,6 +474,46 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
         return iterable.iterator();
     }
 
+    /**
+     * Determines if a sort can be served by one of the indexes of the
+     * collection of a table. The index keys of each collection are cached
+     * until the schemas are refreshed or the collection is dropped.
+     */
+    private boolean isSortCoveredByIndex(Table table, List<OrderByItem> orderByItems) {
+        final List<Map<String, Object>> indexKeys = _indexKeys.computeIfAbsent(table.getName(), this::getIndexKeys);
+        for (Map<String, Object> indexKey : indexKeys) {
+            if (MongoDBUtils.isSortCoveredByIndex(orderByItems, indexKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Map<String, Object>> getIndexKeys(String collectionName) {
+        final List<Map<String, Object>> result = new ArrayList<>();
+        for (Document index : _mongoDb.getCollection(collectionName).listIndexes()) {
+            final Document indexKey = (Document) index.get("key");
+            if (indexKey != null) {
+                result.add(indexKey);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clears the cached index keys of a collection, eg. when it is dropped.
+     *
+     * @param collectionName
+     */
+    void clearIndexKeys(String collectionName) {
+        _indexKeys.remove(collectionName);
+    }
+
+    @Override
+    protected void onSchemaCacheRefreshed() {
+        _indexKeys.clear();
+    }
+
     protected Document createMongoDbQuery(Table table, List<FilterItem> whereItems,
             Consumer<FilterItem> whereItemToPostProcessConsumer) {
         assert _schema == table.getSchema();
@@ -545,13 +674,14 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
     protected DataSet materializeMainSchemaTable(Table table, List<Column> columns, int maxRows) {
 
         return materializeMainSchemaTableInternal(table,
-                columns.stream().map(SelectItem::new).collect(Collectors.toList()), null, 1, maxRows, true);
+                columns.stream().map(SelectItem::new).collect(Collectors.toList()), null, null, 1, maxRows, true);
     }
 
     @Override
     protected DataSet materializeMainSchemaTable(Table table, List<Column> columns, int firstRow, int maxRows) {
         return materializeMainSchemaTableInternal(table,
-                columns.stream().map(SelectItem::new).collect(Collectors.toList()), null, firstRow, maxRows, true);
+                columns.stream().map(SelectItem::new).collect(Collectors.toList()), null, null, firstRow, maxRows,
+                true);
     }
 
     /**
@@ -561,6 +691,8 @@ public class MongoDbDataContext extends QueryPostprocessDataContext implements U
         MongoDbUpdateCallback callback = new MongoDbUpdateCallback(this, writeConcernAdvisor);
         try {
             update.run(callback);
+            // only write the buffered documents if the script completed normally
+            callback.flushInserts();
         } finally {
             callback.close();
         }
@@ -24,16 +24,12 @@ import org.apache.metamodel.insert.RowInsertionBuilder;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.bson.Document;
-import org.slf4j.LoggerFactory;
-import org.slf4j.Logger;
 
 import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoCollection;
 
 final class MongoDbInsertionBuilder extends AbstractRowInsertionBuilder<MongoDbUpdateCallback> implements RowInsertionBuilder {
 
-    private static final Logger logger = LoggerFactory.getLogger(MongoDbInsertionBuilder.class);
-
     public MongoDbInsertionBuilder(MongoDbUpdateCallback updateCallback, Table table) {
         super(updateCallback, table);
     }
@@ -55,9 +51,7 @@ final class MongoDbInsertionBuilder extends AbstractRowInsertionBuilder<MongoDbU
         final MongoDbUpdateCallback updateCallback = getUpdateCallback();
         final MongoCollection<Document> collection = updateCallback.getCollection(getTable().getName());
         final WriteConcern writeConcern = updateCallback.getWriteConcernAdvisor().adviceInsert(collection, doc);
-        collection.withWriteConcern(writeConcern);
 
-        collection.insertOne(doc);
-        logger.info("Document has been inserted");
+        updateCallback.insert(getTable().getName(), doc, writeConcern);
     }
 }
@@ -19,7 +19,10 @@
 package org.apache.metamodel.mongodb.mongo3;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.metamodel.AbstractUpdateCallback;
@@ -30,22 +33,34 @@ import org.apache.metamodel.drop.TableDropBuilder;
 import org.apache.metamodel.insert.RowInsertionBuilder;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.update.RowUpdationBuilder;
+import org.apache.metamodel.util.SystemProperties;
 import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
-
+import com.mongodb.client.model.InsertManyOptions;
 
 final class MongoDbUpdateCallback extends AbstractUpdateCallback implements UpdateCallback, Closeable {
 
+    private static final Logger logger = LoggerFactory.getLogger(MongoDbUpdateCallback.class);
+
     private final MongoDbDataContext _dataContext;
     private final Map<String, MongoCollection<Document>> _collections;
     private final WriteConcernAdvisor _writeConcernAdvisor;
+    private final Map<String, PendingInserts> _pendingInserts;
+    private final int _insertBatchSize;
 
     public MongoDbUpdateCallback(MongoDbDataContext dataContext, WriteConcernAdvisor writeConcernAdvisor) {
         super(dataContext);
         _dataContext = dataContext;
         _writeConcernAdvisor = writeConcernAdvisor;
+        _pendingInserts = new LinkedHashMap<>();
+        _insertBatchSize = SystemProperties.getInt(MongoDbDataContext.SYSTEM_PROPERTY_INSERT_BATCH_SIZE,
+                MongoDbDataContext.DEFAULT_INSERT_BATCH_SIZE);
         _collections = new HashMap<String, MongoCollection<Document>>();
     }
 
@@ -61,6 +76,7 @@ final class MongoDbUpdateCallback extends AbstractUpdateCallback implements Upda
     @Override
     public TableCreationBuilder createTable(Schema schema, String name) throws IllegalArgumentException,
             IllegalStateException {
+        flushInserts();
         return new MongoDbTableCreationBuilder(this, schema, name);
     }
 
@@ -80,6 +96,7 @@ final class MongoDbUpdateCallback extends AbstractUpdateCallback implements Upda
         MongoCollection<Document> collection = getCollection(name);
         _collections.remove(name);
         collection.drop();
+        _dataContext.clearIndexKeys(name);
     }
 
     protected MongoCollection<Document> getCollection(String name) {
@@ -91,8 +108,62 @@ final class MongoDbUpdateCallback extends AbstractUpdateCallback implements Upda
         return collection;
     }
 
+    /**
+     * Adds a document to the buffer of documents to insert into a collection.
+     * The buffer is flushed using a single (unordered) bulk insert when it
+     * reaches the configured batch size (see
+     * {@link MongoDbDataContext#SYSTEM_PROPERTY_INSERT_BATCH_SIZE}), when
+     * another kind of update is made and when the update script completes.
+     * 
+     * @param name
+     *            the name of the collection
+     * @param document
+     *            the document to insert
+     * @param writeConcern
+     *            the write concern to insert the document with
+     */
+    protected void insert(String name, Document document, WriteConcern writeConcern) {
+        PendingInserts pendingInserts = _pendingInserts.get(name);
+        if (pendingInserts != null && !pendingInserts._writeConcern.equals(writeConcern)) {
+            flushInserts(name);
+            pendingInserts = null;
+        }
+        if (pendingInserts == null) {
+            pendingInserts = new PendingInserts(writeConcern);
+            _pendingInserts.put(name, pendingInserts);
+        }
+        pendingInserts._documents.add(document);
+        if (pendingInserts._documents.size() >= _insertBatchSize) {
+            flushInserts(name);
+        }
+    }
+
+    /**
+     * Flushes the buffered documents of all collections.
+     */
+    protected void flushInserts() {
+        for (String name : new ArrayList<>(_pendingInserts.keySet())) {
+            flushInserts(name);
+        }
+    }
+
+    private void flushInserts(String name) {
+        final PendingInserts pendingInserts = _pendingInserts.remove(name);
+        if (pendingInserts == null || pendingInserts._documents.isEmpty()) {
+            return;
+        }
+        final MongoCollection<Document> collection = getCollection(name).withWriteConcern(pendingInserts._writeConcern);
+        collection.insertMany(pendingInserts._documents, new InsertManyOptions().ordered(false));
+        logger.info("{} documents have been inserted into {}", pendingInserts._documents.size(), name);
+    }
+
+    /**
+     * Discards any buffered documents which have not been flushed, e.g.
+     * because the update script failed.
+     */
     @Override
     public void close() {
+        _pendingInserts.clear();
         _collections.clear();
     }
 
@@ -103,6 +174,7 @@ final class MongoDbUpdateCallback extends AbstractUpdateCallback implements Upda
 
     @Override
     public TableDropBuilder dropTable(Table table) throws UnsupportedOperationException {
+        flushInserts();
         return new MongoDbDropTableBuilder(this, table);
     }
 
@@ -114,6 +186,27 @@ final class MongoDbUpdateCallback extends AbstractUpdateCallback implements Upda
     @Override
     public RowDeletionBuilder deleteFrom(Table table) throws IllegalArgumentException, IllegalStateException,
             UnsupportedOperationException {
+        flushInserts();
         return new MongoDbDeleteBuilder(this, table);
     }
+
+    @Override
+    public RowUpdationBuilder update(Table table) throws IllegalArgumentException, IllegalStateException,
+            UnsupportedOperationException {
+        // updates are executed as queries + deletes + inserts, so buffered
+        // inserts need to be visible first
+        flushInserts();
+        return super.update(table);
+    }
+
+    private static final class PendingInserts {
+
+        private final WriteConcern _writeConcern;
+        private final List<Document> _documents;
+
+        public PendingInserts(WriteConcern writeConcern) {
+            _writeConcern = writeConcern;
+            _documents = new ArrayList<>();
+        }
+    }
 }
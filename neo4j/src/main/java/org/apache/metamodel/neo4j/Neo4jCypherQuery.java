@@ -0,0 +1,414 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.neo4j;
+
+import static org.apache.metamodel.neo4j.Neo4jDataContext.NEO4J_COLUMN_NAME_ID;
+import static org.apache.metamodel.neo4j.Neo4jDataContext.NEO4J_COLUMN_NAME_RELATION_PREFIX;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.metamodel.query.AggregateFunction;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.util.BooleanComparator;
+import org.apache.metamodel.util.CollectionUtils;
+import org.apache.metamodel.util.NumberComparator;
+
+/**
+ * A Cypher query on the nodes of a label, translated from the WHERE and ORDER
+ * BY clauses of a MetaModel query. Operands are passed as query parameters, so
+ * that Neo4j can reuse the plan of the query.
+ *
+ * Only filter items on node properties (and the node id) whose Cypher
+ * semantics match those of MetaModel are translated. The rest are exposed as
+ * post-processing filter items, which have to be evaluated on the returned
+ * rows.
+ */
+final class Neo4jCypherQuery {
+
+    private final String _whereClause;
+    private final Map<String, Object> _parameters;
+    private final List<FilterItem> _postProcessWhereItems;
+    private String _orderByClause;
+
+    public Neo4jCypherQuery(List<FilterItem> whereItems) {
+        _parameters = new LinkedHashMap<>();
+        _postProcessWhereItems = new ArrayList<>();
+
+        final StringBuilder sb = new StringBuilder();
+        for (FilterItem whereItem : whereItems) {
+            final String condition = createCondition(whereItem);
+            if (condition == null) {
+                _postProcessWhereItems.add(whereItem);
+            } else {
+                sb.append(sb.length() == 0 ? "WHERE " : " AND ");
+                sb.append(condition);
+            }
+        }
+        _whereClause = sb.toString();
+    }
+
+    /**
+     * Determines if any of the filter items were translated into the WHERE
+     * clause.
+     */
+    public boolean hasWhereClause() {
+        return !_whereClause.isEmpty();
+    }
+
+    /**
+     * Gets the filter items that were not translated into the WHERE clause.
+     */
+    public List<FilterItem> getPostProcessWhereItems() {
+        return _postProcessWhereItems;
+    }
+
+    public boolean isFullyPushedDown() {
+        return _postProcessWhereItems.isEmpty();
+    }
+
+    /**
+     * Gets the parameters referenced by the statements of the query.
+     */
+    public Map<String, Object> getParameters() {
+        return Collections.unmodifiableMap(_parameters);
+    }
+
+    /**
+     * Translates ORDER BY items into the ORDER BY clause of the query. This is
+     * only possible for the node id and number and boolean properties, whose
+     * ordering in Cypher matches that of MetaModel. Since Cypher orders null
+     * values last, an additional null check sorts them like MetaModel does.
+     *
+     * @param orderByItems
+     *            the ORDER BY items
+     * @return true if the ORDER BY clause was set, false if the ORDER BY items
+     *         cannot be translated
+     */
+    public boolean setOrderBy(List<OrderByItem> orderByItems) {
+        final StringBuilder sb = new StringBuilder();
+        for (OrderByItem orderByItem : orderByItems) {
+            final SelectItem selectItem = orderByItem.getSelectItem();
+            if (!isNodeColumn(selectItem)) {
+                return false;
+            }
+            final Column column = selectItem.getColumn();
+            final ColumnType type = column.getType();
+            final boolean isId = NEO4J_COLUMN_NAME_ID.equals(column.getName());
+            if (!isId && (type == null || !(type.isNumber() || type.isBoolean()))) {
+                return false;
+            }
+
+            final String direction = orderByItem.isAscending() ? " ASC" : " DESC";
+            final String expression = toExpression(column);
+            sb.append(sb.length() == 0 ? "ORDER BY " : ", ");
+            if (!isId) {
+                sb.append(expression).append(" IS NOT NULL").append(direction).append(", ");
+            }
+            sb.append(expression).append(direction);
+        }
+        _orderByClause = sb.toString();
+        return true;
+    }
+
+    public boolean hasOrderBy() {
+        return _orderByClause != null;
+    }
+
+    /**
+     * Creates a statement which selects columns of the nodes of a label.
+     */
+    public String toSelectStatement(String tableName, List<String> columnNames, int firstRow, int maxRows) {
+        return Neo4jCypherQueryBuilder.buildSelectQuery(tableName, columnNames, _whereClause, _orderByClause,
+                firstRow, maxRows);
+    }
+
+    /**
+     * Creates a statement which counts the nodes of a label.
+     */
+    public String toCountStatement(String tableName) {
+        return buildMatchClause(tableName) + " RETURN count(*)";
+    }
+
+    /**
+     * Creates a statement which returns node properties and aggregates over
+     * them. As in Cypher, the returned properties are the grouping keys of the
+     * aggregates. Without aggregates, the distinct properties are returned.
+     *
+     * @param tableName
+     *            the label of the nodes
+     * @param returnItems
+     *            the node columns and aggregate functions to return
+     * @return the statement, or null if some of the return items cannot be
+     *         translated
+     */
+    public String toAggregateStatement(String tableName, List<SelectItem> returnItems) {
+        final StringBuilder sb = new StringBuilder(buildMatchClause(tableName));
+        sb.append(" RETURN ");
+        if (returnItems.stream().allMatch(returnItem -> returnItem.getAggregateFunction() == null)) {
+            sb.append("DISTINCT ");
+        }
+        for (int i = 0; i < returnItems.size(); i++) {
+            final String expression = toReturnExpression(returnItems.get(i));
+            if (expression == null) {
+                return null;
+            }
+            if (i != 0) {
+                sb.append(',');
+            }
+            sb.append(expression);
+        }
+        return sb.toString();
+    }
+
+    private String buildMatchClause(String tableName) {
+        final StringBuilder sb = new StringBuilder("MATCH (n:");
+        sb.append(Neo4jCypherQueryBuilder.escapeIdentifier(tableName)).append(')');
+        if (hasWhereClause()) {
+            sb.append(' ').append(_whereClause);
+        }
+        return sb.toString();
+    }
+
+    private static String toReturnExpression(SelectItem selectItem) {
+        if (SelectItem.isCountAllItem(selectItem)) {
+            return "count(*)";
+        }
+        if (selectItem.getExpression() != null || selectItem.getScalarFunction() != null || selectItem
+                .getSubQuerySelectItem() != null) {
+            return null;
+        }
+        final AggregateFunction function = selectItem.getAggregateFunction();
+        if (function == null) {
+            return isNodeColumn(selectItem) ? toExpression(selectItem.getColumn()) : null;
+        }
+
+        if (FunctionType.COUNT.equals(function)) {
+            return isNodeColumn(selectItem.getColumn()) ? "count(" + toExpression(selectItem.getColumn()) + ")"
+                    : null;
+        }
+
+        // the remaining aggregates are only translated for numbers, since
+        // MetaModel converts values to numbers when summing them up, and
+        // orders strings differently
+        if (!isNodeColumn(selectItem.getColumn()) || selectItem.getColumn().getType() == null || !selectItem
+                .getColumn().getType().isNumber()) {
+            return null;
+        }
+        final String expression = toExpression(selectItem.getColumn());
+        if (FunctionType.SUM.equals(function)) {
+            return "sum(" + expression + ")";
+        } else if (FunctionType.AVG.equals(function)) {
+            // MetaModel averages no values to zero
+            return "coalesce(avg(" + expression + "), 0.0)";
+        } else if (FunctionType.MIN.equals(function)) {
+            return "min(" + expression + ")";
+        } else if (FunctionType.MAX.equals(function)) {
+            return "max(" + expression + ")";
+        }
+        return null;
+    }
+
+    /**
+     * Determines if a select item is a plain node property (or the node id),
+     * as opposed to a relationship column.
+     */
+    private static boolean isNodeColumn(SelectItem selectItem) {
+        if (selectItem == null || selectItem.hasFunction() || selectItem.getExpression() != null) {
+            return false;
+        }
+        return isNodeColumn(selectItem.getColumn());
+    }
+
+    private static boolean isNodeColumn(Column column) {
+        return column != null && !column.getName().startsWith(NEO4J_COLUMN_NAME_RELATION_PREFIX);
+    }
+
+    private static String toExpression(Column column) {
+        if (NEO4J_COLUMN_NAME_ID.equals(column.getName())) {
+            return "id(n)";
+        }
+        return "n." + Neo4jCypherQueryBuilder.escapeIdentifier(column.getName());
+    }
+
+    private String createCondition(FilterItem filterItem) {
+        if (filterItem.isCompoundFilter()) {
+            final String separator = filterItem.getLogicalOperator() == LogicalOperator.AND ? " AND " : " OR ";
+            final StringBuilder sb = new StringBuilder("(");
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                final String condition = createCondition(childItem);
+                if (condition == null) {
+                    return null;
+                }
+                if (sb.length() > 1) {
+                    sb.append(separator);
+                }
+                sb.append(condition);
+            }
+            return sb.append(')').toString();
+        }
+
+        final SelectItem selectItem = filterItem.getSelectItem();
+        if (filterItem.getExpression() != null || !isNodeColumn(selectItem) || filterItem
+                .getOperand() instanceof SelectItem) {
+            return null;
+        }
+        final Column column = selectItem.getColumn();
+        final ColumnType type = NEO4J_COLUMN_NAME_ID.equals(column.getName()) ? ColumnType.BIGINT : column
+                .getType();
+        if (type == null) {
+            return null;
+        }
+        final String expression = toExpression(column);
+        final OperatorType operator = filterItem.getOperator();
+        final Object operand = filterItem.getOperand();
+
+        if (operand == null) {
+            if (operator == OperatorType.EQUALS_TO) {
+                return expression + " IS NULL";
+            } else if (operator == OperatorType.DIFFERENT_FROM) {
+                return expression + " IS NOT NULL";
+            }
+            return null;
+        }
+
+        if (operator == OperatorType.IN || operator == OperatorType.NOT_IN) {
+            final List<Object> values = new ArrayList<>();
+            for (Object item : CollectionUtils.toList(operand)) {
+                final Object value = toParameterValue(type, item);
+                if (value == null) {
+                    return null;
+                }
+                values.add(value);
+            }
+            final String condition = expression + " IN " + addParameter(values);
+            // like in MetaModel, null values do not match NOT IN
+            return operator == OperatorType.IN ? condition : "NOT " + condition;
+        }
+
+        if (operator == OperatorType.LIKE || operator == OperatorType.NOT_LIKE) {
+            if (!type.isLiteral() || !(operand instanceof String)) {
+                return null;
+            }
+            final String condition = createLikeCondition(expression, (String) operand);
+            return operator == OperatorType.LIKE ? condition : "NOT " + condition;
+        }
+
+        final Object value = toParameterValue(type, operand);
+        if (value == null) {
+            return null;
+        }
+        if (operator == OperatorType.EQUALS_TO) {
+            return expression + " = " + addParameter(value);
+        } else if (operator == OperatorType.DIFFERENT_FROM) {
+            // in MetaModel, null values are different from any value
+            return "(" + expression + " IS NULL OR " + expression + " <> " + addParameter(value) + ")";
+        } else if (type.isNumber() && (operator == OperatorType.GREATER_THAN
+                || operator == OperatorType.GREATER_THAN_OR_EQUAL || operator == OperatorType.LESS_THAN
+                || operator == OperatorType.LESS_THAN_OR_EQUAL)) {
+            // strings are not ranged over, since Cypher does not compare them
+            // with other types of values
+            return expression + " " + operator.toSql() + " " + addParameter(value);
+        }
+        return null;
+    }
+
+    /**
+     * Creates a condition for a LIKE pattern, where only '%' is a wildcard.
+     * Patterns which only have a leading and/or trailing wildcard are
+     * translated to string operators, which can be served by an index.
+     */
+    private String createLikeCondition(String expression, String pattern) {
+        final String inner = pattern.length() > 1 && pattern.startsWith("%") && pattern.endsWith("%") ? pattern
+                .substring(1, pattern.length() - 1) : null;
+        if (pattern.indexOf('%') == -1) {
+            return expression + " = " + addParameter(pattern);
+        } else if (inner != null && inner.indexOf('%') == -1) {
+            return expression + " CONTAINS " + addParameter(inner);
+        } else if (pattern.indexOf('%') == pattern.length() - 1) {
+            return expression + " STARTS WITH " + addParameter(pattern.substring(0, pattern.length() - 1));
+        } else if (pattern.lastIndexOf('%') == 0) {
+            return expression + " ENDS WITH " + addParameter(pattern.substring(1));
+        }
+        return expression + " =~ " + addParameter(toRegex(pattern));
+    }
+
+    private String addParameter(Object value) {
+        final String name = "p" + _parameters.size();
+        _parameters.put(name, value);
+        return "$" + name;
+    }
+
+    /**
+     * Converts an operand to a value of the column's type, since Cypher does
+     * not convert between types when comparing.
+     */
+    private static Object toParameterValue(ColumnType type, Object operand) {
+        if (operand == null) {
+            return null;
+        }
+        if (type.isNumber()) {
+            final Number number = NumberComparator.toNumber(operand);
+            if (number == null) {
+                return null;
+            }
+            if (number instanceof Integer || number instanceof Long || number instanceof Short
+                    || number instanceof Byte) {
+                return number.longValue();
+            }
+            return number.doubleValue();
+        }
+        if (type.isBoolean()) {
+            return BooleanComparator.toBoolean(operand);
+        }
+        if (type.isLiteral() && operand instanceof String) {
+            return operand;
+        }
+        return null;
+    }
+
+    /**
+     * Converts a LIKE pattern, where only '%' is a wildcard, to a Java regular
+     * expression, which Cypher matches against the whole string.
+     */
+    static String toRegex(String likePattern) {
+        final StringBuilder sb = new StringBuilder("(?s)");
+        for (char c : likePattern.toCharArray()) {
+            if (c == '%') {
+                sb.append(".*");
+            } else {
+                if ("\\^$.|?*+()[]{}".indexOf(c) != -1) {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -40,6 +40,30 @@ public class Neo4jCypherQueryBuilder {
 
     public static String buildSelectQuery(final String tableName, final List<String> columnNames, final int firstRow,
             final int maxRows) {
+        return buildSelectQuery(tableName, columnNames, null, null, firstRow, maxRows);
+    }
+
+    /**
+     * Builds a select query with the given WHERE and ORDER BY clauses. The
+     * WHERE clause applies to the nodes of the label before their
+     * relationships are matched, and may only refer to the node as "n".
+     *
+     * @param tableName
+     *            the label of the nodes
+     * @param columnNames
+     *            the names of the columns to return
+     * @param whereClause
+     *            the WHERE clause (including the keyword), or null
+     * @param orderByClause
+     *            the ORDER BY clause (including the keyword), or null
+     * @param firstRow
+     *            the first row to return
+     * @param maxRows
+     *            the maximum number of rows to return, or -1 for all rows
+     * @return the Cypher query
+     */
+    public static String buildSelectQuery(final String tableName, final List<String> columnNames,
+            final String whereClause, final String orderByClause, final int firstRow, final int maxRows) {
         final Map<String, String> returnClauseMap = new LinkedHashMap<>();
         final Map<String, Integer> relationshipIndexMap = new LinkedHashMap<>();
         for (String columnName : columnNames) {
@@ -82,20 +106,25 @@ public class Neo4jCypherQueryBuilder {
                 if (columnName.equals(NEO4J_COLUMN_NAME_ID)) {
                     returnClauseMap.put(columnName, "id(n)");
                 } else {
-                    returnClauseMap.put(columnName, "n." + columnName);
+                    returnClauseMap.put(columnName, "n." + escapeIdentifier(columnName));
                 }
             }
         }
 
         final StringBuilder cypherBuilder = new StringBuilder();
         cypherBuilder.append("MATCH (n:");
-        cypherBuilder.append(tableName);
+        cypherBuilder.append(escapeIdentifier(tableName));
+        cypherBuilder.append(")");
+        if (whereClause != null && !whereClause.isEmpty()) {
+            cypherBuilder.append(" ");
+            cypherBuilder.append(whereClause);
+        }
         for (final Map.Entry<String, Integer> relationshipAliasEntry : relationshipIndexMap.entrySet()) {
-            cypherBuilder.append(") OPTIONAL MATCH (n)-[r" + relationshipAliasEntry.getValue() + ":"
+            cypherBuilder.append(" OPTIONAL MATCH (n)-[r" + relationshipAliasEntry.getValue() + ":"
                     + relationshipAliasEntry.getKey() + "]->(r" + relationshipAliasEntry.getValue()
-                    + "_relationshipEndNode");
+                    + "_relationshipEndNode)");
         }
-        cypherBuilder.append(") RETURN ");
+        cypherBuilder.append(" RETURN ");
         boolean addComma = false;
         for (final Map.Entry<String, String> returnClauseEntry : returnClauseMap.entrySet()) {
             if (addComma) {
@@ -105,6 +134,10 @@ public class Neo4jCypherQueryBuilder {
             addComma = true;
         }
 
+        if (orderByClause != null && !orderByClause.isEmpty()) {
+            cypherBuilder.append(" ");
+            cypherBuilder.append(orderByClause);
+        }
         if (firstRow > 1) {
             cypherBuilder.append(" SKIP " + (firstRow - 1));
         }
@@ -160,4 +193,15 @@ public class Neo4jCypherQueryBuilder {
         }
         return whereClauseItemBuilder.toString();
     }
+
+    /**
+     * Escapes a label or property name with backticks, unless it is a plain
+     * identifier.
+     */
+    static String escapeIdentifier(final String name) {
+        if (name.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+            return name;
+        }
+        return "`" + name.replace("`", "``") + "`";
+    }
 }
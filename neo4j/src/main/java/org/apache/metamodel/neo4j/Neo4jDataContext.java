@@ -18,9 +18,13 @@
  */
 package org.apache.metamodel.neo4j;
 
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -30,10 +34,21 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.MetaModelHelper;
 import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.DefaultRow;
 import org.apache.metamodel.data.DocumentSource;
+import org.apache.metamodel.data.InMemoryDataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.AggregateFunction;
 import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.FromItem;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.Query;
 import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.MutableSchema;
@@ -170,15 +185,79 @@ public class Neo4jDataContext extends QueryPostprocessDataContext implements Dat
 
         try {
             labelsJsonArray = new JSONArray(labelsJsonString);
+            if (labelsJsonArray.length() == 0) {
+                return new SimpleTableDef[0];
+            }
 
+            // The properties and relationships of all labels are detected with
+            // a couple of aggregate queries, which are sent in a single request
+            // along with a query for a sample node of each label.
+            final List<String> cypherQueries = new ArrayList<>();
+            cypherQueries.add("MATCH (n) UNWIND labels(n) AS label RETURN label, collect(DISTINCT keys(n))");
+            cypherQueries.add("MATCH (n)-[r]->() UNWIND labels(n) AS label RETURN label, type(r), "
+                    + "collect(DISTINCT keys(r)), min(id(r)) AS firstId ORDER BY firstId");
             for (int i = 0; i < labelsJsonArray.length(); i++) {
-                final SimpleTableDef tableDefFromLabel = createTableDefFromLabel(labelsJsonArray.getString(i));
+                cypherQueries.add("MATCH (n:" + Neo4jCypherQueryBuilder.escapeIdentifier(labelsJsonArray.getString(
+                        i)) + ") RETURN id(n), n LIMIT 1");
+            }
+            final JSONArray results = getResults(_requestWrapper.executeCypherQueries(cypherQueries), cypherQueries
+                    .size());
+
+            final Map<String, Set<String>> propertiesPerLabel = new HashMap<>();
+            final JSONArray propertiesData = results.getJSONObject(0).getJSONArray(NEO4J_KEY_DATA);
+            for (int i = 0; i < propertiesData.length(); i++) {
+                final JSONArray row = propertiesData.getJSONObject(i).getJSONArray(NEO4J_KEY_RESPONSE_ROW);
+                final Set<String> properties = propertiesPerLabel.computeIfAbsent(row.getString(0),
+                        label -> new LinkedHashSet<>());
+                final JSONArray keySets = row.getJSONArray(1);
+                for (int j = 0; j < keySets.length(); j++) {
+                    final JSONArray keys = keySets.getJSONArray(j);
+                    for (int k = 0; k < keys.length(); k++) {
+                        properties.add(keys.getString(k));
+                    }
+                }
+            }
 
-                if (tableDefFromLabel != null) {
-                    tableDefs.add(tableDefFromLabel);
+            final Map<String, Set<String>> relationshipPropertiesPerLabel = new HashMap<>();
+            final JSONArray relationshipsData = results.getJSONObject(1).getJSONArray(NEO4J_KEY_DATA);
+            for (int i = 0; i < relationshipsData.length(); i++) {
+                final JSONArray row = relationshipsData.getJSONObject(i).getJSONArray(NEO4J_KEY_RESPONSE_ROW);
+                final Set<String> relationshipProperties = relationshipPropertiesPerLabel.computeIfAbsent(row
+                        .getString(0), label -> new LinkedHashSet<>());
+                final String relationshipName = NEO4J_COLUMN_NAME_RELATION_PREFIX + row.getString(1);
+                relationshipProperties.add(relationshipName);
+                final JSONArray keySets = row.getJSONArray(2);
+                for (int j = 0; j < keySets.length(); j++) {
+                    final JSONArray keys = keySets.getJSONArray(j);
+                    for (int k = 0; k < keys.length(); k++) {
+                        relationshipProperties.add(relationshipName + NEO4J_COLUMN_NAME_RELATION_LIST_INDICATOR
+                                + keys.getString(k));
+                    }
                 }
             }
 
+            for (int i = 0; i < labelsJsonArray.length(); i++) {
+                final String label = labelsJsonArray.getString(i);
+                final JSONArray sampleData = results.getJSONObject(i + 2).getJSONArray(NEO4J_KEY_DATA);
+                if (sampleData.length() == 0) {
+                    continue; // Do not add a table if label has no nodes (empty tables are considered non-existent)
+                }
+
+                final List<String> columnNames = new ArrayList<>();
+                columnNames.add(NEO4J_COLUMN_NAME_ID);
+                columnNames.addAll(propertiesPerLabel.getOrDefault(label, Collections.emptySet()));
+                columnNames.addAll(relationshipPropertiesPerLabel.getOrDefault(label, Collections.emptySet()));
+
+                final JSONArray sampleRow = sampleData.getJSONObject(0).getJSONArray(NEO4J_KEY_RESPONSE_ROW);
+                final JSONObject sampleNode = new JSONObject();
+                sampleNode.put(NEO4J_KEY_METADATA, new JSONObject().put(NEO4J_KEY_ID, sampleRow.get(0)));
+                sampleNode.put(NEO4J_KEY_DATA, sampleRow.getJSONObject(1));
+
+                final String[] columnNamesArray = columnNames.toArray(new String[columnNames.size()]);
+                final ColumnTypeResolver columnTypeResolver = new ColumnTypeResolver(sampleNode, columnNamesArray);
+                tableDefs.add(new SimpleTableDef(label, columnNamesArray, columnTypeResolver.getColumnTypes()));
+            }
+
             return tableDefs.toArray(new SimpleTableDef[tableDefs.size()]);
         } catch (final JSONException e) {
             logger.error("Error occurred in parsing JSON while detecting the schema: ", e);
@@ -186,170 +265,235 @@ public class Neo4jDataContext extends QueryPostprocessDataContext implements Dat
         }
     }
 
-    private SimpleTableDef createTableDefFromLabel(final String label) throws JSONException {
-        final List<JSONObject> nodesPerLabel = getAllNodesPerLabel(label);
-        final List<String> propertiesPerLabel = getPropertiesFromLabelNodes(nodesPerLabel);
-        final Set<String> relationshipPropertiesPerLabel = new LinkedHashSet<>();
-
-        for (final JSONObject node : nodesPerLabel) {
-            final Integer nodeId = (Integer) node.getJSONObject(NEO4J_KEY_METADATA).get(NEO4J_KEY_ID);
-            final Set<String> relationshipPropertiesForNode = createRelationshipPropertiesForNode(nodeId);
-            relationshipPropertiesPerLabel.addAll(relationshipPropertiesForNode);
+    /**
+     * Gets the results of the statements of a Cypher request, failing if Neo4j
+     * reported an error.
+     */
+    private static JSONArray getResults(final String responseJSONString, final int expectedResults)
+            throws JSONException {
+        final JSONObject responseJSONObject = new JSONObject(responseJSONString);
+        final JSONArray resultsJSONArray = responseJSONObject.getJSONArray(NEO4J_KEY_RESPONSE_RESULTS);
+        if (resultsJSONArray.length() < expectedResults) {
+            final JSONArray errorArray = responseJSONObject.getJSONArray("errors");
+            throw new IllegalStateException(errorArray.length() > 0 ? errorArray.get(0).toString()
+                    : "Neo4j returned " + resultsJSONArray.length() + " results, expected " + expectedResults);
         }
+        return resultsJSONArray;
+    }
 
-        propertiesPerLabel.addAll(relationshipPropertiesPerLabel);
-
-        if (nodesPerLabel.isEmpty()) {
-            return null; // Do not add a table if label has no nodes (empty tables are considered non-existent)
-        } else {
-            final String[] columnNames = propertiesPerLabel.toArray(new String[propertiesPerLabel.size()]);
-            final ColumnTypeResolver columnTypeResolver = new ColumnTypeResolver(nodesPerLabel.get(0), columnNames);
-            return new SimpleTableDef(label, columnNames, columnTypeResolver.getColumnTypes());
+    @Override
+    public DataSet executeQuery(final Query query) {
+        // queries on a single label can be pushed down into Cypher
+        final List<FromItem> fromItems = query.getFromClause().getItems();
+        final Integer maxRows = query.getMaxRows();
+        if (fromItems.size() == 1 && fromItems.get(0).getTable() != null && isMainSchemaTable(fromItems.get(0)
+                .getTable()) && query.getHavingClause().isEmpty() && !query.getSelectClause().isDistinct()
+                && (maxRows == null || maxRows > 0)) {
+            final Table table = fromItems.get(0).getTable();
+            final List<SelectItem> selectItems = query.getSelectClause().getItems();
+            final boolean grouped = !query.getGroupByClause().isEmpty();
+            final boolean aggregated = selectItems.stream().anyMatch(selectItem -> selectItem
+                    .getAggregateFunction() != null);
+
+            final DataSet dataSet;
+            if (grouped || (aggregated && !(selectItems.size() == 1 && SelectItem.isCountAllItem(selectItems.get(
+                    0))))) {
+                dataSet = executeAggregateQuery(table, query);
+            } else if (!aggregated && !query.getOrderByClause().isEmpty()) {
+                dataSet = executeOrderedQuery(table, query);
+            } else {
+                // plain COUNT(*) queries are handled by executeCountQuery(...)
+                dataSet = null;
+            }
+            if (dataSet != null) {
+                return dataSet;
+            }
         }
+        return super.executeQuery(query);
     }
 
-    private Set<String> createRelationshipPropertiesForNode(final Integer nodeId) throws JSONException {
-        final List<JSONObject> relationshipsPerNode = getOutgoingRelationshipsPerNode(nodeId);
-        final Set<String> relationshipProperties = new LinkedHashSet<>();
-
-        for (final JSONObject relationship : relationshipsPerNode) {
-            // Add the relationship as a column in the table
-            final String relationshipName = relationship.getString(NEO4J_KEY_METADATA_TYPE);
-            final String relationshipNameProperty = NEO4J_COLUMN_NAME_RELATION_PREFIX + relationshipName;
-            relationshipProperties.add(relationshipNameProperty);
-
-            // Add all the relationship properties as table columns
-            final List<String> propertiesPerRelationship = getAllPropertiesPerRelationship(relationship);
-            relationshipProperties.addAll(propertiesPerRelationship);
+    /**
+     * Executes a query with ORDER BY items, if the ORDER BY and WHERE clauses
+     * can be pushed down into Cypher.
+     *
+     * @return the result of the query, or null if it has to be post-processed
+     */
+    private DataSet executeOrderedQuery(final Table table, final Query query) {
+        final List<SelectItem> selectItems = query.getSelectClause().getItems();
+        if (!selectItems.stream().allMatch(selectItem -> !selectItem.hasFunction() && selectItem
+                .getColumn() != null)) {
+            return null;
         }
-
-        return relationshipProperties;
+        final Neo4jCypherQuery cypherQuery = new Neo4jCypherQuery(query.getWhereClause().getItems());
+        if (!cypherQuery.isFullyPushedDown() || !cypherQuery.setOrderBy(query.getOrderByClause().getItems())) {
+            return null;
+        }
+        final int firstRow = (query.getFirstRow() == null ? 1 : query.getFirstRow());
+        final int maxRows = (query.getMaxRows() == null ? -1 : query.getMaxRows());
+        return executeCypherQuery(table, selectItems, cypherQuery, firstRow, maxRows);
     }
 
-    private List<String> getPropertiesFromLabelNodes(final List<JSONObject> nodesPerLabel) {
-        final List<String> propertiesPerLabel = new ArrayList<>();
+    /**
+     * Executes a query with aggregate functions and/or GROUP BY items, if they
+     * and the WHERE clause can be pushed down into Cypher. The (typically few)
+     * aggregated rows are ordered and paged client-side.
+     *
+     * @return the result of the query, or null if it has to be post-processed
+     */
+    private DataSet executeAggregateQuery(final Table table, final Query query) {
+        final Neo4jCypherQuery cypherQuery = new Neo4jCypherQuery(query.getWhereClause().getItems());
+        if (!cypherQuery.isFullyPushedDown()) {
+            return null;
+        }
+
+        // Cypher groups by all returned items which are not aggregates, so
+        // every selected column has to be a GROUP BY item and vice versa
+        final List<SelectItem> selectItems = query.getSelectClause().getItems();
+        final List<SelectItem> groupBySelectItems = query.getGroupByClause().getEvaluatedSelectItems();
+        final List<SelectItem> returnItems = new ArrayList<>(groupBySelectItems);
+        for (final SelectItem selectItem : selectItems) {
+            if (selectItem.getAggregateFunction() == null && !groupBySelectItems.contains(selectItem)) {
+                return null;
+            }
+            if (!returnItems.contains(selectItem)) {
+                returnItems.add(selectItem);
+            }
+        }
+        final List<OrderByItem> orderByItems = query.getOrderByClause().getItems();
+        for (final OrderByItem orderByItem : orderByItems) {
+            if (!returnItems.contains(orderByItem.getSelectItem())) {
+                return null;
+            }
+        }
 
-        for (final JSONObject node : nodesPerLabel) {
-            final List<String> propertiesPerNode = getAllPropertiesPerNode(node);
+        final String aggregateQuery = cypherQuery.toAggregateStatement(table.getName(), returnItems);
+        if (aggregateQuery == null) {
+            return null;
+        }
 
-            for (final String property : propertiesPerNode) {
-                if (!propertiesPerLabel.contains(property)) {
-                    propertiesPerLabel.add(property);
+        final DataSetHeader header = new SimpleDataSetHeader(returnItems);
+        final List<Row> rows = new ArrayList<>();
+        try (DataSet dataSet = executeSelectQuery(aggregateQuery, cypherQuery.getParameters(), returnItems)) {
+            while (dataSet.next()) {
+                final Object[] values = dataSet.getRow().getValues();
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = toAggregateValue(returnItems.get(i), values[i]);
                 }
+                rows.add(new DefaultRow(header, values));
             }
+        } catch (final IllegalStateException e) {
+            // typically because a property holds values that Cypher cannot
+            // aggregate, e.g. strings in a number column
+            logger.debug("Neo4j failed to execute aggregate query, aggregating client-side instead", e);
+            return null;
         }
 
-        return propertiesPerLabel;
+        final int firstRow = (query.getFirstRow() == null ? 1 : query.getFirstRow());
+        final int maxRows = (query.getMaxRows() == null ? -1 : query.getMaxRows());
+        DataSet dataSet = new InMemoryDataSet(header, rows);
+        dataSet = MetaModelHelper.getOrdered(dataSet, orderByItems);
+        dataSet = MetaModelHelper.getSelection(selectItems, dataSet);
+        return MetaModelHelper.getPaged(dataSet, firstRow, maxRows);
     }
 
-    private List<String> getAllPropertiesPerRelationship(JSONObject relationship) {
-        final List<String> propertyNames = new ArrayList<>();
-        try {
-            final String relationshipName = NEO4J_COLUMN_NAME_RELATION_PREFIX + relationship
-                    .getJSONObject(NEO4J_KEY_METADATA)
-                    .getString(NEO4J_KEY_METADATA_TYPE);
-            final JSONObject relationshipPropertiesJSONObject = relationship.getJSONObject(NEO4J_KEY_DATA);
-
-            if (relationshipPropertiesJSONObject.length() > 0) {
-                final JSONArray relationshipPropertiesNamesJSONArray = relationshipPropertiesJSONObject.names();
-
-                for (int i = 0; i < relationshipPropertiesNamesJSONArray.length(); i++) {
-                    final String propertyName = relationshipName + NEO4J_COLUMN_NAME_RELATION_LIST_INDICATOR
-                            + relationshipPropertiesNamesJSONArray.getString(i);
-                    if (!propertyNames.contains(propertyName)) {
-                        propertyNames.add(propertyName);
-                    }
-                }
+    /**
+     * Converts an aggregate value to the type that MetaModel's own aggregation
+     * produces.
+     */
+    private static Object toAggregateValue(final SelectItem selectItem, final Object value) {
+        final AggregateFunction function = selectItem.getAggregateFunction();
+        if (value instanceof Number) {
+            if (FunctionType.COUNT.equals(function)) {
+                return ((Number) value).longValue();
+            } else if (FunctionType.SUM.equals(function) || FunctionType.AVG.equals(function)) {
+                return ((Number) value).doubleValue();
             }
-            return propertyNames;
-        } catch (final JSONException e) {
-            logger.error("Error occurred in parsing JSON while getting relationship properties: ", e);
-            throw new IllegalStateException(e);
         }
+        return value;
     }
 
-    private List<JSONObject> getOutgoingRelationshipsPerNode(final Integer nodeId) {
-        final List<JSONObject> outgoingRelationshipsPerNode = new ArrayList<>();
-        final String outgoingRelationshipsPerNodeJsonString = _requestWrapper.executeRestRequest(
-                new HttpGet(_serviceRoot + "/node/" + nodeId + "/relationships/out"));
-        final JSONArray outgoingRelationshipsPerNodeJsonArray;
-
-        try {
-            outgoingRelationshipsPerNodeJsonArray = new JSONArray(outgoingRelationshipsPerNodeJsonString);
-            for (int i = 0; i < outgoingRelationshipsPerNodeJsonArray.length(); i++) {
-                final JSONObject relationship = outgoingRelationshipsPerNodeJsonArray.getJSONObject(i);
-                if (!outgoingRelationshipsPerNode.contains(relationship)) {
-                    outgoingRelationshipsPerNode.add(relationship);
-                }
+    @Override
+    protected DataSet materializeMainSchemaTable(final Table table, final List<SelectItem> selectItems,
+            final List<FilterItem> whereItems, final int firstRow, final int maxRows) {
+        final boolean allSelectItemsAreColumns = selectItems.stream().allMatch(selectItem -> !selectItem
+                .hasFunction() && selectItem.getColumn() != null);
+        if (allSelectItemsAreColumns && !whereItems.isEmpty()) {
+            final Neo4jCypherQuery cypherQuery = new Neo4jCypherQuery(whereItems);
+            if (cypherQuery.hasWhereClause()) {
+                return executeCypherQuery(table, selectItems, cypherQuery, firstRow, maxRows);
             }
-            return outgoingRelationshipsPerNode;
-        } catch (final JSONException e) {
-            logger.error("Error occurred in parsing JSON while detecting outgoing relationships for node: " + nodeId,
-                    e);
-            throw new IllegalStateException(e);
         }
+        return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
     }
 
-    private List<JSONObject> getAllNodesPerLabel(String label) {
-        final List<JSONObject> allNodesPerLabel = new ArrayList<>();
-        final String allNodesForLabelJsonString =
-                _requestWrapper.executeRestRequest(new HttpGet(_serviceRoot + "/label/" + label + "/nodes"));
-        final JSONArray allNodesForLabelJsonArray;
+    /**
+     * Executes a select query on the nodes of a label. WHERE items which could
+     * not be translated are evaluated on the returned rows.
+     */
+    private DataSet executeCypherQuery(final Table table, final List<SelectItem> selectItems,
+            final Neo4jCypherQuery cypherQuery, final int firstRow, final int maxRows) {
+        final List<FilterItem> postProcessWhereItems = cypherQuery.getPostProcessWhereItems();
+        final List<SelectItem> selectItemsToQuery = new ArrayList<>();
+        for (final SelectItem selectItem : selectItems) {
+            addColumnSelectItem(selectItem, selectItemsToQuery);
+        }
+        for (final FilterItem whereItem : postProcessWhereItems) {
+            addReferencedColumns(whereItem, selectItemsToQuery);
+        }
+        final List<String> columnNames = selectItemsToQuery.stream().map(selectItem -> selectItem.getColumn()
+                .getName()).collect(Collectors.toList());
+
+        // paging can only be pushed down when there is no post-processing
+        final boolean postProcess = !postProcessWhereItems.isEmpty();
+        final String selectQuery = cypherQuery.toSelectStatement(table.getName(), columnNames, postProcess ? 1
+                : firstRow, postProcess ? -1 : maxRows);
+        DataSet dataSet = executeSelectQuery(selectQuery, cypherQuery.getParameters(), selectItemsToQuery);
+        if (postProcess) {
+            dataSet = MetaModelHelper.getFiltered(dataSet, postProcessWhereItems);
+            dataSet = MetaModelHelper.getPaged(dataSet, firstRow, maxRows);
+        }
+        return MetaModelHelper.getSelection(selectItems, dataSet);
+    }
 
-        try {
-            allNodesForLabelJsonArray = new JSONArray(allNodesForLabelJsonString);
-            for (int i = 0; i < allNodesForLabelJsonArray.length(); i++) {
-                final JSONObject node = allNodesForLabelJsonArray.getJSONObject(i);
-                allNodesPerLabel.add(node);
+    private static void addReferencedColumns(final FilterItem filterItem, final List<SelectItem> selectItems) {
+        if (filterItem.isCompoundFilter()) {
+            for (final FilterItem childItem : filterItem.getChildItems()) {
+                addReferencedColumns(childItem, selectItems);
             }
-            return allNodesPerLabel;
-        } catch (final JSONException e) {
-            logger.error("Error occurred in parsing JSON while detecting the nodes for a label: " + label, e);
-            throw new IllegalStateException(e);
+            return;
+        }
+        addColumnSelectItem(filterItem.getSelectItem(), selectItems);
+        if (filterItem.getOperand() instanceof SelectItem) {
+            addColumnSelectItem((SelectItem) filterItem.getOperand(), selectItems);
         }
     }
 
-    private List<String> getAllPropertiesPerNode(final JSONObject node) {
-        final List<String> properties = new ArrayList<>();
-        properties.add(NEO4J_COLUMN_NAME_ID);
-        final String propertiesEndpoint;
-        try {
-            propertiesEndpoint = node.getString(NEO4J_KEY_PROPERTIES);
-            final String allPropertiesPerNodeJsonString =
-                    _requestWrapper.executeRestRequest(new HttpGet(propertiesEndpoint));
-            final JSONObject allPropertiesPerNodeJsonObject = new JSONObject(allPropertiesPerNodeJsonString);
-
-            for (int j = 0; j < allPropertiesPerNodeJsonObject.length(); j++) {
-                final JSONArray propertiesJsonArray = allPropertiesPerNodeJsonObject.names();
-                for (int k = 0; k < propertiesJsonArray.length(); k++) {
-                    final String property = propertiesJsonArray.getString(k);
-                    properties.add(property);
-                }
+    private static void addColumnSelectItem(final SelectItem selectItem, final List<SelectItem> selectItems) {
+        if (selectItem != null && selectItem.getColumn() != null) {
+            final SelectItem columnItem = new SelectItem(selectItem.getColumn());
+            if (!selectItems.contains(columnItem)) {
+                selectItems.add(columnItem);
             }
-            return properties;
-        } catch (final JSONException e) {
-            logger.error("Error occurred in parsing JSON while detecting the properties of a node: " + node, e);
-            throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * Executes a Cypher query whose result is read while it is iterated.
+     */
+    private DataSet executeSelectQuery(final String cypherQuery, final Map<String, Object> parameters,
+            final List<SelectItem> selectItems) {
+        logger.debug("Executing Cypher query: {} with parameters {}", cypherQuery, parameters);
+        final InputStream inputStream = _requestWrapper.executeCypherQueryForStream(cypherQuery, parameters);
+        return new Neo4jDataSet(selectItems, inputStream);
+    }
+
     @Override
     protected DataSet materializeMainSchemaTable(final Table table, final List<Column> columns, final int firstRow,
             final int maxRows) {
         if ((columns != null) && (columns.size() > 0)) {
-            final Neo4jDataSet dataSet;
-            try {
-                final String selectQuery = Neo4jCypherQueryBuilder.buildSelectQuery(table, columns, firstRow, maxRows);
-                final String responseJSONString = _requestWrapper.executeCypherQuery(selectQuery);
-                final JSONObject resultJSONObject = new JSONObject(responseJSONString);
-                final List<SelectItem> selectItems = columns.stream().map(SelectItem::new).collect(Collectors.toList());
-                dataSet = new Neo4jDataSet(selectItems, resultJSONObject);
-            } catch (final JSONException e) {
-                logger.error("Error occurred in parsing JSON while materializing the schema: ", e);
-                throw new IllegalStateException(e);
-            }
-
-            return dataSet;
+            final String selectQuery = Neo4jCypherQueryBuilder.buildSelectQuery(table, columns, firstRow, maxRows);
+            final List<SelectItem> selectItems = columns.stream().map(SelectItem::new).collect(Collectors.toList());
+            return executeSelectQuery(selectQuery, Collections.<String, Object> emptyMap(), selectItems);
         } else {
             logger.error("Encountered null or empty columns array for materializing main schema table.");
             throw new IllegalArgumentException("Columns cannot be null or empty array");
@@ -364,8 +508,12 @@ public class Neo4jDataContext extends QueryPostprocessDataContext implements Dat
     @Override
     protected Number executeCountQuery(final Table table, final List<FilterItem> whereItems,
             final boolean functionApproximationAllowed) {
-        final String countQuery = Neo4jCypherQueryBuilder.buildCountQuery(table.getName(), whereItems);
-        final String jsonResponse = _requestWrapper.executeCypherQuery(countQuery);
+        final Neo4jCypherQuery cypherQuery = new Neo4jCypherQuery(whereItems);
+        if (!cypherQuery.isFullyPushedDown()) {
+            return null;
+        }
+        final String countQuery = cypherQuery.toCountStatement(table.getName());
+        final String jsonResponse = _requestWrapper.executeCypherQuery(countQuery, cypherQuery.getParameters());
         final JSONObject jsonResponseObject;
 
         try {
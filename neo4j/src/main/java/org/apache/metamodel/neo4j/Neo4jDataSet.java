@@ -20,78 +20,182 @@ package org.apache.metamodel.neo4j;
 
 import static org.apache.metamodel.neo4j.Neo4jDataContext.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.metamodel.data.AbstractDataSet;
 import org.apache.metamodel.data.DefaultRow;
 import org.apache.metamodel.data.Row;
-import org.apache.metamodel.data.SimpleDataSetHeader;
 import org.apache.metamodel.query.SelectItem;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.apache.metamodel.util.FileHelper;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * DataSet implementation which reads the rows of a Cypher query response while
+ * they are being received, instead of parsing the whole response up front.
+ */
 final class Neo4jDataSet extends AbstractDataSet {
 
-    private final JSONObject _resultJSONObject;
-    private int _currentRowIndex;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final InputStream _inputStream;
+    private final JsonParser _parser;
+    private boolean _hasMoreRows;
     private Row _row;
 
-    public Neo4jDataSet(final List<SelectItem> selectItems, final JSONObject resultJSONObject) {
+    /**
+     * Creates the DataSet and reads the response up to its first row.
+     *
+     * @param selectItems
+     *            the select items of the DataSet, matching the columns of the
+     *            query
+     * @param inputStream
+     *            the stream of the response, which is closed with the DataSet
+     * @throws IllegalStateException
+     *             if Neo4j reported an error instead of a result
+     */
+    public Neo4jDataSet(final List<SelectItem> selectItems, final InputStream inputStream) {
         super(selectItems);
-        _resultJSONObject = resultJSONObject;
-        _currentRowIndex = 0;
-    }
-
-    @Override
-    public boolean next() {
+        _inputStream = inputStream;
         try {
-            final JSONArray resultsArray = _resultJSONObject.getJSONArray(NEO4J_KEY_RESPONSE_RESULTS);
-
-            if (resultsArray.length() > 0) {
-                final JSONObject results = resultsArray.getJSONObject(0);
-                final JSONArray data = results.getJSONArray(NEO4J_KEY_DATA);
-
-                if (_currentRowIndex < data.length()) {
-                    final JSONObject row = data.getJSONObject(_currentRowIndex);
-                    final JSONArray jsonValues = row.getJSONArray(NEO4J_KEY_RESPONSE_ROW);
-                    final Object[] objectValues = new Object[jsonValues.length()];
-
-                    for (int i = 0; i < jsonValues.length(); i++) {
-                        final Object value = jsonValues.get(i);
+            _parser = OBJECT_MAPPER.getFactory().createParser(inputStream);
+            _hasMoreRows = moveToData();
+        } catch (final IOException e) {
+            FileHelper.safeClose(inputStream);
+            throw new IllegalStateException(e);
+        } catch (final RuntimeException e) {
+            FileHelper.safeClose(inputStream);
+            throw e;
+        }
+    }
 
-                        if (value instanceof JSONArray) {
-                            objectValues[i] = convertJSONArrayToList((JSONArray) value);
-                        } else {
-                            objectValues[i] = value;
+    /**
+     * Moves the parser into the "data" array of the first result.
+     *
+     * @return true if the parser is positioned in the array, false if the
+     *         response contains no result
+     */
+    private boolean moveToData() throws IOException {
+        if (_parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalStateException("Unexpected Neo4j response, expected a JSON object");
+        }
+        while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = _parser.getCurrentName();
+            final JsonToken token = _parser.nextToken();
+            if (NEO4J_KEY_RESPONSE_RESULTS.equals(fieldName) && token == JsonToken.START_ARRAY) {
+                if (_parser.nextToken() == JsonToken.START_OBJECT) {
+                    while (_parser.nextToken() == JsonToken.FIELD_NAME) {
+                        final String resultFieldName = _parser.getCurrentName();
+                        if (_parser.nextToken() == JsonToken.START_ARRAY && NEO4J_KEY_DATA.equals(
+                                resultFieldName)) {
+                            return true;
                         }
+                        _parser.skipChildren();
                     }
+                }
+                // an empty result, which means that the errors follow
+                _parser.skipChildren();
+            } else if ("errors".equals(fieldName)) {
+                checkErrors();
+            } else {
+                _parser.skipChildren();
+            }
+        }
+        return false;
+    }
 
-                    _row = new DefaultRow(new SimpleDataSetHeader(getSelectItems()), objectValues);
-                    _currentRowIndex++;
+    /**
+     * Reads the "errors" array the parser is positioned at, and throws an
+     * exception for the first error.
+     */
+    private void checkErrors() throws IOException {
+        final JsonNode errors = OBJECT_MAPPER.readTree(_parser);
+        if (errors != null && errors.size() > 0) {
+            throw new IllegalStateException(errors.get(0).toString());
+        }
+    }
+
+    /**
+     * Reads the rest of the response after the rows, which may contain errors
+     * that occurred while the rows were being streamed.
+     */
+    private void finish() throws IOException {
+        JsonToken token;
+        while ((token = _parser.nextToken()) != null) {
+            if (token == JsonToken.FIELD_NAME && "errors".equals(_parser.getCurrentName())) {
+                _parser.nextToken();
+                checkErrors();
+            } else if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                _parser.skipChildren();
+            }
+        }
+    }
 
-                    return true;
+    @Override
+    public boolean next() {
+        if (!_hasMoreRows) {
+            _row = null;
+            return false;
+        }
+        try {
+            if (_parser.nextToken() != JsonToken.START_OBJECT) {
+                _hasMoreRows = false;
+                _row = null;
+                try {
+                    finish();
+                } finally {
+                    close();
                 }
-            } else {
-                final JSONArray errorArray = _resultJSONObject.getJSONArray("errors");
-                final JSONObject error = errorArray.getJSONObject(0);
-                throw new IllegalStateException(error.toString());
+                return false;
+            }
+            final JsonNode data = OBJECT_MAPPER.readTree(_parser);
+            final JsonNode jsonValues = data.path(NEO4J_KEY_RESPONSE_ROW);
+            final Object[] objectValues = new Object[getHeader().size()];
+            for (int i = 0; i < objectValues.length; i++) {
+                objectValues[i] = toValue(jsonValues.get(i));
             }
-        } catch (final JSONException e) {
+            _row = new DefaultRow(getHeader(), objectValues);
+            return true;
+        } catch (final IOException e) {
+            close();
             throw new IllegalStateException(e);
         }
-        return false;
     }
 
-    private List<String> convertJSONArrayToList(final JSONArray jsonArray) throws JSONException {
-        final List<String> list = new ArrayList<>();
+    /**
+     * Converts a JSON value of a row to a Java value. Lists are converted to
+     * lists of strings, like the LIST columns of relationship properties.
+     */
+    private static Object toValue(final JsonNode value) {
+        if (value == null || value.isNull()) {
+            return null;
+        } else if (value.isArray()) {
+            return convertJSONArrayToList(value);
+        } else if (value.isObject()) {
+            return OBJECT_MAPPER.convertValue(value, Map.class);
+        } else if (value.isIntegralNumber()) {
+            return value.canConvertToInt() ? (Object) value.intValue() : (Object) value.longValue();
+        } else if (value.isNumber()) {
+            return value.doubleValue();
+        } else if (value.isBoolean()) {
+            return value.booleanValue();
+        }
+        return value.asText();
+    }
 
-        for (int i = 0; i < jsonArray.length(); i++) {
-            final Object item = jsonArray.get(i);
+    private static List<String> convertJSONArrayToList(final JsonNode jsonArray) {
+        final List<String> list = new ArrayList<>();
 
-            if (item != null) {
-                list.add(item.toString());
+        for (final JsonNode item : jsonArray) {
+            if (item != null && !item.isNull()) {
+                list.add(item.isValueNode() ? item.asText() : item.toString());
             }
         }
 
@@ -102,4 +206,10 @@ final class Neo4jDataSet extends AbstractDataSet {
     public Row getRow() {
         return _row;
     }
+
+    @Override
+    public void close() {
+        super.close();
+        FileHelper.safeClose(_parser, _inputStream);
+    }
 }
@@ -18,11 +18,15 @@
  */
 package org.apache.metamodel.neo4j;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
@@ -50,7 +54,7 @@ public class Neo4jRequestWrapper {
 
     private final CloseableHttpClient _httpClient;
     private final HttpHost _httpHost;
-    private final HttpPost _cypherQueryHttpPost;
+    private final String _cypherQueryPath;
     private final String _username;
     private final String _password;
 
@@ -60,7 +64,7 @@ public class Neo4jRequestWrapper {
         _httpHost = httpHost;
         _username = username;
         _password = password;
-        _cypherQueryHttpPost = new HttpPost(serviceRoot + "/transaction/commit");
+        _cypherQueryPath = serviceRoot + "/transaction/commit";
     }
 
     public Neo4jRequestWrapper(final CloseableHttpClient httpClient, final HttpHost httpHost,
@@ -73,11 +77,7 @@ public class Neo4jRequestWrapper {
     }
 
     public String executeRestRequest(final HttpRequestBase httpRequest, final String username, final String password) {
-        if ((username != null) && (password != null)) {
-            String base64credentials =
-                    BaseEncoding.base64().encode((username + ":" + password).getBytes(StandardCharsets.UTF_8));
-            httpRequest.addHeader("Authorization", "Basic " + base64credentials);
-        }
+        addAuthorizationHeader(httpRequest, username, password);
 
         try {
             final CloseableHttpResponse response = _httpClient.execute(_httpHost, httpRequest);
@@ -92,41 +92,99 @@ public class Neo4jRequestWrapper {
     }
 
     public String executeCypherQuery(final String cypherQuery) {
-        final JSONObject cypherQueryRequest = new JSONObject();
-        final HashMap<String, String> statement = new HashMap<>();
-        statement.put("statement", cypherQuery);
+        return executeCypherQuery(cypherQuery, Collections.<String, Object> emptyMap());
+    }
 
+    public String executeCypherQuery(final String cypherQuery, final Map<String, Object> parameters) {
         final JSONArray statementsArray = new JSONArray();
-        statementsArray.put(statement);
+        statementsArray.put(createStatement(cypherQuery, parameters));
 
-        return executeRequest(cypherQueryRequest, statementsArray);
+        return executeRestRequest(createCypherQueryHttpPost(statementsArray));
     }
 
     public String executeCypherQueries(final List<String> cypherQueries) {
-        final JSONObject cypherQueryRequest = new JSONObject();
         final JSONArray statementsArray = new JSONArray();
         for (final String cypherQuery : cypherQueries) {
-            final HashMap<String, String> statement = new HashMap<>();
-            statement.put("statement", cypherQuery);
+            statementsArray.put(createStatement(cypherQuery, Collections.<String, Object> emptyMap()));
+        }
 
-            statementsArray.put(statement);
+        return executeRestRequest(createCypherQueryHttpPost(statementsArray));
+    }
+
+    /**
+     * Executes a Cypher query and returns the response as a stream, so that
+     * the result can be read while it is being received. Closing the stream
+     * releases the underlying HTTP response, also if it has not been read to
+     * the end.
+     *
+     * @param cypherQuery
+     *            the Cypher query
+     * @param parameters
+     *            the parameters referenced by the query
+     * @return a stream of the JSON response
+     */
+    public InputStream executeCypherQueryForStream(final String cypherQuery, final Map<String, Object> parameters) {
+        final JSONArray statementsArray = new JSONArray();
+        statementsArray.put(createStatement(cypherQuery, parameters));
+
+        final HttpPost httpPost = createCypherQueryHttpPost(statementsArray);
+        addAuthorizationHeader(httpPost, _username, _password);
+        try {
+            final CloseableHttpResponse response = _httpClient.execute(_httpHost, httpPost);
+            final HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                response.close();
+                throw new IllegalStateException("No response received for " + httpPost);
+            }
+            return new FilterInputStream(entity.getContent()) {
+                @Override
+                public void close() throws IOException {
+                    response.close();
+                }
+            };
+        } catch (final IOException e) {
+            logger.error("An error occurred while executing " + httpPost, e);
+            throw new IllegalStateException(e);
         }
+    }
 
-        return executeRequest(cypherQueryRequest, statementsArray);
+    private JSONObject createStatement(final String cypherQuery, final Map<String, Object> parameters) {
+        try {
+            final JSONObject statement = new JSONObject();
+            statement.put("statement", cypherQuery);
+            if (!parameters.isEmpty()) {
+                statement.put("parameters", new JSONObject(parameters));
+            }
+            return statement;
+        } catch (final JSONException e) {
+            logger.error("Error occurred while constructing JSON statement for " + cypherQuery, e);
+            throw new IllegalStateException(e);
+        }
     }
 
-    private String executeRequest(final JSONObject cypherQueryRequest, final JSONArray statementsArray) {
+    private HttpPost createCypherQueryHttpPost(final JSONArray statementsArray) {
+        // a new request is created every time, since requests are not
+        // thread-safe and would accumulate authorization headers
+        final HttpPost httpPost = new HttpPost(_cypherQueryPath);
         try {
+            final JSONObject cypherQueryRequest = new JSONObject();
             cypherQueryRequest.put("statements", statementsArray);
 
             final String requestBody = cypherQueryRequest.toString();
-            _cypherQueryHttpPost.setEntity(new StringEntity(requestBody, ContentType.APPLICATION_JSON));
-
-            final String responseJSONString = executeRestRequest(_cypherQueryHttpPost);
-            return responseJSONString;
+            httpPost.setEntity(new StringEntity(requestBody, ContentType.APPLICATION_JSON));
+            return httpPost;
         } catch (final JSONException e) {
-            logger.error("Error occurred while constructing JSON request body for " + _cypherQueryHttpPost, e);
+            logger.error("Error occurred while constructing JSON request body for " + httpPost, e);
             throw new IllegalStateException(e);
         }
     }
+
+    private static void addAuthorizationHeader(final HttpRequestBase httpRequest, final String username,
+            final String password) {
+        if ((username != null) && (password != null)) {
+            String base64credentials =
+                    BaseEncoding.base64().encode((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+            httpRequest.addHeader("Authorization", "Basic " + base64credentials);
+        }
+    }
 }
@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.neo4j;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.OrderByItem;
+import org.apache.metamodel.query.OrderByItem.Direction;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.SimpleTableDef;
+import org.junit.Test;
+
+public class Neo4jCypherQueryTest {
+
+    private final Table table = new SimpleTableDef("JUnitPerson", new String[] { "_id", "name", "age",
+            "rel_HAS_READ" }, new ColumnType[] { ColumnType.BIGINT, ColumnType.STRING, ColumnType.INTEGER,
+                    ColumnType.BIGINT }).toTable();
+    private final Column idColumn = table.getColumnByName("_id");
+    private final Column nameColumn = table.getColumnByName("name");
+    private final Column ageColumn = table.getColumnByName("age");
+    private final Column relationshipColumn = table.getColumnByName("rel_HAS_READ");
+
+    private FilterItem filter(Column column, OperatorType operator, Object operand) {
+        return new FilterItem(new SelectItem(column), operator, operand);
+    }
+
+    @Test
+    public void testWhereClause() throws Exception {
+        final Neo4jCypherQuery query = new Neo4jCypherQuery(Arrays.asList(filter(ageColumn,
+                OperatorType.GREATER_THAN, "30"), new FilterItem(LogicalOperator.OR, filter(nameColumn,
+                        OperatorType.DIFFERENT_FROM, "Tomasz"), filter(idColumn, OperatorType.IN, Arrays.asList(1,
+                                2))), filter(nameColumn, OperatorType.EQUALS_TO, null)));
+        assertTrue(query.isFullyPushedDown());
+        assertEquals("MATCH (n:JUnitPerson) WHERE n.age > $p0 AND ((n.name IS NULL OR n.name <> $p1) OR id(n) IN "
+                + "$p2) AND n.name IS NULL OPTIONAL MATCH (n)-[r0:HAS_READ]->(r0_relationshipEndNode) "
+                + "RETURN n.name,id(r0_relationshipEndNode) SKIP 10 LIMIT 5", query.toSelectStatement(table
+                        .getName(), Arrays.asList("name", "rel_HAS_READ"), 11, 5));
+
+        final Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("p0", 30L);
+        parameters.put("p1", "Tomasz");
+        parameters.put("p2", Arrays.asList(1L, 2L));
+        assertEquals(parameters, query.getParameters());
+    }
+
+    @Test
+    public void testLikeConditions() throws Exception {
+        final Neo4jCypherQuery query = new Neo4jCypherQuery(Arrays.asList(filter(nameColumn, OperatorType.LIKE,
+                "To%"), filter(nameColumn, OperatorType.LIKE, "%sz"), filter(nameColumn, OperatorType.NOT_LIKE,
+                        "%ma%"), filter(nameColumn, OperatorType.LIKE, "T%m.s%")));
+        assertEquals("MATCH (n:JUnitPerson) WHERE n.name STARTS WITH $p0 AND n.name ENDS WITH $p1 "
+                + "AND NOT n.name CONTAINS $p2 AND n.name =~ $p3 RETURN count(*)", query.toCountStatement(table
+                        .getName()));
+        assertEquals("(?s)T.*m\\.s.*", query.getParameters().get("p3"));
+    }
+
+    @Test
+    public void testUntranslatableConditionsArePostProcessed() throws Exception {
+        final FilterItem stringRange = filter(nameColumn, OperatorType.GREATER_THAN, "M");
+        final FilterItem relationship = filter(relationshipColumn, OperatorType.EQUALS_TO, 42);
+        final FilterItem numberEqualsString = filter(ageColumn, OperatorType.EQUALS_TO, "forty");
+        final FilterItem translatable = filter(ageColumn, OperatorType.LESS_THAN_OR_EQUAL, 30);
+        final FilterItem partialOr = new FilterItem(LogicalOperator.OR, translatable, stringRange);
+
+        final Neo4jCypherQuery query = new Neo4jCypherQuery(Arrays.asList(stringRange, relationship,
+                numberEqualsString, translatable, partialOr));
+        assertFalse(query.isFullyPushedDown());
+        assertTrue(query.hasWhereClause());
+        assertEquals(Arrays.asList(stringRange, relationship, numberEqualsString, partialOr), query
+                .getPostProcessWhereItems());
+        assertEquals("MATCH (n:JUnitPerson) WHERE n.age <= $p0 RETURN count(*)", query.toCountStatement(table
+                .getName()));
+    }
+
+    @Test
+    public void testOrderBy() throws Exception {
+        final Neo4jCypherQuery query = new Neo4jCypherQuery(Collections.<FilterItem> emptyList());
+
+        assertFalse(query.setOrderBy(Collections.singletonList(new OrderByItem(new SelectItem(nameColumn)))));
+        assertFalse(query.setOrderBy(Collections.singletonList(new OrderByItem(new SelectItem(
+                relationshipColumn)))));
+        assertFalse(query.hasOrderBy());
+
+        assertTrue(query.setOrderBy(Arrays.asList(new OrderByItem(new SelectItem(ageColumn), Direction.DESC),
+                new OrderByItem(new SelectItem(idColumn)))));
+        assertEquals("MATCH (n:JUnitPerson) RETURN n.name ORDER BY n.age IS NOT NULL DESC, n.age DESC, "
+                + "id(n) ASC LIMIT 10", query.toSelectStatement(table.getName(), Collections.singletonList(
+                        "name"), 1, 10));
+    }
+
+    @Test
+    public void testAggregateStatement() throws Exception {
+        final Neo4jCypherQuery query = new Neo4jCypherQuery(Collections.singletonList(filter(nameColumn,
+                OperatorType.EQUALS_TO, "Tomasz")));
+        assertEquals("MATCH (n:JUnitPerson) WHERE n.name = $p0 RETURN n.name,count(*),coalesce(avg(n.age), 0.0),"
+                + "max(id(n))", query.toAggregateStatement(table.getName(), Arrays.asList(new SelectItem(
+                        nameColumn), SelectItem.getCountAllItem(), new SelectItem(FunctionType.AVG, ageColumn),
+                        new SelectItem(FunctionType.MAX, idColumn))));
+        assertEquals("MATCH (n:JUnitPerson) WHERE n.name = $p0 RETURN DISTINCT n.age", query.toAggregateStatement(
+                table.getName(), Collections.singletonList(new SelectItem(ageColumn))));
+
+        // strings are not summed up and relationships are not aggregated
+        assertNull(query.toAggregateStatement(table.getName(), Collections.singletonList(new SelectItem(
+                FunctionType.SUM, nameColumn))));
+        assertNull(query.toAggregateStatement(table.getName(), Collections.singletonList(new SelectItem(
+                FunctionType.COUNT, relationshipColumn))));
+    }
+
+    @Test
+    public void testEscapeIdentifier() throws Exception {
+        assertEquals("name", Neo4jCypherQueryBuilder.escapeIdentifier("name"));
+        assertEquals("`first name`", Neo4jCypherQueryBuilder.escapeIdentifier("first name"));
+        assertEquals("`a``b`", Neo4jCypherQueryBuilder.escapeIdentifier("a`b"));
+    }
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.metamodel.neo4j;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -26,15 +27,30 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.query.CompiledQuery;
+import org.apache.metamodel.query.FunctionType;
 import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.SimpleTableDef;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -564,6 +580,75 @@ public class Neo4jDataContextTest extends Neo4jTestCase {
         }
     }
 
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testAggregateQueryFallsBackWhenRejected() throws Exception {
+        final List<String> requestBodies = new ArrayList<>();
+        final CloseableHttpClient httpClient = new CloseableHttpClient() {
+
+            @Override
+            public void close() throws IOException {
+                // Do nothing
+            }
+
+            @Override
+            public HttpParams getParams() {
+                return null;
+            }
+
+            @Override
+            public ClientConnectionManager getConnectionManager() {
+                return null;
+            }
+
+            @Override
+            protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+                    throws IOException, ClientProtocolException {
+                final String requestBody = EntityUtils.toString(((HttpPost) request).getEntity());
+                requestBodies.add(requestBody);
+
+                final String responseBody;
+                if (requestBody.contains("sum(")) {
+                    responseBody = "{\"results\":[],\"errors\":[{\"code\":"
+                            + "\"Neo.ClientError.Statement.TypeError\",\"message\":\"Cannot sum\"}]}";
+                } else {
+                    responseBody = "{\"results\":[{\"columns\":[\"n.name\",\"n.age\"],\"data\":["
+                            + "{\"row\":[\"Tomasz\",26]},{\"row\":[\"Philomeena\",18]},"
+                            + "{\"row\":[\"Tomasz\",4]}]}],\"errors\":[]}";
+                }
+                final BasicHttpResponseWithClose response = new BasicHttpResponseWithClose();
+                response.setEntity(new StringEntity(responseBody, ContentType.APPLICATION_JSON));
+                return response;
+            }
+        };
+
+        final DataContext dc = new Neo4jDataContext("localhost", Neo4jDataContext.DEFAULT_PORT, httpClient,
+                new SimpleTableDef("JUnitPerson", new String[] { "name", "age" }, new ColumnType[] {
+                        ColumnType.STRING, ColumnType.INTEGER }));
+
+        try (final DataSet ds = dc.query().from("JUnitPerson").select("name").select(FunctionType.SUM, "age")
+                .groupBy("name").orderBy("name").execute()) {
+            assertEquals("[Row[values=[Philomeena, 18.0]], Row[values=[Tomasz, 30.0]]]", ds.toRows().toString());
+        }
+
+        // the rejected aggregate query is followed by a plain select query
+        assertEquals(2, requestBodies.size());
+        assertTrue(requestBodies.get(0), requestBodies.get(0).contains("sum(n.age)"));
+        assertFalse(requestBodies.get(1), requestBodies.get(1).contains("sum("));
+    }
+
+    private static class BasicHttpResponseWithClose extends BasicHttpResponse implements CloseableHttpResponse {
+
+        public BasicHttpResponseWithClose() {
+            super(HttpVersion.HTTP_1_1, 200, "OK");
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Do nothing
+        }
+    }
+
     @Override
     protected void tearDown() throws Exception {
         if (isConfigured()) {
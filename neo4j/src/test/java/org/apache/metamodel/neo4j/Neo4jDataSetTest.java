@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.neo4j;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+import org.junit.Test;
+
+public class Neo4jDataSetTest {
+
+    private final MutableTable table = new MutableTable("JUnitPerson");
+    private final List<SelectItem> selectItems = Arrays.asList(createSelectItem("name", ColumnType.STRING),
+            createSelectItem("age", ColumnType.INTEGER), createSelectItem("rel_HAS_READ#rating", ColumnType.LIST));
+
+    private SelectItem createSelectItem(String name, ColumnType type) {
+        final MutableColumn column = new MutableColumn(name, type, table, table.getColumnCount(), true);
+        table.addColumn(column);
+        return new SelectItem(column);
+    }
+
+    private static InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadRows() throws Exception {
+        final String json = "{\"results\":[{\"columns\":[\"n.name\",\"n.age\",\"r0.rating\"],\"data\":["
+                + "{\"row\":[\"Tomasz\",26,[5,4]],\"meta\":[null,null,null]},"
+                + "{\"row\":[\"Philomeena\",12345678910,null],\"meta\":[null,null,null]}]}],\"errors\":[]}";
+        try (DataSet dataSet = new Neo4jDataSet(selectItems, toStream(json))) {
+            assertTrue(dataSet.next());
+            assertEquals("Row[values=[Tomasz, 26, [5, 4]]]", dataSet.getRow().toString());
+            assertEquals(Integer.class, dataSet.getRow().getValue(1).getClass());
+            assertTrue(dataSet.next());
+            assertEquals("Row[values=[Philomeena, 12345678910, null]]", dataSet.getRow().toString());
+            assertEquals(Long.class, dataSet.getRow().getValue(1).getClass());
+            assertFalse(dataSet.next());
+        }
+    }
+
+    @Test
+    public void testError() throws Exception {
+        final String json = "{\"results\":[],\"errors\":[{\"code\":\"Neo.ClientError.Statement.SyntaxError\","
+                + "\"message\":\"Invalid input\"}]}";
+        try {
+            new Neo4jDataSet(selectItems, toStream(json));
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("{\"code\":\"Neo.ClientError.Statement.SyntaxError\",\"message\":\"Invalid input\"}", e
+                    .getMessage());
+        }
+    }
+
+    @Test
+    public void testErrorAfterRows() throws Exception {
+        final String json = "{\"results\":[{\"columns\":[\"n.name\"],\"data\":[{\"row\":[\"Tomasz\",1,null]}]}],"
+                + "\"errors\":[{\"code\":\"Neo.DatabaseError.General.UnknownError\"}]}";
+        final DataSet dataSet = new Neo4jDataSet(selectItems, toStream(json));
+        assertTrue(dataSet.next());
+        try {
+            dataSet.next();
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("{\"code\":\"Neo.DatabaseError.General.UnknownError\"}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.salesforce;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.metamodel.MetaModelException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import com.sforce.ws.ConnectorConfig;
+
+/**
+ * A minimal client for the Salesforce Bulk API 2.0, which is used for queries
+ * and updates that involve a large number of records.
+ *
+ * See the <a href=
+ * "https://developer.salesforce.com/docs/atlas.en-us.api_asynch.meta/api_asynch/">Bulk
+ * API 2.0 developer guide</a>.
+ */
+final class SalesforceBulkClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesforceBulkClient.class);
+
+    /**
+     * The version of the REST API to use. Bulk API 2.0 query jobs require at
+     * least version 47.0.
+     */
+    public static final String DEFAULT_API_VERSION = "47.0";
+
+    private static final int QUERY_RESULT_PAGE_SIZE = 50000;
+    private static final int INGEST_JOB_SIZE = 100000;
+    private static final long MIN_POLL_INTERVAL_MILLIS = 250;
+    private static final long MAX_POLL_INTERVAL_MILLIS = 10000;
+    private static final String LOCATOR_HEADER = "Sforce-Locator";
+
+    private final String _baseUrl;
+    private final String _sessionId;
+    private final ObjectMapper _objectMapper;
+
+    /**
+     * A page of the CSV results of a query job.
+     */
+    static final class QueryResultPage {
+
+        private final byte[] _content;
+        private final String _nextLocator;
+
+        public QueryResultPage(byte[] content, String nextLocator) {
+            _content = content;
+            _nextLocator = nextLocator;
+        }
+
+        public byte[] getContent() {
+            return _content;
+        }
+
+        /**
+         * Gets the locator of the next page, or null if this is the last page.
+         */
+        public String getNextLocator() {
+            return _nextLocator;
+        }
+    }
+
+    public SalesforceBulkClient(String instanceUrl, String sessionId, String apiVersion) {
+        if (instanceUrl.endsWith("/")) {
+            instanceUrl = instanceUrl.substring(0, instanceUrl.length() - 1);
+        }
+        _baseUrl = instanceUrl + "/services/data/v" + apiVersion + "/jobs/";
+        _sessionId = sessionId;
+        _objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * Creates a client which uses the same instance and session as a SOAP
+     * connection.
+     */
+    public static SalesforceBulkClient create(ConnectorConfig config, String apiVersion) {
+        final String serviceEndpoint = config.getServiceEndpoint();
+        final int index = serviceEndpoint.indexOf("/services/");
+        final String instanceUrl = index == -1 ? serviceEndpoint : serviceEndpoint.substring(0, index);
+        return new SalesforceBulkClient(instanceUrl, config.getSessionId(), apiVersion);
+    }
+
+    /**
+     * Creates a query job and waits for Salesforce to complete it.
+     *
+     * @return the id of the completed job
+     */
+    public String runQueryJob(String soql) {
+        final Map<String, Object> request = new LinkedHashMap<>();
+        request.put("operation", "query");
+        request.put("query", soql);
+        final String jobId = getString(requestJson("POST", "query", request), "id");
+        logger.info("Created Bulk API query job {} for SOQL query: {}", jobId, soql);
+
+        waitForJob("query/" + jobId);
+        return jobId;
+    }
+
+    /**
+     * Gets a page of the results of a completed query job.
+     *
+     * @param locator
+     *            the locator of the page, or null for the first page
+     */
+    public QueryResultPage getQueryResults(String jobId, String locator) {
+        String path = "query/" + jobId + "/results?maxRecords=" + QUERY_RESULT_PAGE_SIZE;
+        if (locator != null) {
+            path = path + "&locator=" + encode(locator);
+        }
+        final HttpURLConnection connection = request("GET", path, null, null);
+        final byte[] content = readResponse(connection);
+        final String nextLocator = connection.getHeaderField(LOCATOR_HEADER);
+        if (nextLocator == null || nextLocator.isEmpty() || "null".equals(nextLocator)) {
+            return new QueryResultPage(content, null);
+        }
+        return new QueryResultPage(content, nextLocator);
+    }
+
+    /**
+     * Inserts, updates or deletes records using ingest jobs. The records are
+     * split into jobs of at most {@value #INGEST_JOB_SIZE} records, which are
+     * all uploaded before waiting for any of them, so that Salesforce can
+     * process them in parallel.
+     *
+     * @param operation
+     *            "insert", "update" or "delete"
+     */
+    public void runIngestJobs(String objectName, String operation, List<SalesforceRecord> records) {
+        final List<String> jobIds = new ArrayList<>();
+        for (int i = 0; i < records.size(); i += INGEST_JOB_SIZE) {
+            final List<SalesforceRecord> jobRecords = records.subList(i, Math.min(records.size(), i
+                    + INGEST_JOB_SIZE));
+            jobIds.add(startIngestJob(objectName, operation, jobRecords));
+        }
+
+        int processed = 0;
+        int failed = 0;
+        String firstError = null;
+        for (String jobId : jobIds) {
+            final Map<String, Object> jobInfo = waitForJob("ingest/" + jobId);
+            processed += getInt(jobInfo, "numberRecordsProcessed");
+            final int jobFailed = getInt(jobInfo, "numberRecordsFailed");
+            if (jobFailed > 0) {
+                final List<String> errors = getFailedRecordErrors(jobId);
+                for (String error : errors) {
+                    if (!"insert".equals(operation) && error.startsWith("MALFORMED_ID")) {
+                        logger.debug("Encountered MALFORMED_ID error for {} action. Ignoring.", operation);
+                        continue;
+                    }
+                    logger.error("Error reported by Salesforce for {} operation in job {}: {}", operation, jobId,
+                            error);
+                    if (firstError == null) {
+                        firstError = error;
+                    }
+                    failed++;
+                }
+            }
+        }
+
+        if (failed > 0) {
+            final String pastTense = operation.endsWith("e") ? operation + "d" : operation + "ed";
+            throw new IllegalStateException(failed + " out of " + processed + " object(s) could not be " + pastTense
+                    + " in Salesforce! The first error message was: '" + firstError
+                    + "'. see error log for further details.");
+        }
+    }
+
+    private String startIngestJob(String objectName, String operation, List<SalesforceRecord> records) {
+        final Map<String, Object> request = new LinkedHashMap<>();
+        request.put("object", objectName);
+        request.put("operation", operation);
+        request.put("contentType", "CSV");
+        request.put("lineEnding", "LF");
+        final String jobId = getString(requestJson("POST", "ingest", request), "id");
+        logger.info("Created Bulk API {} job {} for {} record(s) of {}", operation, jobId, records.size(),
+                objectName);
+
+        readResponse(request("PUT", "ingest/" + jobId + "/batches", "text/csv", toCsv(operation, records)));
+
+        final Map<String, Object> stateRequest = new LinkedHashMap<>();
+        stateRequest.put("state", "UploadComplete");
+        // HttpURLConnection does not support PATCH, so the method is overridden
+        requestJson("POST", "ingest/" + jobId + "?_HttpMethod=PATCH", stateRequest);
+        return jobId;
+    }
+
+    /**
+     * Writes records as the CSV content of an ingest job.
+     */
+    static byte[] toCsv(String operation, List<SalesforceRecord> records) {
+        final List<String> fieldNames = new ArrayList<>();
+        if (!"insert".equals(operation)) {
+            fieldNames.add("Id");
+        }
+        if (!"delete".equals(operation)) {
+            for (SalesforceRecord record : records) {
+                for (String fieldName : record.getFieldNames()) {
+                    if (!fieldNames.contains(fieldName)) {
+                        fieldNames.add(fieldName);
+                    }
+                }
+            }
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                CSVWriter csvWriter = new CSVWriter(writer, CSVWriter.DEFAULT_SEPARATOR,
+                        CSVWriter.DEFAULT_QUOTE_CHARACTER, CSVWriter.DEFAULT_ESCAPE_CHARACTER, "\n")) {
+            csvWriter.writeNext(fieldNames.toArray(new String[fieldNames.size()]));
+            for (SalesforceRecord record : records) {
+                final String[] values = new String[fieldNames.size()];
+                for (int i = 0; i < values.length; i++) {
+                    final String fieldName = fieldNames.get(i);
+                    if ("Id".equals(fieldName) && record.getId() != null) {
+                        values[i] = record.getId();
+                    } else {
+                        values[i] = record.getCsvValue(fieldName);
+                    }
+                }
+                csvWriter.writeNext(values);
+            }
+        } catch (IOException e) {
+            throw new MetaModelException("Failed to write Bulk API CSV content", e);
+        }
+        return out.toByteArray();
+    }
+
+    private List<String> getFailedRecordErrors(String jobId) {
+        final byte[] content = readResponse(request("GET", "ingest/" + jobId + "/failedResults/", null, null));
+        final List<String> errors = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(content),
+                StandardCharsets.UTF_8))) {
+            final String[] header = reader.readNext();
+            final int errorIndex = header == null ? -1 : Arrays.asList(header).indexOf("sf__Error");
+            for (String[] line = reader.readNext(); line != null; line = reader.readNext()) {
+                errors.add(errorIndex == -1 || errorIndex >= line.length ? Arrays.toString(line)
+                        : line[errorIndex]);
+            }
+        } catch (IOException e) {
+            throw new MetaModelException("Failed to read failed results of Bulk API job " + jobId, e);
+        }
+        return errors;
+    }
+
+    private Map<String, Object> waitForJob(String jobPath) {
+        long pollInterval = MIN_POLL_INTERVAL_MILLIS;
+        while (true) {
+            final Map<String, Object> jobInfo = requestJson("GET", jobPath, null);
+            final String state = getString(jobInfo, "state");
+            if ("JobComplete".equals(state)) {
+                return jobInfo;
+            }
+            if ("Failed".equals(state) || "Aborted".equals(state)) {
+                throw new IllegalStateException("Salesforce Bulk API job " + jobPath + " " + state.toLowerCase()
+                        + ": " + jobInfo.get("errorMessage"));
+            }
+
+            logger.debug("Bulk API job {} is in state {}, waiting {} ms", jobPath, state, pollInterval);
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MetaModelException("Interrupted while waiting for Bulk API job " + jobPath, e);
+            }
+            pollInterval = Math.min(MAX_POLL_INTERVAL_MILLIS, pollInterval * 2);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> requestJson(String method, String path, Map<String, Object> body) {
+        try {
+            final byte[] requestBody = body == null ? null : _objectMapper.writeValueAsBytes(body);
+            final byte[] responseBody = readResponse(request(method, path, "application/json", requestBody));
+            return _objectMapper.readValue(responseBody, Map.class);
+        } catch (IOException e) {
+            throw new MetaModelException("Failed to parse Bulk API response of " + path, e);
+        }
+    }
+
+    private HttpURLConnection request(String method, String path, String contentType, byte[] body) {
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(_baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("Authorization", "Bearer " + _sessionId);
+            connection.setRequestProperty("Accept", "application/json");
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", contentType + "; charset=UTF-8");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            return connection;
+        } catch (IOException e) {
+            throw new MetaModelException("Failed to invoke Bulk API: " + method + " " + path, e);
+        }
+    }
+
+    private static byte[] readResponse(HttpURLConnection connection) {
+        try {
+            final int status = connection.getResponseCode();
+            if (status >= 400) {
+                final InputStream errorStream = connection.getErrorStream();
+                final String error = errorStream == null ? "" : new String(readFully(errorStream),
+                        StandardCharsets.UTF_8);
+                throw new IllegalStateException("Salesforce Bulk API request to " + connection.getURL()
+                        + " failed with status " + status + ": " + error);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return readFully(in);
+            }
+        } catch (IOException e) {
+            throw new MetaModelException("Failed to read Bulk API response of " + connection.getURL(), e);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String getString(Map<String, Object> map, String key) {
+        final Object value = map.get(key);
+        return value == null ? null : value.toString();
+    }
+
+    private static int getInt(Map<String, Object> map, String key) {
+        final Object value = map.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+}
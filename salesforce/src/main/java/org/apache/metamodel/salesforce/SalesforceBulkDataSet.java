@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.salesforce;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.data.AbstractDataSet;
+import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.SharedExecutorService;
+
+import com.opencsv.CSVReader;
+
+/**
+ * A dataset which streams the CSV results of a Bulk API query job. While the
+ * rows of one page of results are being read, the next page is downloaded in
+ * the background.
+ */
+final class SalesforceBulkDataSet extends AbstractDataSet {
+
+    private final SalesforceBulkClient _client;
+    private final String _jobId;
+    private Future<SalesforceBulkClient.QueryResultPage> _nextPage;
+    private CSVReader _reader;
+    private int[] _fieldIndexes;
+    private String[] _values;
+
+    public SalesforceBulkDataSet(List<Column> columns, SalesforceBulkClient client, String jobId) {
+        super(columns.stream().map(SelectItem::new).collect(Collectors.toList()));
+        _client = client;
+        _jobId = jobId;
+        _nextPage = fetch(null);
+    }
+
+    private Future<SalesforceBulkClient.QueryResultPage> fetch(String locator) {
+        return SharedExecutorService.get().submit(() -> _client.getQueryResults(_jobId, locator));
+    }
+
+    @Override
+    public boolean next() {
+        try {
+            while (true) {
+                if (_reader != null) {
+                    final String[] line = _reader.readNext();
+                    if (line != null) {
+                        _values = line;
+                        return true;
+                    }
+                    FileHelper.safeClose(_reader);
+                    _reader = null;
+                }
+                if (_nextPage == null) {
+                    _values = null;
+                    return false;
+                }
+                openPage(takeNextPage());
+            }
+        } catch (IOException e) {
+            throw new MetaModelException("Failed to read results of Bulk API job " + _jobId, e);
+        }
+    }
+
+    private SalesforceBulkClient.QueryResultPage takeNextPage() {
+        try {
+            final SalesforceBulkClient.QueryResultPage page = _nextPage.get();
+            final String nextLocator = page.getNextLocator();
+            _nextPage = nextLocator == null ? null : fetch(nextLocator);
+            return page;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MetaModelException("Interrupted while fetching results of Bulk API job " + _jobId, e);
+        } catch (ExecutionException e) {
+            _nextPage = null;
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new MetaModelException("Failed to fetch results of Bulk API job " + _jobId, e);
+        }
+    }
+
+    private void openPage(SalesforceBulkClient.QueryResultPage page) throws IOException {
+        _reader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(page.getContent()),
+                StandardCharsets.UTF_8));
+        final String[] fieldNames = _reader.readNext();
+        if (fieldNames == null) {
+            return;
+        }
+        final DataSetHeader header = getHeader();
+        _fieldIndexes = new int[header.size()];
+        for (int i = 0; i < _fieldIndexes.length; i++) {
+            final String columnName = header.getSelectItem(i).getColumn().getName();
+            _fieldIndexes[i] = -1;
+            for (int j = 0; j < fieldNames.length; j++) {
+                if (columnName.equalsIgnoreCase(fieldNames[j])) {
+                    _fieldIndexes[i] = j;
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Row getRow() {
+        if (_values == null) {
+            return null;
+        }
+        final DataSetHeader header = getHeader();
+        final Object[] values = new Object[header.size()];
+        for (int i = 0; i < values.length; i++) {
+            final int index = _fieldIndexes[i];
+            if (index != -1 && index < _values.length && !_values[index].isEmpty()) {
+                final Column column = header.getSelectItem(i).getColumn();
+                values[i] = SalesforceDataSet.convert(_values[index], column.getType());
+            }
+        }
+        return new DefaultRow(header, values);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (_nextPage != null) {
+            _nextPage.cancel(true);
+            _nextPage = null;
+        }
+        FileHelper.safeClose(_reader);
+        _reader = null;
+    }
+}
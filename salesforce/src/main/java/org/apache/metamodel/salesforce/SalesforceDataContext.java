@@ -18,10 +18,12 @@
  */
 package org.apache.metamodel.salesforce;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.MetaModelHelper;
 import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.UpdateScript;
 import org.apache.metamodel.UpdateSummary;
@@ -69,6 +71,9 @@ public class SalesforceDataContext extends QueryPostprocessDataContext implement
     private static final Logger logger = LoggerFactory.getLogger(SalesforceDataContext.class);
 
     private final PartnerConnection _connection;
+    private volatile int _bulkApiThreshold = 0;
+    private volatile SalesforceBulkClient _bulkClient;
+    private volatile SalesforceSchemaSnapshot _schemaSnapshot;
 
     public SalesforceDataContext(String endpoint, String username, String password, String securityToken) {
         super(false);
@@ -128,9 +133,95 @@ public class SalesforceDataContext extends QueryPostprocessDataContext implement
         return _connection;
     }
 
+    /**
+     * Gets the number of records from which queries and updates are executed
+     * using the Bulk API instead of the SOAP API.
+     * 
+     * @return the threshold, or 0 if the Bulk API is not used
+     */
+    public int getBulkApiThreshold() {
+        return _bulkApiThreshold;
+    }
+
+    /**
+     * Enables the use of the Bulk API 2.0 for queries and updates that involve
+     * at least a certain number of records.
+     * 
+     * Queries are then preceded by a count query (unless they have a lower max
+     * rows limit) to determine if they should run as a Bulk API query job.
+     * Inserts, updates and deletes of at least this number of records run as
+     * Bulk API ingest jobs.
+     * 
+     * @param bulkApiThreshold
+     *            the number of records from which to use the Bulk API, or 0 to
+     *            disable the use of it (the default)
+     */
+    public void setBulkApiThreshold(int bulkApiThreshold) {
+        _bulkApiThreshold = bulkApiThreshold;
+    }
+
+    /**
+     * Gets the file in which the schema metadata is kept between sessions.
+     * 
+     * @return the schema snapshot file, or null if no snapshot is kept
+     */
+    public File getSchemaSnapshotFile() {
+        final SalesforceSchemaSnapshot schemaSnapshot = _schemaSnapshot;
+        return schemaSnapshot == null ? null : schemaSnapshot.getFile();
+    }
+
+    /**
+     * Keeps the schema metadata (tables and columns) in a local snapshot file,
+     * so that it does not have to be fetched using the describe web services
+     * every time the schema is loaded. The snapshot is written when the schema
+     * metadata has been fetched and is used until it expires.
+     * 
+     * Call {@link #refreshSchemas()} afterwards to apply the snapshot to an
+     * already loaded schema.
+     * 
+     * @param snapshotFile
+     *            the snapshot file, or null to not keep a snapshot (the
+     *            default)
+     * @param timeToLiveMillis
+     *            the number of milliseconds that a snapshot is used, or a
+     *            non-positive number if it never expires
+     */
+    public void setSchemaSnapshot(File snapshotFile, long timeToLiveMillis) {
+        _schemaSnapshot = snapshotFile == null ? null : new SalesforceSchemaSnapshot(snapshotFile, timeToLiveMillis);
+    }
+
+    protected SalesforceBulkClient getBulkClient() {
+        if (_bulkClient == null) {
+            synchronized (this) {
+                if (_bulkClient == null) {
+                    _bulkClient = SalesforceBulkClient.create(_connection.getConfig(),
+                            SalesforceBulkClient.DEFAULT_API_VERSION);
+                }
+            }
+        }
+        return _bulkClient;
+    }
+
+    private boolean isBulkQuery(Table table, List<FilterItem> whereItems, Integer maxRows) {
+        if (_bulkApiThreshold <= 0) {
+            return false;
+        }
+        if (maxRows != null && maxRows >= 0 && maxRows < _bulkApiThreshold) {
+            return false;
+        }
+        final Number count = executeCountQuery(table, whereItems, false);
+        return count != null && count.intValue() >= _bulkApiThreshold;
+    }
+
+    private DataSet executeBulkQuery(List<Column> columns, String soql) {
+        final SalesforceBulkClient bulkClient = getBulkClient();
+        final String jobId = bulkClient.runQueryJob(soql);
+        return new SalesforceBulkDataSet(columns, bulkClient, jobId);
+    }
+
     @Override
     protected Schema getMainSchema() throws MetaModelException {
-        final SalesforceSchema schema = new SalesforceSchema(getMainSchemaName(), _connection);
+        final SalesforceSchema schema = new SalesforceSchema(getMainSchemaName(), _connection, _schemaSnapshot);
         return schema;
     }
 
@@ -214,6 +305,16 @@ public class SalesforceDataContext extends QueryPostprocessDataContext implement
 
             final Integer firstRow = query.getFirstRow();
             final Integer maxRows = query.getMaxRows();
+
+            // Bulk API query jobs do not support ORDER BY
+            if (items.isEmpty()
+                    && isBulkQuery(table, query.getWhereClause().getItems(), maxRows == null ? null : maxRows
+                            + (firstRow == null ? 0 : firstRow - 1))) {
+                final DataSet dataSet = executeBulkQuery(columns, sb.toString());
+                return MetaModelHelper.getPaged(dataSet, firstRow == null ? 1 : firstRow, maxRows == null ? -1
+                        : maxRows);
+            }
+
             if (maxRows != null && maxRows > 0) {
                 if (firstRow != null) {
                     // add first row / offset to avoid missing some records.
@@ -377,6 +478,11 @@ public class SalesforceDataContext extends QueryPostprocessDataContext implement
         sb.append(" FROM ");
         sb.append(table.getName());
 
+        if (isBulkQuery(table, Collections.emptyList(), maxRows)) {
+            return MetaModelHelper.getPaged(executeBulkQuery(columns, sb.toString()), 1, maxRows > 0 ? maxRows
+                    : -1);
+        }
+
         if (maxRows > 0) {
             sb.append(" LIMIT " + maxRows);
         }
@@ -105,7 +105,11 @@ final class SalesforceDataSet extends AbstractDataSet {
         return new DefaultRow(header, values);
     }
 
-    private Object convert(Object value, ColumnType columnType) {
+    /**
+     * Converts a field value, which is typically a string, to the type of its
+     * column.
+     */
+    static Object convert(Object value, ColumnType columnType) {
         if (value instanceof String && !columnType.isLiteral()) {
             if (columnType.isBoolean()) {
                 return BooleanComparator.toBoolean(value);
@@ -51,7 +51,7 @@ final class SalesforceDeleteBuilder extends AbstractRowDeletionBuilder {
             _updateCallback.buildIdList(idList, whereItem);
         }
 
-        _updateCallback.delete(idList.toArray(new String[idList.size()]));
+        _updateCallback.delete(getTable(), idList.toArray(new String[idList.size()]));
     }
 
 }
@@ -18,16 +18,11 @@
  */
 package org.apache.metamodel.salesforce;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.insert.AbstractRowInsertionBuilder;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 
-import com.sforce.soap.partner.sobject.SObject;
-
 /**
  * Insert builder for Salesforce.com datacontexts
  */
@@ -43,26 +38,15 @@ final class SalesforceInsertBuilder extends AbstractRowInsertionBuilder<Salesfor
         final Column[] columns = getColumns();
         final boolean[] explicitNulls = getExplicitNulls();
 
-        final List<String> nullFields = new ArrayList<String>();
-
-        final SObject obj = new SObject();
-        obj.setType(getTable().getName());
-        
+        final SalesforceRecord record = new SalesforceRecord(getTable(), null);
         for (int i = 0; i < values.length; i++) {
-            final Object value = values[i];
-            final Column column = columns[i];
-            if (value == null) {
-                if (explicitNulls[i]) {
-                    nullFields.add(column.getName());
-                }
-            } else {
-                obj.setField(column.getName(), value);
+            if (values[i] != null || explicitNulls[i]) {
+                record.setValue(columns[i], values[i]);
             }
         }
-        obj.setFieldsToNull(nullFields.toArray(new String[nullFields.size()]));
 
         final SalesforceUpdateCallback updateCallback = getUpdateCallback();
-        updateCallback.insert(obj);
+        updateCallback.insert(record);
     }
 
 }
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.salesforce;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+
+import com.sforce.soap.partner.sobject.SObject;
+
+/**
+ * A record to insert, update or delete in Salesforce. Records are sent either
+ * as {@link SObject}s through the SOAP API or as CSV rows through the Bulk API.
+ */
+final class SalesforceRecord {
+
+    /**
+     * The CSV value which sets a field to null in the Bulk API.
+     */
+    static final String BULK_NULL_VALUE = "#N/A";
+
+    private final Table _table;
+    private final String _id;
+    private final Map<String, Object> _values;
+
+    public SalesforceRecord(Table table, String id) {
+        _table = table;
+        _id = id;
+        _values = new LinkedHashMap<>();
+    }
+
+    public Table getTable() {
+        return _table;
+    }
+
+    public String getId() {
+        return _id;
+    }
+
+    /**
+     * Sets the value of a field. A null value means that the field is
+     * explicitly set to null.
+     */
+    public void setValue(Column column, Object value) {
+        _values.put(column.getName(), value);
+    }
+
+    public Set<String> getFieldNames() {
+        return _values.keySet();
+    }
+
+    public SObject toSObject() {
+        final SObject obj = new SObject();
+        obj.setType(_table.getName());
+        if (_id != null) {
+            obj.setId(_id);
+        }
+
+        final List<String> nullFields = new ArrayList<String>();
+        for (Map.Entry<String, Object> entry : _values.entrySet()) {
+            if (entry.getValue() == null) {
+                nullFields.add(entry.getKey());
+            } else {
+                obj.setField(entry.getKey(), entry.getValue());
+            }
+        }
+        obj.setFieldsToNull(nullFields.toArray(new String[nullFields.size()]));
+        return obj;
+    }
+
+    /**
+     * Gets the value of a field as it should be written in a Bulk API CSV
+     * file, or an empty string if the field should not be changed.
+     */
+    public String getCsvValue(String fieldName) {
+        if (!_values.containsKey(fieldName)) {
+            return "";
+        }
+        final Object value = _values.get(fieldName);
+        if (value == null) {
+            return BULK_NULL_VALUE;
+        }
+        if (value instanceof Date) {
+            final Column column = _table.getColumnByName(fieldName);
+            final ColumnType columnType = column == null ? null : column.getType();
+            final SimpleDateFormat dateFormat;
+            if (columnType == ColumnType.DATE) {
+                dateFormat = new SimpleDateFormat(SalesforceDataContext.SOQL_DATE_FORMAT_OUT, Locale.ENGLISH);
+            } else if (columnType == ColumnType.TIME) {
+                dateFormat = new SimpleDateFormat(SalesforceDataContext.SOQL_TIME_FORMAT_OUT, Locale.ENGLISH);
+                dateFormat.setTimeZone(SalesforceDataContext.SOQL_TIMEZONE);
+            } else {
+                dateFormat = new SimpleDateFormat(SalesforceDataContext.SOQL_DATE_TIME_FORMAT_OUT, Locale.ENGLISH);
+                dateFormat.setTimeZone(SalesforceDataContext.SOQL_TIMEZONE);
+            }
+            return dateFormat.format((Date) value);
+        }
+        return value.toString();
+    }
+}
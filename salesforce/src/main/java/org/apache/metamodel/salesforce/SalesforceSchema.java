@@ -19,38 +19,84 @@
 package org.apache.metamodel.salesforce;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
+import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.schema.AbstractSchema;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.LazyRef;
+import org.apache.metamodel.util.SharedExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.sforce.soap.partner.DescribeGlobalResult;
 import com.sforce.soap.partner.DescribeGlobalSObjectResult;
+import com.sforce.soap.partner.DescribeSObjectResult;
 import com.sforce.soap.partner.PartnerConnection;
 import com.sforce.ws.ConnectionException;
 
 /**
  * Schema implementation for Salesforce, which lazy loads tables based on the
  * "describe" web services.
+ * 
+ * When the columns of a table are first needed, the batch of tables that it
+ * belongs to is described using a multi-object "describeSObjects" call. If a
+ * {@link SalesforceSchemaSnapshot} is used, all tables are instead described
+ * using concurrent "describeSObjects" calls, so that the result can be kept in
+ * the snapshot.
  */
 final class SalesforceSchema extends AbstractSchema {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Logger logger = LoggerFactory.getLogger(SalesforceSchema.class);
+
+    /**
+     * The maximum number of objects that can be described in one
+     * "describeSObjects" call.
+     */
+    static final int DESCRIBE_BATCH_SIZE = 100;
+
     private final String _name;
     private final transient Supplier<List<Table>> _tableRef;
+    private final transient Supplier<Map<String, DescribeSObjectResult>> _describeRef;
+    private final transient Map<Integer, Supplier<Map<String, DescribeSObjectResult>>> _batchDescribeRefs;
     private final transient PartnerConnection _connection;
+    private final transient SalesforceSchemaSnapshot _snapshot;
+    private transient volatile List<DescribeSObjectResult> _snapshotResults;
 
     public SalesforceSchema(String name, PartnerConnection connection) {
+        this(name, connection, null);
+    }
+
+    public SalesforceSchema(String name, PartnerConnection connection, SalesforceSchemaSnapshot snapshot) {
         _name = name;
         _connection = connection;
+        _snapshot = snapshot;
+        _batchDescribeRefs = new ConcurrentHashMap<>();
         _tableRef = new LazyRef<List<Table>>() {
             @Override
             protected List<Table> fetch() {
                 final List<Table> result = new ArrayList<Table>();
+
+                final List<DescribeSObjectResult> snapshotResults = _snapshot == null ? null : _snapshot.load();
+                if (snapshotResults != null) {
+                    for (final DescribeSObjectResult sobject : snapshotResults) {
+                        result.add(new SalesforceTable(sobject.getName(), sobject.getLabel(),
+                                SalesforceSchema.this, _connection));
+                    }
+                    _snapshotResults = snapshotResults;
+                    return result;
+                }
+
                 final DescribeGlobalResult describeGlobal;
                 try {
                     describeGlobal = _connection.describeGlobal();
@@ -71,6 +117,128 @@ final class SalesforceSchema extends AbstractSchema {
                 return result;
             }
         };
+        _describeRef = new LazyRef<Map<String, DescribeSObjectResult>>() {
+            @Override
+            protected Map<String, DescribeSObjectResult> fetch() {
+                final List<Table> tables = _tableRef.get();
+
+                List<DescribeSObjectResult> describeResults = _snapshotResults;
+                if (describeResults == null) {
+                    describeResults = describeTables(tables);
+                }
+
+                return toMap(describeResults);
+            }
+        };
+    }
+
+    private static Map<String, DescribeSObjectResult> toMap(Iterable<DescribeSObjectResult> describeResults) {
+        final Map<String, DescribeSObjectResult> result = new HashMap<>();
+        for (DescribeSObjectResult describeResult : describeResults) {
+            result.put(describeResult.getName(), describeResult);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the lazily described batch of tables that a table belongs to.
+     */
+    private Supplier<Map<String, DescribeSObjectResult>> getBatchDescribeRef(String tableName) {
+        final List<Table> tables = _tableRef.get();
+        for (int i = 0; i < tables.size(); i++) {
+            if (tables.get(i).getName().equals(tableName)) {
+                return _batchDescribeRefs.computeIfAbsent(i / DESCRIBE_BATCH_SIZE, batchIndex -> {
+                    final int fromIndex = batchIndex * DESCRIBE_BATCH_SIZE;
+                    final List<Table> batch = tables.subList(fromIndex, Math.min(fromIndex + DESCRIBE_BATCH_SIZE,
+                            tables.size()));
+                    return new LazyRef<Map<String, DescribeSObjectResult>>() {
+                        @Override
+                        protected Map<String, DescribeSObjectResult> fetch() {
+                            final String[] names = new String[batch.size()];
+                            for (int j = 0; j < names.length; j++) {
+                                names[j] = batch.get(j).getName();
+                            }
+                            try {
+                                return toMap(Arrays.asList(_connection.describeSObjects(names)));
+                            } catch (ConnectionException e) {
+                                throw SalesforceUtils.wrapException(e, "Failed to invoke describeSObjects service");
+                            }
+                        }
+                    };
+                });
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Describes all tables for the snapshot using batches of
+     * "describeSObjects" calls, which are executed concurrently. A failing
+     * batch is logged and left out of the result, in which case the tables of
+     * that batch are described one by one when needed and the result is not
+     * saved to the snapshot.
+     */
+    private List<DescribeSObjectResult> describeTables(List<Table> tables) {
+        final List<Future<DescribeSObjectResult[]>> futures = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i += DESCRIBE_BATCH_SIZE) {
+            final List<Table> batch = tables.subList(i, Math.min(i + DESCRIBE_BATCH_SIZE, tables.size()));
+            final String[] names = new String[batch.size()];
+            for (int j = 0; j < names.length; j++) {
+                names[j] = batch.get(j).getName();
+            }
+            futures.add(SharedExecutorService.get().submit(() -> _connection.describeSObjects(names)));
+        }
+
+        final List<DescribeSObjectResult> result = new ArrayList<>(tables.size());
+        boolean complete = true;
+        for (Future<DescribeSObjectResult[]> future : futures) {
+            try {
+                Collections.addAll(result, future.get());
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new MetaModelException("Interrupted while invoking describeSObjects service", e);
+            } catch (ExecutionException e) {
+                logger.warn("Failed to invoke describeSObjects service, tables will be described individually",
+                        e.getCause());
+                complete = false;
+            }
+        }
+
+        if (complete && _snapshot != null) {
+            _snapshot.save(result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the describe result of a table of this schema.
+     *
+     * @param tableName
+     *            the name of the table
+     * @return the describe result, or null if the table was not described
+     *         along with the other tables of its batch
+     */
+    DescribeSObjectResult getDescribeResult(String tableName) {
+        final Map<String, DescribeSObjectResult> describeResults;
+        try {
+            if (_snapshot == null) {
+                final Supplier<Map<String, DescribeSObjectResult>> batchDescribeRef = getBatchDescribeRef(
+                        tableName);
+                describeResults = batchDescribeRef == null ? null : batchDescribeRef.get();
+            } else {
+                describeResults = _describeRef.get();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to describe the tables of schema '{}', table '{}' will be described individually",
+                    _name, tableName, e);
+            return null;
+        }
+        if (describeResults == null) {
+            // a previous attempt failed, the table is described individually
+            return null;
+        }
+        return describeResults.get(tableName);
     }
 
     @Override
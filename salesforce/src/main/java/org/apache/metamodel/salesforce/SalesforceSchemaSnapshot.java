@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.salesforce;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+
+/**
+ * A local file which holds the describe results of all tables of a
+ * {@link SalesforceSchema}, so that the schema can be built without calling
+ * the describe web services as long as the snapshot has not expired.
+ */
+final class SalesforceSchemaSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesforceSchemaSnapshot.class);
+
+    private final File _file;
+    private final long _timeToLiveMillis;
+    private final ObjectMapper _objectMapper;
+
+    /**
+     * Creates a schema snapshot.
+     *
+     * @param file
+     *            the file to read the snapshot from and write it to
+     * @param timeToLiveMillis
+     *            the number of milliseconds that a snapshot is used after it
+     *            has been written, or a non-positive number if it never
+     *            expires
+     */
+    public SalesforceSchemaSnapshot(File file, long timeToLiveMillis) {
+        if (file == null) {
+            throw new IllegalArgumentException("Snapshot file cannot be null");
+        }
+        _file = file;
+        _timeToLiveMillis = timeToLiveMillis;
+        _objectMapper = new ObjectMapper();
+    }
+
+    public File getFile() {
+        return _file;
+    }
+
+    public long getTimeToLiveMillis() {
+        return _timeToLiveMillis;
+    }
+
+    /**
+     * Reads the describe results of the snapshot.
+     *
+     * @return the describe results, or null if there is no snapshot, if it has
+     *         expired or if it could not be read
+     */
+    public List<DescribeSObjectResult> load() {
+        if (!_file.exists()) {
+            return null;
+        }
+        try {
+            final Map<?, ?> snapshot = _objectMapper.readValue(_file, Map.class);
+            final long created = ((Number) snapshot.get("created")).longValue();
+            if (_timeToLiveMillis > 0 && System.currentTimeMillis() - created > _timeToLiveMillis) {
+                logger.info("Schema snapshot {} has expired, ignoring it", _file);
+                return null;
+            }
+
+            final List<DescribeSObjectResult> result = new ArrayList<>();
+            for (Object sobject : (List<?>) snapshot.get("sobjects")) {
+                result.add(toDescribeResult((Map<?, ?>) sobject));
+            }
+            logger.debug("Read {} table(s) from schema snapshot {}", result.size(), _file);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to read schema snapshot " + _file + ", ignoring it", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes describe results to the snapshot. Failures are logged, since the
+     * snapshot is only a cache.
+     *
+     * @param describeResults
+     *            the describe results of all tables of the schema
+     */
+    public void save(List<DescribeSObjectResult> describeResults) {
+        final List<Object> sobjects = new ArrayList<>(describeResults.size());
+        for (DescribeSObjectResult describeResult : describeResults) {
+            sobjects.add(toMap(describeResult));
+        }
+
+        final Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("created", System.currentTimeMillis());
+        snapshot.put("sobjects", sobjects);
+
+        final File tempFile = new File(_file.getPath() + ".tmp");
+        try {
+            _objectMapper.writeValue(tempFile, snapshot);
+            if (_file.exists() && !_file.delete() || !tempFile.renameTo(_file)) {
+                throw new IOException("Could not replace " + _file);
+            }
+            logger.debug("Wrote {} table(s) to schema snapshot {}", describeResults.size(), _file);
+        } catch (IOException e) {
+            logger.warn("Failed to write schema snapshot " + _file, e);
+            tempFile.delete();
+        }
+    }
+
+    private static Map<String, Object> toMap(DescribeSObjectResult describeResult) {
+        final List<Object> fields = new ArrayList<>();
+        for (Field field : describeResult.getFields()) {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", field.getName());
+            map.put("label", field.getLabel());
+            map.put("type", field.getType().name());
+            map.put("nillable", field.isNillable());
+            map.put("length", field.getLength());
+            fields.add(map);
+        }
+
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", describeResult.getName());
+        map.put("label", describeResult.getLabel());
+        map.put("fields", fields);
+        return map;
+    }
+
+    private static DescribeSObjectResult toDescribeResult(Map<?, ?> map) {
+        final List<?> fieldMaps = (List<?>) map.get("fields");
+        final Field[] fields = new Field[fieldMaps.size()];
+        for (int i = 0; i < fields.length; i++) {
+            final Map<?, ?> fieldMap = (Map<?, ?>) fieldMaps.get(i);
+            final Field field = new Field();
+            field.setName((String) fieldMap.get("name"));
+            field.setLabel((String) fieldMap.get("label"));
+            field.setType(FieldType.valueOf((String) fieldMap.get("type")));
+            field.setNillable((Boolean) fieldMap.get("nillable"));
+            field.setLength(((Number) fieldMap.get("length")).intValue());
+            fields[i] = field;
+        }
+
+        final DescribeSObjectResult describeResult = new DescribeSObjectResult();
+        describeResult.setName((String) map.get("name"));
+        describeResult.setLabel((String) map.get("label"));
+        describeResult.setFields(fields);
+        return describeResult;
+    }
+}
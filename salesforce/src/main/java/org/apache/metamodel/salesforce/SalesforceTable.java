@@ -40,7 +40,8 @@ import com.sforce.ws.ConnectionException;
 
 /**
  * Table implementation for Salesforce, which lazy loads columns based on the
- * "describe" web services.
+ * "describe" web services. Columns are preferably taken from the describe
+ * results which the {@link SalesforceSchema} fetches for all tables at once.
  */
 final class SalesforceTable extends AbstractTable {
 
@@ -61,12 +62,7 @@ final class SalesforceTable extends AbstractTable {
             @Override
             protected List<Column> fetch() {
                 final List<Column> result = new ArrayList<Column>();
-                final DescribeSObjectResult describeSObject;
-                try {
-                    describeSObject = _connection.describeSObject(_name);
-                } catch (ConnectionException e) {
-                    throw SalesforceUtils.wrapException(e, "Failed to invoke describeSObject service");
-                }
+                final DescribeSObjectResult describeSObject = describeSObject();
                 final Field[] fields = describeSObject.getFields();
 
                 int i = 0;
@@ -99,6 +95,20 @@ final class SalesforceTable extends AbstractTable {
         };
     }
 
+    private DescribeSObjectResult describeSObject() {
+        if (_schema instanceof SalesforceSchema) {
+            final DescribeSObjectResult describeResult = ((SalesforceSchema) _schema).getDescribeResult(_name);
+            if (describeResult != null) {
+                return describeResult;
+            }
+        }
+        try {
+            return _connection.describeSObject(_name);
+        } catch (ConnectionException e) {
+            throw SalesforceUtils.wrapException(e, "Failed to invoke describeSObject service");
+        }
+    }
+
     protected static ColumnType toColumnType(FieldType type) {
         switch (type) {
         case _boolean:
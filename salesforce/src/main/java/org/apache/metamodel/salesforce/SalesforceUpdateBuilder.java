@@ -27,8 +27,6 @@ import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.update.AbstractRowUpdationBuilder;
 
-import com.sforce.soap.partner.sobject.SObject;
-
 /**
  * Row updation builder for Salesforce
  */
@@ -50,39 +48,28 @@ public class SalesforceUpdateBuilder extends AbstractRowUpdationBuilder {
             _updateCallback.buildIdList(idList, whereItem);
         }
 
-        final SObject[] updatedObjects = new SObject[idList.size()];
-        for (int i = 0; i < updatedObjects.length; i++) {
-            final SObject object = buildUpdatedObject(idList.get(i));
-            updatedObjects[i] = object;
+        final List<SalesforceRecord> updatedRecords = new ArrayList<>(idList.size());
+        for (String id : idList) {
+            updatedRecords.add(buildUpdatedRecord(id));
         }
 
-        _updateCallback.update(updatedObjects);
+        _updateCallback.update(getTable(), updatedRecords);
     }
 
-    private SObject buildUpdatedObject(String id) {
-        final SObject obj = new SObject();
-        obj.setId(id);
-        obj.setType(getTable().getName());
+    private SalesforceRecord buildUpdatedRecord(String id) {
+        final SalesforceRecord record = new SalesforceRecord(getTable(), id);
 
         final Object[] values = getValues();
         final Column[] columns = getColumns();
         final boolean[] explicitNulls = getExplicitNulls();
-        final List<String> nullFields = new ArrayList<String>();
 
         for (int i = 0; i < columns.length; i++) {
-            final Object value = values[i];
-            final Column column = columns[i];
-            if (value == null) {
-                if (explicitNulls[i]) {
-                    nullFields.add(column.getName());
-                }
-            } else {
-                obj.setField(column.getName(), value);
+            if (values[i] != null || explicitNulls[i]) {
+                record.setValue(columns[i], values[i]);
             }
         }
-        obj.setFieldsToNull(nullFields.toArray(new String[nullFields.size()]));
 
-        return obj;
+        return record;
     }
 
 }
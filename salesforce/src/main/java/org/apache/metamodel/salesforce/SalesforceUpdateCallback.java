@@ -21,7 +21,9 @@ package org.apache.metamodel.salesforce;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.metamodel.AbstractUpdateCallback;
 import org.apache.metamodel.create.TableCreationBuilder;
@@ -53,13 +55,29 @@ final class SalesforceUpdateCallback extends AbstractUpdateCallback implements C
 
     private static final int INSERT_BATCH_SIZE = 100;
 
+    /**
+     * The max number of records in a single create/update/delete call of the
+     * SOAP API.
+     */
+    private static final int SOAP_BATCH_SIZE = 200;
+
+    /**
+     * The number of records to collect before flushing inserts when the Bulk
+     * API is enabled.
+     */
+    private static final int BULK_INSERT_BATCH_SIZE = 10000;
+
     private final PartnerConnection _connection;
-    private final List<SObject> _pendingInserts;
+    private final List<SalesforceRecord> _pendingInserts;
+    private final int _bulkApiThreshold;
+    private final SalesforceBulkClient _bulkClient;
 
     public SalesforceUpdateCallback(SalesforceDataContext dataContext, PartnerConnection connection) {
         super(dataContext);
         _connection = connection;
-        _pendingInserts = new ArrayList<SObject>();
+        _pendingInserts = new ArrayList<SalesforceRecord>();
+        _bulkApiThreshold = dataContext.getBulkApiThreshold();
+        _bulkClient = _bulkApiThreshold > 0 ? dataContext.getBulkClient() : null;
     }
 
     @Override
@@ -101,29 +119,76 @@ final class SalesforceUpdateCallback extends AbstractUpdateCallback implements C
         return new SalesforceDeleteBuilder(this, table);
     }
 
-    protected void delete(String[] ids) {
+    protected void delete(Table table, String[] ids) {
         flushInserts();
+        if (isBulk(ids.length)) {
+            final List<SalesforceRecord> records = new ArrayList<>(ids.length);
+            for (String id : ids) {
+                records.add(new SalesforceRecord(table, id));
+            }
+            _bulkClient.runIngestJobs(table.getName(), "delete", records);
+            return;
+        }
         try {
-            _connection.delete(ids);
+            for (int i = 0; i < ids.length; i += SOAP_BATCH_SIZE) {
+                _connection.delete(Arrays.copyOfRange(ids, i, Math.min(ids.length, i + SOAP_BATCH_SIZE)));
+            }
         } catch (ConnectionException e) {
             throw SalesforceUtils.wrapException(e, "Failed to delete objects in Salesforce");
         }
     }
 
+    private boolean isBulk(int recordCount) {
+        return _bulkClient != null && recordCount >= _bulkApiThreshold;
+    }
+
     private void flushInserts() {
         if (_pendingInserts.isEmpty()) {
             return;
         }
-        final SObject[] objectsToInsert = _pendingInserts.toArray(new SObject[_pendingInserts.size()]);
+        final List<SalesforceRecord> records = new ArrayList<>(_pendingInserts);
         _pendingInserts.clear();
+
+        if (_bulkClient == null) {
+            create(records);
+            return;
+        }
+
+        // ingest jobs are per object, so the records are grouped by table
+        final Map<Table, List<SalesforceRecord>> recordsByTable = new LinkedHashMap<>();
+        for (SalesforceRecord record : records) {
+            recordsByTable.computeIfAbsent(record.getTable(), t -> new ArrayList<>()).add(record);
+        }
+        for (Map.Entry<Table, List<SalesforceRecord>> entry : recordsByTable.entrySet()) {
+            if (isBulk(entry.getValue().size())) {
+                _bulkClient.runIngestJobs(entry.getKey().getName(), "insert", entry.getValue());
+            } else {
+                create(entry.getValue());
+            }
+        }
+    }
+
+    private void create(List<SalesforceRecord> records) {
         try {
-            final SaveResult[] saveResults = _connection.create(objectsToInsert);
-            checkSaveResults(saveResults, "insert");
+            for (int i = 0; i < records.size(); i += SOAP_BATCH_SIZE) {
+                final SObject[] objectsToInsert = toSObjects(records.subList(i, Math.min(records.size(), i
+                        + SOAP_BATCH_SIZE)));
+                final SaveResult[] saveResults = _connection.create(objectsToInsert);
+                checkSaveResults(saveResults, "insert");
+            }
         } catch (ConnectionException e) {
             throw SalesforceUtils.wrapException(e, "Failed to insert objects in Salesforce");
         }
     }
 
+    private static SObject[] toSObjects(List<SalesforceRecord> records) {
+        final SObject[] objects = new SObject[records.size()];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = records.get(i).toSObject();
+        }
+        return objects;
+    }
+
     private void checkSaveResults(SaveResult[] saveResults, String action) {
         int successes = 0;
         int errors = 0;
@@ -185,18 +250,28 @@ final class SalesforceUpdateCallback extends AbstractUpdateCallback implements C
         return new SalesforceUpdateBuilder(this, table);
     }
 
-    protected void insert(SObject obj) {
-        _pendingInserts.add(obj);
-        if (_pendingInserts.size() >= INSERT_BATCH_SIZE) {
+    protected void insert(SalesforceRecord record) {
+        _pendingInserts.add(record);
+        final int batchSize =
+                _bulkClient == null ? INSERT_BATCH_SIZE : Math.max(_bulkApiThreshold, BULK_INSERT_BATCH_SIZE);
+        if (_pendingInserts.size() >= batchSize) {
             flushInserts();
         }
     }
 
-    protected void update(SObject[] sObjects) {
+    protected void update(Table table, List<SalesforceRecord> records) {
         flushInserts();
+        if (isBulk(records.size())) {
+            _bulkClient.runIngestJobs(table.getName(), "update", records);
+            return;
+        }
         try {
-            SaveResult[] saveResults = _connection.update(sObjects);
-            checkSaveResults(saveResults, "update");
+            for (int i = 0; i < records.size(); i += SOAP_BATCH_SIZE) {
+                final SObject[] sObjects = toSObjects(records.subList(i, Math.min(records.size(), i
+                        + SOAP_BATCH_SIZE)));
+                SaveResult[] saveResults = _connection.update(sObjects);
+                checkSaveResults(saveResults, "update");
+            }
         } catch (ConnectionException e) {
             throw SalesforceUtils.wrapException(e, "Failed to update objects in Salesforce");
         }
@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.salesforce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the Bulk API client against a local HTTP stub of the Salesforce REST
+ * API.
+ */
+public class SalesforceBulkClientTest {
+
+    private static final String JOBS_PATH = "/services/data/v" + SalesforceBulkClient.DEFAULT_API_VERSION + "/jobs/";
+
+    private final Map<String, String[]> _responses = new HashMap<>();
+    private final Map<String, String> _requestBodies = Collections.synchronizedMap(new HashMap<>());
+    private HttpServer _server;
+    private SalesforceBulkClient _client;
+
+    @Before
+    public void setUp() throws Exception {
+        _server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        _server.createContext("/", this::handle);
+        _server.start();
+        _client = new SalesforceBulkClient("http://127.0.0.1:" + _server.getAddress().getPort() + "/", "session-id",
+                SalesforceBulkClient.DEFAULT_API_VERSION);
+    }
+
+    @After
+    public void tearDown() {
+        _server.stop(0);
+    }
+
+    /**
+     * Registers a response: a status code, an optional locator header and a
+     * body.
+     */
+    private void respond(String method, String pathAndQuery, String status, String locator, String body) {
+        _responses.put(method + " " + JOBS_PATH + pathAndQuery, new String[] { status, locator, body });
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String key = exchange.getRequestMethod() + " " + exchange.getRequestURI();
+        _requestBodies.put(key, new String(readFully(exchange.getRequestBody()), StandardCharsets.UTF_8));
+
+        final String[] response = _responses.get(key);
+        if (response == null || !"Bearer session-id".equals(exchange.getRequestHeaders().getFirst(
+                "Authorization"))) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        if (response[1] != null) {
+            exchange.getResponseHeaders().add("Sforce-Locator", response[1]);
+        }
+        final byte[] body = response[2].getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(Integer.parseInt(response[0]), body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testQueryJobWithPagedResults() throws Exception {
+        respond("POST", "query", "200", null, "{\"id\":\"750Q\",\"state\":\"UploadComplete\"}");
+        respond("GET", "query/750Q", "200", null, "{\"id\":\"750Q\",\"state\":\"JobComplete\"}");
+        respond("GET", "query/750Q/results?maxRecords=50000", "200", "page2",
+                "\"Id\",\"Name\",\"Amount\"\n\"1\",\"Foo, Inc.\",\"12.5\"\n\"2\",\"\",\"\"\n");
+        respond("GET", "query/750Q/results?maxRecords=50000&locator=page2", "200", "null",
+                "\"Id\",\"Name\",\"Amount\"\n\"3\",\"Bar \"\"Baz\"\"\nLtd\",\"7\"\n");
+
+        final String jobId = _client.runQueryJob("SELECT Id, Name, Amount FROM Opportunity");
+        assertEquals("750Q", jobId);
+        assertTrue(_requestBodies.get("POST " + JOBS_PATH + "query").contains(
+                "\"query\":\"SELECT Id, Name, Amount FROM Opportunity\""));
+
+        final MutableColumn amountColumn = new MutableColumn("Amount", ColumnType.DOUBLE);
+        final MutableColumn nameColumn = new MutableColumn("Name", ColumnType.VARCHAR);
+        try (DataSet dataSet = new SalesforceBulkDataSet(Arrays.asList(amountColumn, nameColumn), _client,
+                jobId)) {
+            final List<String> rows = new ArrayList<>();
+            while (dataSet.next()) {
+                rows.add(Arrays.toString(dataSet.getRow().getValues()));
+            }
+            assertEquals("[[12.5, Foo, Inc.], [null, null], [7, Bar \"Baz\"\nLtd]]", rows.toString());
+        }
+    }
+
+    @Test
+    public void testIngestJob() throws Exception {
+        respond("POST", "ingest", "200", null, "{\"id\":\"750I\",\"state\":\"Open\"}");
+        respond("PUT", "ingest/750I/batches", "201", null, "");
+        respond("POST", "ingest/750I?_HttpMethod=PATCH", "200", null, "{\"id\":\"750I\",\"state\":\"UploadComplete\"}");
+        respond("GET", "ingest/750I", "200", null,
+                "{\"id\":\"750I\",\"state\":\"JobComplete\",\"numberRecordsProcessed\":2,\"numberRecordsFailed\":0}");
+
+        final MutableTable table = new MutableTable("Account");
+        final MutableColumn nameColumn = new MutableColumn("Name", ColumnType.VARCHAR, table, 0, true);
+        final MutableColumn phoneColumn = new MutableColumn("Phone", ColumnType.VARCHAR, table, 1, true);
+        table.addColumn(nameColumn).addColumn(phoneColumn);
+
+        final SalesforceRecord record1 = new SalesforceRecord(table, "001A");
+        record1.setValue(nameColumn, "Foo");
+        final SalesforceRecord record2 = new SalesforceRecord(table, "001B");
+        record2.setValue(phoneColumn, null);
+
+        _client.runIngestJobs("Account", "update", Arrays.asList(record1, record2));
+
+        assertTrue(_requestBodies.get("POST " + JOBS_PATH + "ingest").contains("\"operation\":\"update\""));
+        assertEquals("\"Id\",\"Name\",\"Phone\"\n\"001A\",\"Foo\",\"\"\n\"001B\",\"\",\"#N/A\"\n", _requestBodies
+                .get("PUT " + JOBS_PATH + "ingest/750I/batches"));
+        assertTrue(_requestBodies.get("POST " + JOBS_PATH + "ingest/750I?_HttpMethod=PATCH").contains(
+                "\"state\":\"UploadComplete\""));
+    }
+
+    @Test
+    public void testIngestJobWithFailedRecords() throws Exception {
+        respond("POST", "ingest", "200", null, "{\"id\":\"750F\",\"state\":\"Open\"}");
+        respond("PUT", "ingest/750F/batches", "201", null, "");
+        respond("POST", "ingest/750F?_HttpMethod=PATCH", "200", null, "{\"id\":\"750F\",\"state\":\"UploadComplete\"}");
+        respond("GET", "ingest/750F", "200", null,
+                "{\"id\":\"750F\",\"state\":\"JobComplete\",\"numberRecordsProcessed\":2,\"numberRecordsFailed\":2}");
+        respond("GET", "ingest/750F/failedResults/", "200", null, "\"sf__Id\",\"sf__Error\",\"Id\"\n"
+                + "\"\",\"MALFORMED_ID:bad id:--\",\"foo\"\n" + "\"\",\"ENTITY_IS_DELETED:deleted:--\",\"001C\"\n");
+
+        final MutableTable table = new MutableTable("Account");
+        final List<SalesforceRecord> records = Arrays.asList(new SalesforceRecord(table, "foo"),
+                new SalesforceRecord(table, "001C"));
+        try {
+            _client.runIngestJobs("Account", "delete", records);
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("1 out of 2 object(s) could not be deleted in Salesforce! The first error message was: "
+                    + "'ENTITY_IS_DELETED:deleted:--'. see error log for further details.", e.getMessage());
+        }
+        assertEquals("\"Id\"\n\"foo\"\n\"001C\"\n", _requestBodies.get("PUT " + JOBS_PATH + "ingest/750F/batches"));
+    }
+
+    @Test
+    public void testFailedQueryJob() throws Exception {
+        respond("POST", "query", "200", null, "{\"id\":\"750X\",\"state\":\"UploadComplete\"}");
+        respond("GET", "query/750X", "200", null,
+                "{\"id\":\"750X\",\"state\":\"Failed\",\"errorMessage\":\"INVALID_FIELD\"}");
+        try {
+            _client.runQueryJob("SELECT Foo FROM Account");
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Salesforce Bulk API job query/750X failed: INVALID_FIELD", e.getMessage());
+        }
+    }
+}
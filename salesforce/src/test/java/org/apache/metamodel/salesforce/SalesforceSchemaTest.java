@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.salesforce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.junit.Test;
+
+import com.sforce.soap.partner.DescribeGlobalResult;
+import com.sforce.soap.partner.DescribeGlobalSObjectResult;
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+import com.sforce.soap.partner.PartnerConnection;
+import com.sforce.ws.ConnectionException;
+import com.sforce.ws.ConnectorConfig;
+
+/**
+ * Tests the batched schema discovery of {@link SalesforceSchema} against a
+ * stubbed {@link PartnerConnection}.
+ */
+public class SalesforceSchemaTest {
+
+    private static class DescribeRecordingConnection extends PartnerConnection {
+
+        private final List<String> _calls = Collections.synchronizedList(new ArrayList<>());
+        private final int _numberOfObjects;
+
+        public DescribeRecordingConnection(int numberOfObjects) throws ConnectionException {
+            super(createConfig());
+            _numberOfObjects = numberOfObjects;
+        }
+
+        private static ConnectorConfig createConfig() {
+            final ConnectorConfig config = new ConnectorConfig();
+            config.setSessionId("session-id");
+            config.setServiceEndpoint("http://127.0.0.1/services/Soap/u/47.0");
+            return config;
+        }
+
+        @Override
+        public DescribeGlobalResult describeGlobal() throws ConnectionException {
+            _calls.add("describeGlobal");
+            final DescribeGlobalSObjectResult[] sobjects = new DescribeGlobalSObjectResult[_numberOfObjects];
+            for (int i = 0; i < sobjects.length; i++) {
+                sobjects[i] = new DescribeGlobalSObjectResult();
+                sobjects[i].setName("Object" + i);
+                sobjects[i].setLabel("Object #" + i);
+                sobjects[i].setQueryable(true);
+                sobjects[i].setUpdateable(true);
+            }
+            final DescribeGlobalResult result = new DescribeGlobalResult();
+            result.setSobjects(sobjects);
+            return result;
+        }
+
+        @Override
+        public DescribeSObjectResult describeSObject(String name) throws ConnectionException {
+            _calls.add("describeSObject:" + name);
+            return describe(name);
+        }
+
+        @Override
+        public DescribeSObjectResult[] describeSObjects(String[] names) throws ConnectionException {
+            _calls.add("describeSObjects:" + names.length);
+            final DescribeSObjectResult[] result = new DescribeSObjectResult[names.length];
+            for (int i = 0; i < names.length; i++) {
+                result[i] = describe(names[i]);
+            }
+            return result;
+        }
+
+        private DescribeSObjectResult describe(String name) {
+            final Field idField = new Field();
+            idField.setName("Id");
+            idField.setLabel("Record ID");
+            idField.setType(FieldType.id);
+            idField.setNillable(false);
+            idField.setLength(18);
+
+            final Field amountField = new Field();
+            amountField.setName("Amount");
+            amountField.setLabel("Amount");
+            amountField.setType(FieldType.currency);
+            amountField.setNillable(true);
+            amountField.setLength(0);
+
+            final DescribeSObjectResult result = new DescribeSObjectResult();
+            result.setName(name);
+            result.setLabel(name + " label");
+            result.setFields(new Field[] { idField, amountField });
+            return result;
+        }
+
+        public List<String> getCalls() {
+            final List<String> calls = new ArrayList<>(_calls);
+            Collections.sort(calls);
+            return calls;
+        }
+    }
+
+    @Test
+    public void testColumnsAreDescribedInBatches() throws Exception {
+        final DescribeRecordingConnection connection = new DescribeRecordingConnection(250);
+        final SalesforceSchema schema = new SalesforceSchema("Salesforce", connection);
+
+        assertEquals(250, schema.getTableCount());
+        final Table table = schema.getTableByName("Object123");
+        assertEquals("Object #123", table.getRemarks());
+        assertEquals("[Id, Amount]", table.getColumnNames().toString());
+
+        final Column idColumn = table.getColumnByName("Id");
+        assertEquals(ColumnType.VARCHAR, idColumn.getType());
+        assertTrue(idColumn.isPrimaryKey());
+        assertEquals(Boolean.FALSE, idColumn.isNullable());
+        assertEquals(Integer.valueOf(18), idColumn.getColumnSize());
+        assertEquals("Record ID", idColumn.getRemarks());
+        assertEquals("[describeGlobal, describeSObjects:100]", connection.getCalls().toString());
+
+        for (Table otherTable : schema.getTables()) {
+            assertEquals(2, otherTable.getColumnCount());
+        }
+
+        assertEquals("[describeGlobal, describeSObjects:100, describeSObjects:100, describeSObjects:50]", connection
+                .getCalls().toString());
+    }
+
+    @Test
+    public void testFailingBatchIsDescribedIndividually() throws Exception {
+        final DescribeRecordingConnection connection = new DescribeRecordingConnection(150) {
+            @Override
+            public DescribeSObjectResult[] describeSObjects(String[] names) throws ConnectionException {
+                final DescribeSObjectResult[] result = super.describeSObjects(names);
+                if ("Object0".equals(names[0])) {
+                    throw new ConnectionException("Request timed out");
+                }
+                return result;
+            }
+        };
+        final SalesforceSchema schema = new SalesforceSchema("Salesforce", connection);
+
+        assertEquals("[Id, Amount]", schema.getTableByName("Object5").getColumnNames().toString());
+        assertEquals("[Id, Amount]", schema.getTableByName("Object120").getColumnNames().toString());
+
+        assertEquals("[describeGlobal, describeSObject:Object5, describeSObjects:100, describeSObjects:50]",
+                connection.getCalls().toString());
+    }
+
+    @Test
+    public void testSchemaSnapshot() throws Exception {
+        final File file = File.createTempFile("salesforce_schema", ".json");
+        file.delete();
+        try {
+            final DescribeRecordingConnection connection1 = new DescribeRecordingConnection(3);
+            final SalesforceSchema schema1 = new SalesforceSchema("Salesforce", connection1,
+                    new SalesforceSchemaSnapshot(file, 60000));
+            assertEquals("[Id, Amount]", schema1.getTableByName("Object2").getColumnNames().toString());
+            assertEquals("[describeGlobal, describeSObjects:3]", connection1.getCalls().toString());
+            assertTrue(file.exists());
+
+            final DescribeRecordingConnection connection2 = new DescribeRecordingConnection(3);
+            final SalesforceSchema schema2 = new SalesforceSchema("Salesforce", connection2,
+                    new SalesforceSchemaSnapshot(file, 60000));
+            assertEquals("[Object0, Object1, Object2]", schema2.getTableNames().toString());
+            final Table table = schema2.getTableByName("Object2");
+            assertEquals("Object2 label", table.getRemarks());
+            final Column amountColumn = table.getColumnByName("Amount");
+            assertEquals(ColumnType.DOUBLE, amountColumn.getType());
+            assertEquals(FieldType.currency.toString(), amountColumn.getNativeType());
+            assertEquals(Boolean.TRUE, amountColumn.isNullable());
+            assertEquals("[]", connection2.getCalls().toString());
+
+            final DescribeRecordingConnection connection3 = new DescribeRecordingConnection(3);
+            final SalesforceSchema schema3 = new SalesforceSchema("Salesforce", connection3,
+                    new SalesforceSchemaSnapshot(file, 1));
+            Thread.sleep(10);
+            assertEquals(2, schema3.getTableByName("Object0").getColumnCount());
+            assertEquals("[describeGlobal, describeSObjects:3]", connection3.getCalls().toString());
+        } finally {
+            file.delete();
+        }
+    }
+}
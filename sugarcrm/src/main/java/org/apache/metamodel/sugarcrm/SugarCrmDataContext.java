@@ -20,17 +20,21 @@ package org.apache.metamodel.sugarcrm;
 
 import java.io.Closeable;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.namespace.QName;
 import javax.xml.ws.BindingProvider;
+import javax.xml.ws.soap.SOAPFaultException;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.metamodel.MetaModelException;
+import org.apache.metamodel.MetaModelHelper;
 import org.apache.metamodel.QueryPostprocessDataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.MaxRowsDataSet;
 import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
@@ -56,10 +60,15 @@ public class SugarCrmDataContext extends QueryPostprocessDataContext implements
 
     private static final Logger logger = LoggerFactory.getLogger(SugarCrmDataContext.class);
 
+    /**
+     * The default number of records to request per get_entry_list call.
+     */
     public static final int FETCH_SIZE = 200;
 
     private final LazyRef<String> _sessionId;
     private final SugarsoapPortType _service;
+    private volatile int _fetchSize = FETCH_SIZE;
+    private volatile boolean _queryPushDownEnabled = false;
 
     /**
      * 
@@ -113,6 +122,25 @@ public class SugarCrmDataContext extends QueryPostprocessDataContext implements
         };
     }
 
+    /**
+     * Creates a SugarCRM DataContext for an already established session.
+     * 
+     * @param service
+     *            the SugarCRM service
+     * @param sessionId
+     *            the session ID
+     */
+    SugarCrmDataContext(final SugarsoapPortType service, final String sessionId) {
+        super(false);
+        _service = service;
+        _sessionId = new LazyRef<String>() {
+            @Override
+            protected String fetch() {
+                return sessionId;
+            }
+        };
+    }
+
     @Override
     public void close() {
         if (_sessionId.isFetched()) {
@@ -124,6 +152,52 @@ public class SugarCrmDataContext extends QueryPostprocessDataContext implements
         }
     }
 
+    /**
+     * Gets the number of records that are requested per get_entry_list call.
+     * 
+     * @return the fetch size
+     */
+    public int getFetchSize() {
+        return _fetchSize;
+    }
+
+    /**
+     * Sets the number of records that are requested per get_entry_list call.
+     * 
+     * @param fetchSize
+     *            the fetch size, defaults to {@link #FETCH_SIZE}
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be a positive number, was: " + fetchSize);
+        }
+        _fetchSize = fetchSize;
+    }
+
+    /**
+     * Determines whether simple WHERE items are translated into the query
+     * parameter of get_entry_list.
+     * 
+     * @return true if query push down is enabled, false by default
+     */
+    public boolean isQueryPushDownEnabled() {
+        return _queryPushDownEnabled;
+    }
+
+    /**
+     * Sets whether simple WHERE items are translated into the query parameter
+     * of get_entry_list. The translated query refers to columns of the
+     * module's table, which is assumed to be the lower case module name. It
+     * is therefore disabled by default. If SugarCRM rejects a translated
+     * query, the records are fetched without it.
+     * 
+     * @param queryPushDownEnabled
+     *            whether to push down WHERE items
+     */
+    public void setQueryPushDownEnabled(boolean queryPushDownEnabled) {
+        _queryPushDownEnabled = queryPushDownEnabled;
+    }
+
     @Override
     protected Schema getMainSchema() throws MetaModelException {
         Schema schema = new SugarCrmSchema(getMainSchemaName(), _service, _sessionId);
@@ -147,8 +221,51 @@ public class SugarCrmDataContext extends QueryPostprocessDataContext implements
         return super.executeCountQuery(table, whereItems, functionApproximationAllowed);
     }
 
+    @Override
+    protected DataSet materializeMainSchemaTable(Table table, List<SelectItem> selectItems,
+            List<FilterItem> whereItems, int firstRow, int maxRows) {
+        final boolean columnsOnly = selectItems.stream().allMatch(selectItem -> selectItem.getColumn() != null);
+        final String query = _queryPushDownEnabled && columnsOnly ? SugarCrmUtils.createQuery(table, whereItems) : "";
+        if (query.isEmpty()) {
+            return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
+        }
+        logger.debug("Pushing down query to get_entry_list of {}: {}", table.getName(), query);
+
+        final List<Column> columns = new ArrayList<>();
+        for (SelectItem selectItem : selectItems) {
+            if (!columns.contains(selectItem.getColumn())) {
+                columns.add(selectItem.getColumn());
+            }
+        }
+        for (Column column : SugarCrmUtils.getReferencedColumns(whereItems)) {
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+
+        // the pushed down query only reduces the records, so the WHERE items
+        // are still applied before paging
+        DataSet dataSet;
+        try {
+            dataSet = materializeMainSchemaTable(table, columns, query, -1);
+        } catch (SOAPFaultException e) {
+            logger.warn("SugarCRM rejected query of {}, falling back to post processing: {}", table.getName(),
+                    e.getMessage());
+            return super.materializeMainSchemaTable(table, selectItems, whereItems, firstRow, maxRows);
+        }
+        dataSet = MetaModelHelper.getFiltered(dataSet, whereItems);
+        dataSet = MetaModelHelper.getPaged(dataSet, firstRow, maxRows);
+        dataSet = MetaModelHelper.getSelection(selectItems, dataSet);
+        return dataSet;
+    }
+
     @Override
     protected DataSet materializeMainSchemaTable(final Table table, final List<Column> columns, final int maxRows) {
+        return materializeMainSchemaTable(table, columns, "", maxRows);
+    }
+
+    private DataSet materializeMainSchemaTable(final Table table, final List<Column> columns, final String query,
+            final int maxRows) {
 
         final String session = _sessionId.get();
         final String moduleName = table.getName();
@@ -158,16 +275,17 @@ public class SugarCrmDataContext extends QueryPostprocessDataContext implements
         final LinkNamesToFieldsArray linkNameToFieldsArray = new LinkNamesToFieldsArray();
 
         final int fetchSize;
-        if (maxRows < 0 || maxRows > FETCH_SIZE) {
-            fetchSize = FETCH_SIZE;
+        if (maxRows < 0 || maxRows > _fetchSize) {
+            fetchSize = _fetchSize;
         } else {
             fetchSize = maxRows;
         }
 
-        final GetEntryListResultVersion2 entryList = _service.getEntryList(session, moduleName, "", "", 0,
+        final GetEntryListResultVersion2 entryList = _service.getEntryList(session, moduleName, query, "", 0,
                 selectFields, linkNameToFieldsArray, fetchSize, 0, false);
 
-        final SugarCrmDataSet dataSet = new SugarCrmDataSet(columns, _service, session, entryList);
+        final SugarCrmDataSet dataSet = new SugarCrmDataSet(columns, _service, session, query, _fetchSize,
+                maxRows > 0 ? maxRows : -1, entryList);
         
         if (maxRows > 0) {
             // sugar's responses are a bit weird to interpret regarding total count, so we apply a MaxRowsDataSet wrapper.
@@ -176,4 +294,4 @@ public class SugarCrmDataContext extends QueryPostprocessDataContext implements
         
         return dataSet;
     }
-}
\ No newline at end of file
+}
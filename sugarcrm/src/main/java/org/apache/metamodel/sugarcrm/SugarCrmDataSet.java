@@ -21,9 +21,12 @@ package org.apache.metamodel.sugarcrm;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import org.apache.metamodel.MetaModelException;
 import org.apache.metamodel.data.AbstractDataSet;
 import org.apache.metamodel.data.DataSetHeader;
 import org.apache.metamodel.data.DefaultRow;
@@ -33,6 +36,7 @@ import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.ColumnType;
 import org.apache.metamodel.util.BooleanComparator;
 import org.apache.metamodel.util.NumberComparator;
+import org.apache.metamodel.util.SharedExecutorService;
 import org.apache.metamodel.util.TimeComparator;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -43,53 +47,116 @@ import com.sugarcrm.ws.soap.SelectFields;
 import com.sugarcrm.ws.soap.SugarsoapPortType;
 
 /**
- * DataSet that reads through web service response(s) of SugarCRM.
+ * DataSet that reads through web service response(s) of SugarCRM. The next
+ * page of records is requested in the background while the current page is
+ * being consumed.
  */
 final class SugarCrmDataSet extends AbstractDataSet {
 
     private final SugarsoapPortType _service;
     private final String _session;
+    private final String _query;
+    private final int _fetchSize;
+    private final int _maxRows;
     private final AtomicInteger _recordIndex;
 
     private GetEntryListResultVersion2 _entryList;
     private List<Object> _records;
     private Node _record;
-
-    public SugarCrmDataSet(List<Column> columns, SugarsoapPortType service, String session,
-            GetEntryListResultVersion2 entryList) {
+    private int _fetchedRecords;
+    private Future<GetEntryListResultVersion2> _nextEntryList;
+
+    /**
+     * Creates a SugarCRM DataSet.
+     * 
+     * @param columns
+     *            the columns to read
+     * @param service
+     *            the SugarCRM service
+     * @param session
+     *            the session ID
+     * @param query
+     *            the get_entry_list query which was used for the first page
+     * @param fetchSize
+     *            the number of records to request per page
+     * @param maxRows
+     *            the maximum number of records that will be read, or a
+     *            negative number if all records will be read
+     * @param entryList
+     *            the first page of records
+     */
+    public SugarCrmDataSet(List<Column> columns, SugarsoapPortType service, String session, String query,
+            int fetchSize, int maxRows, GetEntryListResultVersion2 entryList) {
         super(columns.stream().map(SelectItem::new).collect(Collectors.toList()));
         _recordIndex = new AtomicInteger();
         _service = service;
         _session = session;
+        _query = query;
+        _fetchSize = fetchSize;
+        _maxRows = maxRows;
         _entryList = entryList;
         _records = _entryList.getEntryList().getAny();
         _record = null;
+        _fetchedRecords = _records.size();
+        _nextEntryList = prefetchNextEntryList();
     }
 
     protected GetEntryListResultVersion2 getEntryList() {
         return _entryList;
     }
 
+    private Future<GetEntryListResultVersion2> prefetchNextEntryList() {
+        final int nextOffset = _entryList.getNextOffset();
+        if (nextOffset == _entryList.getTotalCount() || _records.isEmpty()) {
+            return null;
+        }
+        if (_maxRows >= 0 && _fetchedRecords >= _maxRows) {
+            return null;
+        }
+
+        final DataSetHeader header = getHeader();
+        final List<SelectItem> selectItems = header.getSelectItems();
+        final List<Column> columns = selectItems.stream().map(si -> si.getColumn()).collect(Collectors.toList());
+        final String moduleName = selectItems.get(0).getColumn().getTable().getName();
+        final SelectFields selectFields = SugarCrmXmlHelper.createSelectFields(columns);
+
+        return SharedExecutorService.get().submit(() -> _service.getEntryList(_session, moduleName, _query, "",
+                nextOffset, selectFields, new LinkNamesToFieldsArray(), _fetchSize, 0, false));
+    }
+
+    private GetEntryListResultVersion2 awaitNextEntryList() {
+        try {
+            return _nextEntryList.get();
+        } catch (InterruptedException e) {
+            _nextEntryList.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MetaModelException("Interrupted while fetching SugarCRM records", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new MetaModelException("Failed to fetch SugarCRM records", e);
+        }
+    }
+
     @Override
     public boolean next() {
         final int index = _recordIndex.getAndIncrement();
         if (index >= _records.size()) {
-            final int nextOffset = _entryList.getNextOffset();
-            if (nextOffset == _entryList.getTotalCount()) {
+            if (_nextEntryList == null) {
                 _record = null;
                 return false;
             }
 
-            final DataSetHeader header = getHeader();
-            final List<SelectItem> selectItems = header.getSelectItems();
-            final List<Column> columns = selectItems.stream().map(si -> si.getColumn()).collect(Collectors.toList());
-            final String moduleName = selectItems.get(0).getColumn().getTable().getName();
-            final SelectFields selectFields = SugarCrmXmlHelper.createSelectFields(columns);
-
-            _entryList = _service.getEntryList(_session, moduleName, "", "", nextOffset, selectFields,
-                    new LinkNamesToFieldsArray(), SugarCrmDataContext.FETCH_SIZE, 0, false);
+            _entryList = awaitNextEntryList();
             _records = _entryList.getEntryList().getAny();
+            _fetchedRecords += _records.size();
             _recordIndex.set(0);
+            _nextEntryList = prefetchNextEntryList();
             return next();
         }
 
@@ -97,6 +164,15 @@ final class SugarCrmDataSet extends AbstractDataSet {
         return true;
     }
 
+    @Override
+    public void close() {
+        super.close();
+        if (_nextEntryList != null) {
+            _nextEntryList.cancel(true);
+            _nextEntryList = null;
+        }
+    }
+
     @Override
     public Row getRow() {
         if (_record == null) {
@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.sugarcrm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.CollectionUtils;
+
+/**
+ * Utility methods for translating MetaModel filter items into the SQL "query"
+ * parameter of SugarCRM's get_entry_list service.
+ *
+ * The translated query is only used to reduce the number of records that are
+ * transferred. Since the SugarCRM database may compare strings
+ * case-insensitively, the filter items are still evaluated on the returned
+ * records.
+ */
+final class SugarCrmUtils {
+
+    /**
+     * Native types of fields that are stored as plain columns in the module's
+     * table and compare as strings.
+     */
+    private static final Set<String> STRING_TYPES = new HashSet<>(Arrays.asList("id", "name", "varchar", "enum",
+            "phone", "url", "text"));
+
+    private SugarCrmUtils() {
+        // prevent instantiation
+    }
+
+    /**
+     * Creates a get_entry_list query for the filter items that can be
+     * translated. Filter items that cannot be translated are left out, which
+     * makes the query less restrictive than the filter items.
+     *
+     * @param table
+     *            the table (module) that is queried
+     * @param whereItems
+     *            the filter items of the query, which are implicitly AND'ed
+     * @return the query, or an empty string if no filter items could be
+     *         translated
+     */
+    public static String createQuery(Table table, List<FilterItem> whereItems) {
+        final String tableName = table.getName().toLowerCase();
+        final StringBuilder sb = new StringBuilder();
+        for (FilterItem whereItem : whereItems) {
+            final String condition = createCondition(tableName, whereItem);
+            if (condition != null) {
+                if (sb.length() > 0) {
+                    sb.append(" AND ");
+                }
+                sb.append(condition);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the columns that are referenced by filter items.
+     */
+    public static List<Column> getReferencedColumns(List<FilterItem> whereItems) {
+        final List<Column> columns = new ArrayList<>();
+        for (FilterItem whereItem : whereItems) {
+            addReferencedColumns(whereItem, columns);
+        }
+        return columns;
+    }
+
+    private static void addReferencedColumns(FilterItem filterItem, List<Column> columns) {
+        if (filterItem.isCompoundFilter()) {
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                addReferencedColumns(childItem, columns);
+            }
+            return;
+        }
+        final SelectItem selectItem = filterItem.getSelectItem();
+        if (selectItem != null && selectItem.getColumn() != null && !columns.contains(selectItem.getColumn())) {
+            columns.add(selectItem.getColumn());
+        }
+        if (filterItem.getOperand() instanceof SelectItem) {
+            final Column column = ((SelectItem) filterItem.getOperand()).getColumn();
+            if (column != null && !columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+    }
+
+    private static String createCondition(String tableName, FilterItem filterItem) {
+        if (filterItem.isCompoundFilter()) {
+            final String separator = filterItem.getLogicalOperator() == LogicalOperator.AND ? " AND " : " OR ";
+            final StringBuilder sb = new StringBuilder("(");
+            for (FilterItem childItem : filterItem.getChildItems()) {
+                final String condition = createCondition(tableName, childItem);
+                if (condition == null) {
+                    // a partial OR condition would be more restrictive
+                    return null;
+                }
+                if (sb.length() > 1) {
+                    sb.append(separator);
+                }
+                sb.append(condition);
+            }
+            return sb.append(')').toString();
+        }
+
+        final SelectItem selectItem = filterItem.getSelectItem();
+        if (filterItem.getExpression() != null || selectItem == null || selectItem.getColumn() == null
+                || selectItem.hasFunction()) {
+            return null;
+        }
+        final Column column = selectItem.getColumn();
+        final String fieldName = column.getName();
+        if (fieldName.endsWith("_c") || !fieldName.matches("[A-Za-z0-9_]+")) {
+            // custom fields reside in a separate table
+            return null;
+        }
+        final String nativeType = column.getNativeType();
+        final boolean numeric = "int".equals(nativeType);
+        final boolean bool = "bool".equals(nativeType);
+        if (!numeric && !bool && !STRING_TYPES.contains(nativeType)) {
+            return null;
+        }
+
+        final String columnSql = tableName + "." + fieldName;
+        final OperatorType operator = filterItem.getOperator();
+        final Object operand = filterItem.getOperand();
+
+        if (operand == null) {
+            // empty strings are returned as null values, so IS NULL would be
+            // more restrictive
+            return null;
+        }
+
+        if (operator == OperatorType.IN) {
+            final List<?> values = CollectionUtils.toList(operand);
+            if (values.isEmpty()) {
+                return null;
+            }
+            final StringBuilder sb = new StringBuilder(columnSql).append(" IN (");
+            for (int i = 0; i < values.size(); i++) {
+                final String literal = toLiteral(values.get(i), numeric, bool);
+                if (literal == null) {
+                    return null;
+                }
+                if (i != 0) {
+                    sb.append(',');
+                }
+                sb.append(literal);
+            }
+            return sb.append(')').toString();
+        }
+
+        final String literal = toLiteral(operand, numeric, bool);
+        if (literal == null) {
+            return null;
+        }
+        if (operator == OperatorType.EQUALS_TO) {
+            return columnSql + " = " + literal;
+        }
+        if (operator == OperatorType.LIKE && !numeric && !bool) {
+            return columnSql + " LIKE " + literal;
+        }
+        if (numeric) {
+            // string comparisons in the database may not match the ordering
+            // of MetaModel, so ranges are only translated for numbers
+            if (operator == OperatorType.GREATER_THAN || operator == OperatorType.GREATER_THAN_OR_EQUAL
+                    || operator == OperatorType.LESS_THAN || operator == OperatorType.LESS_THAN_OR_EQUAL) {
+                return columnSql + " " + operator.toSql() + " " + literal;
+            }
+        }
+        return null;
+    }
+
+    private static String toLiteral(Object value, boolean numeric, boolean bool) {
+        if (value instanceof Double || value instanceof Float) {
+            final double doubleValue = ((Number) value).doubleValue();
+            if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+                // "NaN" and "Infinity" are not valid SQL literals
+                return null;
+            }
+        }
+        if (numeric) {
+            if (value instanceof Number) {
+                return value.toString();
+            }
+            return null;
+        }
+        if (bool) {
+            if (value instanceof Boolean) {
+                return ((Boolean) value).booleanValue() ? "1" : "0";
+            }
+            return null;
+        }
+        if (value instanceof String || value instanceof Number) {
+            return "'" + value.toString().replace("\\", "\\\\").replace("'", "''") + "'";
+        }
+        return null;
+    }
+}
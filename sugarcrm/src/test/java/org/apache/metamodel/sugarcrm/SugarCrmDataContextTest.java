@@ -18,10 +18,17 @@
  */
 package org.apache.metamodel.sugarcrm;
 
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.soap.SOAPFactory;
+import javax.xml.ws.soap.SOAPFaultException;
+
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.InMemoryDataSet;
 import org.apache.metamodel.data.MaxRowsDataSet;
@@ -29,10 +36,18 @@ import org.apache.metamodel.data.Row;
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableSchema;
+import org.apache.metamodel.schema.MutableTable;
 import org.apache.metamodel.schema.Schema;
 import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.schema.TableType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
+import com.sugarcrm.ws.soap.EntryList;
 import com.sugarcrm.ws.soap.GetEntryListResultVersion2;
+import com.sugarcrm.ws.soap.SugarsoapPortType;
 
 public class SugarCrmDataContextTest extends SugarCrmTestCase {
 
@@ -48,6 +63,113 @@ public class SugarCrmDataContextTest extends SugarCrmTestCase {
         }
     }
 
+    public void testQueryPushDownDisabledByDefault() throws Exception {
+        final List<String> queries = new ArrayList<>();
+        dataContext = createDataContext(queries, false);
+        assertFalse(dataContext.isQueryPushDownEnabled());
+
+        final DataSet ds = dataContext.query().from("Accounts").select("name").where("employees").gt(10).execute();
+        assertEquals("[Row[values=[Acme]]]", ds.toRows().toString());
+        ds.close();
+
+        assertEquals(Arrays.asList(""), queries);
+    }
+
+    public void testQueryPushDown() throws Exception {
+        final List<String> queries = new ArrayList<>();
+        dataContext = createDataContext(queries, false);
+        dataContext.setQueryPushDownEnabled(true);
+
+        final DataSet ds = dataContext.query().from("Accounts").select("name").where("employees").gt(10).execute();
+        // the stub ignores the query, so the records are still filtered
+        // after fetching them
+        assertEquals("[Row[values=[Acme]]]", ds.toRows().toString());
+        ds.close();
+
+        assertEquals(Arrays.asList("accounts.employees > 10"), queries);
+    }
+
+    public void testQueryPushDownRejected() throws Exception {
+        final List<String> queries = new ArrayList<>();
+        dataContext = createDataContext(queries, true);
+        dataContext.setQueryPushDownEnabled(true);
+
+        final DataSet ds = dataContext.query().from("Accounts").select("name").where("employees").gt(10).execute();
+        assertEquals("[Row[values=[Acme]]]", ds.toRows().toString());
+        ds.close();
+
+        assertEquals(Arrays.asList("accounts.employees > 10", ""), queries);
+    }
+
+    /**
+     * Creates a DataContext with an "Accounts" table that is backed by a stub
+     * of the SugarCRM service. The stub records the queries it receives and
+     * returns the same two accounts for every query.
+     */
+    private SugarCrmDataContext createDataContext(final List<String> queries, final boolean rejectQueries) {
+        final SugarsoapPortType service = (SugarsoapPortType) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { SugarsoapPortType.class }, (proxy, method, args) -> {
+                    if (!"getEntryList".equals(method.getName())) {
+                        return null;
+                    }
+                    final String query = (String) args[2];
+                    queries.add(query);
+                    if (rejectQueries && !query.isEmpty()) {
+                        throw new SOAPFaultException(SOAPFactory.newInstance().createFault("Unknown column",
+                                new QName("http://schemas.xmlsoap.org/soap/envelope/", "Server")));
+                    }
+                    return createEntryList(new String[] { "Acme", "100" }, new String[] { "Small", "5" });
+                });
+
+        final MutableSchema schema = new MutableSchema("SugarCRM");
+        final MutableTable table = new MutableTable("Accounts", TableType.TABLE, schema);
+        schema.addTable(table);
+        final MutableColumn nameColumn = new MutableColumn("name", ColumnType.VARCHAR, table, 0, true);
+        nameColumn.setNativeType("name");
+        table.addColumn(nameColumn);
+        final MutableColumn employeesColumn = new MutableColumn("employees", ColumnType.INTEGER, table, 1, true);
+        employeesColumn.setNativeType("int");
+        table.addColumn(employeesColumn);
+
+        return new SugarCrmDataContext(service, "session") {
+            @Override
+            protected Schema getMainSchema() {
+                return schema;
+            }
+        };
+    }
+
+    private GetEntryListResultVersion2 createEntryList(String[]... accounts) throws Exception {
+        final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        final EntryList entryList = new EntryList();
+        for (String[] account : accounts) {
+            final Element nameValueList = document.createElement("name_value_list");
+            nameValueList.appendChild(createNameValue(document, "name", account[0]));
+            nameValueList.appendChild(createNameValue(document, "employees", account[1]));
+            final Element record = document.createElement("item");
+            record.appendChild(nameValueList);
+            entryList.getAny().add(record);
+        }
+
+        final GetEntryListResultVersion2 result = new GetEntryListResultVersion2();
+        result.setResultCount(accounts.length);
+        result.setTotalCount(accounts.length);
+        result.setNextOffset(accounts.length);
+        result.setEntryList(entryList);
+        return result;
+    }
+
+    private Element createNameValue(Document document, String name, String value) {
+        final Element nameElement = document.createElement("name");
+        nameElement.setTextContent(name);
+        final Element valueElement = document.createElement("value");
+        valueElement.setTextContent(value);
+        final Element item = document.createElement("item");
+        item.appendChild(nameElement);
+        item.appendChild(valueElement);
+        return item;
+    }
+
     public void testCountQuery() throws Exception {
         if (!isConfigured()) {
             System.err.println(getInvalidConfigurationMessage());
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.metamodel.sugarcrm;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+
+public class SugarCrmUtilsTest extends TestCase {
+
+    private final MutableTable table = new MutableTable("Accounts");
+    private final MutableColumn nameColumn = createColumn("name", ColumnType.VARCHAR, "name");
+    private final MutableColumn employeesColumn = createColumn("employees", ColumnType.INTEGER, "int");
+    private final MutableColumn deletedColumn = createColumn("deleted", ColumnType.BOOLEAN, "bool");
+    private final MutableColumn createdColumn = createColumn("date_entered", ColumnType.DATE, "datetime");
+    private final MutableColumn customColumn = createColumn("rating_c", ColumnType.VARCHAR, "varchar");
+
+    private MutableColumn createColumn(String name, ColumnType type, String nativeType) {
+        final MutableColumn column = new MutableColumn(name, type, table, table.getColumnCount(), true);
+        column.setNativeType(nativeType);
+        table.addColumn(column);
+        return column;
+    }
+
+    private FilterItem filter(MutableColumn column, OperatorType operator, Object operand) {
+        return new FilterItem(new SelectItem(column), operator, operand);
+    }
+
+    public void testCreateQuery() throws Exception {
+        assertEquals("accounts.name = 'O''Reilly' AND accounts.employees >= 100 AND accounts.deleted = 0",
+                SugarCrmUtils.createQuery(table, Arrays.asList(filter(nameColumn, OperatorType.EQUALS_TO,
+                        "O'Reilly"), filter(employeesColumn, OperatorType.GREATER_THAN_OR_EQUAL, 100), filter(
+                                deletedColumn, OperatorType.EQUALS_TO, false))));
+
+        assertEquals("accounts.name LIKE 'Acme%' AND accounts.employees IN (1,2,3)", SugarCrmUtils.createQuery(
+                table, Arrays.asList(filter(nameColumn, OperatorType.LIKE, "Acme%"), filter(employeesColumn,
+                        OperatorType.IN, Arrays.asList(1, 2, 3)))));
+
+        assertEquals("(accounts.name = 'Foo' OR accounts.employees < 10)", SugarCrmUtils.createQuery(table,
+                Collections.singletonList(new FilterItem(LogicalOperator.OR, filter(nameColumn,
+                        OperatorType.EQUALS_TO, "Foo"), filter(employeesColumn, OperatorType.LESS_THAN, 10)))));
+    }
+
+    public void testCreateQueryLeavesOutUntranslatableItems() throws Exception {
+        // string ranges, dates, custom fields, negations and nulls are not
+        // pushed down
+        assertEquals("accounts.employees = 5", SugarCrmUtils.createQuery(table, Arrays.asList(filter(nameColumn,
+                OperatorType.GREATER_THAN, "M"), filter(createdColumn, OperatorType.LESS_THAN, "2019-01-01"),
+                filter(customColumn, OperatorType.EQUALS_TO, "Hot"), filter(nameColumn, OperatorType.DIFFERENT_FROM,
+                        "Foo"), filter(nameColumn, OperatorType.EQUALS_TO, null), filter(employeesColumn,
+                                OperatorType.EQUALS_TO, 5))));
+
+        // an OR item is only pushed down if all of its children are
+        assertEquals("", SugarCrmUtils.createQuery(table, Collections.singletonList(new FilterItem(
+                LogicalOperator.OR, filter(nameColumn, OperatorType.EQUALS_TO, "Foo"), filter(customColumn,
+                        OperatorType.EQUALS_TO, "Hot")))));
+
+        // numeric fields are only compared with numbers
+        assertEquals("", SugarCrmUtils.createQuery(table, Collections.singletonList(filter(employeesColumn,
+                OperatorType.EQUALS_TO, "5"))));
+
+        // non-finite numbers have no SQL literal
+        assertEquals("", SugarCrmUtils.createQuery(table, Arrays.asList(filter(employeesColumn,
+                OperatorType.LESS_THAN, Double.NaN), filter(nameColumn, OperatorType.EQUALS_TO,
+                        Double.POSITIVE_INFINITY))));
+    }
+
+    public void testGetReferencedColumns() throws Exception {
+        final List<Column> columns = SugarCrmUtils.getReferencedColumns(Arrays.asList(filter(nameColumn,
+                OperatorType.EQUALS_TO, "Foo"), new FilterItem(LogicalOperator.OR, filter(employeesColumn,
+                        OperatorType.EQUALS_TO, 1), filter(nameColumn, OperatorType.LIKE, "%a"))));
+        assertEquals(Arrays.asList(nameColumn, employeesColumn), columns);
+    }
+}